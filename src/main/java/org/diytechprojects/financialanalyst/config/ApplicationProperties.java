@@ -1,6 +1,8 @@
 package org.diytechprojects.financialanalyst.config;
 
+import java.time.Duration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 /**
  * Properties specific to Financial Analyst.
@@ -9,4 +11,626 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  * See {@link tech.jhipster.config.JHipsterProperties} for a good example.
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
-public class ApplicationProperties {}
+public class ApplicationProperties {
+
+    private final BulkImport bulkImport = new BulkImport();
+
+    private final ArchiveImport archiveImport = new ArchiveImport();
+
+    private final ImportJobs importJobs = new ImportJobs();
+
+    private final SyntheticData syntheticData = new SyntheticData();
+
+    private final Recategorization recategorization = new Recategorization();
+
+    private final Descriptions descriptions = new Descriptions();
+
+    private final Rollup rollup = new Rollup();
+
+    private final Snapshot snapshot = new Snapshot();
+
+    private final Balances balances = new Balances();
+
+    private final Classifier classifier = new Classifier();
+
+    private final TokenIndex tokenIndex = new TokenIndex();
+
+    public BulkImport getBulkImport() {
+        return bulkImport;
+    }
+
+    public ArchiveImport getArchiveImport() {
+        return archiveImport;
+    }
+
+    public ImportJobs getImportJobs() {
+        return importJobs;
+    }
+
+    public SyntheticData getSyntheticData() {
+        return syntheticData;
+    }
+
+    public Recategorization getRecategorization() {
+        return recategorization;
+    }
+
+    public Descriptions getDescriptions() {
+        return descriptions;
+    }
+
+    public Rollup getRollup() {
+        return rollup;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public Balances getBalances() {
+        return balances;
+    }
+
+    public Classifier getClassifier() {
+        return classifier;
+    }
+
+    public TokenIndex getTokenIndex() {
+        return tokenIndex;
+    }
+
+    public static class BulkImport {
+
+        /**
+         * Number of rows written by a single multi-row insert statement.
+         */
+        private int batchSize = 1000;
+
+        /**
+         * Upper bound accepted for a caller supplied batch size, keeps the number of bind parameters per statement in check.
+         */
+        private int maxBatchSize = 5000;
+
+        /**
+         * Number of batches normalized in parallel by the import pipeline.
+         */
+        private int normalizeConcurrency = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Number of batches categorized in parallel by the import pipeline.
+         */
+        private int categorizeConcurrency = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Number of batches written in parallel by the import pipeline, 0 to use the size of the connection pool.
+         */
+        private int persistConcurrency = 0;
+
+        /**
+         * Number of batches each stage of the import pipeline can hold before back-pressuring the previous one.
+         */
+        private int stageQueueSize = 8;
+
+        /**
+         * Probability the category suggested by the classifier must reach to be given to an imported transaction no
+         * rule matches, 0 to leave these transactions uncategorized.
+         */
+        private double classifierMinConfidence = 0;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public int getNormalizeConcurrency() {
+            return normalizeConcurrency;
+        }
+
+        public void setNormalizeConcurrency(int normalizeConcurrency) {
+            this.normalizeConcurrency = normalizeConcurrency;
+        }
+
+        public int getCategorizeConcurrency() {
+            return categorizeConcurrency;
+        }
+
+        public void setCategorizeConcurrency(int categorizeConcurrency) {
+            this.categorizeConcurrency = categorizeConcurrency;
+        }
+
+        public int getPersistConcurrency() {
+            return persistConcurrency;
+        }
+
+        public void setPersistConcurrency(int persistConcurrency) {
+            this.persistConcurrency = persistConcurrency;
+        }
+
+        public int getStageQueueSize() {
+            return stageQueueSize;
+        }
+
+        public void setStageQueueSize(int stageQueueSize) {
+            this.stageQueueSize = stageQueueSize;
+        }
+
+        public double getClassifierMinConfidence() {
+            return classifierMinConfidence;
+        }
+
+        public void setClassifierMinConfidence(double classifierMinConfidence) {
+            this.classifierMinConfidence = classifierMinConfidence;
+        }
+    }
+
+    public static class ArchiveImport {
+
+        /**
+         * CSV archive imported at startup, the offline import mode is enabled when it is set.
+         */
+        private String file;
+
+        /**
+         * Nominal size of the chunks the archive is split into, each chunk is committed in its own transaction.
+         */
+        private DataSize chunkSize = DataSize.ofMegabytes(4);
+
+        /**
+         * Number of chunks parsed in parallel.
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+
+        public DataSize getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(DataSize chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+
+    public static class ImportJobs {
+
+        /**
+         * Directory the files of the import jobs must be in, any readable file is accepted when it is not set.
+         */
+        private String directory;
+
+        /**
+         * Delay between two heartbeats of the running jobs, and between two looks for jobs to start or resume.
+         */
+        private Duration pollInterval = Duration.ofSeconds(10);
+
+        /**
+         * Time without heartbeat after which a running job is considered interrupted and resumed by another instance.
+         */
+        private Duration staleAfter = Duration.ofMinutes(1);
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        public Duration getStaleAfter() {
+            return staleAfter;
+        }
+
+        public void setStaleAfter(Duration staleAfter) {
+            this.staleAfter = staleAfter;
+        }
+    }
+
+    public static class SyntheticData {
+
+        /**
+         * Number of synthetic transactions generated at startup, the generator is disabled when not set.
+         */
+        private Long transactions;
+
+        /**
+         * Seed of the generator, the same seed and settings always produce the same dataset.
+         */
+        private long seed = 1;
+
+        /**
+         * Number of distinct merchants the purchases are spread over.
+         */
+        private int merchants = 2000;
+
+        /**
+         * Exponent of the Zipf distribution of the purchases over the merchants, higher values concentrate them on fewer merchants.
+         */
+        private double merchantSkew = 1.07;
+
+        /**
+         * Number of years of transactions, ending with the last year.
+         */
+        private int years = 5;
+
+        /**
+         * Last year of the transactions, fixed rather than derived from the current date so that datasets are repeatable.
+         */
+        private int lastYear = 2025;
+
+        /**
+         * Share of the merchants having an expense rule matching their name.
+         */
+        private double ruleCoverage = 0.9;
+
+        /**
+         * Share of the transactions matched by a rule that are left without expense or income, to be categorized later.
+         */
+        private double uncategorizedRatio = 0.1;
+
+        /**
+         * Number of transactions written per database transaction.
+         */
+        private int commitSize = 50000;
+
+        public Long getTransactions() {
+            return transactions;
+        }
+
+        public void setTransactions(Long transactions) {
+            this.transactions = transactions;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public void setSeed(long seed) {
+            this.seed = seed;
+        }
+
+        public int getMerchants() {
+            return merchants;
+        }
+
+        public void setMerchants(int merchants) {
+            this.merchants = merchants;
+        }
+
+        public double getMerchantSkew() {
+            return merchantSkew;
+        }
+
+        public void setMerchantSkew(double merchantSkew) {
+            this.merchantSkew = merchantSkew;
+        }
+
+        public int getYears() {
+            return years;
+        }
+
+        public void setYears(int years) {
+            this.years = years;
+        }
+
+        public int getLastYear() {
+            return lastYear;
+        }
+
+        public void setLastYear(int lastYear) {
+            this.lastYear = lastYear;
+        }
+
+        public double getRuleCoverage() {
+            return ruleCoverage;
+        }
+
+        public void setRuleCoverage(double ruleCoverage) {
+            this.ruleCoverage = ruleCoverage;
+        }
+
+        public double getUncategorizedRatio() {
+            return uncategorizedRatio;
+        }
+
+        public void setUncategorizedRatio(double uncategorizedRatio) {
+            this.uncategorizedRatio = uncategorizedRatio;
+        }
+
+        public int getCommitSize() {
+            return commitSize;
+        }
+
+        public void setCommitSize(int commitSize) {
+            this.commitSize = commitSize;
+        }
+    }
+
+    public static class Recategorization {
+
+        /**
+         * Number of transactions read, categorized and committed at once.
+         */
+        private int chunkSize = 5000;
+
+        /**
+         * When the nightly job starts, {@code -} to disable it.
+         */
+        private String cron = "0 0 3 * * *";
+
+        /**
+         * Time without heartbeat after which a running job is considered interrupted and resumed by another instance.
+         */
+        private Duration staleAfter = Duration.ofMinutes(5);
+
+        /**
+         * Number of edits allowed to a search string matching a description when none matches exactly, 0 to match
+         * exactly only.
+         */
+        private int maxEdits = 0;
+
+        /**
+         * Number of descriptions whose matching rules are cached for the current version of the rules.
+         */
+        private int cacheSize = 65536;
+
+        /**
+         * Number of ranges of ids a preview of candidate rules reads and evaluates in parallel.
+         */
+        private int previewConcurrency = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Number of transactions read at once while looking for the ones matched by several rules.
+         */
+        private int conflictsChunkSize = 5000;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public String getCron() {
+            return cron;
+        }
+
+        public void setCron(String cron) {
+            this.cron = cron;
+        }
+
+        public Duration getStaleAfter() {
+            return staleAfter;
+        }
+
+        public void setStaleAfter(Duration staleAfter) {
+            this.staleAfter = staleAfter;
+        }
+
+        public int getMaxEdits() {
+            return maxEdits;
+        }
+
+        public void setMaxEdits(int maxEdits) {
+            this.maxEdits = maxEdits;
+        }
+
+        public int getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+
+        public int getPreviewConcurrency() {
+            return previewConcurrency;
+        }
+
+        public void setPreviewConcurrency(int previewConcurrency) {
+            this.previewConcurrency = previewConcurrency;
+        }
+
+        public int getConflictsChunkSize() {
+            return conflictsChunkSize;
+        }
+
+        public void setConflictsChunkSize(int conflictsChunkSize) {
+            this.conflictsChunkSize = conflictsChunkSize;
+        }
+    }
+
+    public static class Descriptions {
+
+        /**
+         * Number of distinct descriptions, and of their canonical forms, shared between the transactions.
+         */
+        private int cacheSize = 65536;
+
+        public int getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+    }
+
+    public static class Rollup {
+
+        /**
+         * When the monthly rollup of the transactions is rebuilt, {@code -} to disable it.
+         */
+        private String cron = "0 30 3 * * *";
+
+        public String getCron() {
+            return cron;
+        }
+
+        public void setCron(String cron) {
+            this.cron = cron;
+        }
+    }
+
+    public static class Balances {
+
+        /**
+         * When the running balances of the account types are rebuilt, {@code -} to disable it.
+         */
+        private String cron = "0 50 3 * * *";
+
+        /**
+         * Number of transactions read at once while building or catching up with the balances.
+         */
+        private int chunkSize = 5000;
+
+        public String getCron() {
+            return cron;
+        }
+
+        public void setCron(String cron) {
+            this.cron = cron;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    public static class Classifier {
+
+        /**
+         * When the classifier suggesting the categories is trained again, {@code -} to disable it.
+         */
+        private String cron = "0 55 3 * * *";
+
+        /**
+         * Number of transactions read at once while training or catching up with the classifier.
+         */
+        private int chunkSize = 5000;
+
+        public String getCron() {
+            return cron;
+        }
+
+        public void setCron(String cron) {
+            this.cron = cron;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    public static class TokenIndex {
+
+        /**
+         * Number of transactions read at once while building or catching up with the index of the descriptions.
+         */
+        private int chunkSize = 5000;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    public static class Snapshot {
+
+        /**
+         * Whether the summary reports are read from a columnar copy of the transactions kept in memory.
+         */
+        private boolean enabled = false;
+
+        /**
+         * When the columnar copy is rebuilt, {@code -} to disable it.
+         */
+        private String cron = "0 45 3 * * *";
+
+        /**
+         * Number of workers summing the columnar copy, 1 to sum it on the calling thread.
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Number of transactions read at once while building or catching up with the columnar copy.
+         */
+        private int chunkSize = 5000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getCron() {
+            return cron;
+        }
+
+        public void setCron(String cron) {
+            this.cron = cron;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+}
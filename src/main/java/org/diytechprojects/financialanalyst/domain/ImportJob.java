@@ -0,0 +1,331 @@
+package org.diytechprojects.financialanalyst.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+import javax.validation.constraints.NotNull;
+import org.diytechprojects.financialanalyst.domain.enumeration.ImportJobStatus;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * An ImportJob, the import of a file stored on the server, checkpointed after each committed chunk.
+ */
+@Table("import_job")
+public class ImportJob implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private Long id;
+
+    /**
+     * Path of the imported file on the server.
+     */
+    @NotNull(message = "must not be null")
+    @Column("file")
+    private String file;
+
+    @NotNull(message = "must not be null")
+    @Column("status")
+    private ImportJobStatus status;
+
+    @Column("batch_size")
+    private Integer batchSize;
+
+    @Column("file_size")
+    private Long fileSize;
+
+    /**
+     * Offset of the file up to which the rows are committed, the import resumes from there.
+     */
+    @Column("committed_offset")
+    private Long committedOffset;
+
+    @Column("total_rows")
+    private Long totalRows;
+
+    @Column("inserted_rows")
+    private Long insertedRows;
+
+    @Column("skipped_rows")
+    private Long skippedRows;
+
+    @Column("rejected_rows")
+    private Long rejectedRows;
+
+    @Column("rows_per_second")
+    private Long rowsPerSecond;
+
+    /**
+     * Number of times the job was started, resumptions included.
+     */
+    @Column("attempts")
+    private Integer attempts;
+
+    @Column("error_message")
+    private String errorMessage;
+
+    @Column("created_date")
+    private Instant createdDate;
+
+    /**
+     * Last sign of life of the instance running the job, a running job without recent heartbeat was interrupted.
+     */
+    @Column("heartbeat_date")
+    private Instant heartbeatDate;
+
+    @Column("finished_date")
+    private Instant finishedDate;
+
+    // jhipster-needle-entity-add-field - JHipster will add fields here
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public ImportJob id(Long id) {
+        this.id = id;
+        return this;
+    }
+
+    public String getFile() {
+        return this.file;
+    }
+
+    public ImportJob file(String file) {
+        this.file = file;
+        return this;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public ImportJobStatus getStatus() {
+        return this.status;
+    }
+
+    public ImportJob status(ImportJobStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    public void setStatus(ImportJobStatus status) {
+        this.status = status;
+    }
+
+    public Integer getBatchSize() {
+        return this.batchSize;
+    }
+
+    public ImportJob batchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Long getFileSize() {
+        return this.fileSize;
+    }
+
+    public ImportJob fileSize(Long fileSize) {
+        this.fileSize = fileSize;
+        return this;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public Long getCommittedOffset() {
+        return this.committedOffset;
+    }
+
+    public ImportJob committedOffset(Long committedOffset) {
+        this.committedOffset = committedOffset;
+        return this;
+    }
+
+    public void setCommittedOffset(Long committedOffset) {
+        this.committedOffset = committedOffset;
+    }
+
+    public Long getTotalRows() {
+        return this.totalRows;
+    }
+
+    public ImportJob totalRows(Long totalRows) {
+        this.totalRows = totalRows;
+        return this;
+    }
+
+    public void setTotalRows(Long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public Long getInsertedRows() {
+        return this.insertedRows;
+    }
+
+    public ImportJob insertedRows(Long insertedRows) {
+        this.insertedRows = insertedRows;
+        return this;
+    }
+
+    public void setInsertedRows(Long insertedRows) {
+        this.insertedRows = insertedRows;
+    }
+
+    public Long getSkippedRows() {
+        return this.skippedRows;
+    }
+
+    public ImportJob skippedRows(Long skippedRows) {
+        this.skippedRows = skippedRows;
+        return this;
+    }
+
+    public void setSkippedRows(Long skippedRows) {
+        this.skippedRows = skippedRows;
+    }
+
+    public Long getRejectedRows() {
+        return this.rejectedRows;
+    }
+
+    public ImportJob rejectedRows(Long rejectedRows) {
+        this.rejectedRows = rejectedRows;
+        return this;
+    }
+
+    public void setRejectedRows(Long rejectedRows) {
+        this.rejectedRows = rejectedRows;
+    }
+
+    public Long getRowsPerSecond() {
+        return this.rowsPerSecond;
+    }
+
+    public ImportJob rowsPerSecond(Long rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+        return this;
+    }
+
+    public void setRowsPerSecond(Long rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public Integer getAttempts() {
+        return this.attempts;
+    }
+
+    public ImportJob attempts(Integer attempts) {
+        this.attempts = attempts;
+        return this;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getErrorMessage() {
+        return this.errorMessage;
+    }
+
+    public ImportJob errorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+        return this;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public Instant getCreatedDate() {
+        return this.createdDate;
+    }
+
+    public ImportJob createdDate(Instant createdDate) {
+        this.createdDate = createdDate;
+        return this;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Instant getHeartbeatDate() {
+        return this.heartbeatDate;
+    }
+
+    public ImportJob heartbeatDate(Instant heartbeatDate) {
+        this.heartbeatDate = heartbeatDate;
+        return this;
+    }
+
+    public void setHeartbeatDate(Instant heartbeatDate) {
+        this.heartbeatDate = heartbeatDate;
+    }
+
+    public Instant getFinishedDate() {
+        return this.finishedDate;
+    }
+
+    public ImportJob finishedDate(Instant finishedDate) {
+        this.finishedDate = finishedDate;
+        return this;
+    }
+
+    public void setFinishedDate(Instant finishedDate) {
+        this.finishedDate = finishedDate;
+    }
+
+    // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ImportJob)) {
+            return false;
+        }
+        return id != null && id.equals(((ImportJob) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ImportJob{" +
+            "id=" + getId() +
+            ", file='" + getFile() + "'" +
+            ", status='" + getStatus() + "'" +
+            ", batchSize=" + getBatchSize() +
+            ", fileSize=" + getFileSize() +
+            ", committedOffset=" + getCommittedOffset() +
+            ", totalRows=" + getTotalRows() +
+            ", insertedRows=" + getInsertedRows() +
+            ", skippedRows=" + getSkippedRows() +
+            ", rejectedRows=" + getRejectedRows() +
+            ", rowsPerSecond=" + getRowsPerSecond() +
+            ", attempts=" + getAttempts() +
+            ", errorMessage='" + getErrorMessage() + "'" +
+            ", createdDate='" + getCreatedDate() + "'" +
+            ", heartbeatDate='" + getHeartbeatDate() + "'" +
+            ", finishedDate='" + getFinishedDate() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,285 @@
+package org.diytechprojects.financialanalyst.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+import javax.validation.constraints.NotNull;
+import org.diytechprojects.financialanalyst.domain.enumeration.RecategorizationJobStatus;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * A RecategorizationJob, a walk over the uncategorized transactions matching them against the current rules,
+ * checkpointed after each committed chunk.
+ */
+@Table("recategorization_job")
+public class RecategorizationJob implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private Long id;
+
+    @NotNull(message = "must not be null")
+    @Column("status")
+    private RecategorizationJobStatus status;
+
+    @Column("chunk_size")
+    private Integer chunkSize;
+
+    /**
+     * Id of the last transaction of the committed chunks, the job resumes after it.
+     */
+    @NotNull(message = "must not be null")
+    @Column("last_transaction_id")
+    private Long lastTransactionId;
+
+    /**
+     * Number of uncategorized transactions when the job was last started, plus the rows scanned before.
+     */
+    @NotNull(message = "must not be null")
+    @Column("total_rows")
+    private Long totalRows;
+
+    @NotNull(message = "must not be null")
+    @Column("scanned_rows")
+    private Long scannedRows;
+
+    @NotNull(message = "must not be null")
+    @Column("categorized_rows")
+    private Long categorizedRows;
+
+    @Column("rows_per_second")
+    private Long rowsPerSecond;
+
+    /**
+     * Number of times the job was started, resumptions included.
+     */
+    @NotNull(message = "must not be null")
+    @Column("attempts")
+    private Integer attempts;
+
+    @Column("error_message")
+    private String errorMessage;
+
+    @Column("created_date")
+    private Instant createdDate;
+
+    /**
+     * Last sign of life of the instance running the job, a running job without recent heartbeat was interrupted.
+     */
+    @Column("heartbeat_date")
+    private Instant heartbeatDate;
+
+    @Column("finished_date")
+    private Instant finishedDate;
+
+    // jhipster-needle-entity-add-field - JHipster will add fields here
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public RecategorizationJob id(Long id) {
+        this.id = id;
+        return this;
+    }
+
+    public RecategorizationJobStatus getStatus() {
+        return this.status;
+    }
+
+    public RecategorizationJob status(RecategorizationJobStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    public void setStatus(RecategorizationJobStatus status) {
+        this.status = status;
+    }
+
+    public Integer getChunkSize() {
+        return this.chunkSize;
+    }
+
+    public RecategorizationJob chunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    public void setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public Long getLastTransactionId() {
+        return this.lastTransactionId;
+    }
+
+    public RecategorizationJob lastTransactionId(Long lastTransactionId) {
+        this.lastTransactionId = lastTransactionId;
+        return this;
+    }
+
+    public void setLastTransactionId(Long lastTransactionId) {
+        this.lastTransactionId = lastTransactionId;
+    }
+
+    public Long getTotalRows() {
+        return this.totalRows;
+    }
+
+    public RecategorizationJob totalRows(Long totalRows) {
+        this.totalRows = totalRows;
+        return this;
+    }
+
+    public void setTotalRows(Long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public Long getScannedRows() {
+        return this.scannedRows;
+    }
+
+    public RecategorizationJob scannedRows(Long scannedRows) {
+        this.scannedRows = scannedRows;
+        return this;
+    }
+
+    public void setScannedRows(Long scannedRows) {
+        this.scannedRows = scannedRows;
+    }
+
+    public Long getCategorizedRows() {
+        return this.categorizedRows;
+    }
+
+    public RecategorizationJob categorizedRows(Long categorizedRows) {
+        this.categorizedRows = categorizedRows;
+        return this;
+    }
+
+    public void setCategorizedRows(Long categorizedRows) {
+        this.categorizedRows = categorizedRows;
+    }
+
+    public Long getRowsPerSecond() {
+        return this.rowsPerSecond;
+    }
+
+    public RecategorizationJob rowsPerSecond(Long rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+        return this;
+    }
+
+    public void setRowsPerSecond(Long rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public Integer getAttempts() {
+        return this.attempts;
+    }
+
+    public RecategorizationJob attempts(Integer attempts) {
+        this.attempts = attempts;
+        return this;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getErrorMessage() {
+        return this.errorMessage;
+    }
+
+    public RecategorizationJob errorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+        return this;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public Instant getCreatedDate() {
+        return this.createdDate;
+    }
+
+    public RecategorizationJob createdDate(Instant createdDate) {
+        this.createdDate = createdDate;
+        return this;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Instant getHeartbeatDate() {
+        return this.heartbeatDate;
+    }
+
+    public RecategorizationJob heartbeatDate(Instant heartbeatDate) {
+        this.heartbeatDate = heartbeatDate;
+        return this;
+    }
+
+    public void setHeartbeatDate(Instant heartbeatDate) {
+        this.heartbeatDate = heartbeatDate;
+    }
+
+    public Instant getFinishedDate() {
+        return this.finishedDate;
+    }
+
+    public RecategorizationJob finishedDate(Instant finishedDate) {
+        this.finishedDate = finishedDate;
+        return this;
+    }
+
+    public void setFinishedDate(Instant finishedDate) {
+        this.finishedDate = finishedDate;
+    }
+
+    // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RecategorizationJob)) {
+            return false;
+        }
+        return id != null && id.equals(((RecategorizationJob) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "RecategorizationJob{" +
+            "id=" + getId() +
+            ", status='" + getStatus() + "'" +
+            ", chunkSize=" + getChunkSize() +
+            ", lastTransactionId=" + getLastTransactionId() +
+            ", totalRows=" + getTotalRows() +
+            ", scannedRows=" + getScannedRows() +
+            ", categorizedRows=" + getCategorizedRows() +
+            ", rowsPerSecond=" + getRowsPerSecond() +
+            ", attempts=" + getAttempts() +
+            ", errorMessage='" + getErrorMessage() + "'" +
+            ", createdDate='" + getCreatedDate() + "'" +
+            ", heartbeatDate='" + getHeartbeatDate() + "'" +
+            ", finishedDate='" + getFinishedDate() + "'" +
+            "}";
+    }
+}
@@ -1,8 +1,10 @@
 package org.diytechprojects.financialanalyst.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.io.Serializable;
 import java.time.Instant;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
 import org.springframework.data.annotation.Transient;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
@@ -52,6 +54,14 @@ public class Transaction implements Serializable {
     @Transient
     private Expense expense;
 
+    /**
+     * Content hash of the imported statement row, only written by the bulk import to skip rows imported before.
+     */
+    @JsonIgnore
+    @ReadOnlyProperty
+    @Column("fingerprint")
+    private String fingerprint;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
     public Long getId() {
         return id;
@@ -216,6 +226,19 @@ public class Transaction implements Serializable {
         this.expenseId = expense;
     }
 
+    public String getFingerprint() {
+        return this.fingerprint;
+    }
+
+    public Transaction fingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+        return this;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
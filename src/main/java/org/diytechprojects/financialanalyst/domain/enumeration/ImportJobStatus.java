@@ -0,0 +1,11 @@
+package org.diytechprojects.financialanalyst.domain.enumeration;
+
+/**
+ * The ImportJobStatus enumeration.
+ */
+public enum ImportJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+}
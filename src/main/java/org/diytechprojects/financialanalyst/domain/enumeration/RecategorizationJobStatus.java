@@ -0,0 +1,11 @@
+package org.diytechprojects.financialanalyst.domain.enumeration;
+
+/**
+ * The RecategorizationJobStatus enumeration.
+ */
+public enum RecategorizationJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+}
@@ -0,0 +1,85 @@
+package org.diytechprojects.financialanalyst.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import org.diytechprojects.financialanalyst.domain.ImportJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Spring Data SQL reactive repository for the ImportJob entity.
+ */
+@Repository
+public interface ImportJobRepository extends R2dbcRepository<ImportJob, Long> {
+    Flux<ImportJob> findAllBy(Pageable pageable);
+
+    Flux<ImportJob> findAllByFileAndStatusIn(String file, Collection<String> statuses);
+
+    /**
+     * The jobs waiting to be started and the running jobs whose instance stopped sending heartbeats.
+     */
+    @Query("SELECT * FROM import_job WHERE status = 'PENDING' OR (status = 'RUNNING' AND heartbeat_date < :staleBefore) ORDER BY id")
+    Flux<ImportJob> findAllRunnable(Instant staleBefore);
+
+    /**
+     * Take ownership of a job, unless another instance did it first.
+     *
+     * The parameters are declared in the order they appear in the statement, as they are bound by position.
+     *
+     * @return 1 if the job is now owned by the caller, 0 otherwise.
+     */
+    @Modifying
+    @Query(
+        "UPDATE import_job SET status = 'RUNNING', heartbeat_date = :now, attempts = attempts + 1, error_message = NULL " +
+        "WHERE id = :id AND (status = 'PENDING' OR (status = 'RUNNING' AND heartbeat_date < :staleBefore))"
+    )
+    Mono<Integer> claim(Instant now, Long id, Instant staleBefore);
+
+    @Modifying
+    @Query("UPDATE import_job SET heartbeat_date = :now WHERE id IN (:ids) AND status = 'RUNNING'")
+    Mono<Integer> heartbeat(Instant now, Collection<Long> ids);
+
+    /**
+     * Write the progress of a job, unless another instance claimed it since the attempt writing it.
+     *
+     * The parameters are declared in the order they appear in the statement, as they are bound by position.
+     *
+     * @return 1 if the progress is written, 0 if the job is no longer owned by the attempt.
+     */
+    @Modifying
+    @Query(
+        "UPDATE import_job SET committed_offset = :committedOffset, total_rows = :totalRows, inserted_rows = :insertedRows, " +
+        "skipped_rows = :skippedRows, rejected_rows = :rejectedRows, rows_per_second = :rowsPerSecond, heartbeat_date = :now " +
+        "WHERE id = :id AND attempts = :attempts AND status = 'RUNNING'"
+    )
+    Mono<Integer> checkpoint(
+        Long committedOffset,
+        Long totalRows,
+        Long insertedRows,
+        Long skippedRows,
+        Long rejectedRows,
+        Long rowsPerSecond,
+        Instant now,
+        Long id,
+        Integer attempts
+    );
+
+    /**
+     * Write the final status of a job, unless another instance claimed it since the attempt writing it.
+     *
+     * The parameters are declared in the order they appear in the statement, as they are bound by position.
+     *
+     * @return 1 if the status is written, 0 if the job is no longer owned by the attempt.
+     */
+    @Modifying
+    @Query(
+        "UPDATE import_job SET status = :status, error_message = :errorMessage, heartbeat_date = :heartbeatDate, " +
+        "finished_date = :finishedDate WHERE id = :id AND attempts = :attempts AND status = 'RUNNING'"
+    )
+    Mono<Integer> finish(String status, String errorMessage, Instant heartbeatDate, Instant finishedDate, Long id, Integer attempts);
+}
@@ -0,0 +1,36 @@
+package org.diytechprojects.financialanalyst.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import org.diytechprojects.financialanalyst.domain.RecategorizationJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Spring Data SQL reactive repository for the RecategorizationJob entity.
+ */
+@Repository
+public interface RecategorizationJobRepository extends R2dbcRepository<RecategorizationJob, Long> {
+    Flux<RecategorizationJob> findAllBy(Pageable pageable);
+
+    Flux<RecategorizationJob> findAllByStatusInOrderById(Collection<String> statuses);
+
+    /**
+     * Take ownership of a job, unless another instance did it first.
+     *
+     * The parameters are declared in the order they appear in the statement, as they are bound by position.
+     *
+     * @return 1 if the job is now owned by the caller, 0 otherwise.
+     */
+    @Modifying
+    @Query(
+        "UPDATE recategorization_job SET status = 'RUNNING', heartbeat_date = :now, attempts = attempts + 1, error_message = NULL " +
+        "WHERE id = :id AND (status = 'PENDING' OR (status = 'RUNNING' AND heartbeat_date < :staleBefore))"
+    )
+    Mono<Integer> claim(Instant now, Long id, Instant staleBefore);
+}
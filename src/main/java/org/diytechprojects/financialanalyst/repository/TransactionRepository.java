@@ -1,10 +1,14 @@
 package org.diytechprojects.financialanalyst.repository;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 import org.diytechprojects.financialanalyst.domain.Transaction;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
 import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Update;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -29,6 +33,59 @@ public interface TransactionRepository extends R2dbcRepository<Transaction, Long
     @Query("SELECT * FROM transaction entity WHERE entity.expense_id IS NULL")
     Flux<Transaction> findAllWhereExpenseIsNull();
 
+    /**
+     * A chunk of the transactions with neither expense nor income, in the order of their ids. The next chunk starts
+     * after the last id of the previous one, so every chunk is a range scan of the primary key wherever it starts.
+     *
+     * The parameters are declared in the order they appear in the statement, as they are bound by position.
+     */
+    @Query(
+        "SELECT * FROM transaction entity WHERE entity.id > :afterId AND entity.expense_id IS NULL AND entity.income_id IS NULL " +
+        "ORDER BY entity.id LIMIT :limit"
+    )
+    Flux<Transaction> findUncategorizedAfter(Long afterId, int limit);
+
+    @Query("SELECT COUNT(*) FROM transaction entity WHERE entity.id > :afterId AND entity.expense_id IS NULL AND entity.income_id IS NULL")
+    Mono<Long> countUncategorizedAfter(Long afterId);
+
+    /**
+     * A chunk of the transactions, in the order of their ids, starting after the last id of the previous chunk.
+     *
+     * The parameters are declared in the order they appear in the statement, as they are bound by position.
+     */
+    @Query("SELECT * FROM transaction entity WHERE entity.id > :afterId ORDER BY entity.id LIMIT :limit")
+    Flux<Transaction> findAllAfter(Long afterId, int limit);
+
+    /**
+     * Read the transactions in chunks ordered by id, from {@link #findAllAfter(Long, int)}, until a chunk is not full.
+     * Each chunk starts after the last id of the previous one, or after the id given if it is higher then: the
+     * callers sharing their progress skip the transactions read meanwhile.
+     *
+     * @param afterId the id the chunks start after, read again before each chunk.
+     * @param chunkSize the number of transactions per chunk.
+     * @return the chunks, the next one being read once the previous one is handled.
+     */
+    default Flux<List<Transaction>> findAllInChunksAfter(LongSupplier afterId, int chunkSize) {
+        AtomicLong lastId = new AtomicLong();
+        return Mono
+            .defer(() -> findAllAfter(Math.max(lastId.get(), afterId.getAsLong()), chunkSize).collectList())
+            .doOnNext(
+                chunk -> {
+                    if (!chunk.isEmpty()) {
+                        lastId.set(chunk.get(chunk.size() - 1).getId());
+                    }
+                }
+            )
+            .repeat()
+            .takeUntil(chunk -> chunk.size() < chunkSize);
+    }
+
+    @Query("SELECT MIN(entity.id) FROM transaction entity")
+    Mono<Long> findMinId();
+
+    @Query("SELECT MAX(entity.id) FROM transaction entity")
+    Mono<Long> findMaxId();
+
     // just to avoid having unambigous methods
     @Override
     Flux<Transaction> findAll();
@@ -42,8 +99,12 @@ public interface TransactionRepository extends R2dbcRepository<Transaction, Long
 
 interface TransactionRepositoryInternal {
     <S extends Transaction> Mono<S> insert(S entity);
+    Mono<Integer> insertAllNew(List<Transaction> entities);
+    Flux<Long> insertAllReturningIds(List<Transaction> entities);
+    Flux<Transaction> findDebitDescriptions(long afterId, long toId, int samplePercent, int limit);
     <S extends Transaction> Mono<S> save(S entity);
     Mono<Integer> update(Transaction entity);
+    Mono<Integer> updateAll(Criteria criteria, Update update);
 
     Flux<Transaction> findAll();
     Mono<Transaction> findById(Long id);
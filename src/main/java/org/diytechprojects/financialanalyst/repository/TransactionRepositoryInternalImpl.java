@@ -5,28 +5,41 @@ import static org.springframework.data.relational.core.query.Query.query;
 
 import io.r2dbc.spi.Row;
 import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 import org.diytechprojects.financialanalyst.domain.Transaction;
 import org.diytechprojects.financialanalyst.repository.rowmapper.ExpenseRowMapper;
 import org.diytechprojects.financialanalyst.repository.rowmapper.IncomeRowMapper;
 import org.diytechprojects.financialanalyst.repository.rowmapper.TransactionRowMapper;
 import org.diytechprojects.financialanalyst.service.EntityManager;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.core.StatementMapper;
+import org.springframework.data.r2dbc.dialect.MySqlDialect;
+import org.springframework.data.r2dbc.dialect.R2dbcDialect;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
 import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Update;
 import org.springframework.data.relational.core.sql.Column;
 import org.springframework.data.relational.core.sql.Expression;
 import org.springframework.data.relational.core.sql.Select;
 import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoinCondition;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
 import org.springframework.data.relational.core.sql.Table;
 import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.Parameter;
+import org.springframework.r2dbc.core.PreparedOperation;
 import org.springframework.r2dbc.core.RowsFetchSpec;
+import org.springframework.r2dbc.core.binding.BindTarget;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -39,6 +52,8 @@ class TransactionRepositoryInternalImpl implements TransactionRepositoryInternal
     private final DatabaseClient db;
     private final R2dbcEntityTemplate r2dbcEntityTemplate;
     private final EntityManager entityManager;
+    private final R2dbcConverter converter;
+    private final R2dbcDialect dialect;
 
     private final IncomeRowMapper incomeMapper;
     private final ExpenseRowMapper expenseMapper;
@@ -48,16 +63,21 @@ class TransactionRepositoryInternalImpl implements TransactionRepositoryInternal
     private static final Table incomeTable = Table.aliased("income", "income");
     private static final Table expenseTable = Table.aliased("expense", "expense");
 
+    private static final SqlIdentifier FINGERPRINT_COLUMN = SqlIdentifier.unquoted("fingerprint");
+
     public TransactionRepositoryInternalImpl(
         R2dbcEntityTemplate template,
         EntityManager entityManager,
         IncomeRowMapper incomeMapper,
         ExpenseRowMapper expenseMapper,
-        TransactionRowMapper transactionMapper
+        TransactionRowMapper transactionMapper,
+        R2dbcDialect dialect
     ) {
         this.db = template.getDatabaseClient();
         this.r2dbcEntityTemplate = template;
         this.entityManager = entityManager;
+        this.converter = template.getConverter();
+        this.dialect = dialect;
         this.incomeMapper = incomeMapper;
         this.expenseMapper = expenseMapper;
         this.transactionMapper = transactionMapper;
@@ -129,6 +149,165 @@ class TransactionRepositoryInternalImpl implements TransactionRepositoryInternal
         return entityManager.insert(entity);
     }
 
+    /**
+     * Insert transactions with a single multi-row statement, skipping the ones whose fingerprint is in the table
+     * already, even when another import inserted it concurrently: MariaDB (and MySQL) get an {@code INSERT IGNORE},
+     * the other databases an {@code INSERT ... SELECT} of the rows without match, as the staged merge does.
+     *
+     * @param entities the transactions, none of them repeating the fingerprint of another.
+     * @return the number of inserted transactions.
+     */
+    @Override
+    public Mono<Integer> insertAllNew(List<Transaction> entities) {
+        if (entities.isEmpty()) {
+            return Mono.just(0);
+        }
+        List<OutboundRow> rows = entities
+            .stream()
+            .map(
+                entity ->
+                    // the fingerprint is read only for entity updates, the bulk insert is the one place writing it
+                    outboundRow(entity).append(FINGERPRINT_COLUMN, Parameter.fromOrEmpty(entity.getFingerprint(), String.class))
+            )
+            .collect(Collectors.toList());
+        // the id is generated by the database, every other mapped column is written
+        List<SqlIdentifier> columns = rows
+            .get(0)
+            .keySet()
+            .stream()
+            .filter(column -> !"id".equalsIgnoreCase(column.getReference()))
+            .collect(Collectors.toList());
+
+        String columnList = columns.stream().map(this::toSql).collect(Collectors.joining(", "));
+        boolean mySql = dialect instanceof MySqlDialect;
+        StringBuilder sql = new StringBuilder(mySql ? "INSERT IGNORE INTO " : "INSERT INTO ")
+            .append(toSql(tableName()))
+            .append(" (")
+            .append(columnList)
+            .append(mySql ? ") VALUES " : ") SELECT * FROM (VALUES ");
+        Map<String, Parameter> bindings = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i == 0 ? "(" : ", (");
+            for (int c = 0; c < columns.size(); c++) {
+                String name = "r" + i + "_" + c;
+                sql.append(c == 0 ? ":" : ", :").append(name);
+                bindings.put(name, rows.get(i).get(columns.get(c)));
+            }
+            sql.append(")");
+        }
+        if (!mySql) {
+            sql
+                .append(") d (")
+                .append(columnList)
+                .append(") WHERE NOT EXISTS (SELECT 1 FROM ")
+                .append(toSql(tableName()))
+                .append(" t WHERE t.")
+                .append(toSql(FINGERPRINT_COLUMN))
+                .append(" = d.")
+                .append(toSql(FINGERPRINT_COLUMN))
+                .append(")");
+        }
+
+        DatabaseClient.GenericExecuteSpec statement = db.sql(sql.toString());
+        for (Entry<String, Parameter> binding : bindings.entrySet()) {
+            statement = statement.bind(binding.getKey(), binding.getValue());
+        }
+        return statement.fetch().rowsUpdated();
+    }
+
+    /**
+     * @return the values of the mapped columns of an entity, as the template writes them.
+     */
+    private OutboundRow outboundRow(Transaction entity) {
+        OutboundRow row = new OutboundRow();
+        converter.write(entity, row);
+        return row;
+    }
+
+    private SqlIdentifier tableName() {
+        return converter.getMappingContext().getRequiredPersistentEntity(Transaction.class).getTableName();
+    }
+
+    private String toSql(SqlIdentifier identifier) {
+        return identifier.toSql(dialect.getIdentifierProcessing());
+    }
+
+    @Override
+    public Flux<Long> insertAllReturningIds(List<Transaction> entities) {
+        if (entities.isEmpty()) {
+            return Flux.empty();
+        }
+        StatementMapper statementMapper = StatementMapper.create(dialect, converter);
+        SqlIdentifier table = tableName();
+        // the same columns as a single insert, null values included so that every row renders the same statement
+        List<PreparedOperation<?>> inserts = new ArrayList<>(entities.size());
+        for (Transaction entity : entities) {
+            StatementMapper.InsertSpec insert = statementMapper.createInsert(table);
+            for (Entry<SqlIdentifier, Parameter> column : outboundRow(entity).entrySet()) {
+                if (!"id".equalsIgnoreCase(column.getKey().getReference())) {
+                    insert = insert.withColumn(column.getKey(), column.getValue());
+                }
+            }
+            inserts.add(statementMapper.getMappedObject(insert));
+        }
+        String sql = inserts.get(0).toQuery();
+        return db.inConnectionMany(
+            connection -> {
+                Statement statement = connection.createStatement(sql).returnGeneratedValues("id");
+                for (int i = 0; i < inserts.size(); i++) {
+                    if (i > 0) {
+                        statement.add();
+                    }
+                    inserts.get(i).bindTo(new StatementBindTarget(statement));
+                }
+                // one result per binding, in the order the bindings were added
+                return Flux.from(statement.execute()).concatMap(result -> result.map((row, metadata) -> row.get(0, Long.class)));
+            }
+        );
+    }
+
+    /**
+     * A chunk of the debits in a range of ids, in the order of their ids, with only the columns categorizing them:
+     * the id, the descriptions, the amounts and the expense.
+     *
+     * @param afterId the id the chunk starts after.
+     * @param toId the last id of the range, inclusive.
+     * @param samplePercent the percentage of the ids read, 100 for all of them: the ids ending in the same two digits
+     * form a sample spread over the whole table.
+     * @param limit the number of rows of the chunk.
+     */
+    @Override
+    public Flux<Transaction> findDebitDescriptions(long afterId, long toId, int samplePercent, int limit) {
+        return db
+            .sql(
+                "SELECT id, description_1, description_2, amount_cad, amount_usd, expense_id FROM transaction " +
+                "WHERE id > :afterId AND id <= :toId AND MOD(id, 100) < :samplePercent AND COALESCE(amount_cad, amount_usd) < 0 " +
+                "ORDER BY id LIMIT :limit"
+            )
+            .bind("afterId", afterId)
+            .bind("toId", toId)
+            .bind("samplePercent", samplePercent)
+            .bind("limit", limit)
+            .map(
+                row -> {
+                    Transaction transaction = new Transaction()
+                        .id(row.get("id", Long.class))
+                        .description1(row.get("description_1", String.class))
+                        .description2(row.get("description_2", String.class))
+                        .amountCAD(row.get("amount_cad", Long.class))
+                        .amountUSD(row.get("amount_usd", Long.class));
+                    transaction.setExpenseId(row.get("expense_id", Long.class));
+                    return transaction;
+                }
+            )
+            .all();
+    }
+
+    @Override
+    public Mono<Integer> updateAll(Criteria criteria, Update update) {
+        return r2dbcEntityTemplate.update(query(criteria), update, Transaction.class);
+    }
+
     @Override
     public <S extends Transaction> Mono<S> save(S entity) {
         if (entity.getId() == null) {
@@ -153,6 +332,35 @@ class TransactionRepositoryInternalImpl implements TransactionRepositoryInternal
     }
 }
 
+class StatementBindTarget implements BindTarget {
+
+    private final Statement statement;
+
+    StatementBindTarget(Statement statement) {
+        this.statement = statement;
+    }
+
+    @Override
+    public void bind(String identifier, Object value) {
+        statement.bind(identifier, value);
+    }
+
+    @Override
+    public void bind(int index, Object value) {
+        statement.bind(index, value);
+    }
+
+    @Override
+    public void bindNull(String identifier, Class<?> type) {
+        statement.bindNull(identifier, type);
+    }
+
+    @Override
+    public void bindNull(int index, Class<?> type) {
+        statement.bindNull(index, type);
+    }
+}
+
 class TransactionSqlHelper {
 
     static List<Expression> getColumns(Table table, String columnPrefix) {
@@ -169,6 +377,7 @@ class TransactionSqlHelper {
 
         columns.add(Column.aliased("income_id", table, columnPrefix + "_income_id"));
         columns.add(Column.aliased("expense_id", table, columnPrefix + "_expense_id"));
+        columns.add(Column.aliased("fingerprint", table, columnPrefix + "_fingerprint"));
         return columns;
     }
 }
@@ -0,0 +1,195 @@
+package org.diytechprojects.financialanalyst.repository;
+
+import java.time.YearMonth;
+import java.util.Map;
+import org.diytechprojects.financialanalyst.service.dto.MonthlyRollupDTO;
+import org.springframework.data.r2dbc.dialect.MySqlDialect;
+import org.springframework.data.r2dbc.dialect.R2dbcDialect;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Repository of the {@code transaction_monthly_rollup} table, the sums and counts of the transactions per month,
+ * account type, expense and income.
+ * <p>
+ * A month is stored as {@code yyyymm}, 0 for the transactions without date; a missing account type as {@code ''} and a
+ * missing expense or income as 0, so that every key column is part of the primary key. Deltas are added with a single
+ * upsert: MariaDB (and MySQL) get {@code INSERT ... ON DUPLICATE KEY UPDATE}, the other databases the standard
+ * {@code MERGE}; the sums of a set of transactions are added or subtracted the same way, from their {@code GROUP BY}.
+ */
+@Repository
+public class TransactionRollupRepository {
+
+    private static final String MONTH =
+        "COALESCE(EXTRACT(YEAR FROM transaction_date) * 100 + EXTRACT(MONTH FROM transaction_date), 0)";
+
+    private static final String KEY = MONTH + ", COALESCE(account_type, ''), COALESCE(expense_id, 0), COALESCE(income_id, 0)";
+
+    private static final String COLUMNS =
+        "transaction_month, account_type, expense_id, income_id, amount_cad, amount_usd, transaction_count";
+
+    /**
+     * The upsert of the rows inserted into the rollup, MariaDB (and MySQL) syntax.
+     */
+    private static final String ON_DUPLICATE_KEY =
+        " ON DUPLICATE KEY UPDATE amount_cad = transaction_monthly_rollup.amount_cad + VALUES(amount_cad), " +
+        "amount_usd = transaction_monthly_rollup.amount_usd + VALUES(amount_usd), " +
+        "transaction_count = transaction_monthly_rollup.transaction_count + VALUES(transaction_count)";
+
+    /**
+     * The upsert of the rows of a derived table {@code d} having the columns of the rollup, standard syntax.
+     */
+    private static final String WHEN_MATCHED =
+        " ON (r.transaction_month = d.transaction_month AND " +
+        "r.account_type = d.account_type AND r.expense_id = d.expense_id AND r.income_id = d.income_id) " +
+        "WHEN MATCHED THEN UPDATE SET r.amount_cad = r.amount_cad + d.amount_cad, r.amount_usd = r.amount_usd + d.amount_usd, " +
+        "r.transaction_count = r.transaction_count + d.transaction_count " +
+        "WHEN NOT MATCHED THEN INSERT (" +
+        COLUMNS +
+        ") VALUES (d.transaction_month, d.account_type, d.expense_id, d.income_id, d.amount_cad, d.amount_usd, d.transaction_count)";
+
+    private final DatabaseClient db;
+
+    private final boolean mySql;
+
+    public TransactionRollupRepository(DatabaseClient db, R2dbcDialect dialect) {
+        this.db = db;
+        this.mySql = dialect instanceof MySqlDialect;
+    }
+
+    /**
+     * Add a delta to the sums and the count of a key, creating its row if needed.
+     *
+     * @param month the month, {@code yyyymm}, 0 for none.
+     * @param accountType the account type, {@code ''} for none.
+     * @param expenseId the id of the expense, 0 for none.
+     * @param incomeId the id of the income, 0 for none.
+     * @return the number of rows inserted or updated.
+     */
+    public Mono<Integer> add(int month, String accountType, long expenseId, long incomeId, long amountCad, long amountUsd, long count) {
+        String sql = mySql
+            ? "INSERT INTO transaction_monthly_rollup (" +
+            COLUMNS +
+            ") VALUES (:month, :accountType, :expenseId, :incomeId, :amountCad, :amountUsd, :count)" +
+            ON_DUPLICATE_KEY
+            : "MERGE INTO transaction_monthly_rollup r USING (SELECT CAST(:month AS INTEGER) AS transaction_month, " +
+            "CAST(:accountType AS VARCHAR(255)) AS account_type, CAST(:expenseId AS BIGINT) AS expense_id, " +
+            "CAST(:incomeId AS BIGINT) AS income_id, CAST(:amountCad AS BIGINT) AS amount_cad, CAST(:amountUsd AS BIGINT) AS amount_usd, " +
+            "CAST(:count AS BIGINT) AS transaction_count) d" +
+            WHEN_MATCHED;
+        return db
+            .sql(sql)
+            .bind("month", month)
+            .bind("accountType", accountType)
+            .bind("expenseId", expenseId)
+            .bind("incomeId", incomeId)
+            .bind("amountCad", amountCad)
+            .bind("amountUsd", amountUsd)
+            .bind("count", count)
+            .fetch()
+            .rowsUpdated();
+    }
+
+    /**
+     * Add the sums and counts of the transactions matching a condition, or subtract them, with a single upsert of their
+     * {@code GROUP BY}.
+     *
+     * @param condition an SQL condition on the columns of the transaction table, with named parameters.
+     * @param parameters the values of the parameters of the condition.
+     * @param subtract whether the sums are subtracted rather than added.
+     * @return the number of rows inserted or updated.
+     */
+    public Mono<Integer> addWhere(String condition, Map<String, ?> parameters, boolean subtract) {
+        String sign = subtract ? "-" : "";
+        String grouped =
+            "SELECT " +
+            MONTH +
+            " AS transaction_month, COALESCE(account_type, '') AS account_type, COALESCE(expense_id, 0) AS expense_id, " +
+            "COALESCE(income_id, 0) AS income_id, " +
+            sign +
+            "SUM(COALESCE(amount_cad, 0)) AS amount_cad, " +
+            sign +
+            "SUM(COALESCE(amount_usd, 0)) AS amount_usd, " +
+            sign +
+            "COUNT(*) AS transaction_count FROM transaction WHERE " +
+            condition +
+            " GROUP BY " +
+            KEY;
+        // the GROUP BY is kept in a derived table, the upsert of MariaDB could not tell the columns apart otherwise
+        String sql = mySql
+            ? "INSERT INTO transaction_monthly_rollup (" + COLUMNS + ") SELECT * FROM (" + grouped + ") d" + ON_DUPLICATE_KEY
+            : "MERGE INTO transaction_monthly_rollup r USING (" + grouped + ") d" + WHEN_MATCHED;
+        DatabaseClient.GenericExecuteSpec statement = db.sql(sql);
+        for (Map.Entry<String, ?> parameter : parameters.entrySet()) {
+            statement = statement.bind(parameter.getKey(), parameter.getValue());
+        }
+        return statement.fetch().rowsUpdated();
+    }
+
+    /**
+     * @return the number of deleted rows.
+     */
+    public Mono<Integer> deleteAll() {
+        return db.sql("DELETE FROM transaction_monthly_rollup").fetch().rowsUpdated();
+    }
+
+    /**
+     * Sum the whole transaction table into the rollup, with a single {@code INSERT ... SELECT ... GROUP BY}; the rollup
+     * must be empty.
+     *
+     * @return the number of inserted rows.
+     */
+    public Mono<Integer> insertFromTransactions() {
+        return db
+            .sql(
+                "INSERT INTO transaction_monthly_rollup (" +
+                COLUMNS +
+                ") SELECT " +
+                KEY +
+                ", SUM(COALESCE(amount_cad, 0)), SUM(COALESCE(amount_usd, 0)), COUNT(*) FROM transaction GROUP BY " +
+                KEY
+            )
+            .fetch()
+            .rowsUpdated();
+    }
+
+    /**
+     * @param fromMonth the first month, {@code yyyymm}, inclusive; 0 to include the transactions without date.
+     * @param toMonth the last month, {@code yyyymm}, inclusive.
+     * @return the rows of the months having transactions, with the category of their expense or the name of their income,
+     * by month.
+     */
+    public Flux<MonthlyRollupDTO> findBetween(int fromMonth, int toMonth) {
+        return db
+            .sql(
+                "SELECT r.transaction_month, r.account_type, r.expense_id, r.income_id, COALESCE(e.category, i.name) AS category, " +
+                "r.amount_cad, r.amount_usd, r.transaction_count FROM transaction_monthly_rollup r " +
+                "LEFT JOIN expense e ON e.id = r.expense_id LEFT JOIN income i ON i.id = r.income_id " +
+                "WHERE r.transaction_month >= :fromMonth AND r.transaction_month <= :toMonth AND r.transaction_count <> 0 " +
+                "ORDER BY r.transaction_month, r.account_type, r.expense_id, r.income_id"
+            )
+            .bind("fromMonth", fromMonth)
+            .bind("toMonth", toMonth)
+            .map(
+                row -> {
+                    MonthlyRollupDTO rollup = new MonthlyRollupDTO();
+                    int month = row.get("transaction_month", Integer.class);
+                    rollup.setMonth(month == 0 ? null : YearMonth.of(month / 100, month % 100));
+                    String accountType = row.get("account_type", String.class);
+                    rollup.setAccountType(accountType.isEmpty() ? null : accountType);
+                    long expenseId = row.get("expense_id", Long.class);
+                    rollup.setExpenseId(expenseId == 0 ? null : expenseId);
+                    long incomeId = row.get("income_id", Long.class);
+                    rollup.setIncomeId(incomeId == 0 ? null : incomeId);
+                    rollup.setCategory(row.get("category", String.class));
+                    rollup.setAmountCAD(row.get("amount_cad", Long.class));
+                    rollup.setAmountUSD(row.get("amount_usd", Long.class));
+                    rollup.setCount(row.get("transaction_count", Long.class));
+                    return rollup;
+                }
+            )
+            .all();
+    }
+}
@@ -0,0 +1,277 @@
+package org.diytechprojects.financialanalyst.repository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.springframework.data.r2dbc.dialect.MySqlDialect;
+import org.springframework.data.r2dbc.dialect.R2dbcDialect;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.Parameter;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+/**
+ * Repository of the {@code transaction_staging} table, where staged imports load their raw rows before they are
+ * validated, deduplicated, categorized and merged into {@code transaction} with one statement per step.
+ * <p>
+ * The rows of an import are identified by the import id and their index in the file. Every statement is set-based,
+ * its cost does not depend on the number of round trips but on the indexes of the joined tables.
+ * MariaDB (and MySQL) get their own multi-table update and {@code INSERT IGNORE} merge, the other databases use the
+ * standard correlated subqueries.
+ */
+@Repository
+public class TransactionStagingRepository {
+
+    public static final String STATUS_NEW = "NEW";
+    public static final String STATUS_REJECTED = "REJECTED";
+    public static final String STATUS_DUPLICATE = "DUPLICATE";
+
+    /**
+     * The width of the text columns of the staging table, longer values are cut to it when loaded.
+     */
+    static final int STAGED_TEXT_LENGTH = 1024;
+
+    /**
+     * The width of the text columns of the transaction table, longer values are rejected.
+     */
+    static final int TEXT_LENGTH = 255;
+
+    /**
+     * The condition on the columns of the transaction table matching the rows an import merges, before and after the
+     * merge, for the import id bound to {@code :importId}.
+     */
+    public static final String MERGED_ROWS =
+        "fingerprint IN (SELECT s.fingerprint FROM transaction_staging s WHERE s.import_id = :importId AND s.status = '" +
+        STATUS_NEW +
+        "')";
+
+    private static final String[] TEXT_COLUMNS = { "account_type", "cheque_number", "description_1", "description_2" };
+
+    private static final String STAGED_COLUMNS =
+        "account_type, transaction_date, cheque_number, description_1, description_2, " +
+        "amount_cad, amount_usd, income_id, expense_id, fingerprint";
+
+    private final DatabaseClient db;
+
+    private final boolean mySql;
+
+    public TransactionStagingRepository(DatabaseClient db, R2dbcDialect dialect) {
+        this.db = db;
+        this.mySql = dialect instanceof MySqlDialect;
+    }
+
+    /**
+     * Load transactions in the staging table with a single multi-row insert.
+     *
+     * @param importId the id of the import.
+     * @param firstRowIndex the index of the first transaction in the import.
+     * @param transactions the transactions, as parsed.
+     * @return the number of loaded rows.
+     */
+    public Mono<Integer> load(String importId, long firstRowIndex, List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return Mono.just(0);
+        }
+        StringBuilder sql = new StringBuilder(
+            "INSERT INTO transaction_staging (import_id, row_index, account_type, transaction_date, cheque_number, " +
+            "description_1, description_2, amount_cad, amount_usd, fingerprint, status) VALUES "
+        );
+        for (int i = 0; i < transactions.size(); i++) {
+            sql.append(i == 0 ? "(" : ", (").append(":importId, :r").append(i);
+            for (String column : new String[] { "a", "d", "c", "d1", "d2", "cad", "usd", "f" }) {
+                sql.append(", :").append(column).append(i);
+            }
+            sql.append(", '").append(STATUS_NEW).append("')");
+        }
+        DatabaseClient.GenericExecuteSpec statement = db.sql(sql.toString()).bind("importId", importId);
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            statement =
+                statement
+                    .bind("r" + i, firstRowIndex + i)
+                    .bind("a" + i, text(transaction.getAccountType()))
+                    .bind("d" + i, Parameter.fromOrEmpty(toDatabase(transaction.getTransactionDate()), LocalDateTime.class))
+                    .bind("c" + i, text(transaction.getChequeNumber()))
+                    .bind("d1" + i, text(transaction.getDescription1()))
+                    .bind("d2" + i, text(transaction.getDescription2()))
+                    .bind("cad" + i, Parameter.fromOrEmpty(transaction.getAmountCAD(), Long.class))
+                    .bind("usd" + i, Parameter.fromOrEmpty(transaction.getAmountUSD(), Long.class))
+                    .bind("f" + i, Parameter.fromOrEmpty(transaction.getFingerprint(), String.class));
+        }
+        return statement.fetch().rowsUpdated();
+    }
+
+    /**
+     * Reject the rows the transaction table cannot hold: no date, no amount or a text longer than its column.
+     *
+     * @param importId the id of the import.
+     * @return the number of rejected rows.
+     */
+    public Mono<Integer> reject(String importId) {
+        String tooLong = Arrays
+            .stream(TEXT_COLUMNS)
+            .map(column -> "CHAR_LENGTH(" + column + ") > " + TEXT_LENGTH)
+            .collect(Collectors.joining(" OR "));
+        return update(
+            "UPDATE transaction_staging SET status = '" +
+            STATUS_REJECTED +
+            "' WHERE import_id = :importId AND status = '" +
+            STATUS_NEW +
+            "' AND (transaction_date IS NULL OR (amount_cad IS NULL AND amount_usd IS NULL) OR " +
+            tooLong +
+            ")",
+            importId
+        );
+    }
+
+    /**
+     * Mark the rows already imported, by an earlier import or earlier in this one, as duplicates.
+     *
+     * @param importId the id of the import.
+     * @return the number of duplicate rows.
+     */
+    public Mono<Integer> markDuplicates(String importId) {
+        String existing = mySql
+            ? "UPDATE transaction_staging s JOIN transaction t ON t.fingerprint = s.fingerprint SET s.status = '" +
+            STATUS_DUPLICATE +
+            "' WHERE s.import_id = :importId AND s.status = '" +
+            STATUS_NEW +
+            "'"
+            : "UPDATE transaction_staging s SET status = '" +
+            STATUS_DUPLICATE +
+            "' WHERE s.import_id = :importId AND s.status = '" +
+            STATUS_NEW +
+            "' AND EXISTS (SELECT 1 FROM transaction t WHERE t.fingerprint = s.fingerprint)";
+        String repeated =
+            "UPDATE transaction_staging s SET status = '" +
+            STATUS_DUPLICATE +
+            "' WHERE s.import_id = :importId AND s.status = '" +
+            STATUS_NEW +
+            "' AND EXISTS (SELECT 1 FROM transaction_staging p WHERE p.import_id = s.import_id AND p.fingerprint = s.fingerprint" +
+            " AND p.row_index < s.row_index AND p.status <> '" +
+            STATUS_REJECTED +
+            "')";
+        return sum(update(existing, importId), update(repeated, importId));
+    }
+
+    /**
+     * Set the expense of the debits and the income of the credits from the search strings of the rules,
+     * with the same precedence as the {@code TransactionCategorizer}: the longest matching search string wins,
+     * ties go to the lowest id.
+     *
+     * @param importId the id of the import.
+     * @return the number of rows visited, categorized or not.
+     */
+    public Mono<Integer> categorize(String importId) {
+        return sum(categorize(importId, "expense", "expense_id", "< 0"), categorize(importId, "income", "income_id", "> 0"));
+    }
+
+    private Mono<Integer> categorize(String importId, String ruleTable, String column, String amountSign) {
+        String score = "GREATEST(" + matchLength("r.search_string_1") + ", " + matchLength("r.search_string_2") + ")";
+        return update(
+            "UPDATE transaction_staging s SET " +
+            column +
+            " = (SELECT r.id FROM " +
+            ruleTable +
+            " r WHERE " +
+            score +
+            " > 0 ORDER BY " +
+            score +
+            " DESC, r.id LIMIT 1) WHERE s.import_id = :importId AND s.status = '" +
+            STATUS_NEW +
+            "' AND s.expense_id IS NULL AND s.income_id IS NULL AND COALESCE(s.amount_cad, s.amount_usd) " +
+            amountSign,
+            importId
+        );
+    }
+
+    private static String matchLength(String searchString) {
+        String search = "UPPER(TRIM(" + searchString + "))";
+        return (
+            "CASE WHEN TRIM(" +
+            searchString +
+            ") <> '' AND (LOCATE(" +
+            search +
+            ", UPPER(s.description_1)) > 0 OR LOCATE(" +
+            search +
+            ", UPPER(s.description_2)) > 0) THEN CHAR_LENGTH(TRIM(" +
+            searchString +
+            ")) ELSE 0 END"
+        );
+    }
+
+    /**
+     * Copy the new rows of the import to the transaction table with a single {@code INSERT ... SELECT}, in the order
+     * of the file. Rows imported concurrently by another import since the duplicates were marked are skipped.
+     *
+     * @param importId the id of the import.
+     * @return the number of inserted transactions.
+     */
+    public Mono<Integer> merge(String importId) {
+        String select =
+            " SELECT " +
+            STAGED_COLUMNS.replaceAll("(\\w+)", "s.$1") +
+            " FROM transaction_staging s WHERE s.import_id = :importId AND s.status = '" +
+            STATUS_NEW +
+            "'";
+        String sql = mySql
+            ? "INSERT IGNORE INTO transaction (" + STAGED_COLUMNS + ")" + select + " ORDER BY s.row_index"
+            : "INSERT INTO transaction (" +
+            STAGED_COLUMNS +
+            ")" +
+            select +
+            " AND NOT EXISTS (SELECT 1 FROM transaction t WHERE t.fingerprint = s.fingerprint) ORDER BY s.row_index";
+        return update(sql, importId);
+    }
+
+    /**
+     * @param importId the id of the import.
+     * @return the number of rows of the import per status.
+     */
+    public Mono<Map<String, Long>> countByStatus(String importId) {
+        return db
+            .sql("SELECT status, COUNT(*) AS row_count FROM transaction_staging WHERE import_id = :importId GROUP BY status")
+            .bind("importId", importId)
+            .map(row -> Tuples.of(row.get("status", String.class), row.get("row_count", Long.class)))
+            .all()
+            .collectMap(Tuple2::getT1, Tuple2::getT2);
+    }
+
+    /**
+     * @param importId the id of the import.
+     * @return the number of deleted rows.
+     */
+    public Mono<Integer> delete(String importId) {
+        return update("DELETE FROM transaction_staging WHERE import_id = :importId", importId);
+    }
+
+    private Mono<Integer> update(String sql, String importId) {
+        return db.sql(sql).bind("importId", importId).fetch().rowsUpdated();
+    }
+
+    /**
+     * @return the sum of the updated rows, the second statement runs once the first one is done.
+     */
+    private static Mono<Integer> sum(Mono<Integer> first, Mono<Integer> second) {
+        return first.flatMap(updated -> second.map(more -> updated + more));
+    }
+
+    private static Parameter text(String text) {
+        // cut to the staging column, still longer than the transaction column so that the row gets rejected
+        return Parameter.fromOrEmpty(
+            text != null && text.length() > STAGED_TEXT_LENGTH ? text.substring(0, STAGED_TEXT_LENGTH) : text,
+            String.class
+        );
+    }
+
+    private static LocalDateTime toDatabase(Instant date) {
+        return date == null ? null : LocalDateTime.ofInstant(date, ZoneOffset.UTC);
+    }
+}
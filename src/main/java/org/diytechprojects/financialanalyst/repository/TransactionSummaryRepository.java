@@ -0,0 +1,254 @@
+package org.diytechprojects.financialanalyst.repository;
+
+import io.r2dbc.spi.Row;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import org.diytechprojects.financialanalyst.service.EntityManager;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO.Currency;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO.Grouping;
+import org.springframework.data.r2dbc.dialect.MySqlDialect;
+import org.springframework.data.r2dbc.dialect.R2dbcDialect;
+import org.springframework.data.relational.core.sql.Column;
+import org.springframework.data.relational.core.sql.Condition;
+import org.springframework.data.relational.core.sql.Conditions;
+import org.springframework.data.relational.core.sql.Expressions;
+import org.springframework.data.relational.core.sql.SQL;
+import org.springframework.data.relational.core.sql.Select;
+import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoin;
+import org.springframework.data.relational.core.sql.SelectBuilder.SelectWhere;
+import org.springframework.data.relational.core.sql.Table;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+/**
+ * Repository summing the transactions per group, with a single {@code GROUP BY} query per summary.
+ * <p>
+ * The select is rendered by the {@link EntityManager}, the {@code GROUP BY} and {@code ORDER BY} of the group are
+ * appended to it as the select builder has none. The sums are cast back to a 64-bit integer, {@code SIGNED} for MariaDB
+ * (and MySQL), {@code BIGINT} for the other databases, and the weeks start on Monday: MariaDB counts the days since then
+ * with {@code WEEKDAY}, the other databases with {@code ISO_DAY_OF_WEEK}.
+ */
+@Repository
+public class TransactionSummaryRepository {
+
+    private static final Table entityTable = Table.aliased("transaction", EntityManager.ENTITY_ALIAS);
+    private static final Table incomeTable = Table.aliased("income", "income");
+    private static final Table expenseTable = Table.aliased("expense", "expense");
+
+    private static final String DATE = EntityManager.ENTITY_ALIAS + ".transaction_date";
+
+    private final DatabaseClient db;
+
+    private final EntityManager entityManager;
+
+    private final boolean mySql;
+
+    public TransactionSummaryRepository(DatabaseClient db, EntityManager entityManager, R2dbcDialect dialect) {
+        this.db = db;
+        this.entityManager = entityManager;
+        this.mySql = dialect instanceof MySqlDialect;
+    }
+
+    /**
+     * Sum the transactions dated in a range, per group.
+     *
+     * @param from the first instant, in UTC, inclusive; null for no limit, the transactions without date included.
+     * @param to the last instant, in UTC, exclusive; null for no limit.
+     * @param grouping what the transactions are grouped by.
+     * @param currency the currency of the amounts summed, the transactions without amount in it are left out.
+     * @return the sums of the groups having transactions, in the order of the groups, the null group first.
+     */
+    public Flux<TransactionSummaryDTO> summarize(LocalDateTime from, LocalDateTime to, Grouping grouping, Currency currency) {
+        Column amountColumn = amountColumn(currency);
+        String amount = EntityManager.ENTITY_ALIAS + "." + amountColumn.getName().getReference();
+        String group = group(grouping);
+        return groupBy(
+            group,
+            grouping == Grouping.CATEGORY,
+            amountColumn.isNotNull(),
+            from,
+            to,
+            group + " AS summary_group",
+            toLong("SUM(" + amount + ")") + " AS amount",
+            toLong("SUM(CASE WHEN " + amount + " > 0 THEN " + amount + " ELSE 0 END)") + " AS credits",
+            toLong("SUM(CASE WHEN " + amount + " < 0 THEN " + amount + " ELSE 0 END)") + " AS debits",
+            "COUNT(" + amount + ") AS transaction_count"
+        )
+            .map(
+                row ->
+                    new TransactionSummaryDTO(
+                        groupOf(row, grouping),
+                        row.get("amount", Long.class),
+                        row.get("credits", Long.class),
+                        row.get("debits", Long.class),
+                        row.get("transaction_count", Long.class)
+                    )
+            )
+            .all();
+    }
+
+    /**
+     * Sum the amounts of the incomes and of the expenses dated in a range, per day, week or month.
+     *
+     * @param from the first instant, in UTC, inclusive; null for no limit.
+     * @param to the last instant, in UTC, exclusive; null for no limit.
+     * @param resolution {@link Grouping#DAY}, {@link Grouping#WEEK} or {@link Grouping#MONTH}.
+     * @param currency the currency of the amounts summed, the transactions without amount in it are left out.
+     * @return the first day of each bucket having incomes or expenses, in order, with the sum of the amounts of the
+     * transactions of an income and the sum of the amounts of the transactions of an expense.
+     */
+    public Flux<CashflowBucket> cashflow(LocalDateTime from, LocalDateTime to, Grouping resolution, Currency currency) {
+        Column amountColumn = amountColumn(currency);
+        String amount = EntityManager.ENTITY_ALIAS + "." + amountColumn.getName().getReference();
+        Column incomeId = Column.create("income_id", entityTable);
+        Column expenseId = Column.create("expense_id", entityTable);
+        String group = group(resolution);
+        String income = "CASE WHEN " + EntityManager.ENTITY_ALIAS + ".income_id IS NOT NULL THEN " + amount + " ELSE 0 END";
+        String expenses = "CASE WHEN " + EntityManager.ENTITY_ALIAS + ".expense_id IS NOT NULL THEN " + amount + " ELSE 0 END";
+        return groupBy(
+            group,
+            false,
+            amountColumn
+                .isNotNull()
+                .and(Column.create("transaction_date", entityTable).isNotNull())
+                .and(Conditions.nest(incomeId.isNotNull().or(expenseId.isNotNull()))),
+            from,
+            to,
+            group + " AS summary_group",
+            toLong("SUM(" + income + ")") + " AS income",
+            toLong("SUM(" + expenses + ")") + " AS expenses"
+        )
+            .map(row -> new CashflowBucket(bucketOf(row, resolution), row.get("income", Long.class), row.get("expenses", Long.class)))
+            .all();
+    }
+
+    /**
+     * Render a select of the transactions, joined with their income and expense if needed, grouped and ordered by a
+     * group, and bind its range of dates.
+     */
+    private DatabaseClient.GenericExecuteSpec groupBy(
+        String group,
+        boolean joinCategories,
+        Condition condition,
+        LocalDateTime from,
+        LocalDateTime to,
+        String... columns
+    ) {
+        // the select list renders consecutive plain expressions without separator, they are joined into one
+        SelectFromAndJoin selectFrom = Select.builder().select(Expressions.just(String.join(", ", columns))).from(entityTable);
+        SelectWhere selectJoined = !joinCategories
+            ? selectFrom
+            : selectFrom
+                .leftOuterJoin(incomeTable)
+                .on(Column.create("income_id", entityTable))
+                .equals(Column.create("id", incomeTable))
+                .leftOuterJoin(expenseTable)
+                .on(Column.create("expense_id", entityTable))
+                .equals(Column.create("id", expenseTable));
+        Condition where = condition;
+        if (from != null) {
+            where = where.and(Column.create("transaction_date", entityTable).isGreaterOrEqualTo(SQL.bindMarker(":from")));
+        }
+        if (to != null) {
+            where = where.and(Column.create("transaction_date", entityTable).isLess(SQL.bindMarker(":to")));
+        }
+        String sql = entityManager.createSelect(selectJoined.where(where).build()) + " GROUP BY " + group + " ORDER BY " + group;
+
+        DatabaseClient.GenericExecuteSpec statement = db.sql(sql);
+        if (from != null) {
+            statement = statement.bind("from", from);
+        }
+        if (to != null) {
+            statement = statement.bind("to", to);
+        }
+        return statement;
+    }
+
+    private static Column amountColumn(Currency currency) {
+        return Column.create(currency == Currency.USD ? "amount_usd" : "amount_cad", entityTable);
+    }
+
+    private String group(Grouping grouping) {
+        switch (grouping) {
+            case DAY:
+                return "CAST(" + DATE + " AS DATE)";
+            case WEEK:
+                return mySql
+                    ? "DATE_SUB(CAST(" + DATE + " AS DATE), INTERVAL WEEKDAY(" + DATE + ") DAY)"
+                    : "CAST(DATEADD('DAY', 1 - ISO_DAY_OF_WEEK(" + DATE + "), CAST(" + DATE + " AS DATE)) AS DATE)";
+            case MONTH:
+                return toLong("EXTRACT(YEAR FROM " + DATE + ") * 100 + EXTRACT(MONTH FROM " + DATE + ")");
+            case CATEGORY:
+                return "COALESCE(expense.category, income.name)";
+            case ACCOUNT_TYPE:
+                return EntityManager.ENTITY_ALIAS + ".account_type";
+            case TRACKED:
+                String tracked = EntityManager.ENTITY_ALIAS + ".is_tracked";
+                return "CASE WHEN " + tracked + " = TRUE THEN 'true' WHEN " + tracked + " = FALSE THEN 'false' END";
+            default:
+                throw new IllegalArgumentException("Unknown grouping " + grouping);
+        }
+    }
+
+    private static String groupOf(Row row, Grouping grouping) {
+        switch (grouping) {
+            case DAY:
+            case WEEK:
+                LocalDate date = row.get("summary_group", LocalDate.class);
+                return date == null ? null : date.toString();
+            case MONTH:
+                Long month = row.get("summary_group", Long.class);
+                return month == null ? null : YearMonth.of((int) (month / 100), (int) (month % 100)).toString();
+            default:
+                return row.get("summary_group", String.class);
+        }
+    }
+
+    private static LocalDate bucketOf(Row row, Grouping resolution) {
+        if (resolution == Grouping.MONTH) {
+            long month = row.get("summary_group", Long.class);
+            return LocalDate.of((int) (month / 100), (int) (month % 100), 1);
+        }
+        return row.get("summary_group", LocalDate.class);
+    }
+
+    private String toLong(String expression) {
+        return "CAST(" + expression + " AS " + (mySql ? "SIGNED" : "BIGINT") + ")";
+    }
+
+    /**
+     * The sums of the incomes and of the expenses of a day, a week or a month.
+     */
+    public static final class CashflowBucket {
+
+        private final LocalDate date;
+
+        private final long income;
+
+        private final long expenses;
+
+        CashflowBucket(LocalDate date, long income, long expenses) {
+            this.date = date;
+            this.income = income;
+            this.expenses = expenses;
+        }
+
+        /**
+         * @return the first day of the bucket.
+         */
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public long getIncome() {
+            return income;
+        }
+
+        public long getExpenses() {
+            return expenses;
+        }
+    }
+}
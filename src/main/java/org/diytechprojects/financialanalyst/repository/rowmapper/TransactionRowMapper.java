@@ -5,18 +5,25 @@ import java.time.Instant;
 import java.util.function.BiFunction;
 import org.diytechprojects.financialanalyst.domain.Transaction;
 import org.diytechprojects.financialanalyst.service.ColumnConverter;
+import org.diytechprojects.financialanalyst.service.DescriptionCacheService;
 import org.springframework.stereotype.Service;
 
 /**
  * Converter between {@link Row} to {@link Transaction}, with proper type conversions.
+ * <p>
+ * The descriptions are replaced by their shared instances, see {@link DescriptionCacheService}: a large result set
+ * keeps one copy of each merchant.
  */
 @Service
 public class TransactionRowMapper implements BiFunction<Row, String, Transaction> {
 
     private final ColumnConverter converter;
 
-    public TransactionRowMapper(ColumnConverter converter) {
+    private final DescriptionCacheService descriptionCacheService;
+
+    public TransactionRowMapper(ColumnConverter converter, DescriptionCacheService descriptionCacheService) {
         this.converter = converter;
+        this.descriptionCacheService = descriptionCacheService;
     }
 
     /**
@@ -30,13 +37,14 @@ public class TransactionRowMapper implements BiFunction<Row, String, Transaction
         entity.setAccountType(converter.fromRow(row, prefix + "_account_type", String.class));
         entity.setTransactionDate(converter.fromRow(row, prefix + "_transaction_date", Instant.class));
         entity.setChequeNumber(converter.fromRow(row, prefix + "_cheque_number", String.class));
-        entity.setDescription1(converter.fromRow(row, prefix + "_description_1", String.class));
-        entity.setDescription2(converter.fromRow(row, prefix + "_description_2", String.class));
+        entity.setDescription1(descriptionCacheService.intern(converter.fromRow(row, prefix + "_description_1", String.class)));
+        entity.setDescription2(descriptionCacheService.intern(converter.fromRow(row, prefix + "_description_2", String.class)));
         entity.setAmountCAD(converter.fromRow(row, prefix + "_amount_cad", Long.class));
         entity.setAmountUSD(converter.fromRow(row, prefix + "_amount_usd", Long.class));
         entity.setIsTracked(converter.fromRow(row, prefix + "_is_tracked", Boolean.class));
         entity.setIncomeId(converter.fromRow(row, prefix + "_income_id", Long.class));
         entity.setExpenseId(converter.fromRow(row, prefix + "_expense_id", Long.class));
+        entity.setFingerprint(converter.fromRow(row, prefix + "_fingerprint", String.class));
         return entity;
     }
 }
@@ -0,0 +1,200 @@
+package org.diytechprojects.financialanalyst.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.PreDestroy;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.repository.TransactionRepository;
+import org.diytechprojects.financialanalyst.service.dto.AccountBalanceDTO;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO.Currency;
+import org.diytechprojects.financialanalyst.service.report.AccountBalances;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class keeping the {@link AccountBalances}, the running balances of the account types in memory.
+ * <p>
+ * The balances are built once the application is ready, or by the first request if it comes first, then rebuilt every
+ * night. The {@link TransactionService} changes them as it saves and deletes the transactions, in the balances being
+ * built as well. The rows inserted by other means, the imports, are caught up before each request, as by the
+ * {@link TransactionSnapshotService}; the amounts, dates and account types updated by other means are only caught up
+ * by the nightly build. The estimated size of the balances is published as the {@code accounts.balances.bytes} gauge.
+ */
+@Service
+public class AccountBalanceService {
+
+    private final Logger log = LoggerFactory.getLogger(AccountBalanceService.class);
+
+    private final TransactionRepository transactionRepository;
+
+    private final int chunkSize;
+
+    /**
+     * The balances the requests read, null until they are first built.
+     */
+    private final AtomicReference<AccountBalances> current = new AtomicReference<>();
+
+    /**
+     * The balances being built, null if none.
+     */
+    private final AtomicReference<AccountBalances> building = new AtomicReference<>();
+
+    private final Disposable.Swap build = Disposables.swap();
+
+    public AccountBalanceService(
+        TransactionRepository transactionRepository,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.transactionRepository = transactionRepository;
+        this.chunkSize = applicationProperties.getBalances().getChunkSize();
+        Gauge
+            .builder("accounts.balances.bytes", current, balances -> balances.get() == null ? 0 : balances.get().bytes())
+            .description("Estimated heap used by the running balances of the account types")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    private void buildInBackground() {
+        build.update(
+            build()
+                .subscribe(
+                    balances -> log.debug("The running balances of the account types were built in the background"),
+                    e -> log.error("The running balances of the account types could not be built", e)
+                )
+        );
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        buildInBackground();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        build.dispose();
+    }
+
+    /**
+     * Rebuild the balances, catching up with the rows updated without the {@link TransactionService}.
+     * <p>
+     * This is scheduled to get fired at {@code application.balances.cron}, every night by default.
+     */
+    @Scheduled(cron = "${application.balances.cron:0 50 3 * * *}")
+    public void rebuildNightly() {
+        buildInBackground();
+    }
+
+    /**
+     * Build new balances from every transaction, in chunks ordered by id, and replace the current ones with them.
+     *
+     * @return a Mono completing once the balances are replaced.
+     */
+    public Mono<Void> rebuild() {
+        return build().then();
+    }
+
+    /**
+     * @return the balances built, replacing the current ones unless another build started since.
+     */
+    private Mono<AccountBalances> build() {
+        return Mono.defer(
+            () -> {
+                long start = System.currentTimeMillis();
+                AccountBalances balances = new AccountBalances();
+                building.set(balances);
+                return readAfter(balances)
+                    .map(
+                        read -> {
+                            if (building.compareAndSet(balances, null)) {
+                                current.set(balances);
+                            }
+                            log.info(
+                                "Built the running balances of the account types, {} transactions, {} bytes, in {} ms",
+                                read,
+                                balances.bytes(),
+                                System.currentTimeMillis() - start
+                            );
+                            return balances;
+                        }
+                    )
+                    .doFinally(signal -> building.compareAndSet(balances, null));
+            }
+        );
+    }
+
+    private Mono<Long> readAfter(AccountBalances balances) {
+        AtomicLong read = new AtomicLong();
+        return transactionRepository
+            .findAllInChunksAfter(balances::getLastReadId, chunkSize)
+            .doOnNext(
+                chunk -> {
+                    chunk.forEach(balances::read);
+                    if (!chunk.isEmpty()) {
+                        balances.readUpTo(chunk.get(chunk.size() - 1).getId());
+                    }
+                    read.addAndGet(chunk.size());
+                }
+            )
+            .then(Mono.fromSupplier(read::get));
+    }
+
+    /**
+     * @param previous the transaction before it was saved or deleted, null if it is new.
+     * @param saved the transaction just saved, null if it is deleted.
+     */
+    public void change(Transaction previous, Transaction saved) {
+        AccountBalances balances = current.get();
+        if (balances != null) {
+            balances.change(previous, saved);
+        }
+        AccountBalances built = building.get();
+        if (built != null && built != balances) {
+            built.change(previous, saved);
+        }
+    }
+
+    /**
+     * Get the balance of an account type at a date, or the sum of its transactions over a range of dates, once the
+     * transactions inserted since the last request are read.
+     *
+     * @param accountType the account type.
+     * @param from the first day, inclusive, null for the balance since the first transaction.
+     * @param at the last day, inclusive, null for no limit.
+     * @param currency the currency of the amounts summed.
+     * @return the balance, or an empty Mono if the account type has no transaction.
+     */
+    public Mono<AccountBalanceDTO> balance(String accountType, LocalDate from, LocalDate at, Currency currency) {
+        log.debug("Request to get the balance of {} from {} to {} in {}", accountType, from, at, currency);
+        return Mono
+            .defer(
+                () -> {
+                    AccountBalances balances = current.get();
+                    return balances == null ? build() : readAfter(balances).thenReturn(balances);
+                }
+            )
+            .flatMap(
+                balances ->
+                    Mono.justOrEmpty(
+                        balances.sum(
+                            accountType,
+                            from == null ? Integer.MIN_VALUE : (int) from.toEpochDay(),
+                            at == null ? Integer.MAX_VALUE : (int) at.toEpochDay(),
+                            currency == Currency.USD
+                        )
+                    )
+            )
+            .map(balance -> new AccountBalanceDTO(accountType, from, at, currency.name(), balance));
+    }
+}
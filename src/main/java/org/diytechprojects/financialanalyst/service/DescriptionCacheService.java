@@ -0,0 +1,61 @@
+package org.diytechprojects.financialanalyst.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.service.categorization.DescriptionCache;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service class sharing one {@link DescriptionCache} between the rows read from the database and the imported ones.
+ * The canonical forms name the merchants of the {@link TransactionTokenIndexService}; the categorization only shares
+ * the interned descriptions, see {@link DescriptionCache}.
+ * <p>
+ * The lookups are published as the {@code descriptions.cache.requests} counter, tagged with their result.
+ */
+@Service
+public class DescriptionCacheService {
+
+    private final DescriptionCache cache;
+
+    public DescriptionCacheService(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.cache = new DescriptionCache(applicationProperties.getDescriptions().getCacheSize());
+        FunctionCounter
+            .builder("descriptions.cache.requests", cache, DescriptionCache::hits)
+            .description("Number of lookups of the description cache")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        FunctionCounter
+            .builder("descriptions.cache.requests", cache, DescriptionCache::misses)
+            .description("Number of lookups of the description cache")
+            .tag("result", "miss")
+            .register(meterRegistry);
+    }
+
+    /**
+     * @param description a description, or null.
+     * @return the shared instance equal to the description.
+     */
+    public String intern(String description) {
+        return cache.intern(description);
+    }
+
+    /**
+     * @param description a description, or null.
+     * @return the shared instance of the name of the merchant in the description.
+     */
+    public String canonical(String description) {
+        return cache.canonical(description);
+    }
+
+    /**
+     * Replace the descriptions of a transaction by their shared instances.
+     *
+     * @param transaction a transaction.
+     * @return the same transaction.
+     */
+    public Transaction internDescriptions(Transaction transaction) {
+        return cache.internDescriptions(transaction);
+    }
+}
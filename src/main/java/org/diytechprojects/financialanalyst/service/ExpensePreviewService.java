@@ -0,0 +1,241 @@
+package org.diytechprojects.financialanalyst.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.Expense;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.repository.ExpenseRepository;
+import org.diytechprojects.financialanalyst.repository.TransactionRepository;
+import org.diytechprojects.financialanalyst.service.categorization.TransactionCategorizer;
+import org.diytechprojects.financialanalyst.service.dto.ExpensePreviewChangeDTO;
+import org.diytechprojects.financialanalyst.service.dto.ExpensePreviewDTO;
+import org.diytechprojects.financialanalyst.service.dto.ExpensePreviewResultDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Service class previewing a candidate set of {@link Expense} rules against the transactions, without writing anything.
+ * <p>
+ * Every debit is matched against the current rules and against the candidate ones, whatever its current expense: the
+ * preview counts the debits the candidate rules match differently and lists the first of them. The range of the ids
+ * of the transactions is split into as many partitions as the preview concurrency, each read in chunks ordered by id
+ * with only the columns the rules need, and matched on its own worker. Cancelling the preview, as WebFlux does when
+ * the client disconnects, cancels the reads of every partition.
+ */
+@Service
+public class ExpensePreviewService {
+
+    private final Logger log = LoggerFactory.getLogger(ExpensePreviewService.class);
+
+    private static final Comparator<ExpensePreviewChangeDTO> BY_TRANSACTION_ID = Comparator.comparing(
+        ExpensePreviewChangeDTO::getTransactionId
+    );
+
+    private final ExpenseRepository expenseRepository;
+
+    private final TransactionRepository transactionRepository;
+
+    private final int chunkSize;
+
+    private final int maxEdits;
+
+    private final int concurrency;
+
+    public ExpensePreviewService(
+        ExpenseRepository expenseRepository,
+        TransactionRepository transactionRepository,
+        ApplicationProperties applicationProperties
+    ) {
+        this.expenseRepository = expenseRepository;
+        this.transactionRepository = transactionRepository;
+        this.chunkSize = applicationProperties.getRecategorization().getChunkSize();
+        this.maxEdits = applicationProperties.getRecategorization().getMaxEdits();
+        this.concurrency = Math.max(1, applicationProperties.getRecategorization().getPreviewConcurrency());
+    }
+
+    /**
+     * Preview a candidate set of expense rules.
+     *
+     * @param preview the new, edited and deleted expenses.
+     * @param samplePercent the percentage of the transactions evaluated, 100 for all of them.
+     * @param size the number of changed debits to list.
+     * @return the number of debits matched differently by the candidate rules, and the first of them.
+     */
+    public Mono<ExpensePreviewResultDTO> preview(ExpensePreviewDTO preview, int samplePercent, int size) {
+        long start = System.currentTimeMillis();
+        return expenseRepository
+            .findAll()
+            .collectList()
+            .flatMap(
+                expenses -> {
+                    TransactionCategorizer current = new TransactionCategorizer(expenses, Collections.emptyList(), null, maxEdits);
+                    TransactionCategorizer candidate = new TransactionCategorizer(
+                        candidateExpenses(expenses, preview),
+                        Collections.emptyList(),
+                        null,
+                        maxEdits
+                    );
+                    return Mono
+                        .zip(transactionRepository.findMinId().defaultIfEmpty(0L), transactionRepository.findMaxId().defaultIfEmpty(0L))
+                        .flatMapMany(ids -> partitions(ids.getT1() - 1, ids.getT2()))
+                        .flatMap(
+                            partition -> evaluate(partition[0], partition[1], samplePercent, size, current, candidate),
+                            concurrency
+                        )
+                        .reduce(new Tally(size), Tally::merge);
+                }
+            )
+            .map(Tally::result)
+            .doOnNext(
+                result ->
+                    log.debug(
+                        "Previewed the candidate expenses: {} of {} debits changed in {} ms",
+                        result.getAssignedRows() + result.getUnassignedRows() + result.getReassignedRows(),
+                        result.getScannedRows(),
+                        System.currentTimeMillis() - start
+                    )
+            )
+            .doOnCancel(() -> log.debug("Preview of the candidate expenses cancelled after {} ms", System.currentTimeMillis() - start));
+    }
+
+    /**
+     * @return the current expenses, replaced by the edited ones of the same id, with the new ones numbered from -1 down
+     * and without the deleted ones.
+     */
+    private static List<Expense> candidateExpenses(List<Expense> expenses, ExpensePreviewDTO preview) {
+        Map<Long, Expense> candidates = new LinkedHashMap<>();
+        for (Expense expense : expenses) {
+            candidates.put(expense.getId(), expense);
+        }
+        long newId = 0;
+        if (preview.getExpenses() != null) {
+            for (Expense edited : preview.getExpenses()) {
+                Long id = edited.getId() != null ? edited.getId() : --newId;
+                candidates.put(id, new Expense().id(id).searchString1(edited.getSearchString1()).searchString2(edited.getSearchString2()));
+            }
+        }
+        if (preview.getDeletedIds() != null) {
+            candidates.keySet().removeAll(preview.getDeletedIds());
+        }
+        return new ArrayList<>(candidates.values());
+    }
+
+    /**
+     * @return ranges of ids, first exclusive and last inclusive, covering the ids after the first one up to the last.
+     */
+    private Flux<long[]> partitions(long afterId, long toId) {
+        long span = toId - afterId;
+        if (span <= 0) {
+            return Flux.empty();
+        }
+        int partitions = (int) Math.max(1, Math.min(concurrency, span / chunkSize));
+        return Flux
+            .range(0, partitions)
+            .map(partition -> new long[] { afterId + span * partition / partitions, afterId + span * (partition + 1) / partitions });
+    }
+
+    private Mono<Tally> evaluate(
+        long afterId,
+        long toId,
+        int samplePercent,
+        int size,
+        TransactionCategorizer current,
+        TransactionCategorizer candidate
+    ) {
+        AtomicLong lastId = new AtomicLong(afterId);
+        return Mono
+            .defer(() -> transactionRepository.findDebitDescriptions(lastId.get(), toId, samplePercent, chunkSize).collectList())
+            .doOnNext(
+                chunk -> {
+                    if (!chunk.isEmpty()) {
+                        lastId.set(chunk.get(chunk.size() - 1).getId());
+                    }
+                }
+            )
+            .repeat()
+            .takeUntil(chunk -> chunk.size() < chunkSize)
+            .publishOn(Schedulers.parallel())
+            .reduce(
+                new Tally(size),
+                (tally, chunk) -> {
+                    for (Transaction transaction : chunk) {
+                        tally.add(transaction, current.bestRule(transaction), candidate.bestRule(transaction));
+                    }
+                    return tally;
+                }
+            );
+    }
+
+    /**
+     * The counts of a partition, then of the whole preview, and its first changes.
+     */
+    private static final class Tally {
+
+        private final int size;
+
+        private final ExpensePreviewResultDTO result = new ExpensePreviewResultDTO();
+
+        private Tally(int size) {
+            this.size = size;
+        }
+
+        private void add(Transaction transaction, Long currentRuleId, Long candidateRuleId) {
+            result.setScannedRows(result.getScannedRows() + 1);
+            if (Objects.equals(currentRuleId, candidateRuleId)) {
+                return;
+            }
+            if (currentRuleId == null) {
+                result.setAssignedRows(result.getAssignedRows() + 1);
+            } else if (candidateRuleId == null) {
+                result.setUnassignedRows(result.getUnassignedRows() + 1);
+            } else {
+                result.setReassignedRows(result.getReassignedRows() + 1);
+            }
+            // a partition is read in the order of the ids, its first changes are the lowest ones
+            if (result.getChanges().size() < size) {
+                result
+                    .getChanges()
+                    .add(
+                        new ExpensePreviewChangeDTO(
+                            transaction.getId(),
+                            transaction.getDescription1(),
+                            transaction.getDescription2(),
+                            transaction.getAmountCAD() != null ? transaction.getAmountCAD() : transaction.getAmountUSD(),
+                            transaction.getExpenseId(),
+                            currentRuleId,
+                            candidateRuleId
+                        )
+                    );
+            }
+        }
+
+        private Tally merge(Tally partition) {
+            result.setScannedRows(result.getScannedRows() + partition.result.getScannedRows());
+            result.setAssignedRows(result.getAssignedRows() + partition.result.getAssignedRows());
+            result.setUnassignedRows(result.getUnassignedRows() + partition.result.getUnassignedRows());
+            result.setReassignedRows(result.getReassignedRows() + partition.result.getReassignedRows());
+            List<ExpensePreviewChangeDTO> changes = result.getChanges();
+            changes.addAll(partition.result.getChanges());
+            changes.sort(BY_TRANSACTION_ID);
+            if (changes.size() > size) {
+                changes.subList(size, changes.size()).clear();
+            }
+            return this;
+        }
+
+        private ExpensePreviewResultDTO result() {
+            return result;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.diytechprojects.financialanalyst.service;
 
 import org.diytechprojects.financialanalyst.domain.Expense;
+import org.diytechprojects.financialanalyst.service.dto.RuleStatisticsDTO;
 import org.springframework.data.domain.Pageable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -48,6 +49,14 @@ public interface ExpenseService {
      */
     Mono<Expense> findOne(Long id);
 
+    /**
+     * Get the hits of the search strings of the "id" expense.
+     *
+     * @param id the id of the entity.
+     * @return the hits counted by the categorizations since the application started, empty if the expense does not exist.
+     */
+    Mono<RuleStatisticsDTO> findStatistics(Long id);
+
     /**
      * Delete the "id" expense.
      *
@@ -0,0 +1,297 @@
+package org.diytechprojects.financialanalyst.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PreDestroy;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.ImportJob;
+import org.diytechprojects.financialanalyst.domain.enumeration.ImportJobStatus;
+import org.diytechprojects.financialanalyst.repository.ImportJobRepository;
+import org.diytechprojects.financialanalyst.service.dto.ImportProgressDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class running the {@link ImportJob}s, resumable imports of the CSV archives stored on the server.
+ * <p>
+ * The progress of a job is written in the transaction committing each chunk of the file, so the committed offset
+ * of a job always matches the rows in the database. Running jobs send a heartbeat at every poll; a running job
+ * whose heartbeat stopped, because its instance was restarted or crashed, is claimed by the next poll of any instance
+ * and resumed from its committed offset. The rows before that offset are counted again, without being written, so the
+ * rows after it get the fingerprints they would have got in a single run: a resumed job skips none of the rows repeated
+ * on both sides of its checkpoint, and running a job again over rows already committed inserts nothing.
+ * <p>
+ * The progress and the final status are only written as long as the job is still owned by the attempt writing them:
+ * an instance which paused past the heartbeat timeout, and whose job was claimed by another one meanwhile, rolls back
+ * the chunk it was committing and stops, leaving the job to its new owner.
+ */
+@Service
+public class ImportJobService {
+
+    private final Logger log = LoggerFactory.getLogger(ImportJobService.class);
+
+    private static final int MAX_ERROR_MESSAGE_LENGTH = 1024;
+
+    private final ImportJobRepository importJobRepository;
+
+    private final TransactionImportService transactionImportService;
+
+    private final ApplicationProperties.ImportJobs properties;
+
+    private final Set<Long> runningJobIds = ConcurrentHashMap.newKeySet();
+
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    public ImportJobService(
+        ImportJobRepository importJobRepository,
+        TransactionImportService transactionImportService,
+        ApplicationProperties applicationProperties
+    ) {
+        this.importJobRepository = importJobRepository;
+        this.transactionImportService = transactionImportService;
+        this.properties = applicationProperties.getImportJobs();
+    }
+
+    /**
+     * Create a job importing a file and start it.
+     *
+     * @param file the path of the CSV file on the server, relative to the import directory when one is configured.
+     * @param batchSize the number of rows per insert statement, or null to use the configured default.
+     * @return the created job.
+     * @throws IllegalArgumentException if the file cannot be read.
+     */
+    public Mono<ImportJob> create(String file, Integer batchSize) {
+        log.debug("Request to create an ImportJob for {}", file);
+        return Mono
+            .fromCallable(() -> resolve(file))
+            .flatMap(path -> importJobRepository.save(newJob(path).batchSize(batchSize)))
+            .flatMap(job -> claim(job, Instant.now()).doOnNext(this::start).defaultIfEmpty(job));
+    }
+
+    /**
+     * Get the unfinished job importing a file, or create one, then run it until it is done.
+     *
+     * @param file the path of the CSV file on the server.
+     * @return the finished job.
+     */
+    public Mono<ImportJob> runToCompletion(String file) {
+        Path path = resolve(file);
+        return importJobRepository
+            .findAllByFileAndStatusIn(path.toString(), Arrays.asList(ImportJobStatus.PENDING.name(), ImportJobStatus.RUNNING.name()))
+            .next()
+            // started explicitly, the job is taken over even if it still looks alive
+            .flatMap(job -> claim(job, Instant.now().plus(properties.getStaleAfter())))
+            .switchIfEmpty(Mono.defer(() -> importJobRepository.save(newJob(path)).flatMap(job -> claim(job, Instant.now()))))
+            .flatMap(this::run);
+    }
+
+    public Flux<ImportJob> findAll(Pageable pageable) {
+        log.debug("Request to get all ImportJobs");
+        return importJobRepository.findAllBy(pageable);
+    }
+
+    public Mono<Long> countAll() {
+        return importJobRepository.count();
+    }
+
+    public Mono<ImportJob> findOne(Long id) {
+        log.debug("Request to get ImportJob : {}", id);
+        return importJobRepository.findById(id);
+    }
+
+    /**
+     * Send the heartbeat of the jobs running in this instance, then start the pending jobs and resume the interrupted ones.
+     * <p>
+     * This is scheduled to get fired every {@code application.import-jobs.poll-interval}.
+     */
+    @Scheduled(
+        initialDelayString = "${application.import-jobs.poll-interval:PT10S}",
+        fixedDelayString = "${application.import-jobs.poll-interval:PT10S}"
+    )
+    public void pollJobs() {
+        pollJobsReactively().blockLast();
+    }
+
+    public Flux<ImportJob> pollJobsReactively() {
+        Instant now = Instant.now();
+        Mono<Integer> heartbeat = runningJobIds.isEmpty() ? Mono.just(0) : importJobRepository.heartbeat(now, runningJobIds);
+        return heartbeat.thenMany(
+            importJobRepository
+                .findAllRunnable(now.minus(properties.getStaleAfter()))
+                .filter(job -> !runningJobIds.contains(job.getId()))
+                .concatMap(job -> claim(job, now.minus(properties.getStaleAfter())))
+                .doOnNext(this::start)
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // the jobs stay RUNNING in the database, another instance resumes them once their heartbeat is stale
+        subscriptions.dispose();
+    }
+
+    private ImportJob newJob(Path path) {
+        return new ImportJob()
+            .file(path.toString())
+            .status(ImportJobStatus.PENDING)
+            .fileSize(path.toFile().length())
+            .committedOffset(0L)
+            .totalRows(0L)
+            .insertedRows(0L)
+            .skippedRows(0L)
+            .rejectedRows(0L)
+            .attempts(0)
+            .createdDate(Instant.now());
+    }
+
+    private Path resolve(String file) {
+        if (file == null || file.trim().isEmpty()) {
+            throw new IllegalArgumentException("The file of an import job is required");
+        }
+        Path path;
+        if (properties.getDirectory() != null) {
+            Path directory = Paths.get(properties.getDirectory()).toAbsolutePath().normalize();
+            path = directory.resolve(file).normalize();
+            if (!path.startsWith(directory)) {
+                throw new IllegalArgumentException("The file of an import job must be in " + directory);
+            }
+        } else {
+            path = Paths.get(file).toAbsolutePath().normalize();
+        }
+        if (!Files.isRegularFile(path) || !Files.isReadable(path)) {
+            throw new IllegalArgumentException("The file " + path + " cannot be read");
+        }
+        return path;
+    }
+
+    /**
+     * @return the job, up to date, if it could be claimed.
+     */
+    private Mono<ImportJob> claim(ImportJob job, Instant staleBefore) {
+        return importJobRepository
+            .claim(Instant.now(), job.getId(), staleBefore)
+            .filter(claimed -> claimed == 1)
+            .flatMap(claimed -> importJobRepository.findById(job.getId()));
+    }
+
+    private void start(ImportJob job) {
+        Disposable.Swap subscription = Disposables.swap();
+        subscriptions.add(subscription);
+        subscription.update(
+            run(job)
+                .doFinally(signal -> subscriptions.remove(subscription))
+                .subscribe(null, e -> log.error("Import job {} could not be saved", job.getId(), e))
+        );
+    }
+
+    private Mono<ImportJob> run(ImportJob job) {
+        log.info(
+            "Starting import job {} of {} at offset {}, attempt {}",
+            job.getId(),
+            job.getFile(),
+            job.getCommittedOffset(),
+            job.getAttempts()
+        );
+        runningJobIds.add(job.getId());
+        long totalRows = job.getTotalRows();
+        long insertedRows = job.getInsertedRows();
+        long skippedRows = job.getSkippedRows();
+        long rejectedRows = job.getRejectedRows();
+        return transactionImportService
+            .importArchive(
+                Paths.get(job.getFile()),
+                job.getCommittedOffset(),
+                job.getBatchSize(),
+                progress -> checkpoint(job, progress, totalRows, insertedRows, skippedRows, rejectedRows)
+            )
+            .then(Mono.defer(() -> finish(job.status(ImportJobStatus.COMPLETED))))
+            .onErrorResume(JobTakenOverException.class, e -> takenOver(job))
+            .onErrorResume(
+                e -> {
+                    log.warn("Import job {} failed: {}", job.getId(), e.getMessage());
+                    String message = String.valueOf(e.getMessage());
+                    if (message.length() > MAX_ERROR_MESSAGE_LENGTH) {
+                        message = message.substring(0, MAX_ERROR_MESSAGE_LENGTH);
+                    }
+                    return finish(job.status(ImportJobStatus.FAILED).errorMessage(message));
+                }
+            )
+            .doFinally(signal -> runningJobIds.remove(job.getId()));
+    }
+
+    private Mono<Void> checkpoint(
+        ImportJob job,
+        ImportProgressDTO progress,
+        long totalRows,
+        long insertedRows,
+        long skippedRows,
+        long rejectedRows
+    ) {
+        job
+            .committedOffset(progress.getOffset())
+            .totalRows(totalRows + progress.getTotalRows())
+            .insertedRows(insertedRows + progress.getInsertedRows())
+            .skippedRows(skippedRows + progress.getSkippedRows())
+            .rejectedRows(rejectedRows + progress.getRejectedRows())
+            .rowsPerSecond(progress.getRowsPerSecond())
+            .heartbeatDate(Instant.now());
+        return importJobRepository
+            .checkpoint(
+                job.getCommittedOffset(),
+                job.getTotalRows(),
+                job.getInsertedRows(),
+                job.getSkippedRows(),
+                job.getRejectedRows(),
+                job.getRowsPerSecond(),
+                job.getHeartbeatDate(),
+                job.getId(),
+                job.getAttempts()
+            )
+            // failing the transaction of the chunk, so that it is rolled back
+            .flatMap(updated -> updated == 1 ? Mono.<Void>empty() : Mono.error(new JobTakenOverException()));
+    }
+
+    private Mono<ImportJob> finish(ImportJob job) {
+        Instant now = Instant.now();
+        job.finishedDate(now).heartbeatDate(now);
+        return importJobRepository
+            .finish(job.getStatus().name(), job.getErrorMessage(), now, now, job.getId(), job.getAttempts())
+            .flatMap(
+                updated -> {
+                    if (updated == 0) {
+                        return takenOver(job);
+                    }
+                    log.info("Import job {} finished: {}", job.getId(), job);
+                    return Mono.just(job);
+                }
+            );
+    }
+
+    /**
+     * @return the job as written by the instance which claimed it.
+     */
+    private Mono<ImportJob> takenOver(ImportJob job) {
+        log.warn("Import job {} was claimed by another instance, attempt {} stops", job.getId(), job.getAttempts());
+        return importJobRepository.findById(job.getId());
+    }
+
+    /**
+     * Thrown when the progress of a job cannot be written, as another instance claimed the job.
+     */
+    private static final class JobTakenOverException extends IllegalStateException {
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -1,6 +1,7 @@
 package org.diytechprojects.financialanalyst.service;
 
 import org.diytechprojects.financialanalyst.domain.Income;
+import org.diytechprojects.financialanalyst.service.dto.RuleStatisticsDTO;
 import org.springframework.data.domain.Pageable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -48,6 +49,14 @@ public interface IncomeService {
      */
     Mono<Income> findOne(Long id);
 
+    /**
+     * Get the hits of the search strings of the "id" income.
+     *
+     * @param id the id of the entity.
+     * @return the hits counted by the categorizations since the application started, empty if the income does not exist.
+     */
+    Mono<RuleStatisticsDTO> findStatistics(Long id);
+
     /**
      * Delete the "id" income.
      *
@@ -0,0 +1,353 @@
+package org.diytechprojects.financialanalyst.service;
+
+import static org.springframework.data.relational.core.query.Criteria.where;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.PreDestroy;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.RecategorizationJob;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.domain.enumeration.RecategorizationJobStatus;
+import org.diytechprojects.financialanalyst.repository.RecategorizationJobRepository;
+import org.diytechprojects.financialanalyst.repository.TransactionRepository;
+import org.diytechprojects.financialanalyst.service.categorization.TransactionCategorizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.relational.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class running the {@link RecategorizationJob}s, which match the uncategorized transactions against the
+ * current rules and write back the expense or income found.
+ * <p>
+ * The transactions are read in chunks ordered by id, each chunk starting after the last id of the previous one, so
+ * a single chunk is held in memory whatever the size of the table. The categories of a chunk are written with one
+ * update per matched rule, in the transaction saving the checkpoint of the job: an interrupted job resumes after the
+ * last committed chunk, by the nightly run or by another instance once its heartbeat is stale.
+ * <p>
+ * The scanned and categorized rows are counted by the {@code recategorization.rows} counter, the share of the running
+ * job already done is published as the {@code recategorization.progress} gauge.
+ */
+@Service
+public class RecategorizationJobService {
+
+    private final Logger log = LoggerFactory.getLogger(RecategorizationJobService.class);
+
+    private static final int MAX_ERROR_MESSAGE_LENGTH = 1024;
+
+    private final RecategorizationJobRepository recategorizationJobRepository;
+
+    private final TransactionRepository transactionRepository;
+
+    private final TransactionCategorizationService transactionCategorizationService;
+
+    private final TransactionRollupService transactionRollupService;
+
+    private final TransactionSnapshotService transactionSnapshotService;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final ApplicationProperties.Recategorization properties;
+
+    private final AtomicReference<RecategorizationJob> runningJob = new AtomicReference<>();
+
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    private final Counter scannedRows;
+
+    private final Counter categorizedRows;
+
+    public RecategorizationJobService(
+        RecategorizationJobRepository recategorizationJobRepository,
+        TransactionRepository transactionRepository,
+        TransactionCategorizationService transactionCategorizationService,
+        TransactionRollupService transactionRollupService,
+        TransactionSnapshotService transactionSnapshotService,
+        TransactionalOperator transactionalOperator,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.recategorizationJobRepository = recategorizationJobRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionCategorizationService = transactionCategorizationService;
+        this.transactionRollupService = transactionRollupService;
+        this.transactionSnapshotService = transactionSnapshotService;
+        this.transactionalOperator = transactionalOperator;
+        this.properties = applicationProperties.getRecategorization();
+        this.scannedRows =
+            Counter
+                .builder("recategorization.rows")
+                .description("Number of transactions processed by the recategorization jobs")
+                .tag("result", "scanned")
+                .register(meterRegistry);
+        this.categorizedRows =
+            Counter
+                .builder("recategorization.rows")
+                .description("Number of transactions processed by the recategorization jobs")
+                .tag("result", "categorized")
+                .register(meterRegistry);
+        Gauge
+            .builder("recategorization.progress", runningJob, RecategorizationJobService::progress)
+            .description("Share of the uncategorized transactions scanned by the running recategorization job")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Resume the unfinished job, or create a new one, and run it in the background.
+     *
+     * @return the started job.
+     * @throws IllegalStateException if a job is already running.
+     */
+    public Mono<RecategorizationJob> start() {
+        log.debug("Request to start a RecategorizationJob");
+        Instant now = Instant.now();
+        return findUnfinished()
+            .flatMap(
+                job ->
+                    claim(job, now.minus(properties.getStaleAfter()))
+                        .switchIfEmpty(Mono.error(() -> new IllegalStateException("Recategorization job " + job.getId() + " is running")))
+            )
+            .switchIfEmpty(Mono.defer(() -> recategorizationJobRepository.save(newJob()).flatMap(job -> claim(job, now))))
+            .doOnNext(this::runInBackground);
+    }
+
+    public Flux<RecategorizationJob> findAll(Pageable pageable) {
+        log.debug("Request to get all RecategorizationJobs");
+        return recategorizationJobRepository.findAllBy(pageable);
+    }
+
+    public Mono<Long> countAll() {
+        return recategorizationJobRepository.count();
+    }
+
+    public Mono<RecategorizationJob> findOne(Long id) {
+        log.debug("Request to get RecategorizationJob : {}", id);
+        return recategorizationJobRepository.findById(id);
+    }
+
+    /**
+     * Start the nightly recategorization, unless a job is still running.
+     * <p>
+     * This is scheduled to get fired at {@code application.recategorization.cron}, every night by default.
+     */
+    @Scheduled(cron = "${application.recategorization.cron:0 0 3 * * *}")
+    public void startNightly() {
+        start()
+            .onErrorResume(
+                IllegalStateException.class,
+                e -> {
+                    log.info("The nightly recategorization is skipped: {}", e.getMessage());
+                    return Mono.empty();
+                }
+            )
+            .block();
+    }
+
+    /**
+     * Resume the job interrupted by the stop of its instance, if any.
+     * <p>
+     * This is scheduled to get fired every {@code application.recategorization.stale-after}.
+     */
+    @Scheduled(
+        initialDelayString = "${application.recategorization.stale-after:PT5M}",
+        fixedDelayString = "${application.recategorization.stale-after:PT5M}"
+    )
+    public void resumeInterrupted() {
+        if (runningJob.get() == null) {
+            findUnfinished()
+                .filter(job -> job.getStatus() == RecategorizationJobStatus.RUNNING)
+                .flatMap(job -> claim(job, Instant.now().minus(properties.getStaleAfter())))
+                .doOnNext(this::runInBackground)
+                .block();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // the job stays RUNNING in the database, it is resumed once its heartbeat is stale
+        subscriptions.dispose();
+    }
+
+    private Mono<RecategorizationJob> findUnfinished() {
+        return recategorizationJobRepository
+            .findAllByStatusInOrderById(Arrays.asList(RecategorizationJobStatus.PENDING.name(), RecategorizationJobStatus.RUNNING.name()))
+            .next();
+    }
+
+    private RecategorizationJob newJob() {
+        return new RecategorizationJob()
+            .status(RecategorizationJobStatus.PENDING)
+            .chunkSize(properties.getChunkSize())
+            .lastTransactionId(0L)
+            .totalRows(0L)
+            .scannedRows(0L)
+            .categorizedRows(0L)
+            .attempts(0)
+            .createdDate(Instant.now());
+    }
+
+    /**
+     * @return the job, up to date, if it could be claimed.
+     */
+    private Mono<RecategorizationJob> claim(RecategorizationJob job, Instant staleBefore) {
+        return recategorizationJobRepository
+            .claim(Instant.now(), job.getId(), staleBefore)
+            .filter(claimed -> claimed == 1)
+            .flatMap(claimed -> recategorizationJobRepository.findById(job.getId()));
+    }
+
+    private void runInBackground(RecategorizationJob job) {
+        Disposable.Swap subscription = Disposables.swap();
+        subscriptions.add(subscription);
+        subscription.update(
+            run(job)
+                .doFinally(signal -> subscriptions.remove(subscription))
+                .subscribe(null, e -> log.error("Recategorization job {} could not be saved", job.getId(), e))
+        );
+    }
+
+    Mono<RecategorizationJob> run(RecategorizationJob job) {
+        log.info(
+            "Starting recategorization job {} after transaction {}, attempt {}",
+            job.getId(),
+            job.getLastTransactionId(),
+            job.getAttempts()
+        );
+        if (job.getChunkSize() == null) {
+            job.setChunkSize(properties.getChunkSize());
+        }
+        runningJob.set(job);
+        long start = System.currentTimeMillis();
+        long scannedBefore = job.getScannedRows();
+        return transactionCategorizationService
+            .loadCategorizer()
+            .flatMap(
+                categorizer ->
+                    transactionRepository
+                        .countUncategorizedAfter(job.getLastTransactionId())
+                        .flatMap(remaining -> recategorizationJobRepository.save(job.totalRows(job.getScannedRows() + remaining)))
+                        .thenMany(
+                            Mono
+                                .defer(() -> processChunk(job, categorizer, start, scannedBefore))
+                                .repeat()
+                                .takeUntil(scanned -> scanned < job.getChunkSize())
+                        )
+                        .then()
+            )
+            .then(Mono.defer(() -> finish(job.status(RecategorizationJobStatus.COMPLETED))))
+            .onErrorResume(
+                e -> {
+                    log.warn("Recategorization job {} failed: {}", job.getId(), e.getMessage());
+                    String message = String.valueOf(e.getMessage());
+                    if (message.length() > MAX_ERROR_MESSAGE_LENGTH) {
+                        message = message.substring(0, MAX_ERROR_MESSAGE_LENGTH);
+                    }
+                    String errorMessage = message;
+                    // the job in memory may be ahead of its last committed checkpoint
+                    return recategorizationJobRepository
+                        .findById(job.getId())
+                        .flatMap(committed -> finish(committed.status(RecategorizationJobStatus.FAILED).errorMessage(errorMessage)));
+                }
+            )
+            .doOnNext(finished -> log.info("Recategorization job {} finished: {}", finished.getId(), finished))
+            .doFinally(signal -> runningJob.compareAndSet(job, null));
+    }
+
+    /**
+     * Categorize the next chunk and commit it with the checkpoint of the job.
+     *
+     * @return the number of transactions read, less than the chunk size once the last one is reached.
+     */
+    private Mono<Integer> processChunk(RecategorizationJob job, TransactionCategorizer categorizer, long start, long scannedBefore) {
+        return transactionRepository
+            .findUncategorizedAfter(job.getLastTransactionId(), job.getChunkSize())
+            .collectList()
+            .flatMap(
+                chunk -> {
+                    if (chunk.isEmpty()) {
+                        return Mono.just(0);
+                    }
+                    // one update per matched rule, the rules of the matches are few compared to the transactions
+                    Map<Long, List<Long>> expenses = new LinkedHashMap<>();
+                    Map<Long, List<Long>> incomes = new LinkedHashMap<>();
+                    List<Long> matched = new ArrayList<>();
+                    for (Transaction transaction : chunk) {
+                        categorizer.categorize(transaction);
+                        if (transaction.getExpenseId() != null) {
+                            expenses.computeIfAbsent(transaction.getExpenseId(), id -> new ArrayList<>()).add(transaction.getId());
+                            matched.add(transaction.getId());
+                        } else if (transaction.getIncomeId() != null) {
+                            incomes.computeIfAbsent(transaction.getIncomeId(), id -> new ArrayList<>()).add(transaction.getId());
+                            matched.add(transaction.getId());
+                        }
+                    }
+                    long elapsed = System.currentTimeMillis() - start;
+                    return transactionRollupService
+                        .apply(matched, Flux.concat(update("expense_id", expenses), update("income_id", incomes)).reduce(0, Integer::sum))
+                        .flatMap(categorized -> transactionSnapshotService.reload(matched).thenReturn(categorized))
+                        .flatMap(
+                            categorized -> {
+                                long scanned = job.getScannedRows() + chunk.size();
+                                job
+                                    .lastTransactionId(chunk.get(chunk.size() - 1).getId())
+                                    .scannedRows(scanned)
+                                    .categorizedRows(job.getCategorizedRows() + categorized)
+                                    .rowsPerSecond(elapsed > 0 ? (scanned - scannedBefore) * 1000 / elapsed : null)
+                                    .heartbeatDate(Instant.now());
+                                return recategorizationJobRepository
+                                    .save(job)
+                                    .doOnSuccess(
+                                        saved -> {
+                                            scannedRows.increment(chunk.size());
+                                            categorizedRows.increment(categorized);
+                                        }
+                                    );
+                            }
+                        )
+                        .as(transactionalOperator::transactional)
+                        .thenReturn(chunk.size());
+                }
+            );
+    }
+
+    private Flux<Integer> update(String column, Map<Long, List<Long>> idsPerRule) {
+        return Flux
+            .fromIterable(idsPerRule.entrySet())
+            .concatMap(
+                rule ->
+                    // a transaction categorized since it was read keeps its category
+                    transactionRepository.updateAll(
+                        where("id").in(rule.getValue()).and("expense_id").isNull().and("income_id").isNull(),
+                        Update.update(column, rule.getKey())
+                    )
+            );
+    }
+
+    private Mono<RecategorizationJob> finish(RecategorizationJob job) {
+        return recategorizationJobRepository.save(job.finishedDate(Instant.now()).heartbeatDate(Instant.now()));
+    }
+
+    private static double progress(AtomicReference<RecategorizationJob> runningJob) {
+        RecategorizationJob job = runningJob.get();
+        if (job == null || job.getTotalRows() == null || job.getTotalRows() == 0) {
+            return 0;
+        }
+        return (double) job.getScannedRows() / job.getTotalRows();
+    }
+}
@@ -0,0 +1,238 @@
+package org.diytechprojects.financialanalyst.service;
+
+import static org.springframework.data.relational.core.query.Criteria.where;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.diytechprojects.financialanalyst.domain.Expense;
+import org.diytechprojects.financialanalyst.domain.Income;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.repository.TransactionRepository;
+import org.diytechprojects.financialanalyst.service.categorization.TransactionCategorizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.relational.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class applying the edit of the search strings of an {@link Expense} or an {@link Income} to the
+ * transactions it affects, rather than matching the whole table against the rules again.
+ * <p>
+ * Only the transactions whose descriptions could contain one of the former or new search strings are read, as told
+ * by the {@link TransactionTokenIndexService}. Of those, the uncategorized transactions the rule now matches best get
+ * it, and the transactions of the rule matched by its former search strings are matched against the current rules
+ * again: they get the best rule left, or none. Transactions categorized by hand, or by other rules, are kept as they
+ * are, as by every other categorization.
+ */
+@Service
+public class RuleChangeRecategorizationService {
+
+    private final Logger log = LoggerFactory.getLogger(RuleChangeRecategorizationService.class);
+
+    /**
+     * Number of candidate transactions read and updated per statement.
+     */
+    static final int CHUNK_SIZE = 1000;
+
+    private final TransactionRepository transactionRepository;
+
+    private final TransactionTokenIndexService transactionTokenIndexService;
+
+    private final TransactionCategorizationService transactionCategorizationService;
+
+    private final TransactionRollupService transactionRollupService;
+
+    private final TransactionSnapshotService transactionSnapshotService;
+
+    public RuleChangeRecategorizationService(
+        TransactionRepository transactionRepository,
+        TransactionTokenIndexService transactionTokenIndexService,
+        TransactionCategorizationService transactionCategorizationService,
+        TransactionRollupService transactionRollupService,
+        TransactionSnapshotService transactionSnapshotService
+    ) {
+        this.transactionRepository = transactionRepository;
+        this.transactionTokenIndexService = transactionTokenIndexService;
+        this.transactionCategorizationService = transactionCategorizationService;
+        this.transactionRollupService = transactionRollupService;
+        this.transactionSnapshotService = transactionSnapshotService;
+    }
+
+    /**
+     * @param expense an expense just saved.
+     * @param previousSearchStrings its search strings before the save, none for a new expense.
+     * @return the number of transactions whose category changed.
+     */
+    public Mono<Integer> expenseChanged(Expense expense, List<String> previousSearchStrings) {
+        return ruleChanged(
+            "expense_id",
+            Transaction::getExpenseId,
+            expense.getId(),
+            previousSearchStrings,
+            Arrays.asList(expense.getSearchString1(), expense.getSearchString2())
+        );
+    }
+
+    /**
+     * @param income an income just saved.
+     * @param previousSearchStrings its search strings before the save, none for a new income.
+     * @return the number of transactions whose category changed.
+     */
+    public Mono<Integer> incomeChanged(Income income, List<String> previousSearchStrings) {
+        return ruleChanged(
+            "income_id",
+            Transaction::getIncomeId,
+            income.getId(),
+            previousSearchStrings,
+            Arrays.asList(income.getSearchString1(), income.getSearchString2())
+        );
+    }
+
+    private Mono<Integer> ruleChanged(
+        String column,
+        Function<Transaction, Long> category,
+        Long ruleId,
+        List<String> previousSearchStrings,
+        List<String> searchStrings
+    ) {
+        Set<String> previous = normalize(previousSearchStrings);
+        Set<String> current = normalize(searchStrings);
+        if (previous.equals(current)) {
+            return Mono.just(0);
+        }
+        long start = System.currentTimeMillis();
+        return transactionTokenIndexService
+            .refresh()
+            .then(transactionCategorizationService.loadCategorizer())
+            .flatMap(
+                categorizer -> {
+                    long[] candidates = candidates(previous, current);
+                    return Flux
+                        .range(0, (candidates.length + CHUNK_SIZE - 1) / CHUNK_SIZE)
+                        .<Integer>concatMap(
+                            chunk -> {
+                                long[] ids = Arrays.copyOfRange(
+                                    candidates,
+                                    chunk * CHUNK_SIZE,
+                                    Math.min(candidates.length, (chunk + 1) * CHUNK_SIZE)
+                                );
+                                return recategorize(ids, column, category, ruleId, previous, categorizer);
+                            }
+                        )
+                        .reduce(0, Integer::sum)
+                        .doOnNext(
+                            changed ->
+                                log.debug(
+                                    "Search strings of {} {} changed, {} of {} candidate transactions recategorized in {} ms",
+                                    column,
+                                    ruleId,
+                                    changed,
+                                    candidates.length,
+                                    System.currentTimeMillis() - start
+                                )
+                        );
+                }
+            );
+    }
+
+    private long[] candidates(Set<String> previous, Set<String> current) {
+        Set<String> searchStrings = new LinkedHashSet<>(previous);
+        searchStrings.addAll(current);
+        return searchStrings
+            .stream()
+            .flatMapToLong(searchString -> Arrays.stream(transactionTokenIndexService.candidates(searchString)))
+            .sorted()
+            .distinct()
+            .toArray();
+    }
+
+    private Mono<Integer> recategorize(
+        long[] ids,
+        String column,
+        Function<Transaction, Long> category,
+        Long ruleId,
+        Set<String> previous,
+        TransactionCategorizer categorizer
+    ) {
+        return transactionRepository
+            .findAllBy(null, where("id").in(Arrays.stream(ids).boxed().collect(Collectors.toList())))
+            .collectList()
+            .flatMap(
+                transactions -> {
+                    List<Long> categorized = new ArrayList<>();
+                    // the transactions the rule lost, per rule they now get, null for none
+                    Map<Long, List<Long>> reassigned = new LinkedHashMap<>();
+                    List<Long> changed = new ArrayList<>();
+                    for (Transaction transaction : transactions) {
+                        if (transaction.getExpenseId() == null && transaction.getIncomeId() == null) {
+                            if (ruleId.equals(category.apply(categorizer.categorize(transaction)))) {
+                                categorized.add(transaction.getId());
+                            }
+                        } else if (ruleId.equals(category.apply(transaction)) && matches(transaction, previous)) {
+                            transaction.setExpenseId(null);
+                            transaction.setIncomeId(null);
+                            Long rule = category.apply(categorizer.categorize(transaction));
+                            if (!ruleId.equals(rule)) {
+                                reassigned.computeIfAbsent(rule, id -> new ArrayList<>()).add(transaction.getId());
+                                changed.add(transaction.getId());
+                            }
+                        }
+                    }
+                    Flux<Integer> updates = categorized.isEmpty()
+                        ? Flux.empty()
+                        : transactionRepository
+                            .updateAll(
+                                where("id").in(categorized).and("expense_id").isNull().and("income_id").isNull(),
+                                Update.update(column, ruleId)
+                            )
+                            .flux();
+                    for (Map.Entry<Long, List<Long>> rule : reassigned.entrySet()) {
+                        updates =
+                            updates.concatWith(
+                                transactionRepository.updateAll(
+                                    where("id").in(rule.getValue()).and(column).is(ruleId),
+                                    Update.update(column, rule.getKey())
+                                )
+                            );
+                    }
+                    changed.addAll(categorized);
+                    return transactionRollupService
+                        .apply(changed, updates.reduce(0, Integer::sum))
+                        .flatMap(updated -> transactionSnapshotService.reload(changed).thenReturn(updated));
+                }
+            );
+    }
+
+    /**
+     * @return whether one of the descriptions of the transaction contains one of the search strings.
+     */
+    private static boolean matches(Transaction transaction, Set<String> searchStrings) {
+        for (String description : new String[] { transaction.getDescription1(), transaction.getDescription2() }) {
+            if (description != null) {
+                String upperCase = TransactionCategorizer.upperCase(description);
+                if (searchStrings.stream().anyMatch(upperCase::contains)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> normalize(List<String> searchStrings) {
+        return searchStrings
+            .stream()
+            .map(TransactionCategorizer::normalizeSearchString)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
@@ -0,0 +1,94 @@
+package org.diytechprojects.financialanalyst.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.Expense;
+import org.diytechprojects.financialanalyst.domain.Income;
+import org.diytechprojects.financialanalyst.service.synthetic.SyntheticDataGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Fills the database with a synthetic dataset at startup, when {@code application.synthetic-data.transactions} is set.
+ * <p>
+ * Meant for load and scaling tests: start the application with {@code --application.synthetic-data.transactions=10000000},
+ * optionally with another {@code --application.synthetic-data.seed}. The expense and income rules are saved first,
+ * then the transactions go through the bulk create path, one database transaction per {@code commit-size} rows.
+ * Running it again adds another copy of the dataset, start from an empty database to reproduce one.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.synthetic-data", name = "transactions")
+public class SyntheticDataRunner implements ApplicationRunner {
+
+    private final Logger log = LoggerFactory.getLogger(SyntheticDataRunner.class);
+
+    private final ExpenseService expenseService;
+
+    private final IncomeService incomeService;
+
+    private final TransactionService transactionService;
+
+    private final ApplicationProperties applicationProperties;
+
+    public SyntheticDataRunner(
+        ExpenseService expenseService,
+        IncomeService incomeService,
+        TransactionService transactionService,
+        ApplicationProperties applicationProperties
+    ) {
+        this.expenseService = expenseService;
+        this.incomeService = incomeService;
+        this.transactionService = transactionService;
+        this.applicationProperties = applicationProperties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        ApplicationProperties.SyntheticData properties = applicationProperties.getSyntheticData();
+        long count = properties.getTransactions();
+        int batchSize = applicationProperties.getBulkImport().getBatchSize();
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(properties);
+        log.info(
+            "Generating {} transactions from {} to {} with seed {}",
+            count,
+            generator.firstDate(),
+            generator.lastDate(),
+            properties.getSeed()
+        );
+        long start = System.nanoTime();
+        AtomicLong written = new AtomicLong();
+        Long total = Mono
+            .zip(
+                Flux.fromIterable(generator.getExpenses()).concatMap(expenseService::save).collectList(),
+                Flux.fromIterable(generator.getIncomes()).concatMap(incomeService::save).collectList()
+            )
+            .flatMapMany(
+                rules -> {
+                    List<Expense> expenses = rules.getT1();
+                    List<Income> incomes = rules.getT2();
+                    log.info("Saved {} expense and {} income rules", expenses.size(), incomes.size());
+                    return Flux
+                        .fromIterable(() -> generator.transactions(count, expenses, incomes))
+                        .window(properties.getCommitSize())
+                        .concatMap(window -> transactionService.createAll(window, batchSize).count());
+                }
+            )
+            .doOnNext(
+                committed -> {
+                    long done = written.addAndGet(committed);
+                    long seconds = Math.max(1, (System.nanoTime() - start) / 1_000_000_000);
+                    log.info("Generated {} of {} transactions, {} rows/s", done, count, done / seconds);
+                }
+            )
+            .reduce(0L, Long::sum)
+            .block();
+        log.info("Generated {} transactions", total);
+    }
+}
@@ -0,0 +1,41 @@
+package org.diytechprojects.financialanalyst.service;
+
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.ImportJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Offline import of a CSV archive, run at startup when {@code application.archive-import.file} is set.
+ * <p>
+ * Meant for the initial backfill of years of statements: start the application with
+ * {@code --application.archive-import.file=/path/to/archive.csv}, the import is done before the application is ready.
+ * The import runs as an {@link ImportJob}, starting the application again with the same file resumes it.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.archive-import", name = "file")
+public class TransactionArchiveImportRunner implements ApplicationRunner {
+
+    private final Logger log = LoggerFactory.getLogger(TransactionArchiveImportRunner.class);
+
+    private final ImportJobService importJobService;
+
+    private final ApplicationProperties applicationProperties;
+
+    public TransactionArchiveImportRunner(ImportJobService importJobService, ApplicationProperties applicationProperties) {
+        this.importJobService = importJobService;
+        this.applicationProperties = applicationProperties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        String file = applicationProperties.getArchiveImport().getFile();
+        log.info("Importing the CSV archive {}", file);
+        ImportJob job = importJobService.runToCompletion(file).block();
+        log.info("Imported the CSV archive {}: {}", file, job);
+    }
+}
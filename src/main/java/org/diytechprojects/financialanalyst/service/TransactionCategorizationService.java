@@ -0,0 +1,217 @@
+package org.diytechprojects.financialanalyst.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.Expense;
+import org.diytechprojects.financialanalyst.domain.Income;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.repository.ExpenseRepository;
+import org.diytechprojects.financialanalyst.repository.IncomeRepository;
+import org.diytechprojects.financialanalyst.repository.TransactionRepository;
+import org.diytechprojects.financialanalyst.service.categorization.CategorizationCache;
+import org.diytechprojects.financialanalyst.service.categorization.RuleHitStatistics;
+import org.diytechprojects.financialanalyst.service.categorization.TransactionCategorizer;
+import org.diytechprojects.financialanalyst.service.dto.RuleConflictDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class matching {@link Transaction}s against the search strings of the {@link Expense}s and {@link Income}s.
+ * <p>
+ * The search strings of all the rules are compiled into a single automaton, which then categorizes each
+ * transaction in one pass over its descriptions. The categorizers count the hits of the rules in the
+ * {@link RuleHitStatistics} of the service.
+ * <p>
+ * The categorizers share a {@link CategorizationCache} of the rules matching the descriptions seen, for the version of
+ * the rules they were loaded with. The {@link ExpenseService} and the {@link IncomeService} call
+ * {@link #rulesChanged()} before changing a rule, which invalidates the whole cache. The lookups are published as the
+ * {@code categorization.cache.requests} counter, tagged with their result.
+ */
+@Service
+public class TransactionCategorizationService {
+
+    private final Logger log = LoggerFactory.getLogger(TransactionCategorizationService.class);
+
+    private final ExpenseRepository expenseRepository;
+
+    private final IncomeRepository incomeRepository;
+
+    private final TransactionRepository transactionRepository;
+
+    private final int chunkSize;
+
+    private final int maxEdits;
+
+    private final RuleHitStatistics statistics = new RuleHitStatistics();
+
+    private final CategorizationCache cache;
+
+    /**
+     * The version of the rules, bumped when an expense or an income changes and again when the change is committed.
+     */
+    private final AtomicLong rulesVersion = new AtomicLong();
+
+    public TransactionCategorizationService(
+        ExpenseRepository expenseRepository,
+        IncomeRepository incomeRepository,
+        TransactionRepository transactionRepository,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.expenseRepository = expenseRepository;
+        this.incomeRepository = incomeRepository;
+        this.transactionRepository = transactionRepository;
+        this.chunkSize = applicationProperties.getRecategorization().getConflictsChunkSize();
+        this.maxEdits = applicationProperties.getRecategorization().getMaxEdits();
+        this.cache = new CategorizationCache(applicationProperties.getRecategorization().getCacheSize());
+        FunctionCounter
+            .builder("categorization.cache.requests", cache, CategorizationCache::hits)
+            .description("Number of lookups of the rules matching the descriptions of a transaction in the cache")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        FunctionCounter
+            .builder("categorization.cache.requests", cache, CategorizationCache::misses)
+            .description("Number of lookups of the rules matching the descriptions of a transaction in the cache")
+            .tag("result", "miss")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Load the search strings of the expenses and incomes.
+     *
+     * @return a categorizer matching transactions against the current rules.
+     */
+    public Mono<TransactionCategorizer> loadCategorizer() {
+        return loadCategorizer(statistics);
+    }
+
+    private Mono<TransactionCategorizer> loadCategorizer(RuleHitStatistics statistics) {
+        return Mono.defer(() -> loadCategorizer(statistics, rulesVersion.get()));
+    }
+
+    private Mono<TransactionCategorizer> loadCategorizer(RuleHitStatistics statistics, long version) {
+        // the version is read before the rules: rules changed meanwhile are cached under a version already stale
+        return Mono
+            .zip(expenseRepository.findAll().collectList(), incomeRepository.findAll().collectList())
+            .map(
+                rules -> {
+                    TransactionCategorizer categorizer = new TransactionCategorizer(
+                        rules.getT1(),
+                        rules.getT2(),
+                        statistics,
+                        maxEdits,
+                        cache,
+                        version
+                    );
+                    log.debug(
+                        "Compiled the search strings of {} expenses and {} incomes into {} states",
+                        rules.getT1().size(),
+                        rules.getT2().size(),
+                        categorizer.getStates()
+                    );
+                    return categorizer;
+                }
+            );
+    }
+
+    /**
+     * Invalidate the rules cached for the descriptions, once when an expense or an income is about to change and once
+     * more when its transaction completes: a categorizer loaded in between could have read the former rules.
+     *
+     * @return a Mono completing once the invalidation after the transaction is registered, if there is one.
+     */
+    public Mono<Void> rulesChanged() {
+        return Mono
+            .fromRunnable(rulesVersion::incrementAndGet)
+            .then(TransactionSynchronizationManager.forCurrentTransaction())
+            .filter(TransactionSynchronizationManager::isSynchronizationActive)
+            .doOnNext(
+                synchronizationManager ->
+                    synchronizationManager.registerSynchronization(
+                        new TransactionSynchronization() {
+                            @Override
+                            public Mono<Void> afterCompletion(int status) {
+                                return Mono.fromRunnable(rulesVersion::incrementAndGet);
+                            }
+                        }
+                    )
+            )
+            .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+            .then();
+    }
+
+    /**
+     * Set the expense or the income of the transactions which have none yet, against the rules current when the
+     * first transaction is received.
+     *
+     * @param transactions the transactions to categorize.
+     * @return the same transactions.
+     */
+    public Flux<Transaction> categorize(Flux<Transaction> transactions) {
+        return loadCategorizer().flatMapMany(categorizer -> transactions.map(categorizer::categorize));
+    }
+
+    /**
+     * @return the hits of the rules, counted by the categorizations since the application started.
+     */
+    public RuleHitStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * List the transactions matched by several expenses, or by several incomes, whatever their current category.
+     * The transactions are read in chunks ordered by id until enough conflicts are found; the hits of the rules are
+     * not counted.
+     *
+     * @param afterId the id the report starts after, the last id of the previous page.
+     * @param size the number of conflicts to return at most.
+     * @return the conflicts, in the order of the ids of the transactions.
+     */
+    public Flux<RuleConflictDTO> findConflicts(Long afterId, int size) {
+        return loadCategorizer(null)
+            .flatMapMany(
+                categorizer -> {
+                    long startId = afterId == null ? 0 : afterId;
+                    return transactionRepository
+                        .findAllInChunksAfter(() -> startId, chunkSize)
+                        .concatMapIterable(chunk -> conflicts(chunk, categorizer));
+                }
+            )
+            .take(size);
+    }
+
+    private static List<RuleConflictDTO> conflicts(List<Transaction> transactions, TransactionCategorizer categorizer) {
+        List<RuleConflictDTO> conflicts = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            long[] rules = categorizer.matchingRules(transaction);
+            if (rules.length > 1) {
+                Long amount = transaction.getAmountCAD() != null ? transaction.getAmountCAD() : transaction.getAmountUSD();
+                boolean expense = amount < 0;
+                conflicts.add(
+                    new RuleConflictDTO(
+                        transaction.getId(),
+                        transaction.getDescription1(),
+                        transaction.getDescription2(),
+                        amount,
+                        expense ? RuleConflictDTO.RuleType.EXPENSE : RuleConflictDTO.RuleType.INCOME,
+                        Arrays.stream(rules).boxed().collect(Collectors.toList()),
+                        expense ? transaction.getExpenseId() : transaction.getIncomeId()
+                    )
+                );
+            }
+        }
+        return conflicts;
+    }
+}
@@ -0,0 +1,196 @@
+package org.diytechprojects.financialanalyst.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.PreDestroy;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.repository.TransactionRepository;
+import org.diytechprojects.financialanalyst.service.categorization.TransactionClassifier;
+import org.diytechprojects.financialanalyst.service.dto.CategorySuggestionDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class keeping the {@link TransactionClassifier} trained on the categorized transactions.
+ * <p>
+ * The classifier first learns the transactions once the application is ready, in chunks ordered by id, and then
+ * the transactions inserted by other means than the {@link TransactionService} at every {@link #refresh()}. The
+ * {@link TransactionService} has it learn every transaction it saves or deletes, as long as it is not past the
+ * transactions read so far: those are learned by the next refresh, as they are then. The categories changed in bulk
+ * are learned by the nightly build, which trains a new classifier on every transaction and replaces the current one
+ * with it, dropping any drift of its counts; the transactions saved or deleted meanwhile are learned by both.
+ */
+@Service
+public class TransactionClassifierService {
+
+    private final Logger log = LoggerFactory.getLogger(TransactionClassifierService.class);
+
+    private final TransactionRepository transactionRepository;
+
+    private final int chunkSize;
+
+    /**
+     * The classifier the suggestions are read from.
+     */
+    private final AtomicReference<Training> current = new AtomicReference<>(new Training());
+
+    /**
+     * The classifier being built, null if none.
+     */
+    private final AtomicReference<Training> building = new AtomicReference<>();
+
+    private final Disposable.Swap build = Disposables.swap();
+
+    public TransactionClassifierService(TransactionRepository transactionRepository, ApplicationProperties applicationProperties) {
+        this.transactionRepository = transactionRepository;
+        this.chunkSize = applicationProperties.getClassifier().getChunkSize();
+    }
+
+    private void trainInBackground(Mono<Long> training) {
+        long start = System.currentTimeMillis();
+        build.update(
+            training.subscribe(
+                read ->
+                    log.info(
+                        "Trained the classifier on {} transactions, {} categories, {} features, in {} ms",
+                        read,
+                        getClassifier().classes(),
+                        getClassifier().features(),
+                        System.currentTimeMillis() - start
+                    ),
+                e -> log.error("The classifier could not be trained", e)
+            )
+        );
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        trainInBackground(refresh());
+    }
+
+    /**
+     * Train a new classifier, catching up with the categories changed in bulk.
+     * <p>
+     * This is scheduled to get fired at {@code application.classifier.cron}, every night by default.
+     */
+    @Scheduled(cron = "${application.classifier.cron:0 55 3 * * *}")
+    public void rebuildNightly() {
+        trainInBackground(rebuild());
+    }
+
+    /**
+     * Train a new classifier on every transaction, in chunks ordered by id, and replace the current one with it.
+     *
+     * @return the number of transactions read.
+     */
+    public Mono<Long> rebuild() {
+        return Mono.defer(
+            () -> {
+                Training training = new Training();
+                building.set(training);
+                return learnAfter(training)
+                    .doOnNext(
+                        read -> {
+                            // under the lock of learn, so that no change is learned by the former classifier only
+                            synchronized (this) {
+                                if (building.compareAndSet(training, null)) {
+                                    current.set(training);
+                                }
+                            }
+                        }
+                    )
+                    .doFinally(signal -> building.compareAndSet(training, null));
+            }
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        build.dispose();
+    }
+
+    /**
+     * Learn the transactions inserted since the last refresh, in chunks ordered by id.
+     *
+     * @return the number of transactions read.
+     */
+    public Mono<Long> refresh() {
+        return Mono.defer(() -> learnAfter(current.get()));
+    }
+
+    private Mono<Long> learnAfter(Training training) {
+        AtomicLong read = new AtomicLong();
+        return transactionRepository
+            .findAllInChunksAfter(() -> training.lastReadId, chunkSize)
+            .doOnNext(
+                chunk -> {
+                    synchronized (this) {
+                        // a concurrent refresh may have learned the chunk already
+                        chunk.removeIf(transaction -> transaction.getId() <= training.lastReadId);
+                        training.classifier.learnAll(chunk);
+                        if (!chunk.isEmpty()) {
+                            training.lastReadId = chunk.get(chunk.size() - 1).getId();
+                        }
+                    }
+                    read.addAndGet(chunk.size());
+                }
+            )
+            .then(Mono.fromSupplier(read::get));
+    }
+
+    /**
+     * @param previous a transaction as it was before a change, null for a new transaction.
+     * @param current the transaction as it is after the change, null for a deleted transaction.
+     */
+    public synchronized void learn(Transaction previous, Transaction current) {
+        this.current.get().learn(previous, current);
+        Training training = building.get();
+        if (training != null) {
+            training.learn(previous, current);
+        }
+    }
+
+    /**
+     * Suggest the expense or the income of a transaction, once the transactions inserted since the last refresh are
+     * learned.
+     *
+     * @param transaction a transaction.
+     * @return the most likely expense of a debit or income of a credit, or empty if no transaction of its kind is
+     * categorized.
+     */
+    public Mono<CategorySuggestionDTO> suggest(Transaction transaction) {
+        return refresh().then(Mono.fromSupplier(() -> current.get().classifier.suggest(transaction)));
+    }
+
+    /**
+     * @return the classifier as trained so far, to suggest categories without refreshing it.
+     */
+    public TransactionClassifier getClassifier() {
+        return current.get().classifier;
+    }
+
+    /**
+     * A classifier and the highest id it has read, every transaction up to it being learned; guarded by the service.
+     */
+    private static final class Training {
+
+        private final TransactionClassifier classifier = new TransactionClassifier();
+
+        private volatile long lastReadId;
+
+        void learn(Transaction previous, Transaction current) {
+            classifier.learn(
+                previous != null && previous.getId() <= lastReadId ? previous : null,
+                current != null && current.getId() <= lastReadId ? current : null
+            );
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package org.diytechprojects.financialanalyst.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import javax.annotation.PreDestroy;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.service.categorization.TransactionCategorizer;
+import org.diytechprojects.financialanalyst.service.categorization.TransactionNormalizer;
+import org.diytechprojects.financialanalyst.service.dto.ImportProgressDTO;
+import org.diytechprojects.financialanalyst.service.importer.CsvArchiveReader;
+import org.diytechprojects.financialanalyst.service.importer.CsvChunk;
+import org.diytechprojects.financialanalyst.service.importer.DataBufferInputStream;
+import org.diytechprojects.financialanalyst.service.importer.OfxStatementReader;
+import org.diytechprojects.financialanalyst.service.importer.TransactionCsvParser;
+import org.diytechprojects.financialanalyst.service.importer.TransactionFingerprinter;
+import org.diytechprojects.financialanalyst.service.importer.TransactionImportPipeline;
+import org.diytechprojects.financialanalyst.service.importer.TransactionStagingImport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuples;
+
+/**
+ * Service class importing bank statement exports into {@link Transaction}s.
+ * <p>
+ * Files are parsed as they are received and handed to the {@link TransactionImportPipeline}, which writes them
+ * with one multi-row insert per batch, or to the {@link TransactionStagingImport}, which loads them into a staging table
+ * and merges them with set-based statements. Every imported row carries a fingerprint, rows already imported by an
+ * earlier, overlapping file are skipped.
+ * <p>
+ * Archives stored on the server, too large for an upload, are memory-mapped and split into chunks parsed in parallel
+ * on a dedicated {@link ForkJoinPool}. Each chunk is committed in its own transaction, in the order of the file.
+ */
+@Service
+public class TransactionImportService {
+
+    private final Logger log = LoggerFactory.getLogger(TransactionImportService.class);
+
+    private static final ResolvableType STRING_TYPE = ResolvableType.forClass(String.class);
+
+    private final TransactionImportPipeline transactionImportPipeline;
+
+    private final TransactionStagingImport transactionStagingImport;
+
+    private final TransactionService transactionService;
+
+    private final TransactionCategorizationService transactionCategorizationService;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final DescriptionCacheService descriptionCacheService;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final Scheduler archiveParseScheduler;
+
+    public TransactionImportService(
+        TransactionImportPipeline transactionImportPipeline,
+        TransactionStagingImport transactionStagingImport,
+        TransactionService transactionService,
+        TransactionCategorizationService transactionCategorizationService,
+        TransactionalOperator transactionalOperator,
+        DescriptionCacheService descriptionCacheService,
+        ApplicationProperties applicationProperties
+    ) {
+        this.descriptionCacheService = descriptionCacheService;
+        this.transactionImportPipeline = transactionImportPipeline;
+        this.transactionStagingImport = transactionStagingImport;
+        this.transactionService = transactionService;
+        this.transactionCategorizationService = transactionCategorizationService;
+        this.transactionalOperator = transactionalOperator;
+        this.applicationProperties = applicationProperties;
+        this.archiveParseScheduler =
+            Schedulers.fromExecutorService(new ForkJoinPool(applicationProperties.getArchiveImport().getParallelism()), "archive-import");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        archiveParseScheduler.dispose();
+    }
+
+    /**
+     * Import a CSV bank statement.
+     *
+     * @param content the content of the file, it is decoded line by line and never held in memory as a whole.
+     * @param batchSize the number of rows per insert statement, or null to use the configured default.
+     * @param staged true to merge the file through the staging table, in a single transaction.
+     * @return the progress of the import, one element per committed batch.
+     */
+    public Flux<ImportProgressDTO> importCsv(Flux<DataBuffer> content, Integer batchSize, boolean staged) {
+        int size = resolveBatchSize(batchSize);
+        log.debug("Request to import a CSV file in batches of {} rows", size);
+        return Flux.defer(
+            () -> {
+                TransactionCsvParser parser = new TransactionCsvParser();
+                TransactionFingerprinter fingerprinter = new TransactionFingerprinter();
+                Flux<Transaction> transactions = StringDecoder
+                    .textPlainOnly()
+                    .decode(content, STRING_TYPE, null, Collections.emptyMap())
+                    .<Transaction>handle((line, sink) -> parser.parseLine(line).ifPresent(sink::next))
+                    .map(fingerprinter::apply);
+                return run(transactions, size, parser::getRejectedRows, staged);
+            }
+        );
+    }
+
+    /**
+     * Import an OFX or QFX bank statement.
+     *
+     * @param content the content of the file, it is read with StAX as it is received and never held in memory as a whole.
+     * @param batchSize the number of rows per insert statement, or null to use the configured default.
+     * @param staged true to merge the file through the staging table, in a single transaction.
+     * @return the progress of the import, one element per committed batch.
+     */
+    public Flux<ImportProgressDTO> importOfx(Flux<DataBuffer> content, Integer batchSize, boolean staged) {
+        int size = resolveBatchSize(batchSize);
+        log.debug("Request to import an OFX file in batches of {} rows", size);
+        return Flux.defer(
+            () -> {
+                AtomicReference<OfxStatementReader> reader = new AtomicReference<>();
+                TransactionFingerprinter fingerprinter = new TransactionFingerprinter();
+                // StAX blocks while waiting for the content, so the document is pulled on the bounded elastic scheduler
+                Flux<Transaction> transactions = Flux
+                    .using(
+                        () -> reader.updateAndGet(previous -> newReader(content)),
+                        statement -> Flux.<Transaction>generate(
+                            sink -> {
+                                Transaction transaction = statement.next();
+                                if (transaction == null) {
+                                    sink.complete();
+                                } else {
+                                    sink.next(transaction);
+                                }
+                            }
+                        ),
+                        OfxStatementReader::closeQuietly
+                    )
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .map(fingerprinter::apply);
+                return run(transactions, size, () -> reader.get() == null ? 0 : reader.get().getRejectedRows(), staged);
+            }
+        );
+    }
+
+    private Flux<ImportProgressDTO> run(Flux<Transaction> transactions, int batchSize, LongSupplier rejectedRows, boolean staged) {
+        return staged
+            ? transactionStagingImport.run(transactions, batchSize, rejectedRows)
+            : transactionImportPipeline.run(transactions, batchSize, rejectedRows);
+    }
+
+    /**
+     * Import a CSV archive stored on the server.
+     * <p>
+     * Chunks are parsed, normalized and categorized in parallel, then fingerprinted and committed one after the other:
+     * when a progress element is emitted, all the rows of the file before its offset are in the database. A resumed
+     * import first counts the rows before its offset again, without writing them, so that the rows after it get the
+     * fingerprints they would have got without the interruption.
+     *
+     * @param file the CSV file, its first line is the header.
+     * @param startOffset the offset to resume from, 0 or the offset of a progress element of an earlier import.
+     * @param batchSize the number of rows per insert statement, or null to use the configured default.
+     * @param checkpoint called with the progress of each chunk, in the transaction inserting its rows.
+     * @return the progress of the import, one element per committed chunk.
+     */
+    public Flux<ImportProgressDTO> importArchive(
+        Path file,
+        long startOffset,
+        Integer batchSize,
+        Function<ImportProgressDTO, Mono<Void>> checkpoint
+    ) {
+        int size = resolveBatchSize(batchSize);
+        ApplicationProperties.ArchiveImport properties = applicationProperties.getArchiveImport();
+        int chunkSize = (int) properties.getChunkSize().toBytes();
+        log.debug("Request to import the CSV archive {} from offset {} in chunks of {} bytes", file, startOffset, chunkSize);
+        return transactionCategorizationService
+            .loadCategorizer()
+            .zipWith(fingerprinterAt(file, startOffset, chunkSize, properties.getParallelism()))
+            .flatMapMany(
+                prepared ->
+                    Flux.using(
+                        () -> new CsvArchiveReader(file, startOffset, chunkSize),
+                        reader -> importChunks(reader, prepared.getT1(), prepared.getT2(), size, properties.getParallelism(), checkpoint),
+                        CsvArchiveReader::closeQuietly
+                    )
+            );
+    }
+
+    /**
+     * @return a fingerprinter having counted the rows of the file before an offset, without categorizing nor writing them.
+     */
+    private Mono<TransactionFingerprinter> fingerprinterAt(Path file, long offset, int chunkSize, int parallelism) {
+        TransactionFingerprinter fingerprinter = new TransactionFingerprinter();
+        if (offset <= 0) {
+            return Mono.just(fingerprinter);
+        }
+        long start = System.currentTimeMillis();
+        return Flux
+            .using(
+                () -> new CsvArchiveReader(file, 0, offset, chunkSize),
+                reader ->
+                    chunks(reader)
+                        .flatMapSequential(
+                            chunk -> Mono.fromCallable(() -> reader.parse(chunk)).subscribeOn(archiveParseScheduler),
+                            parallelism,
+                            1
+                        ),
+                CsvArchiveReader::closeQuietly
+            )
+            .doOnNext(rows -> rows.forEach(fingerprinter::apply))
+            .then(Mono.just(fingerprinter))
+            .doOnSuccess(
+                counted ->
+                    log.debug("Counted the rows of the CSV archive up to offset {} in {} ms", offset, System.currentTimeMillis() - start)
+            );
+    }
+
+    private static Flux<CsvChunk> chunks(CsvArchiveReader reader) {
+        return Flux
+            .<CsvChunk>generate(
+                sink -> {
+                    try {
+                        CsvChunk chunk = reader.nextChunk();
+                        if (chunk == null) {
+                            sink.complete();
+                        } else {
+                            sink.next(chunk);
+                        }
+                    } catch (IOException e) {
+                        sink.error(new UncheckedIOException("Failed to map the CSV archive", e));
+                    }
+                }
+            )
+            // mapping the file blocks on page faults
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Flux<ImportProgressDTO> importChunks(
+        CsvArchiveReader reader,
+        TransactionCategorizer categorizer,
+        TransactionFingerprinter fingerprinter,
+        int batchSize,
+        int parallelism,
+        Function<ImportProgressDTO, Mono<Void>> checkpoint
+    ) {
+        long start = System.currentTimeMillis();
+        AtomicLong totalRows = new AtomicLong();
+        AtomicLong insertedRows = new AtomicLong();
+        return chunks(reader)
+            .flatMapSequential(
+                chunk ->
+                    Mono.fromCallable(() -> Tuples.of(chunk, prepare(reader.parse(chunk), categorizer))).subscribeOn(archiveParseScheduler),
+                parallelism,
+                1
+            )
+            // the occurrence count of the fingerprints depends on the previous rows, so this step is sequential
+            .map(
+                chunk -> {
+                    chunk.getT2().forEach(fingerprinter::apply);
+                    return chunk;
+                }
+            )
+            .concatMap(
+                chunk ->
+                    insertChunk(chunk.getT2(), batchSize)
+                        .map(
+                            inserted -> {
+                                int rows = chunk.getT2().size();
+                                ImportProgressDTO progress = new ImportProgressDTO(
+                                    chunk.getT1().getIndex() + 1,
+                                    rows,
+                                    totalRows.addAndGet(rows),
+                                    insertedRows.addAndGet(inserted),
+                                    totalRows.get() - insertedRows.get(),
+                                    reader.getRejectedRows(),
+                                    System.currentTimeMillis() - start
+                                );
+                                progress.setOffset(chunk.getT1().getEnd());
+                                return progress;
+                            }
+                        )
+                        .flatMap(progress -> checkpoint.apply(progress).thenReturn(progress))
+                        .as(transactionalOperator::transactional)
+            )
+            .doOnComplete(
+                () ->
+                    log.debug(
+                        "Imported {} transactions from the CSV archive, {} already existed",
+                        insertedRows,
+                        totalRows.get() - insertedRows.get()
+                    )
+            );
+    }
+
+    private List<Transaction> prepare(List<Transaction> transactions, TransactionCategorizer categorizer) {
+        for (Transaction transaction : transactions) {
+            categorizer.categorize(descriptionCacheService.internDescriptions(TransactionNormalizer.normalize(transaction)));
+        }
+        return transactions;
+    }
+
+    private Mono<Integer> insertChunk(List<Transaction> transactions, int batchSize) {
+        int batches = (transactions.size() + batchSize - 1) / batchSize;
+        return Flux
+            .range(0, batches)
+            .concatMap(
+                batch ->
+                    transactionService.insertNew(
+                        transactions.subList(batch * batchSize, Math.min(transactions.size(), (batch + 1) * batchSize))
+                    )
+            )
+            .reduce(0, Integer::sum);
+    }
+
+    /**
+     * Create transactions posted as they are, the way single transactions are created, in batched insert statements.
+     *
+     * @param transactions the transactions to create.
+     * @param batchSize the number of rows per insert statement, or null to use the configured default.
+     * @return the generated ids, in the order of the transactions.
+     */
+    public Flux<Long> importBulk(Flux<Transaction> transactions, Integer batchSize) {
+        int size = resolveBatchSize(batchSize);
+        log.debug("Request to create Transactions in bulk, in batches of {} rows", size);
+        return transactionService.createAll(transactions, size);
+    }
+
+    private static OfxStatementReader newReader(Flux<DataBuffer> content) {
+        try {
+            return new OfxStatementReader(new DataBufferInputStream(content));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the OFX header", e);
+        }
+    }
+
+    private int resolveBatchSize(Integer batchSize) {
+        ApplicationProperties.BulkImport properties = applicationProperties.getBulkImport();
+        if (batchSize == null) {
+            return properties.getBatchSize();
+        }
+        if (batchSize < 1 || batchSize > properties.getMaxBatchSize()) {
+            throw new IllegalArgumentException("The batch size must be between 1 and " + properties.getMaxBatchSize());
+        }
+        return batchSize;
+    }
+}
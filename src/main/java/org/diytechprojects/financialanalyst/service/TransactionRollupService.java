@@ -0,0 +1,223 @@
+package org.diytechprojects.financialanalyst.service;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.repository.TransactionRollupRepository;
+import org.diytechprojects.financialanalyst.service.dto.MonthlyRollupDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class keeping the monthly rollup of the transactions: their sums and counts per month, account type,
+ * expense and income, so that the monthly reports read a few hundred rows instead of the whole transaction table.
+ * <p>
+ * Every write of the transaction table applies its delta in the same database transaction: the
+ * {@link TransactionService} the delta of each transaction it saves, updates or deletes, the batch inserts the sums of
+ * their rows grouped in memory, one upsert per key, and the set-based updates and merges the {@code GROUP BY} of the
+ * rows they write, subtracted before and added after the statement. {@link #rebuild()} recomputes the whole rollup
+ * with one statement; it runs every night, and fixes any drift left by concurrent writes. The months are the months
+ * of the transaction dates in UTC.
+ */
+@Service
+public class TransactionRollupService {
+
+    private final Logger log = LoggerFactory.getLogger(TransactionRollupService.class);
+
+    private final TransactionRollupRepository transactionRollupRepository;
+
+    private final TransactionalOperator transactionalOperator;
+
+    public TransactionRollupService(TransactionRollupRepository transactionRollupRepository, TransactionalOperator transactionalOperator) {
+        this.transactionRollupRepository = transactionRollupRepository;
+        this.transactionalOperator = transactionalOperator;
+    }
+
+    /**
+     * Apply the change of a transaction to the rollup.
+     *
+     * @param previous the transaction before the change, null for a new one.
+     * @param current the transaction after the change, null for a deleted one.
+     * @return a Mono completing once the rollup is updated.
+     */
+    public Mono<Void> apply(Transaction previous, Transaction current) {
+        if (previous != null && current != null && new Key(previous).equals(new Key(current))) {
+            long amountCad = amountCad(current) - amountCad(previous);
+            long amountUsd = amountUsd(current) - amountUsd(previous);
+            if (amountCad == 0 && amountUsd == 0) {
+                return Mono.empty();
+            }
+            return add(new Key(current), amountCad, amountUsd, 0);
+        }
+        Mono<Void> removed = previous == null ? Mono.empty() : add(new Key(previous), -amountCad(previous), -amountUsd(previous), -1);
+        return current == null ? removed : removed.then(add(new Key(current), amountCad(current), amountUsd(current), 1));
+    }
+
+    /**
+     * Add new transactions to the rollup, with one upsert per month, account type, expense and income.
+     *
+     * @param inserted the transactions just inserted.
+     * @return a Mono completing once the rollup is updated.
+     */
+    public Mono<Void> addAll(List<Transaction> inserted) {
+        Map<Key, long[]> sums = new LinkedHashMap<>();
+        for (Transaction transaction : inserted) {
+            long[] sum = sums.computeIfAbsent(new Key(transaction), key -> new long[3]);
+            sum[0] += amountCad(transaction);
+            sum[1] += amountUsd(transaction);
+            sum[2]++;
+        }
+        return Flux
+            .fromIterable(sums.entrySet())
+            .concatMap(sum -> add(sum.getKey(), sum.getValue()[0], sum.getValue()[1], sum.getValue()[2]))
+            .then();
+    }
+
+    /**
+     * Apply a set-based write of transactions selected by id to the rollup.
+     *
+     * @see #apply(String, Map, Mono)
+     */
+    public <T> Mono<T> apply(Collection<Long> ids, Mono<T> write) {
+        return ids.isEmpty() ? write : apply("id IN (:ids)", Collections.singletonMap("ids", ids), write);
+    }
+
+    /**
+     * Apply a set-based write to the rollup: the sums of the transactions matching a condition are subtracted before
+     * the write and added after it, each with a single statement, in the database transaction of the write.
+     *
+     * @param condition an SQL condition on the columns of the transaction table, with named parameters, matching every
+     * transaction the write changes or inserts, before and after it.
+     * @param parameters the values of the parameters of the condition.
+     * @param write the write.
+     * @return the outcome of the write.
+     */
+    public <T> Mono<T> apply(String condition, Map<String, ?> parameters, Mono<T> write) {
+        return transactionRollupRepository
+            .addWhere(condition, parameters, true)
+            .then(write)
+            .flatMap(written -> transactionRollupRepository.addWhere(condition, parameters, false).thenReturn(written));
+    }
+
+    /**
+     * Recompute the whole rollup from the transaction table, in a single database transaction.
+     *
+     * @return the number of rows of the rollup.
+     */
+    public Mono<Integer> rebuild() {
+        long start = System.currentTimeMillis();
+        return transactionalOperator
+            .transactional(transactionRollupRepository.deleteAll().then(transactionRollupRepository.insertFromTransactions()))
+            .doOnNext(
+                rows ->
+                    log.info("Rebuilt the monthly rollup of the transactions, {} rows in {} ms", rows, System.currentTimeMillis() - start)
+            );
+    }
+
+    /**
+     * Rebuild the rollup, fixing the drift of the rows written without the {@link TransactionService}.
+     * <p>
+     * This is scheduled to get fired at {@code application.rollup.cron}, every night by default.
+     */
+    @Scheduled(cron = "${application.rollup.cron:0 30 3 * * *}")
+    public void rebuildNightly() {
+        rebuild()
+            .onErrorResume(
+                e -> {
+                    log.error("The monthly rollup of the transactions could not be rebuilt", e);
+                    return Mono.empty();
+                }
+            )
+            .block();
+    }
+
+    /**
+     * @param from the first month, inclusive, null to start with the transactions without date.
+     * @param to the last month, inclusive, null for no limit.
+     * @return the sums and counts of the transactions per month, account type and category, by month.
+     */
+    public Flux<MonthlyRollupDTO> findMonthly(YearMonth from, YearMonth to) {
+        log.debug("Request to get the monthly rollup from {} to {}", from, to);
+        return transactionRollupRepository.findBetween(from == null ? 0 : month(from), to == null ? Integer.MAX_VALUE : month(to));
+    }
+
+    private Mono<Void> add(Key key, long amountCad, long amountUsd, long count) {
+        return transactionRollupRepository.add(key.month, key.accountType, key.expenseId, key.incomeId, amountCad, amountUsd, count).then();
+    }
+
+    /**
+     * @return the month of a date in UTC, {@code yyyymm}, 0 for none.
+     */
+    static int month(Instant date) {
+        if (date == null) {
+            return 0;
+        }
+        ZonedDateTime utc = date.atZone(ZoneOffset.UTC);
+        return utc.getYear() * 100 + utc.getMonthValue();
+    }
+
+    private static int month(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    private static long amountCad(Transaction transaction) {
+        return transaction.getAmountCAD() == null ? 0 : transaction.getAmountCAD();
+    }
+
+    private static long amountUsd(Transaction transaction) {
+        return transaction.getAmountUSD() == null ? 0 : transaction.getAmountUSD();
+    }
+
+    /**
+     * The key of a row of the rollup, as stored.
+     */
+    private static final class Key {
+
+        private final int month;
+
+        private final String accountType;
+
+        private final long expenseId;
+
+        private final long incomeId;
+
+        Key(Transaction transaction) {
+            this.month = month(transaction.getTransactionDate());
+            this.accountType = transaction.getAccountType() == null ? "" : transaction.getAccountType();
+            this.expenseId = transaction.getExpenseId() == null ? 0 : transaction.getExpenseId();
+            this.incomeId = transaction.getIncomeId() == null ? 0 : transaction.getIncomeId();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return (
+                month == other.month && accountType.equals(other.accountType) && expenseId == other.expenseId && incomeId == other.incomeId
+            );
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(month, accountType, expenseId, incomeId);
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package org.diytechprojects.financialanalyst.service;
 
+import java.util.List;
 import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.service.dto.CategorySuggestionDTO;
+import org.diytechprojects.financialanalyst.service.dto.TransactionBulkUpdateDTO;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -17,6 +21,25 @@ public interface TransactionService {
      */
     Mono<Transaction> save(Transaction transaction);
 
+    /**
+     * Insert the transactions which were not imported before, in one statement.
+     * Transactions whose fingerprint is already known are skipped, including the ones another import inserts
+     * concurrently.
+     *
+     * @param transactions the imported transactions.
+     * @return the number of inserted transactions.
+     */
+    Mono<Integer> insertNew(List<Transaction> transactions);
+
+    /**
+     * Create transactions in one database transaction, with one batched insert statement per batch.
+     *
+     * @param transactions the transactions to create.
+     * @param batchSize the number of transactions per insert statement.
+     * @return the generated ids, in the order of the transactions.
+     */
+    Flux<Long> createAll(Flux<Transaction> transactions, int batchSize);
+
     /**
      * Partially updates a transaction.
      *
@@ -25,6 +48,15 @@ public interface TransactionService {
      */
     Mono<Transaction> partialUpdate(Transaction transaction);
 
+    /**
+     * Update the selected transactions with a single statement.
+     *
+     * @param bulkUpdate the selection of transactions and the changes to apply.
+     * @return the number of updated transactions.
+     * @throws IllegalArgumentException if nothing is selected, nothing is changed or more than one category is set.
+     */
+    Mono<Integer> updateAll(TransactionBulkUpdateDTO bulkUpdate);
+
     /**
      * Get all the transactions.
      *
@@ -40,6 +72,35 @@ public interface TransactionService {
      */
     Mono<Long> countAll();
 
+    /**
+     * Search the transactions by the words of their descriptions, best match first.
+     *
+     * @param query the words to search, all of them must be found.
+     * @param pageable the pagination information, its sort is ignored.
+     * @return the page of matching transactions, with the number of matches.
+     */
+    Mono<Page<Transaction>> search(String query, Pageable pageable);
+
+    /**
+     * Get the transactions of the same merchant as the "id" transaction, however the bank spelled it.
+     *
+     * @param id the id of the entity.
+     * @param maxEdits the number of edits allowed between the merchants.
+     * @param limit the number of transactions to return.
+     * @return the closest transactions first, the most recent first among equally close ones, or empty if the "id"
+     * transaction does not exist.
+     */
+    Mono<List<Transaction>> findSimilar(Long id, int maxEdits, int limit);
+
+    /**
+     * Get the expense or the income the classifier suggests for the "id" transaction.
+     *
+     * @param id the id of the entity.
+     * @return the suggestion, or empty if the "id" transaction does not exist or no transaction of its kind is
+     * categorized.
+     */
+    Mono<CategorySuggestionDTO> findSuggestion(Long id);
+
     /**
      * Get the "id" transaction.
      *
@@ -0,0 +1,387 @@
+package org.diytechprojects.financialanalyst.service;
+
+import static org.springframework.data.relational.core.query.Criteria.where;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.PreDestroy;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.Expense;
+import org.diytechprojects.financialanalyst.domain.Income;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.repository.ExpenseRepository;
+import org.diytechprojects.financialanalyst.repository.IncomeRepository;
+import org.diytechprojects.financialanalyst.repository.TransactionRepository;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO.Currency;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO.Grouping;
+import org.diytechprojects.financialanalyst.service.report.TransactionSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class keeping the {@link TransactionSnapshot}, the columnar copy of the transactions summed in memory by the
+ * summary reports, when {@code application.snapshot.enabled} is set.
+ * <p>
+ * The copy is built once the application is ready, then rebuilt every night. The {@link TransactionService} copies
+ * the transactions it saves and deletes, into the copy being built as well; its bulk updates start a new build once
+ * committed, the reports being read from the database until it is done. The rows inserted by other means, the imports, are caught
+ * up before each summary, as by the {@link TransactionTokenIndexService}. The rows updated by other means, the
+ * recategorizations, are read again by id and copied once updated. The estimated size of the copy is published as the
+ * {@code transactions.snapshot.bytes} gauge, its number of transactions as {@code transactions.snapshot.rows}.
+ */
+@Service
+public class TransactionSnapshotService {
+
+    private final Logger log = LoggerFactory.getLogger(TransactionSnapshotService.class);
+
+    private final TransactionRepository transactionRepository;
+
+    private final ExpenseRepository expenseRepository;
+
+    private final IncomeRepository incomeRepository;
+
+    private final boolean enabled;
+
+    private final int chunkSize;
+
+    private final int parallelism;
+
+    /**
+     * The copy the summaries read, null until it is first built and during the builds following a bulk update.
+     */
+    private final AtomicReference<TransactionSnapshot> current = new AtomicReference<>();
+
+    /**
+     * The copy being built, null if none.
+     */
+    private final AtomicReference<TransactionSnapshot> building = new AtomicReference<>();
+
+    /**
+     * The highest id read into the current copy, every transaction up to it is copied.
+     */
+    private final AtomicLong lastRefreshedId = new AtomicLong();
+
+    private final Disposable.Swap build = Disposables.swap();
+
+    public TransactionSnapshotService(
+        TransactionRepository transactionRepository,
+        ExpenseRepository expenseRepository,
+        IncomeRepository incomeRepository,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.transactionRepository = transactionRepository;
+        this.expenseRepository = expenseRepository;
+        this.incomeRepository = incomeRepository;
+        this.enabled = applicationProperties.getSnapshot().isEnabled();
+        this.chunkSize = applicationProperties.getSnapshot().getChunkSize();
+        this.parallelism = Math.max(1, applicationProperties.getSnapshot().getParallelism());
+        Gauge
+            .builder("transactions.snapshot.bytes", current, snapshot -> snapshot.get() == null ? 0 : snapshot.get().bytes())
+            .description("Estimated heap used by the columnar copy of the transactions")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge
+            .builder("transactions.snapshot.rows", current, snapshot -> snapshot.get() == null ? 0 : snapshot.get().rows())
+            .description("Number of transactions in the columnar copy of the transactions")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Build the copy in the background, if it is enabled; the current one, if any, is dropped when {@code keepCurrent}
+     * is false and replaced once the new one is built.
+     */
+    private void buildInBackground(boolean keepCurrent) {
+        if (!enabled) {
+            return;
+        }
+        if (!keepCurrent) {
+            current.set(null);
+        }
+        build.update(
+            rebuild()
+                .subscribe(
+                    rows -> log.debug("The columnar copy of the transactions was built in the background, {} transactions", rows),
+                    e -> log.error("The columnar copy of the transactions could not be built", e)
+                )
+        );
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        buildInBackground(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        build.dispose();
+    }
+
+    /**
+     * Rebuild the copy, catching up with the rows updated without the {@link TransactionService}.
+     * <p>
+     * This is scheduled to get fired at {@code application.snapshot.cron}, every night by default.
+     */
+    @Scheduled(cron = "${application.snapshot.cron:0 45 3 * * *}")
+    public void rebuildNightly() {
+        buildInBackground(true);
+    }
+
+    /**
+     * Drop the copy when the transactions are about to be updated in bulk, the summaries being read from the database
+     * until a new one is built, started when the transaction of the update completes.
+     *
+     * @return a Mono completing once the new build is started or registered to start after the transaction.
+     */
+    public Mono<Void> invalidate() {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return Mono
+            .fromRunnable(() -> current.set(null))
+            .then(TransactionSynchronizationManager.forCurrentTransaction())
+            .filter(TransactionSynchronizationManager::isSynchronizationActive)
+            .map(
+                synchronizationManager -> {
+                    synchronizationManager.registerSynchronization(
+                        new TransactionSynchronization() {
+                            @Override
+                            public Mono<Void> afterCompletion(int status) {
+                                return Mono.fromRunnable(() -> buildInBackground(false));
+                            }
+                        }
+                    );
+                    return true;
+                }
+            )
+            .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+            .defaultIfEmpty(false)
+            .doOnNext(
+                registered -> {
+                    if (!registered) {
+                        buildInBackground(false);
+                    }
+                }
+            )
+            .then();
+    }
+
+    /**
+     * Build a new copy of the transactions, in chunks ordered by id, and replace the current one with it.
+     *
+     * @return the number of transactions copied.
+     */
+    public Mono<Integer> rebuild() {
+        return Mono.defer(
+            () -> {
+                long start = System.currentTimeMillis();
+                TransactionSnapshot snapshot = new TransactionSnapshot();
+                building.set(snapshot);
+                AtomicLong lastId = new AtomicLong();
+                return copyAfter(snapshot, lastId)
+                    .then(
+                        Mono.fromSupplier(
+                            () -> {
+                                lastRefreshedId.set(lastId.get());
+                                current.set(snapshot);
+                                building.compareAndSet(snapshot, null);
+                                log.info(
+                                    "Built the columnar copy of the transactions, {} transactions, {} bytes, in {} ms",
+                                    snapshot.rows(),
+                                    snapshot.bytes(),
+                                    System.currentTimeMillis() - start
+                                );
+                                return snapshot.rows();
+                            }
+                        )
+                    )
+                    .doFinally(signal -> building.compareAndSet(snapshot, null));
+            }
+        );
+    }
+
+    /**
+     * Copy the transactions inserted since the last refresh of the current copy, if any.
+     *
+     * @return the number of transactions copied.
+     */
+    public Mono<Long> refresh() {
+        return Mono.defer(
+            () -> {
+                TransactionSnapshot snapshot = current.get();
+                if (snapshot == null) {
+                    return Mono.just(0L);
+                }
+                return copyAfter(snapshot, lastRefreshedId);
+            }
+        );
+    }
+
+    private Mono<Long> copyAfter(TransactionSnapshot snapshot, AtomicLong lastId) {
+        AtomicLong copied = new AtomicLong();
+        return transactionRepository
+            .findAllInChunksAfter(lastId::get, chunkSize)
+            .doOnNext(
+                chunk -> {
+                    for (Transaction transaction : chunk) {
+                        // a transaction saved or deleted by the service since it was read is copied already
+                        if (snapshot.putIfAbsent(transaction)) {
+                            copied.incrementAndGet();
+                        }
+                    }
+                    if (!chunk.isEmpty()) {
+                        lastId.accumulateAndGet(chunk.get(chunk.size() - 1).getId(), Math::max);
+                    }
+                }
+            )
+            .then(Mono.fromSupplier(copied::get));
+    }
+
+    /**
+     * @param transaction a transaction just saved, new or updated.
+     */
+    public void put(Transaction transaction) {
+        for (TransactionSnapshot snapshot : targets()) {
+            snapshot.put(transaction);
+        }
+    }
+
+    /**
+     * Copy again the transactions just updated by a set-based statement, read from the database, unless there is no
+     * copy.
+     *
+     * @param ids the ids of the updated transactions.
+     * @return a Mono completing once they are copied.
+     */
+    public Mono<Void> reload(Collection<Long> ids) {
+        return Mono
+            .defer(
+                () -> {
+                    if (ids.isEmpty() || targets().isEmpty()) {
+                        return Mono.empty();
+                    }
+                    return transactionRepository.findAllBy(null, where("id").in(ids)).doOnNext(this::put).then();
+                }
+            );
+    }
+
+    /**
+     * @param id the id of a transaction just deleted.
+     */
+    public void remove(Long id) {
+        for (TransactionSnapshot snapshot : targets()) {
+            snapshot.remove(id);
+        }
+    }
+
+    private List<TransactionSnapshot> targets() {
+        List<TransactionSnapshot> targets = new ArrayList<>(2);
+        TransactionSnapshot snapshot = current.get();
+        if (snapshot != null) {
+            targets.add(snapshot);
+        }
+        snapshot = building.get();
+        if (snapshot != null && !targets.contains(snapshot)) {
+            targets.add(snapshot);
+        }
+        return targets;
+    }
+
+    /**
+     * Sum the transactions of a range of dates per group from the copy, once the transactions inserted since the last
+     * refresh are copied.
+     *
+     * @param from the first day, inclusive, null for no limit.
+     * @param to the last day, inclusive, null for no limit.
+     * @param grouping what the transactions are grouped by.
+     * @param currency the currency of the amounts summed.
+     * @return the sums and counts of the groups having transactions, in the order of the groups, or an empty Mono if
+     * the copy is disabled, not built yet or the range of dates too wide.
+     */
+    public Mono<List<TransactionSummaryDTO>> summarize(LocalDate from, LocalDate to, Grouping grouping, Currency currency) {
+        if (current.get() == null) {
+            return Mono.empty();
+        }
+        Mono<Map<Long, String>> categories = grouping != Grouping.CATEGORY
+            ? Mono.just(new HashMap<>())
+            : expenseRepository
+                .findAll()
+                .collectMap(expense -> TransactionSnapshot.categoryKey(expense.getId(), null), Expense::getCategory)
+                .zipWith(
+                    incomeRepository.findAll().collectMap(income -> TransactionSnapshot.categoryKey(null, income.getId()), Income::getName),
+                    (expenses, incomes) -> {
+                        Map<Long, String> labels = new HashMap<>(expenses);
+                        labels.putAll(incomes);
+                        return labels;
+                    }
+                );
+        return refresh()
+            .then(categories)
+            .flatMap(
+                labels -> {
+                    TransactionSnapshot snapshot = current.get();
+                    if (snapshot == null) {
+                        return Mono.empty();
+                    }
+                    long start = System.nanoTime();
+                    TransactionSnapshot.Totals totals = snapshot.sum(
+                        from == null ? Integer.MIN_VALUE : (int) from.toEpochDay(),
+                        to == null ? Integer.MAX_VALUE : (int) to.toEpochDay(),
+                        grouping,
+                        currency == Currency.USD,
+                        parallelism
+                    );
+                    if (totals == null) {
+                        return Mono.empty();
+                    }
+                    // the categories sharing a label are one group, as in the database
+                    Map<String, TransactionSummaryDTO> groups = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+                    for (int group = 0; group < totals.groups(); group++) {
+                        if (totals.count(group) == 0) {
+                            continue;
+                        }
+                        String label = grouping != Grouping.CATEGORY
+                            ? totals.label(group)
+                            : group == 0 ? null : labels.get(totals.categoryKey(group));
+                        TransactionSummaryDTO summary = groups.computeIfAbsent(
+                            label,
+                            key -> new TransactionSummaryDTO(key, 0L, 0L, 0L, 0L)
+                        );
+                        summary.setAmount(summary.getAmount() + totals.amount(group));
+                        summary.setCredits(summary.getCredits() + totals.credits(group));
+                        summary.setDebits(summary.getDebits() + totals.debits(group));
+                        summary.setCount(summary.getCount() + totals.count(group));
+                    }
+                    log.debug(
+                        "Summed the columnar copy of the transactions by {}: {} groups in {} us",
+                        grouping,
+                        groups.size(),
+                        (System.nanoTime() - start) / 1000
+                    );
+                    List<TransactionSummaryDTO> summaries = new ArrayList<>(groups.values());
+                    return Mono.just(summaries);
+                }
+            );
+    }
+}
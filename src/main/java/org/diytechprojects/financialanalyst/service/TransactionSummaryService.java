@@ -0,0 +1,118 @@
+package org.diytechprojects.financialanalyst.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.diytechprojects.financialanalyst.repository.TransactionSummaryRepository;
+import org.diytechprojects.financialanalyst.service.dto.CashflowDTO;
+import org.diytechprojects.financialanalyst.service.dto.CashflowPointDTO;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO.Currency;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO.Grouping;
+import org.diytechprojects.financialanalyst.service.report.Downsampling;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class summing the transactions of a range of dates per day, week, month, category, account type or
+ * tracking, with one {@code GROUP BY} query per summary instead of reading the transactions page by page.
+ * <p>
+ * The days are the days of the transaction dates in UTC, as the months of the {@link TransactionRollupService}. The
+ * summaries are read from the columnar copy of the {@link TransactionSnapshotService} when it is enabled and built.
+ * <p>
+ * The cash flow sums the incomes and the expenses per day, week or month with one {@code GROUP BY} query as well, then
+ * downsamples each series to a number of points, so that a chart of any range of dates gets about as many points.
+ */
+@Service
+public class TransactionSummaryService {
+
+    private final Logger log = LoggerFactory.getLogger(TransactionSummaryService.class);
+
+    private final TransactionSummaryRepository transactionSummaryRepository;
+
+    private final TransactionSnapshotService transactionSnapshotService;
+
+    public TransactionSummaryService(
+        TransactionSummaryRepository transactionSummaryRepository,
+        TransactionSnapshotService transactionSnapshotService
+    ) {
+        this.transactionSummaryRepository = transactionSummaryRepository;
+        this.transactionSnapshotService = transactionSnapshotService;
+    }
+
+    /**
+     * @param from the first day, inclusive, null to start with the transactions without date.
+     * @param to the last day, inclusive, null for no limit.
+     * @param grouping what the transactions are grouped by.
+     * @param currency the currency of the amounts summed.
+     * @return the sums and counts of the groups having transactions, streamed as they are read, in the order of the groups.
+     */
+    public Flux<TransactionSummaryDTO> summarize(LocalDate from, LocalDate to, Grouping grouping, Currency currency) {
+        log.debug("Request to summarize the transactions from {} to {} by {} in {}", from, to, grouping, currency);
+        return transactionSnapshotService
+            .summarize(from, to, grouping, currency)
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .flatMapMany(
+                summaries ->
+                    summaries
+                        .map(Flux::fromIterable)
+                        .orElseGet(
+                            () ->
+                                transactionSummaryRepository.summarize(
+                                    from == null ? null : from.atStartOfDay(),
+                                    to == null ? null : to.plusDays(1).atStartOfDay(),
+                                    grouping,
+                                    currency
+                                )
+                        )
+            );
+    }
+
+    /**
+     * @param from the first day, inclusive, null for no limit.
+     * @param to the last day, inclusive, null for no limit.
+     * @param resolution {@link Grouping#DAY}, {@link Grouping#WEEK} or {@link Grouping#MONTH}.
+     * @param currency the currency of the amounts summed.
+     * @param points the number of points of each series, at least 3.
+     * @return the sums of the incomes and of the expenses per bucket, each series downsampled to the points by
+     * {@link Downsampling#largestTriangleThreeBuckets}.
+     */
+    public Mono<CashflowDTO> cashflow(LocalDate from, LocalDate to, Grouping resolution, Currency currency, int points) {
+        log.debug("Request to get the cash flow from {} to {} by {} in {}, {} points", from, to, resolution, currency, points);
+        return transactionSummaryRepository
+            .cashflow(from == null ? null : from.atStartOfDay(), to == null ? null : to.plusDays(1).atStartOfDay(), resolution, currency)
+            .collectList()
+            .map(
+                buckets -> {
+                    long[] days = new long[buckets.size()];
+                    long[] income = new long[buckets.size()];
+                    long[] expenses = new long[buckets.size()];
+                    for (int i = 0; i < buckets.size(); i++) {
+                        days[i] = buckets.get(i).getDate().toEpochDay();
+                        income[i] = buckets.get(i).getIncome();
+                        expenses[i] = buckets.get(i).getExpenses();
+                    }
+                    CashflowDTO cashflow = new CashflowDTO();
+                    cashflow.setResolution(resolution.getParameter());
+                    cashflow.setBuckets((long) buckets.size());
+                    cashflow.setIncome(downsample(days, income, points));
+                    cashflow.setExpenses(downsample(days, expenses, points));
+                    return cashflow;
+                }
+            );
+    }
+
+    private static List<CashflowPointDTO> downsample(long[] days, long[] amounts, int points) {
+        int[] kept = Downsampling.largestTriangleThreeBuckets(days, amounts, points);
+        List<CashflowPointDTO> series = new ArrayList<>(kept.length);
+        for (int i : kept) {
+            series.add(new CashflowPointDTO(LocalDate.ofEpochDay(days[i]), amounts[i]));
+        }
+        return series;
+    }
+}
@@ -0,0 +1,218 @@
+package org.diytechprojects.financialanalyst.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.repository.TransactionRepository;
+import org.diytechprojects.financialanalyst.service.categorization.TransactionTokenIndex;
+import org.diytechprojects.financialanalyst.service.categorization.TrigramIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class keeping the {@link TransactionTokenIndex} of the descriptions of the transactions, and the
+ * {@link TrigramIndex} of their merchants, up to date.
+ * <p>
+ * The {@link TransactionService} indexes the transactions it saves and unindexes the ones it deletes. The rows
+ * inserted by other means, the bulk and staged imports, are caught up by {@link #refresh()}, which reads the
+ * transactions past the highest id read so far; the index is first built that way once the application is ready.
+ * Descriptions are only changed through the {@link TransactionService}.
+ * <p>
+ * The same index answers the full-text searches of the transactions. The trigram index finds the transactions of a
+ * merchant whatever the way the bank spelled it: the merchant of a transaction is the canonical form of its
+ * {@code description1}, or of its {@code description2} when the first one is blank, see
+ * {@link DescriptionCacheService}. Its estimated size per transaction is published as the
+ * {@code transactions.trigram.index.bytes.per.transaction} gauge.
+ */
+@Service
+public class TransactionTokenIndexService {
+
+    private final Logger log = LoggerFactory.getLogger(TransactionTokenIndexService.class);
+
+    private final TransactionRepository transactionRepository;
+
+    private final DescriptionCacheService descriptionCacheService;
+
+    private final int chunkSize;
+
+    private final TransactionTokenIndex index = new TransactionTokenIndex();
+
+    private final TrigramIndex merchants = new TrigramIndex();
+
+    /**
+     * The highest id read by {@link #refresh()}, every transaction up to it is indexed.
+     */
+    private final AtomicLong lastRefreshedId = new AtomicLong();
+
+    private final Disposable.Swap build = Disposables.swap();
+
+    public TransactionTokenIndexService(
+        TransactionRepository transactionRepository,
+        DescriptionCacheService descriptionCacheService,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.transactionRepository = transactionRepository;
+        this.descriptionCacheService = descriptionCacheService;
+        this.chunkSize = applicationProperties.getTokenIndex().getChunkSize();
+        Gauge
+            .builder("transactions.trigram.index.bytes.per.transaction", merchants, TransactionTokenIndexService::bytesPerTransaction)
+            .description("Estimated heap used by the trigram index of the merchants per indexed transaction")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.currentTimeMillis();
+        build.update(
+            refresh()
+                .subscribe(
+                    indexed ->
+                        log.info(
+                            "Indexed the descriptions of {} transactions, {} tokens, {} bytes of postings, {} trigrams, " +
+                            "{} bytes per transaction of trigram index, in {} ms",
+                            indexed,
+                            index.tokens(),
+                            index.postingsBytes(),
+                            merchants.trigrams(),
+                            (long) bytesPerTransaction(merchants),
+                            System.currentTimeMillis() - start
+                        ),
+                    e -> log.error("The descriptions of the transactions could not be indexed", e)
+                )
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        build.dispose();
+    }
+
+    /**
+     * Index the transactions inserted since the last refresh, in chunks ordered by id.
+     *
+     * @return the number of transactions indexed.
+     */
+    public Mono<Long> refresh() {
+        AtomicLong indexed = new AtomicLong();
+        return transactionRepository
+            .findAllInChunksAfter(lastRefreshedId::get, chunkSize)
+            .doOnNext(
+                chunk -> {
+                    for (Transaction transaction : chunk) {
+                        // a transaction saved by the service since it was read is indexed already, and newer
+                        Long id = transaction.getId();
+                        if (index.putIfAbsent(id, transaction.getDescription1(), transaction.getDescription2())) {
+                            merchants.putIfAbsent(id, merchant(transaction));
+                            indexed.incrementAndGet();
+                        }
+                    }
+                    if (!chunk.isEmpty()) {
+                        lastRefreshedId.accumulateAndGet(chunk.get(chunk.size() - 1).getId(), Math::max);
+                    }
+                }
+            )
+            .then(Mono.fromSupplier(indexed::get));
+    }
+
+    /**
+     * @param transaction a transaction just saved, new or updated.
+     */
+    public void index(Transaction transaction) {
+        index.put(transaction.getId(), transaction.getDescription1(), transaction.getDescription2());
+        merchants.put(transaction.getId(), merchant(transaction));
+    }
+
+    /**
+     * @param id the id of a transaction just deleted.
+     */
+    public void remove(Long id) {
+        index.remove(id);
+        merchants.remove(id);
+    }
+
+    /**
+     * Search the transactions containing every word of a query, once the transactions inserted since the last
+     * refresh are indexed.
+     *
+     * @param query the words to search, in any case.
+     * @param maxHits the number of best matches to return.
+     * @return the best matches, best first, and the number of matches.
+     */
+    public Mono<TransactionTokenIndex.Hits> search(String query, int maxHits) {
+        return refresh()
+            .then(
+                Mono.fromSupplier(
+                    () -> {
+                        long start = System.nanoTime();
+                        TransactionTokenIndex.Hits hits = index.search(query, maxHits);
+                        log.debug("Searched '{}': {} matches in {} us", query, hits.getTotal(), (System.nanoTime() - start) / 1000);
+                        return hits;
+                    }
+                )
+            );
+    }
+
+    /**
+     * Find the transactions whose merchant is within a number of edits of the merchant of a transaction, once the
+     * transactions inserted since the last refresh are indexed.
+     *
+     * @param transaction a transaction.
+     * @param maxEdits the number of edits allowed, lowered for short merchants.
+     * @param limit the number of matches to return.
+     * @return the closest matches, the transaction itself excluded.
+     */
+    public Mono<List<TrigramIndex.Match>> similar(Transaction transaction, int maxEdits, int limit) {
+        return refresh()
+            .then(
+                Mono.fromSupplier(
+                    () -> {
+                        long start = System.nanoTime();
+                        List<TrigramIndex.Match> matches = merchants.search(merchant(transaction), maxEdits, limit + 1);
+                        matches.removeIf(match -> match.getId() == transaction.getId());
+                        if (matches.size() > limit) {
+                            matches.remove(limit);
+                        }
+                        log.debug(
+                            "Looked up the transactions similar to {}: {} matches in {} us",
+                            transaction.getId(),
+                            matches.size(),
+                            (System.nanoTime() - start) / 1000
+                        );
+                        return matches;
+                    }
+                )
+            );
+    }
+
+    /**
+     * @param searchString a search string, already trimmed and upper-cased.
+     * @return the ids of the transactions whose descriptions could contain it, in ascending order.
+     */
+    public long[] candidates(String searchString) {
+        return index.candidates(searchString);
+    }
+
+    private String merchant(Transaction transaction) {
+        String description = transaction.getDescription1();
+        return descriptionCacheService.canonical(
+            description == null || description.trim().isEmpty() ? transaction.getDescription2() : description
+        );
+    }
+
+    private static double bytesPerTransaction(TrigramIndex merchants) {
+        int size = merchants.size();
+        return size == 0 ? 0 : (double) merchants.bytes() / size;
+    }
+}
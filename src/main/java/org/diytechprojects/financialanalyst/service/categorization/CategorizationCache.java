@@ -0,0 +1,118 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the rules matching the descriptions of the transactions, for a version of the rules: most
+ * imported transactions repeat descriptions already categorized, and a hit skips the matching altogether.
+ * <p>
+ * The key is the hash of both descriptions and of the kind of the amount, debit or credit, and a hit also compares
+ * the descriptions themselves and the version of the rules. The descriptions are taken as they are, not in their
+ * canonical form: a search string may match a store number, or words the canonical form joins once the store number
+ * is dropped, so "TIM HORTONS #4432" and "TIM HORTONS #4433" are cached apart. A change of the rules bumps their version, which
+ * invalidates every entry at once; the entries of former versions are replaced as they are missed.
+ * <p>
+ * As the {@link DescriptionCache}, the cache is a direct-mapped table of immutable entries read and replaced without
+ * locks. The descriptions are usually interned there, so comparing them mostly compares references.
+ */
+public final class CategorizationCache {
+
+    private static final long[] NO_RULES = new long[0];
+
+    private final Entry[] entries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity the number of results kept, rounded up to a power of two.
+     */
+    public CategorizationCache(int capacity) {
+        this.entries = new Entry[Integer.highestOneBit(Math.max(1, capacity - 1)) << 1];
+    }
+
+    /**
+     * @param description1 the first description of a transaction, or null.
+     * @param description2 its second description, or null.
+     * @param kind the kind of its amount.
+     * @param version the version of the rules.
+     * @param allRules whether the rules matching besides the best one are needed.
+     * @return the ids of the matching rules, the best one first, empty for none; null when not cached.
+     */
+    long[] get(String description1, String description2, int kind, long version, boolean allRules) {
+        Entry entry = entries[slot(description1, description2, kind)];
+        if (
+            entry != null &&
+            entry.version == version &&
+            entry.kind == kind &&
+            (entry.allRules || !allRules) &&
+            equals(entry.description1, description1) &&
+            equals(entry.description2, description2)
+        ) {
+            hits.increment();
+            return entry.ruleIds;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * @param ruleIds the ids of the matching rules, the best one first.
+     * @param allRules whether they are all the matching rules, or only the best one.
+     */
+    void put(String description1, String description2, int kind, long version, long[] ruleIds, boolean allRules) {
+        entries[slot(description1, description2, kind)] =
+            new Entry(description1, description2, kind, version, ruleIds.length == 0 ? NO_RULES : ruleIds, allRules);
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private int slot(String description1, String description2, int kind) {
+        int hash = (hashCode(description1) * 31 + hashCode(description2)) * 31 + kind;
+        hash *= 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (entries.length - 1);
+    }
+
+    private static int hashCode(String description) {
+        return description == null ? 0 : description.hashCode();
+    }
+
+    private static boolean equals(String cached, String description) {
+        return cached == null ? description == null : cached.equals(description);
+    }
+
+    private static final class Entry {
+
+        private final String description1;
+
+        private final String description2;
+
+        private final int kind;
+
+        private final long version;
+
+        private final long[] ruleIds;
+
+        private final boolean allRules;
+
+        private Entry(String description1, String description2, int kind, long version, long[] ruleIds, boolean allRules) {
+            this.description1 = description1;
+            this.description2 = description2;
+            this.kind = kind;
+            this.version = version;
+            this.ruleIds = ruleIds;
+            this.allRules = allRules;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+
+/**
+ * Bounded interning cache of the descriptions of the transactions and of their canonical form, see
+ * {@link DescriptionCanonicalizer}: the same few thousand merchants repeat over millions of transactions, the rows
+ * read or imported with the same description share one instance of it and of its canonical form.
+ * <p>
+ * The cache is a direct-mapped table: a description goes to the slot of its hash, and replaces the description there
+ * on a miss. Lookups take no lock; the entries are immutable, so a thread reads either the former or the new entry of
+ * a slot, and a lost update only costs a later miss. A canonical form is interned in the same table, as it is its own
+ * canonical form.
+ * <p>
+ * The canonical form names the merchant of the searches by merchant only. The categorization shares the interned
+ * descriptions, not their canonical form: the search strings of the rules match the descriptions as they are, store
+ * numbers included, so the descriptions of one merchant may match different rules.
+ */
+public final class DescriptionCache {
+
+    private final Entry[] entries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity the number of descriptions kept, rounded up to a power of two.
+     */
+    public DescriptionCache(int capacity) {
+        this.entries = new Entry[Integer.highestOneBit(Math.max(1, capacity - 1)) << 1];
+    }
+
+    /**
+     * @param description a description, or null.
+     * @return the cached instance equal to the description.
+     */
+    public String intern(String description) {
+        return description == null ? null : entry(description).description;
+    }
+
+    /**
+     * @param description a description, or null.
+     * @return the cached instance of its canonical form.
+     */
+    public String canonical(String description) {
+        return description == null ? null : entry(description).canonical;
+    }
+
+    /**
+     * Replace the descriptions of a transaction by their cached instances.
+     *
+     * @param transaction a transaction.
+     * @return the same transaction.
+     */
+    public Transaction internDescriptions(Transaction transaction) {
+        transaction.setDescription1(intern(transaction.getDescription1()));
+        transaction.setDescription2(intern(transaction.getDescription2()));
+        return transaction;
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private Entry entry(String description) {
+        int slot = slot(description);
+        Entry entry = entries[slot];
+        if (entry != null && entry.description.equals(description)) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+        String canonical = DescriptionCanonicalizer.canonicalize(description);
+        if (canonical == null || canonical.equals(description)) {
+            entry = new Entry(description, canonical == null ? null : description);
+        } else {
+            entry = new Entry(description, canonicalEntry(canonical).description);
+        }
+        entries[slot] = entry;
+        return entry;
+    }
+
+    private Entry canonicalEntry(String canonical) {
+        int slot = slot(canonical);
+        Entry entry = entries[slot];
+        if (entry == null || !entry.description.equals(canonical)) {
+            entry = new Entry(canonical, canonical);
+            entries[slot] = entry;
+        }
+        return entry;
+    }
+
+    private int slot(String description) {
+        int hash = description.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (entries.length - 1);
+    }
+
+    private static final class Entry {
+
+        private final String description;
+
+        private final String canonical;
+
+        private Entry(String description, String canonical) {
+            this.description = description;
+            this.canonical = canonical;
+        }
+    }
+}
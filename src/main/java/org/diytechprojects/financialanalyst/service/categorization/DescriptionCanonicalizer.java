@@ -0,0 +1,116 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reduces a description to the name of the merchant, so that the transactions of a merchant share one text whatever
+ * the store or the day: "Tim Hortons #4432 04/07" and "TIM HORTONS #118" are both "TIM HORTONS".
+ * <p>
+ * The description is upper-cased character by character and split into words at blanks and asterisks. The words
+ * made of digits and date separators are dropped when they look like a store number ("#4432"), a reference or an
+ * amount (three digits or more) or a date ("04/07", "2021-04-07"), as are the dates with a month name ("07APR",
+ * "APR07"). A description made only of such words is kept whole.
+ */
+public final class DescriptionCanonicalizer {
+
+    private static final Set<String> MONTHS = new HashSet<>(
+        Arrays.asList("JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC")
+    );
+
+    private DescriptionCanonicalizer() {}
+
+    /**
+     * @param description a description, or null.
+     * @return the canonical description, null if blank.
+     */
+    public static String canonicalize(String description) {
+        if (description == null) {
+            return null;
+        }
+        StringBuilder canonical = new StringBuilder(description.length());
+        StringBuilder all = new StringBuilder(description.length());
+        int start = -1;
+        for (int i = 0; i <= description.length(); i++) {
+            boolean separator = i == description.length() || isSeparator(description.charAt(i));
+            if (!separator && start < 0) {
+                start = i;
+            } else if (separator && start >= 0) {
+                String word = upperCase(description, start, i);
+                append(all, word);
+                if (!isNumber(word) && !isDate(word)) {
+                    append(canonical, word);
+                }
+                start = -1;
+            }
+        }
+        if (all.length() == 0) {
+            return null;
+        }
+        return canonical.length() == 0 ? all.toString() : canonical.toString();
+    }
+
+    private static boolean isSeparator(char c) {
+        return Character.isWhitespace(c) || c == '*';
+    }
+
+    private static String upperCase(String description, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = Character.toUpperCase(description.charAt(i));
+        }
+        return new String(chars);
+    }
+
+    private static void append(StringBuilder words, String word) {
+        if (words.length() > 0) {
+            words.append(' ');
+        }
+        words.append(word);
+    }
+
+    /**
+     * @return whether the word is a store number, a reference, an amount or a numeric date.
+     */
+    private static boolean isNumber(String word) {
+        boolean hash = word.charAt(0) == '#';
+        int digits = 0;
+        boolean dateSeparator = false;
+        for (int i = hash ? 1 : 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '/' || c == '-') {
+                dateSeparator = true;
+            } else if (c != '.' && c != ':' && c != ',') {
+                return false;
+            }
+        }
+        return digits > 0 && (hash || dateSeparator || digits >= 3);
+    }
+
+    /**
+     * @return whether the word is a day and a month name, in either order, with an optional year.
+     */
+    private static boolean isDate(String word) {
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            if (MONTHS.contains(word.substring(i, i + 3))) {
+                return (i > 0 || word.length() > 3) && isDigits(word, 0, i) && isDigits(word, i + 3, word.length());
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDigits(String word, int start, int end) {
+        if (end - start > 4) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (word.charAt(i) < '0' || word.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
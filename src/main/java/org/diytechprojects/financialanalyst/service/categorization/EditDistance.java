@@ -0,0 +1,45 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+/**
+ * Levenshtein distance with a bound: the computation stops as soon as the distance is known to exceed it.
+ */
+final class EditDistance {
+
+    private EditDistance() {}
+
+    /**
+     * @param first a text.
+     * @param second another text.
+     * @param max the largest distance of interest.
+     * @return the number of insertions, deletions and substitutions turning one text into the other, or
+     * {@code max + 1} if there are more than {@code max}.
+     */
+    static int bounded(String first, String second, int max) {
+        if (Math.abs(first.length() - second.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[second.length() + 1];
+        int[] current = new int[second.length() + 1];
+        for (int j = 0; j <= second.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            char c = first.charAt(i - 1);
+            for (int j = 1; j <= second.length(); j++) {
+                int substitution = previous[j - 1] + (c == second.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                // every path to the last cell goes through this row
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[second.length()], max + 1);
+    }
+}
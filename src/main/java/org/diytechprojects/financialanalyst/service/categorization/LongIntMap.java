@@ -0,0 +1,86 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import java.util.Arrays;
+
+/**
+ * Map from {@code long} keys to non-negative {@code int} values in two arrays, with open addressing and linear
+ * probing: no boxing and no entry objects, a lookup reads two arrays. Not thread safe.
+ */
+public final class LongIntMap {
+
+    public static final int MISSING = -1;
+
+    private long[] keys = new long[16];
+
+    private int[] values = new int[16];
+
+    private int size;
+
+    public LongIntMap() {
+        Arrays.fill(values, MISSING);
+    }
+
+    /**
+     * @return the value of the key, or {@link #MISSING}.
+     */
+    public int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask);; slot = (slot + 1) & mask) {
+            if (values[slot] == MISSING) {
+                return MISSING;
+            }
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+    }
+
+    /**
+     * @param value a non-negative value.
+     */
+    public void put(long key, int value) {
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (values[slot] != MISSING && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] == MISSING) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the bytes of the two arrays.
+     */
+    public long bytes() {
+        return (long) keys.length * Long.BYTES + (long) values.length * Integer.BYTES;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, MISSING);
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldValues[slot] != MISSING) {
+                put(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+}
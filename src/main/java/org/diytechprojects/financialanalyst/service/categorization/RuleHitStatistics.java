@@ -0,0 +1,86 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.diytechprojects.financialanalyst.service.dto.RuleStatisticsDTO;
+
+/**
+ * Counts the hits of the rules by the {@link TransactionCategorizer}s: how many transactions each rule matched, was
+ * assigned to, and matched along with other rules of the same kind.
+ * <p>
+ * Categorizations run concurrently, so the counters are striped {@link LongAdder}s: a hit costs no contention, and a
+ * read sums the stripes. The counters live in memory and start over with the application.
+ */
+public final class RuleHitStatistics {
+
+    private final ConcurrentMap<Long, Counters> expenses = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Long, Counters> incomes = new ConcurrentHashMap<>();
+
+    /**
+     * Count the rules matching a transaction.
+     *
+     * @param expense whether the rules are expenses, or incomes.
+     * @param ruleIds the ids of the matching rules, the assigned one first.
+     * @param count the number of matching rules.
+     * @param now the time of the match, in milliseconds since the epoch.
+     */
+    void record(boolean expense, long[] ruleIds, int count, long now) {
+        ConcurrentMap<Long, Counters> counters = expense ? expenses : incomes;
+        for (int i = 0; i < count; i++) {
+            Counters rule = counters.computeIfAbsent(ruleIds[i], id -> new Counters());
+            rule.matches.increment();
+            rule.lastMatch.accumulate(now);
+            if (i == 0) {
+                rule.wins.increment();
+            }
+            if (count > 1) {
+                rule.conflicts.increment();
+            }
+        }
+    }
+
+    /**
+     * @param id the id of an expense.
+     * @return the hits of the expense, all zero if it never matched.
+     */
+    public RuleStatisticsDTO expense(Long id) {
+        return snapshot(id, expenses.get(id));
+    }
+
+    /**
+     * @param id the id of an income.
+     * @return the hits of the income, all zero if it never matched.
+     */
+    public RuleStatisticsDTO income(Long id) {
+        return snapshot(id, incomes.get(id));
+    }
+
+    private static RuleStatisticsDTO snapshot(Long id, Counters counters) {
+        if (counters == null) {
+            return new RuleStatisticsDTO(id, 0, 0, 0, null);
+        }
+        long lastMatch = counters.lastMatch.get();
+        return new RuleStatisticsDTO(
+            id,
+            counters.matches.sum(),
+            counters.wins.sum(),
+            counters.conflicts.sum(),
+            lastMatch == Long.MIN_VALUE ? null : Instant.ofEpochMilli(lastMatch)
+        );
+    }
+
+    private static final class Counters {
+
+        private final LongAdder matches = new LongAdder();
+
+        private final LongAdder wins = new LongAdder();
+
+        private final LongAdder conflicts = new LongAdder();
+
+        private final LongAccumulator lastMatch = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    }
+}
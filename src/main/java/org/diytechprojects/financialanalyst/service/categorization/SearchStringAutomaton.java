@@ -0,0 +1,240 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Aho-Corasick automaton over the search strings of the rules, finding the best rule matching a text in a single
+ * pass over its characters, whatever the number of rules.
+ * <p>
+ * The failure links are resolved at build time into a complete transition table, so matching costs one array
+ * lookup per character. Columns of the table are the characters used by the search strings, any other character
+ * leads back to the root. Each state also holds, per kind of rule, the best search string ending there or at one of
+ * its suffixes: the longest one, then the one of the rule with the lowest id.
+ * <p>
+ * Matching ignores the case, characters are upper-cased one by one on both sides.
+ * <p>
+ * Every search string found can also be listed, for statistics and reports: each state links to the search strings
+ * ending there and to its longest suffix state where some search string ends.
+ */
+final class SearchStringAutomaton {
+
+    static final int NO_MATCH = -1;
+
+    private final int kinds;
+
+    private final int[] asciiSymbols = new int[128];
+
+    private final Map<Character, Integer> otherSymbols = new HashMap<>();
+
+    private final int width;
+
+    private final int[] transitions;
+
+    /**
+     * The best search string per state and kind, as an index in the search strings, {@link #NO_MATCH} if none.
+     */
+    private final int[] best;
+
+    private final int[] lengths;
+
+    private final long[] ruleIds;
+
+    private final int[] ruleKinds;
+
+    /**
+     * The first search string ending at each state, {@link #NO_MATCH} if none, the others follow in {@link #nextEnding}.
+     */
+    private final int[] firstEnding;
+
+    private final int[] nextEnding;
+
+    /**
+     * The longest proper suffix of each state where a search string ends, 0 (the root) if none.
+     */
+    private final int[] outputLinks;
+
+    /**
+     * @param searchStrings the search strings, already trimmed and upper-cased, none empty.
+     * @param ruleIds the id of the rule of each search string.
+     * @param ruleKinds the kind of the rule of each search string, between 0 and {@code kinds} excluded.
+     * @param kinds the number of kinds of rules, matched independently.
+     */
+    SearchStringAutomaton(List<String> searchStrings, long[] ruleIds, int[] ruleKinds, int kinds) {
+        this.kinds = kinds;
+        this.ruleIds = ruleIds;
+        this.ruleKinds = ruleKinds;
+        this.lengths = new int[searchStrings.size()];
+        int maxStates = 1;
+        // symbol 0 stands for the characters of no search string
+        int symbols = 1;
+        for (int i = 0; i < searchStrings.size(); i++) {
+            String searchString = searchStrings.get(i);
+            lengths[i] = searchString.length();
+            maxStates += searchString.length();
+            for (int c = 0; c < searchString.length(); c++) {
+                char symbol = searchString.charAt(c);
+                if (symbol(symbol) == 0) {
+                    if (symbol < asciiSymbols.length) {
+                        asciiSymbols[symbol] = symbols++;
+                    } else {
+                        otherSymbols.put(symbol, symbols++);
+                    }
+                }
+            }
+        }
+        this.width = symbols;
+
+        // the trie, 0 is both the root and "no child" as the root is nobody's child
+        int[] trie = new int[maxStates * width];
+        int[] bestPerState = new int[maxStates * kinds];
+        Arrays.fill(bestPerState, NO_MATCH);
+        int[] endings = new int[maxStates];
+        Arrays.fill(endings, NO_MATCH);
+        this.nextEnding = new int[searchStrings.size()];
+        int states = 1;
+        for (int i = 0; i < searchStrings.size(); i++) {
+            String searchString = searchStrings.get(i);
+            int state = 0;
+            for (int c = 0; c < searchString.length(); c++) {
+                int cell = state * width + symbol(searchString.charAt(c));
+                if (trie[cell] == 0) {
+                    trie[cell] = states++;
+                }
+                state = trie[cell];
+            }
+            int cell = state * kinds + ruleKinds[i];
+            bestPerState[cell] = better(bestPerState[cell], i);
+            nextEnding[i] = endings[state];
+            endings[state] = i;
+        }
+
+        // breadth first, the failure state of a state is always resolved before the state itself
+        int[] failures = new int[states];
+        int[] links = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int symbol = 0; symbol < width; symbol++) {
+            if (trie[symbol] != 0) {
+                queue[tail++] = trie[symbol];
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            int failure = failures[state];
+            links[state] = endings[failure] != NO_MATCH ? failure : links[failure];
+            for (int kind = 0; kind < kinds; kind++) {
+                bestPerState[state * kinds + kind] = better(bestPerState[state * kinds + kind], bestPerState[failure * kinds + kind]);
+            }
+            for (int symbol = 0; symbol < width; symbol++) {
+                int cell = state * width + symbol;
+                int fallback = trie[failure * width + symbol];
+                if (trie[cell] == 0) {
+                    trie[cell] = fallback;
+                } else {
+                    failures[trie[cell]] = fallback;
+                    queue[tail++] = trie[cell];
+                }
+            }
+        }
+        this.transitions = Arrays.copyOf(trie, states * width);
+        this.best = Arrays.copyOf(bestPerState, states * kinds);
+        this.firstEnding = Arrays.copyOf(endings, states);
+        this.outputLinks = links;
+    }
+
+    /**
+     * Find the best search string of a kind contained in a text.
+     *
+     * @param text the text to search, or null.
+     * @param kind the kind of rules to match.
+     * @param bestSoFar the best search string found in other texts, or {@link #NO_MATCH}.
+     * @return the best of {@code bestSoFar} and the search strings found in the text, {@link #NO_MATCH} if none.
+     */
+    int find(String text, int kind, int bestSoFar) {
+        if (text == null) {
+            return bestSoFar;
+        }
+        int found = bestSoFar;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * width + symbol(Character.toUpperCase(text.charAt(i)))];
+            int candidate = best[state * kinds + kind];
+            if (candidate != NO_MATCH && candidate != found) {
+                found = better(found, candidate);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find every search string of a kind contained in a text.
+     *
+     * @param text the text to search, or null.
+     * @param kind the kind of rules to match.
+     * @param found receives the index of each search string found, once per occurrence.
+     */
+    void findAll(String text, int kind, IntConsumer found) {
+        if (text == null) {
+            return;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * width + symbol(Character.toUpperCase(text.charAt(i)))];
+            if (best[state * kinds + kind] == NO_MATCH) {
+                // no search string of this kind ends here, nor at a suffix
+                continue;
+            }
+            for (int suffix = state; suffix != 0; suffix = outputLinks[suffix]) {
+                for (int searchString = firstEnding[suffix]; searchString != NO_MATCH; searchString = nextEnding[searchString]) {
+                    if (ruleKinds[searchString] == kind) {
+                        found.accept(searchString);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param searchString the index of a search string.
+     * @return the id of its rule.
+     */
+    long ruleId(int searchString) {
+        return ruleIds[searchString];
+    }
+
+    /**
+     * @return the number of states of the automaton.
+     */
+    int states() {
+        return transitions.length / width;
+    }
+
+    private int symbol(char c) {
+        if (c < asciiSymbols.length) {
+            return asciiSymbols[c];
+        }
+        Integer symbol = otherSymbols.get(c);
+        return symbol == null ? 0 : symbol;
+    }
+
+    /**
+     * @return the search string taking precedence of two, either may be {@link #NO_MATCH}.
+     */
+    int better(int first, int second) {
+        if (first == NO_MATCH) {
+            return second;
+        }
+        if (second == NO_MATCH) {
+            return first;
+        }
+        if (lengths[first] != lengths[second]) {
+            return lengths[first] > lengths[second] ? first : second;
+        }
+        return ruleIds[first] <= ruleIds[second] ? first : second;
+    }
+}
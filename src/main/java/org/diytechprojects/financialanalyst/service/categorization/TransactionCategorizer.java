@@ -0,0 +1,401 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import org.diytechprojects.financialanalyst.domain.Expense;
+import org.diytechprojects.financialanalyst.domain.Income;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+
+/**
+ * Assigns an {@link Expense} or an {@link Income} to transactions by matching their search strings
+ * against the descriptions of the transaction.
+ * <p>
+ * A rule matches when one of its search strings is contained in {@code description1} or {@code description2},
+ * ignoring the case. Debits (negative amount) are matched against the expenses, credits against the incomes.
+ * When several rules match, the one with the longest search string wins as it is the most specific,
+ * ties go to the rule with the lowest id.
+ * <p>
+ * All the search strings are compiled into a single {@link SearchStringAutomaton}, so a transaction is categorized
+ * in one pass over its descriptions, whatever the number of rules.
+ * <p>
+ * When given {@link RuleHitStatistics}, the categorizer lists every rule matching a transaction to count their hits,
+ * at the cost of following the matches the single best rule lookup skips.
+ * <p>
+ * When allowed a number of edits, a transaction no search string matches exactly is matched approximately: the
+ * search strings are indexed in a {@link TrigramIndex}, and each run of as many words of a description as a search
+ * string has is looked up in it, so that "AMAZN.CA" or "AMAZON CA" still match "AMAZON.CA". The search string with
+ * the fewest edits wins, then the longest one as for the exact matches. A search string allows one edit per four
+ * characters at most, so that "BP" never matches "BQ".
+ * <p>
+ * When given a {@link CategorizationCache} and the version of the rules, the rules matching the descriptions of a
+ * transaction are looked up there first, and cached when missed: the transactions of a merchant repeat the same
+ * descriptions, which are then matched once per version of the rules. The version given is combined with a hash of
+ * the rules themselves, so that rules changed without bumping the version are not matched from the cache either.
+ * <p>
+ * Instances are immutable snapshots of the rules and can be shared between threads.
+ */
+public class TransactionCategorizer {
+
+    private static final int EXPENSE = 0;
+
+    private static final int INCOME = 1;
+
+    private static final long[] NO_RULES = new long[0];
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final SearchStringAutomaton automaton;
+
+    private final RuleHitStatistics statistics;
+
+    private final int maxEdits;
+
+    /**
+     * The search strings by their index in the automaton, null when matched exactly only.
+     */
+    private final TrigramIndex approximateSearchStrings;
+
+    private final int[] searchStringKinds;
+
+    private final int[] searchStringWords;
+
+    private final int[] searchStringEdits;
+
+    /**
+     * The distinct numbers of words of the search strings, the lengths of the runs of words looked up.
+     */
+    private final int[] windows;
+
+    private final CategorizationCache cache;
+
+    /**
+     * The version of the rules given, combined with the hash of the rules compiled.
+     */
+    private final long version;
+
+    public TransactionCategorizer(List<Expense> expenses, List<Income> incomes) {
+        this(expenses, incomes, null);
+    }
+
+    public TransactionCategorizer(List<Expense> expenses, List<Income> incomes, RuleHitStatistics statistics) {
+        this(expenses, incomes, statistics, 0);
+    }
+
+    /**
+     * @param expenses the expense rules.
+     * @param incomes the income rules.
+     * @param statistics counts the hits of the rules, or null.
+     * @param maxEdits the number of edits allowed to a search string when none matches exactly, 0 for exact matches
+     * only.
+     */
+    public TransactionCategorizer(List<Expense> expenses, List<Income> incomes, RuleHitStatistics statistics, int maxEdits) {
+        this(expenses, incomes, statistics, maxEdits, null, 0);
+    }
+
+    /**
+     * @param expenses the expense rules.
+     * @param incomes the income rules.
+     * @param statistics counts the hits of the rules, or null.
+     * @param maxEdits the number of edits allowed to a search string when none matches exactly, 0 for exact matches
+     * only.
+     * @param cache caches the matching rules by descriptions, or null.
+     * @param version the version of the rules, read before they were.
+     */
+    public TransactionCategorizer(
+        List<Expense> expenses,
+        List<Income> incomes,
+        RuleHitStatistics statistics,
+        int maxEdits,
+        CategorizationCache cache,
+        long version
+    ) {
+        this.statistics = statistics;
+        this.maxEdits = maxEdits;
+        this.cache = cache;
+        List<String> searchStrings = new ArrayList<>();
+        List<Long> ruleIds = new ArrayList<>();
+        List<Integer> ruleKinds = new ArrayList<>();
+        for (Expense expense : expenses) {
+            addRule(searchStrings, ruleIds, ruleKinds, expense.getId(), EXPENSE, expense.getSearchString1(), expense.getSearchString2());
+        }
+        for (Income income : incomes) {
+            addRule(searchStrings, ruleIds, ruleKinds, income.getId(), INCOME, income.getSearchString1(), income.getSearchString2());
+        }
+        this.automaton =
+            new SearchStringAutomaton(
+                searchStrings,
+                ruleIds.stream().mapToLong(Long::longValue).toArray(),
+                ruleKinds.stream().mapToInt(Integer::intValue).toArray(),
+                2
+            );
+        this.searchStringKinds = ruleKinds.stream().mapToInt(Integer::intValue).toArray();
+        this.version = version * FNV_PRIME ^ hash(searchStrings, ruleIds, searchStringKinds, maxEdits);
+        this.searchStringWords = new int[searchStrings.size()];
+        this.searchStringEdits = new int[searchStrings.size()];
+        if (maxEdits > 0) {
+            this.approximateSearchStrings = new TrigramIndex();
+            for (int i = 0; i < searchStrings.size(); i++) {
+                String normalized = TrigramIndex.normalize(searchStrings.get(i));
+                searchStringEdits[i] = Math.min(maxEdits, normalized.length() / 4);
+                if (searchStringEdits[i] > 0) {
+                    approximateSearchStrings.put(i, normalized);
+                    searchStringWords[i] = normalized.split(" ").length;
+                }
+            }
+            this.windows = Arrays.stream(searchStringWords).filter(words -> words > 0).distinct().toArray();
+        } else {
+            this.approximateSearchStrings = null;
+            this.windows = new int[0];
+        }
+    }
+
+    /**
+     * Set the expense or the income of the transaction, if it has none yet and a rule matches.
+     *
+     * @param transaction the transaction to categorize.
+     * @return the same transaction.
+     */
+    public Transaction categorize(Transaction transaction) {
+        if (transaction.getExpenseId() != null || transaction.getIncomeId() != null) {
+            return transaction;
+        }
+        Long amount = transaction.getAmountCAD() != null ? transaction.getAmountCAD() : transaction.getAmountUSD();
+        if (amount == null || amount == 0) {
+            return transaction;
+        }
+        if (amount < 0) {
+            transaction.setExpenseId(assign(transaction, EXPENSE));
+        } else {
+            transaction.setIncomeId(assign(transaction, INCOME));
+        }
+        return transaction;
+    }
+
+    /**
+     * List the rules matching a transaction exactly, whether it has an expense or an income already or not.
+     *
+     * @param transaction a transaction.
+     * @return the ids of the expenses matching a debit or of the incomes matching a credit, the one
+     * {@link #categorize(Transaction)} picks first.
+     */
+    public long[] matchingRules(Transaction transaction) {
+        Long amount = transaction.getAmountCAD() != null ? transaction.getAmountCAD() : transaction.getAmountUSD();
+        if (amount == null || amount == 0) {
+            return NO_RULES;
+        }
+        return matchingRules(transaction, amount < 0 ? EXPENSE : INCOME);
+    }
+
+    /**
+     * Find the rule {@link #categorize(Transaction)} would assign, whether the transaction has an expense or an income
+     * already or not. The hit of the rule is not counted, and the cache is not used.
+     *
+     * @param transaction a transaction.
+     * @return the id of the expense matching a debit or of the income matching a credit, null if none.
+     */
+    public Long bestRule(Transaction transaction) {
+        Long amount = transaction.getAmountCAD() != null ? transaction.getAmountCAD() : transaction.getAmountUSD();
+        if (amount == null || amount == 0) {
+            return null;
+        }
+        return match(transaction, amount < 0 ? EXPENSE : INCOME);
+    }
+
+    /**
+     * @return the number of states of the compiled search strings, a measure of their memory footprint.
+     */
+    public int getStates() {
+        return automaton.states();
+    }
+
+    private Long assign(Transaction transaction, int kind) {
+        if (statistics == null && cache == null) {
+            return match(transaction, kind);
+        }
+        long[] rules = cache == null
+            ? null
+            : cache.get(transaction.getDescription1(), transaction.getDescription2(), kind, version, statistics != null);
+        if (rules == null && statistics == null) {
+            Long rule = match(transaction, kind);
+            rules = rule == null ? NO_RULES : new long[] { rule };
+            cache.put(transaction.getDescription1(), transaction.getDescription2(), kind, version, rules, false);
+        } else if (rules == null) {
+            rules = matchingRules(transaction, kind);
+            if (rules.length == 0 && approximateSearchStrings != null) {
+                Long rule = approximateMatch(transaction, kind);
+                rules = rule == null ? NO_RULES : new long[] { rule };
+            }
+            if (cache != null) {
+                cache.put(transaction.getDescription1(), transaction.getDescription2(), kind, version, rules, true);
+            }
+        }
+        if (rules.length == 0) {
+            return null;
+        }
+        if (statistics != null) {
+            statistics.record(kind == EXPENSE, rules, rules.length, System.currentTimeMillis());
+        }
+        return rules[0];
+    }
+
+    private Long match(Transaction transaction, int kind) {
+        Long rule = bestMatch(transaction, kind);
+        return rule != null || approximateSearchStrings == null ? rule : approximateMatch(transaction, kind);
+    }
+
+    private long[] matchingRules(Transaction transaction, int kind) {
+        Matches matches = new Matches();
+        automaton.findAll(transaction.getDescription1(), kind, matches);
+        automaton.findAll(transaction.getDescription2(), kind, matches);
+        return matches.ruleIds();
+    }
+
+    private Long bestMatch(Transaction transaction, int kind) {
+        // each description is searched on its own, so a match never spans both
+        int best = automaton.find(transaction.getDescription1(), kind, SearchStringAutomaton.NO_MATCH);
+        best = automaton.find(transaction.getDescription2(), kind, best);
+        return best == SearchStringAutomaton.NO_MATCH ? null : automaton.ruleId(best);
+    }
+
+    private Long approximateMatch(Transaction transaction, int kind) {
+        int best = SearchStringAutomaton.NO_MATCH;
+        int bestDistance = Integer.MAX_VALUE;
+        for (String description : new String[] { transaction.getDescription1(), transaction.getDescription2() }) {
+            String normalized = TrigramIndex.normalize(description);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            String[] words = normalized.split(" ");
+            for (int window : windows) {
+                for (int start = 0; start + window <= words.length; start++) {
+                    String run = String.join(" ", Arrays.asList(words).subList(start, start + window));
+                    for (TrigramIndex.Match match : approximateSearchStrings.search(run, maxEdits, Integer.MAX_VALUE)) {
+                        int searchString = (int) match.getId();
+                        if (
+                            searchStringKinds[searchString] != kind ||
+                            searchStringWords[searchString] != window ||
+                            match.getDistance() > searchStringEdits[searchString]
+                        ) {
+                            continue;
+                        }
+                        if (
+                            match.getDistance() < bestDistance ||
+                            (match.getDistance() == bestDistance && automaton.better(best, searchString) == searchString)
+                        ) {
+                            best = searchString;
+                            bestDistance = match.getDistance();
+                        }
+                    }
+                }
+            }
+        }
+        return best == SearchStringAutomaton.NO_MATCH ? null : automaton.ruleId(best);
+    }
+
+    /**
+     * @return the FNV-1a hash of the search strings compiled, of their rules and of the number of edits allowed.
+     */
+    private static long hash(List<String> searchStrings, List<Long> ruleIds, int[] ruleKinds, int maxEdits) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < searchStrings.size(); i++) {
+            String searchString = searchStrings.get(i);
+            for (int c = 0; c < searchString.length(); c++) {
+                hash = (hash ^ searchString.charAt(c)) * FNV_PRIME;
+            }
+            hash = (hash ^ ruleIds.get(i)) * FNV_PRIME;
+            hash = (hash ^ ruleKinds[i]) * FNV_PRIME;
+        }
+        return (hash ^ maxEdits) * FNV_PRIME;
+    }
+
+    private static void addRule(
+        List<String> searchStrings,
+        List<Long> ruleIds,
+        List<Integer> ruleKinds,
+        Long id,
+        int kind,
+        String... ruleSearchStrings
+    ) {
+        for (String searchString : ruleSearchStrings) {
+            String normalized = normalizeSearchString(searchString);
+            if (normalized != null) {
+                searchStrings.add(normalized);
+                ruleIds.add(id);
+                ruleKinds.add(kind);
+            }
+        }
+    }
+
+    /**
+     * @param searchString a search string of a rule, or null.
+     * @return the search string as it is matched: trimmed and upper-cased, null if blank.
+     */
+    public static String normalizeSearchString(String searchString) {
+        if (searchString == null || searchString.trim().isEmpty()) {
+            return null;
+        }
+        return upperCase(searchString.trim());
+    }
+
+    /**
+     * Upper-case character by character, the way the automaton reads the descriptions.
+     */
+    public static String upperCase(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toUpperCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Collects the best search string of each rule found, a transaction matches a handful of rules at most.
+     */
+    private final class Matches implements IntConsumer {
+
+        private int[] searchStrings = new int[4];
+
+        private int size;
+
+        @Override
+        public void accept(int searchString) {
+            for (int i = 0; i < size; i++) {
+                if (automaton.ruleId(searchStrings[i]) == automaton.ruleId(searchString)) {
+                    searchStrings[i] = automaton.better(searchStrings[i], searchString);
+                    return;
+                }
+            }
+            if (size == searchStrings.length) {
+                searchStrings = Arrays.copyOf(searchStrings, size * 2);
+            }
+            searchStrings[size++] = searchString;
+        }
+
+        /**
+         * @return the ids of the rules, by precedence.
+         */
+        long[] ruleIds() {
+            if (size == 0) {
+                return NO_RULES;
+            }
+            for (int i = 1; i < size; i++) {
+                int searchString = searchStrings[i];
+                int j = i - 1;
+                while (j >= 0 && automaton.better(searchStrings[j], searchString) == searchString) {
+                    searchStrings[j + 1] = searchStrings[j];
+                    j--;
+                }
+                searchStrings[j + 1] = searchString;
+            }
+            long[] ruleIds = new long[size];
+            for (int i = 0; i < size; i++) {
+                ruleIds[i] = automaton.ruleId(searchStrings[i]);
+            }
+            return ruleIds;
+        }
+    }
+}
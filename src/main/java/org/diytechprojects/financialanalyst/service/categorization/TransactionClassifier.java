@@ -0,0 +1,413 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.service.dto.CategorySuggestionDTO;
+
+/**
+ * Multinomial naive-Bayes classifier suggesting the expense or the income of a transaction from the categorized ones,
+ * learned one transaction at a time.
+ * <p>
+ * The features of a transaction are the tokens of its descriptions, maximal runs of letters and digits upper-cased
+ * as by the {@link TransactionTokenIndex}, and the power of two of its amount. They are hashed to 64 bits on the fly,
+ * without building the tokens, and numbered in a {@link LongIntMap}. Each feature keeps the classes it was seen in
+ * with their counts in two small arrays; a class is an expense or an income, with its numbers of transactions and of
+ * features. The probabilities are smoothed by adding one to every count.
+ * <p>
+ * A suggestion only adds up the counts of the features of the transaction, and then compares the classes of its kind,
+ * the expenses for a debit and the incomes for a credit. The logarithms depending on the class totals are kept up to
+ * date by the changes, and the buffers are kept per thread, so that a suggestion allocates nothing but its result:
+ * it can run inline in the import pipeline.
+ * <p>
+ * Learning and suggesting can run concurrently, suggestions share a read lock. Counts never go below zero, should a
+ * transaction be forgotten in another category than the one it was learned in.
+ */
+public final class TransactionClassifier {
+
+    private static final int EXPENSE = 0;
+
+    private static final int INCOME = 1;
+
+    private static final int NO_CLASS = -1;
+
+    /**
+     * Laplace smoothing: every feature is counted once more in every class.
+     */
+    private static final double ALPHA = 1.0;
+
+    private static final double LOG_ALPHA = Math.log(ALPHA);
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Sets the hashes of the amounts apart from the ones of the tokens.
+     */
+    private static final long AMOUNT_SEED = 0x9E3779B97F4A7C15L;
+
+    /**
+     * {@code log(count + ALPHA) - log(ALPHA)} for the small counts, most of them.
+     */
+    private static final double[] LOG_COUNTS = new double[1024];
+
+    static {
+        for (int count = 0; count < LOG_COUNTS.length; count++) {
+            LOG_COUNTS[count] = Math.log(count + ALPHA) - LOG_ALPHA;
+        }
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final LongIntMap featureNumbers = new LongIntMap();
+
+    private int[][] featureClasses = new int[64][];
+
+    private int[][] featureCounts = new int[64][];
+
+    private final LongIntMap classNumbers = new LongIntMap();
+
+    private int classes;
+
+    private long[] classRuleIds = new long[16];
+
+    private int[] classKinds = new int[16];
+
+    private long[] classDocuments = new long[16];
+
+    private long[] classFeatures = new long[16];
+
+    private final long[] kindDocuments = new long[2];
+
+    /**
+     * The logarithm of the share of the transactions of its kind in each class, negative infinity for none.
+     */
+    private double[] logPriors = new double[16];
+
+    /**
+     * The logarithm of the smoothed number of features of each class.
+     */
+    private double[] logDenominators = new double[16];
+
+    /**
+     * Learn the change of a transaction.
+     *
+     * @param previous the transaction as it was learned, null for a new transaction.
+     * @param current the transaction as it is now, null for a deleted transaction.
+     */
+    public void learn(Transaction previous, Transaction current) {
+        lock.writeLock().lock();
+        try {
+            count(previous, -1);
+            count(current, 1);
+            updateLogarithms();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param transactions transactions never learned, the ones without expense nor income are skipped.
+     */
+    public void learnAll(Collection<Transaction> transactions) {
+        lock.writeLock().lock();
+        try {
+            for (Transaction transaction : transactions) {
+                count(transaction, 1);
+            }
+            updateLogarithms();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param transaction a transaction, categorized or not.
+     * @return the most likely expense of a debit or income of a credit, with its probability, or null if no
+     * transaction of its kind was learned.
+     */
+    public CategorySuggestionDTO suggest(Transaction transaction) {
+        Scratch scratch = SCRATCH.get();
+        int best = classify(transaction, scratch);
+        if (best == NO_CLASS) {
+            return null;
+        }
+        Long ruleId = scratch.ruleId;
+        return scratch.kind == EXPENSE
+            ? new CategorySuggestionDTO(ruleId, null, scratch.confidence)
+            : new CategorySuggestionDTO(null, ruleId, scratch.confidence);
+    }
+
+    /**
+     * Set the expense or the income suggested for the transaction, if it has none yet and the suggestion is confident
+     * enough.
+     *
+     * @param transaction the transaction to categorize.
+     * @param minConfidence the probability the suggestion must reach.
+     * @return the same transaction.
+     */
+    public Transaction categorize(Transaction transaction, double minConfidence) {
+        if (transaction.getExpenseId() != null || transaction.getIncomeId() != null) {
+            return transaction;
+        }
+        Scratch scratch = SCRATCH.get();
+        if (classify(transaction, scratch) != NO_CLASS && scratch.confidence >= minConfidence) {
+            if (scratch.kind == EXPENSE) {
+                transaction.setExpenseId(scratch.ruleId);
+            } else {
+                transaction.setIncomeId(scratch.ruleId);
+            }
+        }
+        return transaction;
+    }
+
+    /**
+     * @return the number of expenses and incomes learned.
+     */
+    public int classes() {
+        lock.readLock().lock();
+        try {
+            return classes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct tokens and amount magnitudes learned.
+     */
+    public int features() {
+        lock.readLock().lock();
+        try {
+            return featureNumbers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int classify(Transaction transaction, Scratch scratch) {
+        Long amount = transaction.getAmountCAD() != null ? transaction.getAmountCAD() : transaction.getAmountUSD();
+        if (amount == null || amount == 0) {
+            return NO_CLASS;
+        }
+        int kind = amount < 0 ? EXPENSE : INCOME;
+        lock.readLock().lock();
+        try {
+            if (kindDocuments[kind] == 0) {
+                return NO_CLASS;
+            }
+            int features = scratch.extract(transaction);
+            double[] scores = scratch.scores(classes);
+            int known = 0;
+            for (int i = 0; i < features; i++) {
+                int feature = featureNumbers.get(scratch.features[i]);
+                if (feature == LongIntMap.MISSING) {
+                    // the same for every class, as if the feature was not there
+                    continue;
+                }
+                known++;
+                int[] featureClass = featureClasses[feature];
+                int[] featureCount = featureCounts[feature];
+                for (int j = 0; j < featureClass.length; j++) {
+                    int count = featureCount[j];
+                    scores[featureClass[j]] += count < LOG_COUNTS.length ? LOG_COUNTS[count] : Math.log(count + ALPHA) - LOG_ALPHA;
+                }
+            }
+            int best = NO_CLASS;
+            for (int c = 0; c < classes; c++) {
+                if (classKinds[c] != kind || classDocuments[c] == 0) {
+                    scores[c] = Double.NEGATIVE_INFINITY;
+                    continue;
+                }
+                scores[c] += logPriors[c] + known * (LOG_ALPHA - logDenominators[c]);
+                if (best == NO_CLASS || scores[c] > scores[best]) {
+                    best = c;
+                }
+            }
+            if (best == NO_CLASS) {
+                return NO_CLASS;
+            }
+            double sum = 0;
+            for (int c = 0; c < classes; c++) {
+                sum += Math.exp(scores[c] - scores[best]);
+            }
+            scratch.kind = kind;
+            scratch.ruleId = classRuleIds[best];
+            scratch.confidence = 1 / sum;
+            return best;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void count(Transaction transaction, int delta) {
+        if (transaction == null) {
+            return;
+        }
+        int kind;
+        long ruleId;
+        if (transaction.getExpenseId() != null) {
+            kind = EXPENSE;
+            ruleId = transaction.getExpenseId();
+        } else if (transaction.getIncomeId() != null) {
+            kind = INCOME;
+            ruleId = transaction.getIncomeId();
+        } else {
+            return;
+        }
+        long classKey = (ruleId << 1) | kind;
+        int c = classNumbers.get(classKey);
+        if (c == LongIntMap.MISSING) {
+            if (delta < 0) {
+                return;
+            }
+            c = newClass(classKey, ruleId, kind);
+        } else if (delta < 0 && classDocuments[c] == 0) {
+            return;
+        }
+        Scratch scratch = SCRATCH.get();
+        int features = scratch.extract(transaction);
+        classDocuments[c] += delta;
+        kindDocuments[kind] += delta;
+        classFeatures[c] = Math.max(0, classFeatures[c] + (long) delta * features);
+        for (int i = 0; i < features; i++) {
+            int feature = featureNumbers.get(scratch.features[i]);
+            if (feature == LongIntMap.MISSING) {
+                if (delta < 0) {
+                    continue;
+                }
+                feature = newFeature(scratch.features[i]);
+            }
+            add(feature, c, delta);
+        }
+    }
+
+    private int newClass(long classKey, long ruleId, int kind) {
+        if (classes == classRuleIds.length) {
+            int capacity = classes * 2;
+            classRuleIds = Arrays.copyOf(classRuleIds, capacity);
+            classKinds = Arrays.copyOf(classKinds, capacity);
+            classDocuments = Arrays.copyOf(classDocuments, capacity);
+            classFeatures = Arrays.copyOf(classFeatures, capacity);
+            logPriors = Arrays.copyOf(logPriors, capacity);
+            logDenominators = Arrays.copyOf(logDenominators, capacity);
+        }
+        classRuleIds[classes] = ruleId;
+        classKinds[classes] = kind;
+        classNumbers.put(classKey, classes);
+        return classes++;
+    }
+
+    private int newFeature(long hash) {
+        int feature = featureNumbers.size();
+        if (feature == featureClasses.length) {
+            featureClasses = Arrays.copyOf(featureClasses, feature * 2);
+            featureCounts = Arrays.copyOf(featureCounts, feature * 2);
+        }
+        featureClasses[feature] = new int[0];
+        featureCounts[feature] = new int[0];
+        featureNumbers.put(hash, feature);
+        return feature;
+    }
+
+    private void add(int feature, int c, int delta) {
+        int[] featureClass = featureClasses[feature];
+        for (int j = 0; j < featureClass.length; j++) {
+            if (featureClass[j] == c) {
+                featureCounts[feature][j] = Math.max(0, featureCounts[feature][j] + delta);
+                return;
+            }
+        }
+        if (delta > 0) {
+            featureClasses[feature] = Arrays.copyOf(featureClass, featureClass.length + 1);
+            featureClasses[feature][featureClass.length] = c;
+            featureCounts[feature] = Arrays.copyOf(featureCounts[feature], featureClass.length + 1);
+            featureCounts[feature][featureClass.length] = delta;
+        }
+    }
+
+    private void updateLogarithms() {
+        double vocabulary = ALPHA * featureNumbers.size();
+        for (int c = 0; c < classes; c++) {
+            long documents = kindDocuments[classKinds[c]];
+            logPriors[c] = classDocuments[c] == 0 ? Double.NEGATIVE_INFINITY : Math.log((double) classDocuments[c] / documents);
+            logDenominators[c] = Math.log(classFeatures[c] + vocabulary);
+        }
+    }
+
+    /**
+     * The buffers of a thread, reused from one transaction to the next.
+     */
+    private static final class Scratch {
+
+        private long[] features = new long[32];
+
+        private double[] scores = new double[16];
+
+        private int kind;
+
+        private long ruleId;
+
+        private double confidence;
+
+        /**
+         * Hash the tokens of the descriptions and the magnitude of the amount of a transaction into {@link #features}.
+         *
+         * @return the number of features.
+         */
+        int extract(Transaction transaction) {
+            int size = tokens(transaction.getDescription1(), 0);
+            size = tokens(transaction.getDescription2(), size);
+            Long amount = transaction.getAmountCAD() != null ? transaction.getAmountCAD() : transaction.getAmountUSD();
+            if (amount != null) {
+                int magnitude = 64 - Long.numberOfLeadingZeros(Math.abs(amount));
+                size = add(size, AMOUNT_SEED ^ (magnitude * FNV_PRIME));
+            }
+            return size;
+        }
+
+        /**
+         * @return the scores of the classes, all zero.
+         */
+        double[] scores(int classes) {
+            if (scores.length < classes) {
+                scores = new double[Math.max(classes, scores.length * 2)];
+            } else {
+                Arrays.fill(scores, 0, classes, 0);
+            }
+            return scores;
+        }
+
+        private int tokens(String description, int size) {
+            if (description == null) {
+                return size;
+            }
+            long hash = FNV_OFFSET;
+            boolean inToken = false;
+            for (int i = 0; i < description.length(); i++) {
+                char c = description.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    hash = (hash ^ Character.toUpperCase(c)) * FNV_PRIME;
+                    inToken = true;
+                } else if (inToken) {
+                    size = add(size, hash);
+                    hash = FNV_OFFSET;
+                    inToken = false;
+                }
+            }
+            return inToken ? add(size, hash) : size;
+        }
+
+        private int add(int size, long feature) {
+            if (size == features.length) {
+                features = Arrays.copyOf(features, size * 2);
+            }
+            features[size] = feature;
+            return size + 1;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import org.diytechprojects.financialanalyst.domain.Transaction;
+
+/**
+ * Cleans up the free text fields of a transaction as exported by banks: surrounding blanks are removed,
+ * runs of whitespace are collapsed into a single space and blank values become null.
+ */
+public final class TransactionNormalizer {
+
+    private TransactionNormalizer() {}
+
+    /**
+     * Normalize the text fields of the transaction in place.
+     *
+     * @param transaction the transaction to clean up.
+     * @return the same transaction.
+     */
+    public static Transaction normalize(Transaction transaction) {
+        transaction.setAccountType(normalize(transaction.getAccountType()));
+        transaction.setChequeNumber(normalize(transaction.getChequeNumber()));
+        transaction.setDescription1(normalize(transaction.getDescription1()));
+        transaction.setDescription2(normalize(transaction.getDescription2()));
+        return transaction;
+    }
+
+    /**
+     * @return the value without surrounding blanks and with its runs of whitespace collapsed, null if it is blank.
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        StringBuilder normalized = null;
+        int length = value.length();
+        boolean pendingSpace = false;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                if (normalized == null) {
+                    normalized = new StringBuilder(length).append(value, 0, i);
+                }
+                continue;
+            }
+            if (normalized != null) {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(c);
+            }
+            pendingSpace = false;
+        }
+        String result = normalized == null ? value : normalized.toString();
+        return result.isEmpty() ? null : result;
+    }
+}
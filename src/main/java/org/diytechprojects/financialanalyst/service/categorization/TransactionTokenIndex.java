@@ -0,0 +1,726 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Inverted index from the tokens of the descriptions of the transactions to the ids of the transactions containing
+ * them, telling which transactions a search string could match without reading the descriptions of the others, and
+ * answering full-text searches.
+ * <p>
+ * A token is a maximal run of letters and digits of {@code description1} or {@code description2}, upper-cased
+ * character by character the way the {@link TransactionCategorizer} reads the descriptions. The tokens are numbered
+ * in a dictionary; each transaction keeps the numbers of its tokens, so that it can be updated or removed without
+ * reading its former descriptions again. The transactions are numbered in slots, in a {@link LongIntMap} from their
+ * ids: no boxed id nor map entry per transaction.
+ * <p>
+ * The ids of the transactions containing a token are kept in ascending order, each as its difference with the
+ * previous one in a variable-length encoding: about one byte per id for the frequent tokens. Every
+ * {@value Postings#SKIP_INTERVAL} ids, a skip entry tells where to resume decoding, so intersecting a rare token with
+ * a frequent one skips most of the latter. The ids removed, and the ids added below the last one, are kept aside in
+ * small sorted arrays the reads merge, and encoded with the others once there are enough of them: a change never
+ * decodes the whole list.
+ * <p>
+ * The candidates of a search string are a superset of the transactions it matches, the exact match is left to the
+ * categorizer. Instances are thread safe.
+ */
+public final class TransactionTokenIndex {
+
+    private static final long[] NO_IDS = new long[0];
+
+    private static final int[] NO_TOKENS = new int[0];
+
+    /**
+     * BM25 saturation of the term frequency. A token counts once per transaction, so it only weighs the length
+     * normalization.
+     */
+    private static final double K1 = 1.2;
+
+    /**
+     * BM25 length normalization: a token weighs more in short descriptions.
+     */
+    private static final double B = 0.75;
+
+    private final Map<String, Integer> tokenNumbers = new HashMap<>();
+
+    private String[] tokens = new String[16];
+
+    private Postings[] postings = new Postings[16];
+
+    /**
+     * The slot of each transaction ever indexed; a removed transaction keeps its slot for when it is indexed again.
+     */
+    private final LongIntMap slots = new LongIntMap();
+
+    private long[] slotIds = new long[16];
+
+    /**
+     * The numbers of the tokens of the transaction of each slot, null once it is removed.
+     */
+    private int[][] slotTokens = new int[16][];
+
+    /**
+     * The number of indexed transactions.
+     */
+    private int indexed;
+
+    /**
+     * The number of tokens of at least one transaction.
+     */
+    private int usedTokens;
+
+    /**
+     * The sum of the number of tokens of the transactions, for their average length.
+     */
+    private long totalLength;
+
+    /**
+     * Index a transaction, replacing its former descriptions if it was already indexed.
+     *
+     * @param id the id of the transaction.
+     * @param description1 its first description, or null.
+     * @param description2 its second description, or null.
+     */
+    public synchronized void put(long id, String description1, String description2) {
+        remove(id);
+        String[] values = tokenize(description1, description2);
+        int[] numbers = values.length == 0 ? NO_TOKENS : new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            numbers[i] = number(values[i]);
+            if (postings[numbers[i]].size() == 0) {
+                usedTokens++;
+            }
+            postings[numbers[i]].add(id);
+        }
+        int slot = slots.get(id);
+        if (slot == LongIntMap.MISSING) {
+            slot = slots.size();
+            if (slot == slotIds.length) {
+                slotIds = Arrays.copyOf(slotIds, slot * 2);
+                slotTokens = Arrays.copyOf(slotTokens, slot * 2);
+            }
+            slots.put(id, slot);
+            slotIds[slot] = id;
+        }
+        slotTokens[slot] = numbers;
+        indexed++;
+        totalLength += numbers.length;
+    }
+
+    /**
+     * Index a transaction unless it already is, for readers catching up with rows written by others.
+     *
+     * @return true if the transaction was indexed.
+     */
+    public synchronized boolean putIfAbsent(long id, String description1, String description2) {
+        if (tokens(id) != null) {
+            return false;
+        }
+        put(id, description1, description2);
+        return true;
+    }
+
+    /**
+     * @param id the id of a transaction, indexed or not.
+     */
+    public synchronized void remove(long id) {
+        int[] numbers = tokens(id);
+        if (numbers == null) {
+            return;
+        }
+        slotTokens[slots.get(id)] = null;
+        indexed--;
+        for (int number : numbers) {
+            postings[number].remove(id);
+            if (postings[number].size() == 0) {
+                usedTokens--;
+            }
+        }
+        totalLength -= numbers.length;
+    }
+
+    /**
+     * The transactions whose descriptions could contain a search string.
+     * <p>
+     * Only the longest run of letters and digits of the search string is looked up. A run surrounded by other
+     * characters in the search string must be a whole token of the description; a run starting or ending the search
+     * string may also be the end or the start of a longer token, so the dictionary is scanned for the tokens ending
+     * or starting with it. A search string without letters nor digits could match any transaction.
+     *
+     * @param searchString a search string, already trimmed and upper-cased.
+     * @return the ids of the candidate transactions, in ascending order.
+     */
+    public synchronized long[] candidates(String searchString) {
+        int bestStart = 0;
+        int bestEnd = 0;
+        for (int start = 0; start < searchString.length(); ) {
+            int end = start;
+            while (end < searchString.length() && Character.isLetterOrDigit(searchString.charAt(end))) {
+                end++;
+            }
+            if (end - start > bestEnd - bestStart) {
+                bestStart = start;
+                bestEnd = end;
+            }
+            start = end + 1;
+        }
+        if (bestEnd == bestStart) {
+            return all();
+        }
+        String run = searchString.substring(bestStart, bestEnd);
+        boolean openStart = bestStart == 0;
+        boolean openEnd = bestEnd == searchString.length();
+        if (!openStart && !openEnd) {
+            Integer number = tokenNumbers.get(run);
+            return number == null ? NO_IDS : postings[number].toArray();
+        }
+        long[] candidates = NO_IDS;
+        int size = 0;
+        for (int number = 0; number < tokenNumbers.size(); number++) {
+            String token = tokens[number];
+            boolean matches = openStart && openEnd ? token.contains(run) : openStart ? token.endsWith(run) : token.startsWith(run);
+            if (matches && postings[number].size() > 0) {
+                long[] ids = postings[number].toArray();
+                if (size + ids.length > candidates.length) {
+                    candidates = Arrays.copyOf(candidates, Math.max(size + ids.length, candidates.length * 2));
+                }
+                System.arraycopy(ids, 0, candidates, size, ids.length);
+                size += ids.length;
+            }
+        }
+        return distinct(candidates, size);
+    }
+
+    /**
+     * Full-text search: the transactions containing every token of the query, best first.
+     * <p>
+     * The matches are ranked by their BM25 score: rare tokens weigh more than frequent ones, and a token weighs more
+     * in a short description than in a long one. Ties go to the most recent transaction, the one with the highest id.
+     *
+     * @param query the words to search, in any case.
+     * @param maxHits the number of best matches to return.
+     * @return the best matches, and the number of matches.
+     */
+    public synchronized Hits search(String query, int maxHits) {
+        String[] values = tokenize(query, null);
+        if (values.length == 0) {
+            return new Hits(NO_IDS, 0);
+        }
+        Postings[] terms = new Postings[values.length];
+        for (int i = 0; i < values.length; i++) {
+            Integer number = tokenNumbers.get(values[i]);
+            if (number == null || postings[number].size() == 0) {
+                return new Hits(NO_IDS, 0);
+            }
+            terms[i] = postings[number];
+        }
+        // the rarest token drives the intersection, the others skip forward to its ids
+        Arrays.sort(terms, (first, second) -> Integer.compare(first.size(), second.size()));
+        double idf = 0;
+        for (Postings term : terms) {
+            idf += Math.log(1 + (indexed - term.size() + 0.5) / (term.size() + 0.5));
+        }
+        double averageLength = (double) totalLength / indexed;
+        Postings.Cursor driver = terms[0].cursor();
+        Postings.Cursor[] others = new Postings.Cursor[terms.length - 1];
+        for (int i = 1; i < terms.length; i++) {
+            others[i - 1] = terms[i].cursor();
+        }
+
+        PriorityQueue<Hit> best = new PriorityQueue<>();
+        int total = 0;
+        while (driver.next()) {
+            int match = matchAll(others, driver.id);
+            if (match < 0) {
+                break;
+            }
+            if (match == 0) {
+                continue;
+            }
+            total++;
+            if (maxHits > 0) {
+                int length = tokens(driver.id).length;
+                Hit hit = new Hit(driver.id, idf * (K1 + 1) / (1 + K1 * (1 - B + B * length / averageLength)));
+                if (best.size() < maxHits) {
+                    best.add(hit);
+                } else if (hit.compareTo(best.peek()) > 0) {
+                    best.poll();
+                    best.add(hit);
+                }
+            }
+        }
+        long[] ids = new long[best.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = best.poll().id;
+        }
+        return new Hits(ids, total);
+    }
+
+    /**
+     * @return the number of indexed transactions.
+     */
+    public synchronized int size() {
+        return indexed;
+    }
+
+    /**
+     * @return the number of distinct tokens.
+     */
+    public synchronized int tokens() {
+        return usedTokens;
+    }
+
+    /**
+     * @return the number of bytes of the encoded ids and of the changes kept aside, all tokens together.
+     */
+    public synchronized long postingsBytes() {
+        long bytes = 0;
+        for (int number = 0; number < tokenNumbers.size(); number++) {
+            bytes += postings[number].bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return 1 if every cursor reaches the id, 0 if one skips past it, -1 if one is exhausted.
+     */
+    private static int matchAll(Postings.Cursor[] cursors, long id) {
+        for (Postings.Cursor cursor : cursors) {
+            if (!cursor.advance(id)) {
+                return -1;
+            }
+            if (cursor.id != id) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * @return the numbers of the tokens of a transaction, null if it is not indexed.
+     */
+    private int[] tokens(long id) {
+        int slot = slots.get(id);
+        return slot == LongIntMap.MISSING ? null : slotTokens[slot];
+    }
+
+    private int number(String token) {
+        Integer number = tokenNumbers.get(token);
+        if (number != null) {
+            return number;
+        }
+        int next = tokenNumbers.size();
+        if (next == tokens.length) {
+            tokens = Arrays.copyOf(tokens, next * 2);
+            postings = Arrays.copyOf(postings, next * 2);
+        }
+        tokens[next] = token;
+        postings[next] = new Postings();
+        tokenNumbers.put(token, next);
+        return next;
+    }
+
+    private long[] all() {
+        long[] ids = new long[indexed];
+        int size = 0;
+        for (int slot = 0; slot < slots.size(); slot++) {
+            if (slotTokens[slot] != null) {
+                ids[size++] = slotIds[slot];
+            }
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static long[] distinct(long[] ids, int size) {
+        Arrays.sort(ids, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, distinct);
+    }
+
+    /**
+     * @return the distinct tokens of the descriptions.
+     */
+    static String[] tokenize(String description1, String description2) {
+        Set<String> tokens = new LinkedHashSet<>();
+        StringBuilder token = new StringBuilder();
+        for (String description : new String[] { description1, description2 }) {
+            if (description == null) {
+                continue;
+            }
+            for (int i = 0; i <= description.length(); i++) {
+                if (i < description.length() && Character.isLetterOrDigit(description.charAt(i))) {
+                    token.append(Character.toUpperCase(description.charAt(i)));
+                } else if (token.length() > 0) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                }
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    /**
+     * The outcome of a search.
+     */
+    public static final class Hits {
+
+        private final long[] ids;
+
+        private final int total;
+
+        Hits(long[] ids, int total) {
+            this.ids = ids;
+            this.total = total;
+        }
+
+        /**
+         * @return the ids of the best matches, best first.
+         */
+        public long[] getIds() {
+            return ids;
+        }
+
+        /**
+         * @return the number of matches, returned or not.
+         */
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    private static final class Hit implements Comparable<Hit> {
+
+        private final long id;
+
+        private final double score;
+
+        Hit(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Hit other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : Long.compare(id, other.id);
+        }
+    }
+
+    /**
+     * The ids of the transactions containing a token, in ascending order, delta-encoded 7 bits per byte. Ids are
+     * mostly appended as they grow with the inserts. The ids added below the last one encoded, and the ids encoded
+     * then removed, are kept aside in sorted arrays merged by the cursors; they are encoded with the others once they
+     * outnumber the square root of the ids encoded, so that a change costs {@code O(sqrt(n))} amortized.
+     */
+    static final class Postings {
+
+        static final int SKIP_INTERVAL = 128;
+
+        /**
+         * The number of changes kept aside at least before the ids are encoded again.
+         */
+        static final int MIN_CHANGES = 32;
+
+        private byte[] data = new byte[4];
+
+        private int length;
+
+        /**
+         * The number of ids encoded, the removed ones included.
+         */
+        private int encoded;
+
+        private long last;
+
+        /**
+         * The id at each multiple of {@link #SKIP_INTERVAL}, and the offset of its encoded delta.
+         */
+        private long[] skipIds = NO_IDS;
+
+        private int[] skipOffsets = NO_TOKENS;
+
+        /**
+         * The ids added below the last one encoded, in ascending order, none of them encoded.
+         */
+        private long[] added = NO_IDS;
+
+        private int addedCount;
+
+        /**
+         * The ids encoded then removed, in ascending order.
+         */
+        private long[] removed = NO_IDS;
+
+        private int removedCount;
+
+        /**
+         * @param id an id not in the list.
+         */
+        void add(long id) {
+            int index = Arrays.binarySearch(removed, 0, removedCount, id);
+            if (index >= 0) {
+                // still encoded
+                removedCount = delete(removed, removedCount, index);
+            } else if (encoded == 0 || id > last) {
+                append(id);
+            } else {
+                index = Arrays.binarySearch(added, 0, addedCount, id);
+                if (index < 0) {
+                    added = insert(added, addedCount++, -index - 1, id);
+                    compactIfNeeded();
+                }
+            }
+        }
+
+        void remove(long id) {
+            int index = Arrays.binarySearch(added, 0, addedCount, id);
+            if (index >= 0) {
+                addedCount = delete(added, addedCount, index);
+            } else if (encoded > 0 && id <= last) {
+                index = Arrays.binarySearch(removed, 0, removedCount, id);
+                if (index < 0) {
+                    removed = insert(removed, removedCount++, -index - 1, id);
+                    compactIfNeeded();
+                }
+            }
+        }
+
+        long[] toArray() {
+            long[] ids = new long[size()];
+            Cursor cursor = cursor();
+            for (int i = 0; cursor.next(); i++) {
+                ids[i] = cursor.id;
+            }
+            return ids;
+        }
+
+        int size() {
+            return encoded - removedCount + addedCount;
+        }
+
+        long bytes() {
+            return data.length + skipIds.length * 8L + skipOffsets.length * 4L + (added.length + removed.length) * 8L;
+        }
+
+        Cursor cursor() {
+            return new Cursor();
+        }
+
+        private void compactIfNeeded() {
+            if (addedCount + removedCount > Math.max(MIN_CHANGES, Math.sqrt(encoded))) {
+                encode(toArray());
+            }
+        }
+
+        private void encode(long[] ids) {
+            data = new byte[Math.max(4, ids.length * 2)];
+            length = 0;
+            encoded = 0;
+            last = 0;
+            skipIds = new long[(ids.length + SKIP_INTERVAL - 1) / SKIP_INTERVAL];
+            skipOffsets = new int[skipIds.length];
+            added = NO_IDS;
+            addedCount = 0;
+            removed = NO_IDS;
+            removedCount = 0;
+            for (long id : ids) {
+                append(id);
+            }
+            data = Arrays.copyOf(data, Math.max(4, length));
+        }
+
+        private void append(long id) {
+            if (encoded % SKIP_INTERVAL == 0) {
+                int skip = encoded / SKIP_INTERVAL;
+                if (skip == skipIds.length) {
+                    skipIds = Arrays.copyOf(skipIds, Math.max(1, skip * 2));
+                    skipOffsets = Arrays.copyOf(skipOffsets, skipIds.length);
+                }
+                skipIds[skip] = id;
+                skipOffsets[skip] = length;
+            }
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, Math.max(length + 10, data.length * 2));
+            }
+            long delta = id - last;
+            while ((delta & ~0x7FL) != 0) {
+                data[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+            last = id;
+            encoded++;
+        }
+
+        /**
+         * @return the array with the id inserted at the index, grown if full.
+         */
+        private static long[] insert(long[] ids, int size, int index, long id) {
+            long[] inserted = size == ids.length ? Arrays.copyOf(ids, Math.max(4, size * 2)) : ids;
+            System.arraycopy(inserted, index, inserted, index + 1, size - index);
+            inserted[index] = id;
+            return inserted;
+        }
+
+        /**
+         * @return the size once the id at the index is deleted.
+         */
+        private static int delete(long[] ids, int size, int index) {
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            return size - 1;
+        }
+
+        /**
+         * Reads the ids in ascending order, starting before the first one: the encoded ids not removed, merged with
+         * the ids added aside.
+         */
+        final class Cursor {
+
+            /**
+             * The offset of the next encoded delta, and the number of ids decoded.
+             */
+            private int offset;
+
+            private int index;
+
+            /**
+             * The last id decoded, and whether it is still to be read, past the ids added before it.
+             */
+            private long decoded;
+
+            private boolean pending;
+
+            /**
+             * The next id added and the next id removed to look at.
+             */
+            private int nextAdded;
+
+            private int nextRemoved;
+
+            private boolean started;
+
+            private long id;
+
+            /**
+             * @return false once past the last id.
+             */
+            boolean next() {
+                if (!pending) {
+                    pending = decode();
+                }
+                boolean hasAdded = nextAdded < addedCount;
+                if (!pending && !hasAdded) {
+                    return false;
+                }
+                if (hasAdded && (!pending || added[nextAdded] < decoded)) {
+                    id = added[nextAdded++];
+                } else {
+                    id = decoded;
+                    pending = false;
+                }
+                started = true;
+                return true;
+            }
+
+            long id() {
+                return id;
+            }
+
+            /**
+             * Move to the first id greater than or equal to a target, unless already there.
+             *
+             * @return false if every id left is lower than the target.
+             */
+            boolean advance(long target) {
+                if (started && id >= target) {
+                    return true;
+                }
+                if (!pending || decoded < target) {
+                    pending = false;
+                    skipTo(target);
+                }
+                int firstAdded = Arrays.binarySearch(added, nextAdded, addedCount, target);
+                nextAdded = firstAdded < 0 ? -firstAdded - 1 : firstAdded;
+                while (next()) {
+                    if (id >= target) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            /**
+             * Decode the next encoded id not removed.
+             *
+             * @return false once past the last one.
+             */
+            private boolean decode() {
+                while (index < encoded) {
+                    long delta = 0;
+                    for (int shift = 0;; shift += 7) {
+                        byte b = data[offset++];
+                        delta |= (long) (b & 0x7F) << shift;
+                        if (b >= 0) {
+                            break;
+                        }
+                    }
+                    decoded = index == 0 ? delta : decoded + delta;
+                    index++;
+                    while (nextRemoved < removedCount && removed[nextRemoved] < decoded) {
+                        nextRemoved++;
+                    }
+                    if (nextRemoved == removedCount || removed[nextRemoved] != decoded) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            /**
+             * Move the decoding to the last skip entry not past a target, unless it is read already.
+             */
+            private void skipTo(long target) {
+                // the first skip entry not read yet, and the last one not past the target
+                int skip = (index + SKIP_INTERVAL - 1) / SKIP_INTERVAL;
+                int skips = (encoded + SKIP_INTERVAL - 1) / SKIP_INTERVAL;
+                if (skip < skips && skipIds[skip] <= target) {
+                    int low = skip;
+                    int high = skips - 1;
+                    while (low < high) {
+                        int middle = (low + high + 1) >>> 1;
+                        if (skipIds[middle] <= target) {
+                            low = middle;
+                        } else {
+                            high = middle - 1;
+                        }
+                    }
+                    // resume just before the skip entry, its delta is read again to land on its id
+                    offset = skipOffsets[low];
+                    index = low * SKIP_INTERVAL;
+                    decoded = skipIds[low] - delta(offset);
+                }
+            }
+
+            private long delta(int position) {
+                long delta = 0;
+                for (int shift = 0;; shift += 7) {
+                    byte b = data[position++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    if (b >= 0) {
+                        return delta;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of texts by their trigrams, finding the texts within a few edits of a query without computing the edit
+ * distance to every text: the bank descriptions of a merchant vary from one transaction to the next
+ * ("AMAZON.CA", "AMAZON CA", "AMAZN.CA").
+ * <p>
+ * Texts are normalized first: upper-cased character by character, every run of other characters than letters and
+ * digits replaced by a single space. The trigrams of a text are the runs of three characters of the text padded with
+ * two blanks on each side, so that a text of n characters has n + 2 of them. An edit changes at most three of them,
+ * hence a text within k edits of a query has all the distinct trigrams of the query but 3k at most. Only the texts
+ * reaching that count are compared to the query, with an edit distance computation that stops past k edits; a text
+ * must be in one of the shortest lists of ids of those trigrams to reach it, the longer lists are only probed for
+ * these candidates.
+ * <p>
+ * The number of edits allowed is lowered for short queries so that a candidate shares at least one trigram with the
+ * query: a lookup never degrades into a comparison with every text.
+ * <p>
+ * The ids of the texts having a trigram are delta-encoded as in the {@link TransactionTokenIndex}, and each text is
+ * kept to be compared and to be unindexed. Instances are thread safe.
+ */
+public final class TrigramIndex {
+
+    private static final char PAD = '\0';
+
+    /**
+     * Estimated bytes of a map entry keyed by a {@link Long}: the entry and the boxed key, on a 64-bit JVM with
+     * compressed references.
+     */
+    private static final int ENTRY_BYTES = 48;
+
+    /**
+     * Estimated bytes of a {@link TransactionTokenIndex.Postings} besides its arrays, including their headers.
+     */
+    private static final int POSTINGS_BYTES = 112;
+
+    /**
+     * Estimated bytes of a {@link String} besides its characters, including the header of its array.
+     */
+    private static final int STRING_BYTES = 40;
+
+    private static final Comparator<Match> BY_DISTANCE = Comparator
+        .comparingInt(Match::getDistance)
+        .thenComparing(Comparator.comparingLong(Match::getId).reversed());
+
+    private final Map<Long, TransactionTokenIndex.Postings> postings = new HashMap<>();
+
+    private final Map<Long, String> texts = new HashMap<>();
+
+    /**
+     * The estimated bytes of the texts and their entries, kept as they change: there are far fewer trigrams to sum.
+     */
+    private long textBytes;
+
+    /**
+     * Index a text, replacing the former text of the id if any.
+     *
+     * @param id the id of the text.
+     * @param text the text, or null.
+     */
+    public synchronized void put(long id, String text) {
+        remove(id);
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        texts.put(id, normalized);
+        textBytes += textBytes(normalized);
+        for (long trigram : trigrams(normalized)) {
+            postings.computeIfAbsent(trigram, key -> new TransactionTokenIndex.Postings()).add(id);
+        }
+    }
+
+    /**
+     * Index a text unless the id is indexed already.
+     *
+     * @return whether the text was indexed.
+     */
+    public synchronized boolean putIfAbsent(long id, String text) {
+        if (texts.containsKey(id)) {
+            return false;
+        }
+        put(id, text);
+        return true;
+    }
+
+    public synchronized void remove(long id) {
+        String text = texts.remove(id);
+        if (text == null) {
+            return;
+        }
+        textBytes -= textBytes(text);
+        for (long trigram : trigrams(text)) {
+            TransactionTokenIndex.Postings ids = postings.get(trigram);
+            ids.remove(id);
+            if (ids.size() == 0) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    /**
+     * Find the texts within a number of edits of a query.
+     *
+     * @param query the text to look up, normalized as the indexed ones.
+     * @param maxEdits the number of insertions, deletions and substitutions allowed, lowered for short queries.
+     * @param limit the number of matches to return.
+     * @return the closest matches, the most recent first among equally close ones.
+     */
+    public synchronized List<Match> search(String query, int maxEdits, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        long[] trigrams = trigrams(normalized);
+        int edits = Math.max(0, Math.min(maxEdits, (trigrams.length - 1) / 3));
+        int threshold = trigrams.length - 3 * edits;
+        TransactionTokenIndex.Postings[] lists = new TransactionTokenIndex.Postings[trigrams.length];
+        for (int i = 0; i < trigrams.length; i++) {
+            lists[i] = postings.get(trigrams[i]);
+        }
+        Arrays.sort(lists, Comparator.comparingInt(TrigramIndex::size));
+
+        // a text having threshold of the trigrams has one of any trigrams.length - threshold + 1 of them: the rarest
+        int shortest = trigrams.length - threshold + 1;
+        int total = 0;
+        for (int i = 0; i < shortest; i++) {
+            total += size(lists[i]);
+        }
+        long[] found = new long[total];
+        int offset = 0;
+        for (int i = 0; i < shortest; i++) {
+            if (lists[i] != null) {
+                long[] ids = lists[i].toArray();
+                System.arraycopy(ids, 0, found, offset, ids.length);
+                offset += ids.length;
+            }
+        }
+        Arrays.sort(found);
+        long[] candidates = new long[found.length];
+        int[] counts = new int[found.length];
+        int size = 0;
+        for (int i = 0; i < found.length; i++) {
+            if (size > 0 && candidates[size - 1] == found[i]) {
+                counts[size - 1]++;
+            } else {
+                candidates[size] = found[i];
+                counts[size++] = 1;
+            }
+        }
+        for (int i = shortest; i < lists.length && size > 0; i++) {
+            TransactionTokenIndex.Postings.Cursor cursor = lists[i].cursor();
+            int left = lists.length - i;
+            for (int c = 0; c < size; c++) {
+                if (counts[c] + left < threshold) {
+                    continue;
+                }
+                if (!cursor.advance(candidates[c])) {
+                    break;
+                }
+                if (cursor.id() == candidates[c]) {
+                    counts[c]++;
+                }
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (int c = 0; c < size; c++) {
+            if (counts[c] >= threshold) {
+                int distance = EditDistance.bounded(normalized, texts.get(candidates[c]), edits);
+                if (distance <= edits) {
+                    matches.add(new Match(candidates[c], distance));
+                }
+            }
+        }
+        matches.sort(BY_DISTANCE);
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * @return the normalized text of an id, or null if it is not indexed.
+     */
+    public synchronized String text(long id) {
+        return texts.get(id);
+    }
+
+    public synchronized int size() {
+        return texts.size();
+    }
+
+    public synchronized int trigrams() {
+        return postings.size();
+    }
+
+    /**
+     * @return an estimate of the heap retained by the index: the encoded ids of the trigrams, the texts and the
+     * entries of the maps keeping them.
+     */
+    public synchronized long bytes() {
+        long bytes = textBytes;
+        for (TransactionTokenIndex.Postings ids : postings.values()) {
+            bytes += ENTRY_BYTES + POSTINGS_BYTES + ids.bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @param text a text, or null.
+     * @return the text upper-cased, with every run of other characters than letters and digits replaced by a single
+     * space, and trimmed.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean separator = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (separator && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(Character.toUpperCase(c));
+                separator = false;
+            } else {
+                separator = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * @return the distinct trigrams of a normalized text, three characters to a {@code long}.
+     */
+    static long[] trigrams(String normalized) {
+        long[] trigrams = new long[normalized.length() + 2];
+        char first = PAD;
+        char second = PAD;
+        for (int i = 0; i < trigrams.length; i++) {
+            char third = i < normalized.length() ? normalized.charAt(i) : PAD;
+            trigrams[i] = ((long) first << 32) | ((long) second << 16) | third;
+            first = second;
+            second = third;
+        }
+        Arrays.sort(trigrams);
+        int distinct = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (distinct == 0 || trigrams[distinct - 1] != trigrams[i]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    private static long textBytes(String text) {
+        // Latin-1 texts are stored one byte per character
+        return ENTRY_BYTES + STRING_BYTES + text.length();
+    }
+
+    private static int size(TransactionTokenIndex.Postings ids) {
+        return ids == null ? 0 : ids.size();
+    }
+
+    /**
+     * An indexed text within the edits allowed of a query.
+     */
+    public static final class Match {
+
+        private final long id;
+
+        private final int distance;
+
+        Match(long id, int distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * @return the number of edits between the text and the query.
+         */
+        public int getDistance() {
+            return distance;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Matching of transactions against the search strings of expenses and incomes.
+ */
+package org.diytechprojects.financialanalyst.service.categorization;
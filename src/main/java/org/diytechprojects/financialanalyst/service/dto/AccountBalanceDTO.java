@@ -0,0 +1,95 @@
+package org.diytechprojects.financialanalyst.service.dto;
+
+import java.time.LocalDate;
+
+/**
+ * A DTO describing the balance of an account type at a date, or the sum of its transactions over a range of dates.
+ */
+public class AccountBalanceDTO {
+
+    private String accountType;
+
+    private LocalDate from;
+
+    private LocalDate at;
+
+    private String currency;
+
+    private Long balance;
+
+    public AccountBalanceDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public AccountBalanceDTO(String accountType, LocalDate from, LocalDate at, String currency, Long balance) {
+        this.accountType = accountType;
+        this.from = from;
+        this.at = at;
+        this.currency = currency;
+        this.balance = balance;
+    }
+
+    public String getAccountType() {
+        return accountType;
+    }
+
+    public void setAccountType(String accountType) {
+        this.accountType = accountType;
+    }
+
+    /**
+     * @return the first day summed, inclusive, null for the balance since the first transaction.
+     */
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    /**
+     * @return the last day summed, inclusive, in UTC, null for the balance including every transaction.
+     */
+    public LocalDate getAt() {
+        return at;
+    }
+
+    public void setAt(LocalDate at) {
+        this.at = at;
+    }
+
+    /**
+     * @return {@code CAD} or {@code USD}.
+     */
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    /**
+     * @return the sum of the amounts of the transactions of the account type from the first to the last day.
+     */
+    public Long getBalance() {
+        return balance;
+    }
+
+    public void setBalance(Long balance) {
+        this.balance = balance;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "AccountBalanceDTO{" +
+            "accountType='" + getAccountType() + "'" +
+            ", from=" + getFrom() +
+            ", at=" + getAt() +
+            ", currency='" + getCurrency() + "'" +
+            ", balance=" + getBalance() +
+            "}";
+    }
+}
@@ -0,0 +1,78 @@
+package org.diytechprojects.financialanalyst.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO describing the incomes and the expenses of a range of dates, per day, week or month, each series downsampled
+ * to a number of points.
+ */
+public class CashflowDTO {
+
+    private String resolution;
+
+    private Long buckets;
+
+    private List<CashflowPointDTO> income = new ArrayList<>();
+
+    private List<CashflowPointDTO> expenses = new ArrayList<>();
+
+    public CashflowDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    /**
+     * @return {@code day}, {@code week} or {@code month}.
+     */
+    public String getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(String resolution) {
+        this.resolution = resolution;
+    }
+
+    /**
+     * @return the number of days, weeks or months having incomes or expenses, before downsampling.
+     */
+    public Long getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(Long buckets) {
+        this.buckets = buckets;
+    }
+
+    /**
+     * @return the sums of the amounts of the transactions of an income.
+     */
+    public List<CashflowPointDTO> getIncome() {
+        return income;
+    }
+
+    public void setIncome(List<CashflowPointDTO> income) {
+        this.income = income;
+    }
+
+    /**
+     * @return the sums of the amounts of the transactions of an expense, negative for the debits.
+     */
+    public List<CashflowPointDTO> getExpenses() {
+        return expenses;
+    }
+
+    public void setExpenses(List<CashflowPointDTO> expenses) {
+        this.expenses = expenses;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "CashflowDTO{" +
+            "resolution='" + resolution + "'" +
+            ", buckets=" + buckets +
+            ", income=" + income.size() + " points" +
+            ", expenses=" + expenses.size() + " points" +
+            "}";
+    }
+}
@@ -0,0 +1,50 @@
+package org.diytechprojects.financialanalyst.service.dto;
+
+import java.time.LocalDate;
+
+/**
+ * A DTO describing a point of a cash flow series: the sum of the amounts of a day, a week or a month.
+ */
+public class CashflowPointDTO {
+
+    private LocalDate date;
+
+    private Long amount;
+
+    public CashflowPointDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public CashflowPointDTO(LocalDate date, Long amount) {
+        this.date = date;
+        this.amount = amount;
+    }
+
+    /**
+     * @return the first day of the day, week or month, in UTC.
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "CashflowPointDTO{" +
+            "date=" + date +
+            ", amount=" + amount +
+            "}";
+    }
+}
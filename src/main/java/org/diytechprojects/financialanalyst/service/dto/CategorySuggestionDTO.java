@@ -0,0 +1,66 @@
+package org.diytechprojects.financialanalyst.service.dto;
+
+/**
+ * A DTO with the expense or the income suggested for a transaction, learned from the categorized transactions.
+ */
+public class CategorySuggestionDTO {
+
+    private Long expenseId;
+
+    private Long incomeId;
+
+    private double confidence;
+
+    public CategorySuggestionDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public CategorySuggestionDTO(Long expenseId, Long incomeId, double confidence) {
+        this.expenseId = expenseId;
+        this.incomeId = incomeId;
+        this.confidence = confidence;
+    }
+
+    /**
+     * @return the id of the suggested expense, null for a credit.
+     */
+    public Long getExpenseId() {
+        return expenseId;
+    }
+
+    public void setExpenseId(Long expenseId) {
+        this.expenseId = expenseId;
+    }
+
+    /**
+     * @return the id of the suggested income, null for a debit.
+     */
+    public Long getIncomeId() {
+        return incomeId;
+    }
+
+    public void setIncomeId(Long incomeId) {
+        this.incomeId = incomeId;
+    }
+
+    /**
+     * @return the probability of the suggestion according to the classifier, between 0 and 1.
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public void setConfidence(double confidence) {
+        this.confidence = confidence;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "CategorySuggestionDTO{" +
+            "expenseId=" + expenseId +
+            ", incomeId=" + incomeId +
+            ", confidence=" + confidence +
+            "}";
+    }
+}
@@ -0,0 +1,126 @@
+package org.diytechprojects.financialanalyst.service.dto;
+
+/**
+ * A DTO describing a debit the candidate expense rules match differently than the current ones.
+ */
+public class ExpensePreviewChangeDTO {
+
+    private Long transactionId;
+
+    private String description1;
+
+    private String description2;
+
+    private Long amount;
+
+    private Long expenseId;
+
+    private Long currentRuleId;
+
+    private Long candidateRuleId;
+
+    public ExpensePreviewChangeDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public ExpensePreviewChangeDTO(
+        Long transactionId,
+        String description1,
+        String description2,
+        Long amount,
+        Long expenseId,
+        Long currentRuleId,
+        Long candidateRuleId
+    ) {
+        this.transactionId = transactionId;
+        this.description1 = description1;
+        this.description2 = description2;
+        this.amount = amount;
+        this.expenseId = expenseId;
+        this.currentRuleId = currentRuleId;
+        this.candidateRuleId = candidateRuleId;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(Long transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public String getDescription1() {
+        return description1;
+    }
+
+    public void setDescription1(String description1) {
+        this.description1 = description1;
+    }
+
+    public String getDescription2() {
+        return description2;
+    }
+
+    public void setDescription2(String description2) {
+        this.description2 = description2;
+    }
+
+    /**
+     * @return the amount of the debit, in CAD if any, else in USD.
+     */
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    /**
+     * @return the id of the expense the transaction has, null if none.
+     */
+    public Long getExpenseId() {
+        return expenseId;
+    }
+
+    public void setExpenseId(Long expenseId) {
+        this.expenseId = expenseId;
+    }
+
+    /**
+     * @return the id of the expense the current rules match, null if none.
+     */
+    public Long getCurrentRuleId() {
+        return currentRuleId;
+    }
+
+    public void setCurrentRuleId(Long currentRuleId) {
+        this.currentRuleId = currentRuleId;
+    }
+
+    /**
+     * @return the id of the expense the candidate rules match, null if none; a new expense is numbered -1 for the
+     * first one given, -2 for the second one, and so on.
+     */
+    public Long getCandidateRuleId() {
+        return candidateRuleId;
+    }
+
+    public void setCandidateRuleId(Long candidateRuleId) {
+        this.candidateRuleId = candidateRuleId;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ExpensePreviewChangeDTO{" +
+            "transactionId=" + transactionId +
+            ", description1='" + description1 + "'" +
+            ", description2='" + description2 + "'" +
+            ", amount=" + amount +
+            ", expenseId=" + expenseId +
+            ", currentRuleId=" + currentRuleId +
+            ", candidateRuleId=" + candidateRuleId +
+            "}";
+    }
+}
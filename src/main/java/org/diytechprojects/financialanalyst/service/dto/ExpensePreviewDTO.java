@@ -0,0 +1,53 @@
+package org.diytechprojects.financialanalyst.service.dto;
+
+import java.util.List;
+import java.util.Set;
+import org.diytechprojects.financialanalyst.domain.Expense;
+
+/**
+ * A DTO describing a candidate set of expense rules, previewed against the transactions before it is saved.
+ * <p>
+ * The candidate rules are the current expenses, with the given ones replacing the expenses of the same id, the given
+ * ones without id added, and the deleted ones removed.
+ */
+public class ExpensePreviewDTO {
+
+    private List<Expense> expenses;
+
+    private Set<Long> deletedIds;
+
+    public ExpensePreviewDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    /**
+     * @return the new and the edited expenses.
+     */
+    public List<Expense> getExpenses() {
+        return expenses;
+    }
+
+    public void setExpenses(List<Expense> expenses) {
+        this.expenses = expenses;
+    }
+
+    /**
+     * @return the ids of the expenses removed from the candidate rules.
+     */
+    public Set<Long> getDeletedIds() {
+        return deletedIds;
+    }
+
+    public void setDeletedIds(Set<Long> deletedIds) {
+        this.deletedIds = deletedIds;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ExpensePreviewDTO{" +
+            "expenses=" + expenses +
+            ", deletedIds=" + deletedIds +
+            "}";
+    }
+}
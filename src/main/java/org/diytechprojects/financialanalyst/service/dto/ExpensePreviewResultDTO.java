@@ -0,0 +1,92 @@
+package org.diytechprojects.financialanalyst.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO describing what a candidate set of expense rules would change: the number of debits matched differently than
+ * by the current rules, and the first of them.
+ */
+public class ExpensePreviewResultDTO {
+
+    private long scannedRows;
+
+    private long assignedRows;
+
+    private long unassignedRows;
+
+    private long reassignedRows;
+
+    private List<ExpensePreviewChangeDTO> changes = new ArrayList<>();
+
+    public ExpensePreviewResultDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    /**
+     * @return the number of debits evaluated, those of the sample only if any.
+     */
+    public long getScannedRows() {
+        return scannedRows;
+    }
+
+    public void setScannedRows(long scannedRows) {
+        this.scannedRows = scannedRows;
+    }
+
+    /**
+     * @return the number of debits no current rule matches and a candidate rule does.
+     */
+    public long getAssignedRows() {
+        return assignedRows;
+    }
+
+    public void setAssignedRows(long assignedRows) {
+        this.assignedRows = assignedRows;
+    }
+
+    /**
+     * @return the number of debits a current rule matches and no candidate rule does.
+     */
+    public long getUnassignedRows() {
+        return unassignedRows;
+    }
+
+    public void setUnassignedRows(long unassignedRows) {
+        this.unassignedRows = unassignedRows;
+    }
+
+    /**
+     * @return the number of debits the current and the candidate rules match to different expenses.
+     */
+    public long getReassignedRows() {
+        return reassignedRows;
+    }
+
+    public void setReassignedRows(long reassignedRows) {
+        this.reassignedRows = reassignedRows;
+    }
+
+    /**
+     * @return the first debits matched differently, in the order of their ids.
+     */
+    public List<ExpensePreviewChangeDTO> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<ExpensePreviewChangeDTO> changes) {
+        this.changes = changes;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ExpensePreviewResultDTO{" +
+            "scannedRows=" + scannedRows +
+            ", assignedRows=" + assignedRows +
+            ", unassignedRows=" + unassignedRows +
+            ", reassignedRows=" + reassignedRows +
+            ", changes=" + changes.size() +
+            "}";
+    }
+}
@@ -0,0 +1,139 @@
+package org.diytechprojects.financialanalyst.service.dto;
+
+/**
+ * A DTO reporting the progress of a transaction import, one instance is emitted per committed batch.
+ */
+public class ImportProgressDTO {
+
+    private long batch;
+
+    private int batchRows;
+
+    private long totalRows;
+
+    private long insertedRows;
+
+    private long skippedRows;
+
+    private long rejectedRows;
+
+    private long elapsedMillis;
+
+    private long rowsPerSecond;
+
+    private Long offset;
+
+    public ImportProgressDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public ImportProgressDTO(
+        long batch,
+        int batchRows,
+        long totalRows,
+        long insertedRows,
+        long skippedRows,
+        long rejectedRows,
+        long elapsedMillis
+    ) {
+        this.batch = batch;
+        this.batchRows = batchRows;
+        this.totalRows = totalRows;
+        this.insertedRows = insertedRows;
+        this.skippedRows = skippedRows;
+        this.rejectedRows = rejectedRows;
+        this.elapsedMillis = elapsedMillis;
+        this.rowsPerSecond = elapsedMillis > 0 ? totalRows * 1000 / elapsedMillis : totalRows;
+    }
+
+    public long getBatch() {
+        return batch;
+    }
+
+    public void setBatch(long batch) {
+        this.batch = batch;
+    }
+
+    public int getBatchRows() {
+        return batchRows;
+    }
+
+    public void setBatchRows(int batchRows) {
+        this.batchRows = batchRows;
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public long getInsertedRows() {
+        return insertedRows;
+    }
+
+    public void setInsertedRows(long insertedRows) {
+        this.insertedRows = insertedRows;
+    }
+
+    public long getSkippedRows() {
+        return skippedRows;
+    }
+
+    public void setSkippedRows(long skippedRows) {
+        this.skippedRows = skippedRows;
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows;
+    }
+
+    public void setRejectedRows(long rejectedRows) {
+        this.rejectedRows = rejectedRows;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(long rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    /**
+     * @return the offset of the file up to which the rows are committed, only known for the imports of files read by chunks.
+     */
+    public Long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(Long offset) {
+        this.offset = offset;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ImportProgressDTO{" +
+            "batch=" + batch +
+            ", batchRows=" + batchRows +
+            ", totalRows=" + totalRows +
+            ", insertedRows=" + insertedRows +
+            ", skippedRows=" + skippedRows +
+            ", rejectedRows=" + rejectedRows +
+            ", elapsedMillis=" + elapsedMillis +
+            ", rowsPerSecond=" + rowsPerSecond +
+            ", offset=" + offset +
+            "}";
+    }
+}
@@ -0,0 +1,120 @@
+package org.diytechprojects.financialanalyst.service.dto;
+
+import java.time.YearMonth;
+
+/**
+ * A DTO describing the sums and the count of the transactions of a month, an account type and a category.
+ */
+public class MonthlyRollupDTO {
+
+    private YearMonth month;
+
+    private String accountType;
+
+    private Long expenseId;
+
+    private Long incomeId;
+
+    private String category;
+
+    private Long amountCAD;
+
+    private Long amountUSD;
+
+    private Long count;
+
+    public MonthlyRollupDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    /**
+     * @return the month of the transactions, in UTC, null for the transactions without date.
+     */
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    public void setMonth(YearMonth month) {
+        this.month = month;
+    }
+
+    public String getAccountType() {
+        return accountType;
+    }
+
+    public void setAccountType(String accountType) {
+        this.accountType = accountType;
+    }
+
+    public Long getExpenseId() {
+        return expenseId;
+    }
+
+    public void setExpenseId(Long expenseId) {
+        this.expenseId = expenseId;
+    }
+
+    public Long getIncomeId() {
+        return incomeId;
+    }
+
+    public void setIncomeId(Long incomeId) {
+        this.incomeId = incomeId;
+    }
+
+    /**
+     * @return the category of the expense or the name of the income, null if none.
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    /**
+     * @return the sum of the amounts in CAD, the transactions without one counting for 0.
+     */
+    public Long getAmountCAD() {
+        return amountCAD;
+    }
+
+    public void setAmountCAD(Long amountCAD) {
+        this.amountCAD = amountCAD;
+    }
+
+    /**
+     * @return the sum of the amounts in USD, the transactions without one counting for 0.
+     */
+    public Long getAmountUSD() {
+        return amountUSD;
+    }
+
+    public void setAmountUSD(Long amountUSD) {
+        this.amountUSD = amountUSD;
+    }
+
+    public Long getCount() {
+        return count;
+    }
+
+    public void setCount(Long count) {
+        this.count = count;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "MonthlyRollupDTO{" +
+            "month=" + month +
+            ", accountType='" + accountType + "'" +
+            ", expenseId=" + expenseId +
+            ", incomeId=" + incomeId +
+            ", category='" + category + "'" +
+            ", amountCAD=" + amountCAD +
+            ", amountUSD=" + amountUSD +
+            ", count=" + count +
+            "}";
+    }
+}
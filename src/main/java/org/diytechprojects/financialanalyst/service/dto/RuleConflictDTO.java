@@ -0,0 +1,132 @@
+package org.diytechprojects.financialanalyst.service.dto;
+
+import java.util.List;
+
+/**
+ * A DTO describing a transaction matched by the search strings of several expenses, or of several incomes.
+ */
+public class RuleConflictDTO {
+
+    /**
+     * The kind of the conflicting rules: {@code EXPENSE} for debits, {@code INCOME} for credits.
+     */
+    public enum RuleType {
+        EXPENSE,
+        INCOME,
+    }
+
+    private Long transactionId;
+
+    private String description1;
+
+    private String description2;
+
+    private Long amount;
+
+    private RuleType ruleType;
+
+    private List<Long> matchingRuleIds;
+
+    private Long assignedRuleId;
+
+    public RuleConflictDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public RuleConflictDTO(
+        Long transactionId,
+        String description1,
+        String description2,
+        Long amount,
+        RuleType ruleType,
+        List<Long> matchingRuleIds,
+        Long assignedRuleId
+    ) {
+        this.transactionId = transactionId;
+        this.description1 = description1;
+        this.description2 = description2;
+        this.amount = amount;
+        this.ruleType = ruleType;
+        this.matchingRuleIds = matchingRuleIds;
+        this.assignedRuleId = assignedRuleId;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(Long transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public String getDescription1() {
+        return description1;
+    }
+
+    public void setDescription1(String description1) {
+        this.description1 = description1;
+    }
+
+    public String getDescription2() {
+        return description2;
+    }
+
+    public void setDescription2(String description2) {
+        this.description2 = description2;
+    }
+
+    /**
+     * @return the amount the rules were chosen by, in CAD if any, else in USD.
+     */
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    public RuleType getRuleType() {
+        return ruleType;
+    }
+
+    public void setRuleType(RuleType ruleType) {
+        this.ruleType = ruleType;
+    }
+
+    /**
+     * @return the ids of the matching rules, the one the categorizer picks first.
+     */
+    public List<Long> getMatchingRuleIds() {
+        return matchingRuleIds;
+    }
+
+    public void setMatchingRuleIds(List<Long> matchingRuleIds) {
+        this.matchingRuleIds = matchingRuleIds;
+    }
+
+    /**
+     * @return the id of the rule of this kind the transaction has, null if none.
+     */
+    public Long getAssignedRuleId() {
+        return assignedRuleId;
+    }
+
+    public void setAssignedRuleId(Long assignedRuleId) {
+        this.assignedRuleId = assignedRuleId;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "RuleConflictDTO{" +
+            "transactionId=" + transactionId +
+            ", description1='" + description1 + "'" +
+            ", description2='" + description2 + "'" +
+            ", amount=" + amount +
+            ", ruleType=" + ruleType +
+            ", matchingRuleIds=" + matchingRuleIds +
+            ", assignedRuleId=" + assignedRuleId +
+            "}";
+    }
+}
@@ -0,0 +1,96 @@
+package org.diytechprojects.financialanalyst.service.dto;
+
+import java.time.Instant;
+
+/**
+ * A DTO with the hits of the search strings of an expense or an income, counted by the categorizations run since the
+ * application started.
+ */
+public class RuleStatisticsDTO {
+
+    private Long ruleId;
+
+    private long matches;
+
+    private long wins;
+
+    private long conflicts;
+
+    private Instant lastMatchDate;
+
+    public RuleStatisticsDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public RuleStatisticsDTO(Long ruleId, long matches, long wins, long conflicts, Instant lastMatchDate) {
+        this.ruleId = ruleId;
+        this.matches = matches;
+        this.wins = wins;
+        this.conflicts = conflicts;
+        this.lastMatchDate = lastMatchDate;
+    }
+
+    public Long getRuleId() {
+        return ruleId;
+    }
+
+    public void setRuleId(Long ruleId) {
+        this.ruleId = ruleId;
+    }
+
+    /**
+     * @return the number of transactions one of the search strings of the rule matched.
+     */
+    public long getMatches() {
+        return matches;
+    }
+
+    public void setMatches(long matches) {
+        this.matches = matches;
+    }
+
+    /**
+     * @return the number of transactions the rule was assigned to, as the best of the matching rules.
+     */
+    public long getWins() {
+        return wins;
+    }
+
+    public void setWins(long wins) {
+        this.wins = wins;
+    }
+
+    /**
+     * @return the number of transactions the rule matched along with other rules.
+     */
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    public void setConflicts(long conflicts) {
+        this.conflicts = conflicts;
+    }
+
+    /**
+     * @return when the rule last matched a transaction, null if it never did.
+     */
+    public Instant getLastMatchDate() {
+        return lastMatchDate;
+    }
+
+    public void setLastMatchDate(Instant lastMatchDate) {
+        this.lastMatchDate = lastMatchDate;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "RuleStatisticsDTO{" +
+            "ruleId=" + ruleId +
+            ", matches=" + matches +
+            ", wins=" + wins +
+            ", conflicts=" + conflicts +
+            ", lastMatchDate=" + lastMatchDate +
+            "}";
+    }
+}
@@ -0,0 +1,128 @@
+package org.diytechprojects.financialanalyst.service.dto;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * A DTO describing an update applied to many transactions at once.
+ * <p>
+ * The transactions are selected by their ids and/or by criteria, all the given selectors must match.
+ * Only the non null changes are applied. A transaction has a single category: setting its expense unsets its income
+ * and the other way around, and {@code clearCategory} unsets both.
+ */
+public class TransactionBulkUpdateDTO {
+
+    private Set<Long> ids;
+
+    private String accountType;
+
+    private Instant fromDate;
+
+    private Instant toDate;
+
+    private Boolean isTracked;
+
+    private Long expenseId;
+
+    private Long incomeId;
+
+    private Boolean clearCategory;
+
+    public TransactionBulkUpdateDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public Set<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(Set<Long> ids) {
+        this.ids = ids;
+    }
+
+    public String getAccountType() {
+        return accountType;
+    }
+
+    public void setAccountType(String accountType) {
+        this.accountType = accountType;
+    }
+
+    /**
+     * @return the first transaction date selected, inclusive.
+     */
+    public Instant getFromDate() {
+        return fromDate;
+    }
+
+    public void setFromDate(Instant fromDate) {
+        this.fromDate = fromDate;
+    }
+
+    /**
+     * @return the transaction date the selection ends at, exclusive.
+     */
+    public Instant getToDate() {
+        return toDate;
+    }
+
+    public void setToDate(Instant toDate) {
+        this.toDate = toDate;
+    }
+
+    public Boolean getIsTracked() {
+        return isTracked;
+    }
+
+    public void setIsTracked(Boolean isTracked) {
+        this.isTracked = isTracked;
+    }
+
+    /**
+     * @return the expense the transactions are set to, unsetting their income.
+     */
+    public Long getExpenseId() {
+        return expenseId;
+    }
+
+    public void setExpenseId(Long expenseId) {
+        this.expenseId = expenseId;
+    }
+
+    /**
+     * @return the income the transactions are set to, unsetting their expense.
+     */
+    public Long getIncomeId() {
+        return incomeId;
+    }
+
+    public void setIncomeId(Long incomeId) {
+        this.incomeId = incomeId;
+    }
+
+    /**
+     * @return whether the expense and the income of the transactions are unset.
+     */
+    public Boolean getClearCategory() {
+        return clearCategory;
+    }
+
+    public void setClearCategory(Boolean clearCategory) {
+        this.clearCategory = clearCategory;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "TransactionBulkUpdateDTO{" +
+            "ids=" + ids +
+            ", accountType='" + accountType + "'" +
+            ", fromDate=" + fromDate +
+            ", toDate=" + toDate +
+            ", isTracked=" + isTracked +
+            ", expenseId=" + expenseId +
+            ", incomeId=" + incomeId +
+            ", clearCategory=" + clearCategory +
+            "}";
+    }
+}
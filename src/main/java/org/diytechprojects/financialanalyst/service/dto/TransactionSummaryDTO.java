@@ -0,0 +1,154 @@
+package org.diytechprojects.financialanalyst.service.dto;
+
+/**
+ * A DTO describing the sums and the count of the transactions of a group: a day, a week, a month, a category, an account
+ * type or whether they are tracked.
+ */
+public class TransactionSummaryDTO {
+
+    /**
+     * What the transactions are grouped by, named as the {@code groupBy} parameter of the report.
+     */
+    public enum Grouping {
+        DAY("day"),
+        WEEK("week"),
+        MONTH("month"),
+        CATEGORY("category"),
+        ACCOUNT_TYPE("accountType"),
+        TRACKED("tracked");
+
+        private final String parameter;
+
+        Grouping(String parameter) {
+            this.parameter = parameter;
+        }
+
+        public String getParameter() {
+            return parameter;
+        }
+
+        /**
+         * @return the grouping named by a parameter, in any case, null if none.
+         */
+        public static Grouping fromParameter(String parameter) {
+            for (Grouping grouping : values()) {
+                if (grouping.parameter.equalsIgnoreCase(parameter)) {
+                    return grouping;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The currency of the amounts summed, each one read from its own column.
+     */
+    public enum Currency {
+        CAD,
+        USD;
+
+        /**
+         * @return the currency named by a parameter, in any case, null if none.
+         */
+        public static Currency fromParameter(String parameter) {
+            for (Currency currency : values()) {
+                if (currency.name().equalsIgnoreCase(parameter)) {
+                    return currency;
+                }
+            }
+            return null;
+        }
+    }
+
+    private String group;
+
+    private Long amount;
+
+    private Long credits;
+
+    private Long debits;
+
+    private Long count;
+
+    public TransactionSummaryDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public TransactionSummaryDTO(String group, Long amount, Long credits, Long debits, Long count) {
+        this.group = group;
+        this.amount = amount;
+        this.credits = credits;
+        this.debits = debits;
+        this.count = count;
+    }
+
+    /**
+     * @return the group: the date of the day or of the Monday of the week, in UTC, {@code yyyy-MM-dd}; the month,
+     * {@code yyyy-MM}; the category of the expense or the name of the income; the account type; {@code true} or
+     * {@code false} for the tracked transactions. Null for the transactions without date, category, account type or
+     * tracking.
+     */
+    public String getGroup() {
+        return group;
+    }
+
+    public void setGroup(String group) {
+        this.group = group;
+    }
+
+    /**
+     * @return the sum of the amounts of the group.
+     */
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    /**
+     * @return the sum of the positive amounts of the group.
+     */
+    public Long getCredits() {
+        return credits;
+    }
+
+    public void setCredits(Long credits) {
+        this.credits = credits;
+    }
+
+    /**
+     * @return the sum of the negative amounts of the group.
+     */
+    public Long getDebits() {
+        return debits;
+    }
+
+    public void setDebits(Long debits) {
+        this.debits = debits;
+    }
+
+    /**
+     * @return the number of transactions of the group having an amount in the currency of the report.
+     */
+    public Long getCount() {
+        return count;
+    }
+
+    public void setCount(Long count) {
+        this.count = count;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "TransactionSummaryDTO{" +
+            "group='" + group + "'" +
+            ", amount=" + amount +
+            ", credits=" + credits +
+            ", debits=" + debits +
+            ", count=" + count +
+            "}";
+    }
+}
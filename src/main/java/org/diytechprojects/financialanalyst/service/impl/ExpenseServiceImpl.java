@@ -1,8 +1,14 @@
 package org.diytechprojects.financialanalyst.service.impl;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import org.diytechprojects.financialanalyst.domain.Expense;
 import org.diytechprojects.financialanalyst.repository.ExpenseRepository;
 import org.diytechprojects.financialanalyst.service.ExpenseService;
+import org.diytechprojects.financialanalyst.service.RuleChangeRecategorizationService;
+import org.diytechprojects.financialanalyst.service.TransactionCategorizationService;
+import org.diytechprojects.financialanalyst.service.dto.RuleStatisticsDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Pageable;
@@ -22,14 +28,33 @@ public class ExpenseServiceImpl implements ExpenseService {
 
     private final ExpenseRepository expenseRepository;
 
-    public ExpenseServiceImpl(ExpenseRepository expenseRepository) {
+    private final RuleChangeRecategorizationService ruleChangeRecategorizationService;
+
+    private final TransactionCategorizationService transactionCategorizationService;
+
+    public ExpenseServiceImpl(
+        ExpenseRepository expenseRepository,
+        RuleChangeRecategorizationService ruleChangeRecategorizationService,
+        TransactionCategorizationService transactionCategorizationService
+    ) {
         this.expenseRepository = expenseRepository;
+        this.ruleChangeRecategorizationService = ruleChangeRecategorizationService;
+        this.transactionCategorizationService = transactionCategorizationService;
     }
 
     @Override
     public Mono<Expense> save(Expense expense) {
         log.debug("Request to save Expense : {}", expense);
-        return expenseRepository.save(expense);
+        Mono<List<String>> previousSearchStrings = expense.getId() == null
+            ? Mono.just(Collections.emptyList())
+            : expenseRepository.findById(expense.getId()).map(ExpenseServiceImpl::searchStrings).defaultIfEmpty(Collections.emptyList());
+        return previousSearchStrings.flatMap(
+            previous ->
+                transactionCategorizationService
+                    .rulesChanged()
+                    .then(expenseRepository.save(expense))
+                    .flatMap(saved -> recategorize(saved, previous))
+        );
     }
 
     @Override
@@ -38,8 +63,9 @@ public class ExpenseServiceImpl implements ExpenseService {
 
         return expenseRepository
             .findById(expense.getId())
-            .map(
+            .flatMap(
                 existingExpense -> {
+                    List<String> previousSearchStrings = searchStrings(existingExpense);
                     if (expense.getCategory() != null) {
                         existingExpense.setCategory(expense.getCategory());
                     }
@@ -53,10 +79,23 @@ public class ExpenseServiceImpl implements ExpenseService {
                         existingExpense.setSearchString2(expense.getSearchString2());
                     }
 
-                    return existingExpense;
+                    return transactionCategorizationService
+                        .rulesChanged()
+                        .then(expenseRepository.save(existingExpense))
+                        .flatMap(saved -> recategorize(saved, previousSearchStrings));
                 }
-            )
-            .flatMap(expenseRepository::save);
+            );
+    }
+
+    /**
+     * Apply the change of the search strings, if any, to the transactions.
+     */
+    private Mono<Expense> recategorize(Expense saved, List<String> previousSearchStrings) {
+        return ruleChangeRecategorizationService.expenseChanged(saved, previousSearchStrings).thenReturn(saved);
+    }
+
+    private static List<String> searchStrings(Expense expense) {
+        return Arrays.asList(expense.getSearchString1(), expense.getSearchString2());
     }
 
     @Override
@@ -77,9 +116,16 @@ public class ExpenseServiceImpl implements ExpenseService {
         return expenseRepository.findById(id);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Mono<RuleStatisticsDTO> findStatistics(Long id) {
+        log.debug("Request to get the statistics of Expense : {}", id);
+        return expenseRepository.findById(id).map(found -> transactionCategorizationService.getStatistics().expense(id));
+    }
+
     @Override
     public Mono<Void> delete(Long id) {
         log.debug("Request to delete Expense : {}", id);
-        return expenseRepository.deleteById(id);
+        return transactionCategorizationService.rulesChanged().then(expenseRepository.deleteById(id));
     }
 }
@@ -1,8 +1,14 @@
 package org.diytechprojects.financialanalyst.service.impl;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import org.diytechprojects.financialanalyst.domain.Income;
 import org.diytechprojects.financialanalyst.repository.IncomeRepository;
 import org.diytechprojects.financialanalyst.service.IncomeService;
+import org.diytechprojects.financialanalyst.service.RuleChangeRecategorizationService;
+import org.diytechprojects.financialanalyst.service.TransactionCategorizationService;
+import org.diytechprojects.financialanalyst.service.dto.RuleStatisticsDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Pageable;
@@ -22,14 +28,33 @@ public class IncomeServiceImpl implements IncomeService {
 
     private final IncomeRepository incomeRepository;
 
-    public IncomeServiceImpl(IncomeRepository incomeRepository) {
+    private final RuleChangeRecategorizationService ruleChangeRecategorizationService;
+
+    private final TransactionCategorizationService transactionCategorizationService;
+
+    public IncomeServiceImpl(
+        IncomeRepository incomeRepository,
+        RuleChangeRecategorizationService ruleChangeRecategorizationService,
+        TransactionCategorizationService transactionCategorizationService
+    ) {
         this.incomeRepository = incomeRepository;
+        this.ruleChangeRecategorizationService = ruleChangeRecategorizationService;
+        this.transactionCategorizationService = transactionCategorizationService;
     }
 
     @Override
     public Mono<Income> save(Income income) {
         log.debug("Request to save Income : {}", income);
-        return incomeRepository.save(income);
+        Mono<List<String>> previousSearchStrings = income.getId() == null
+            ? Mono.just(Collections.emptyList())
+            : incomeRepository.findById(income.getId()).map(IncomeServiceImpl::searchStrings).defaultIfEmpty(Collections.emptyList());
+        return previousSearchStrings.flatMap(
+            previous ->
+                transactionCategorizationService
+                    .rulesChanged()
+                    .then(incomeRepository.save(income))
+                    .flatMap(saved -> recategorize(saved, previous))
+        );
     }
 
     @Override
@@ -38,8 +63,9 @@ public class IncomeServiceImpl implements IncomeService {
 
         return incomeRepository
             .findById(income.getId())
-            .map(
+            .flatMap(
                 existingIncome -> {
+                    List<String> previousSearchStrings = searchStrings(existingIncome);
                     if (income.getName() != null) {
                         existingIncome.setName(income.getName());
                     }
@@ -50,10 +76,23 @@ public class IncomeServiceImpl implements IncomeService {
                         existingIncome.setSearchString2(income.getSearchString2());
                     }
 
-                    return existingIncome;
+                    return transactionCategorizationService
+                        .rulesChanged()
+                        .then(incomeRepository.save(existingIncome))
+                        .flatMap(saved -> recategorize(saved, previousSearchStrings));
                 }
-            )
-            .flatMap(incomeRepository::save);
+            );
+    }
+
+    /**
+     * Apply the change of the search strings, if any, to the transactions.
+     */
+    private Mono<Income> recategorize(Income saved, List<String> previousSearchStrings) {
+        return ruleChangeRecategorizationService.incomeChanged(saved, previousSearchStrings).thenReturn(saved);
+    }
+
+    private static List<String> searchStrings(Income income) {
+        return Arrays.asList(income.getSearchString1(), income.getSearchString2());
     }
 
     @Override
@@ -74,9 +113,16 @@ public class IncomeServiceImpl implements IncomeService {
         return incomeRepository.findById(id);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Mono<RuleStatisticsDTO> findStatistics(Long id) {
+        log.debug("Request to get the statistics of Income : {}", id);
+        return incomeRepository.findById(id).map(found -> transactionCategorizationService.getStatistics().income(id));
+    }
+
     @Override
     public Mono<Void> delete(Long id) {
         log.debug("Request to delete Income : {}", id);
-        return incomeRepository.deleteById(id);
+        return transactionCategorizationService.rulesChanged().then(incomeRepository.deleteById(id));
     }
 }
@@ -1,11 +1,38 @@
 package org.diytechprojects.financialanalyst.service.impl;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 import org.diytechprojects.financialanalyst.domain.Transaction;
 import org.diytechprojects.financialanalyst.repository.TransactionRepository;
+import org.diytechprojects.financialanalyst.service.AccountBalanceService;
+import org.diytechprojects.financialanalyst.service.TransactionClassifierService;
+import org.diytechprojects.financialanalyst.service.TransactionRollupService;
 import org.diytechprojects.financialanalyst.service.TransactionService;
+import org.diytechprojects.financialanalyst.service.TransactionSnapshotService;
+import org.diytechprojects.financialanalyst.service.TransactionTokenIndexService;
+import org.diytechprojects.financialanalyst.service.categorization.TrigramIndex;
+import org.diytechprojects.financialanalyst.service.dto.CategorySuggestionDTO;
+import org.diytechprojects.financialanalyst.service.dto.TransactionBulkUpdateDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
@@ -22,22 +49,101 @@ public class TransactionServiceImpl implements TransactionService {
 
     private final TransactionRepository transactionRepository;
 
-    public TransactionServiceImpl(TransactionRepository transactionRepository) {
+    private final TransactionTokenIndexService transactionTokenIndexService;
+
+    private final TransactionClassifierService transactionClassifierService;
+
+    private final TransactionRollupService transactionRollupService;
+
+    private final TransactionSnapshotService transactionSnapshotService;
+
+    private final AccountBalanceService accountBalanceService;
+
+    public TransactionServiceImpl(
+        TransactionRepository transactionRepository,
+        TransactionTokenIndexService transactionTokenIndexService,
+        TransactionClassifierService transactionClassifierService,
+        TransactionRollupService transactionRollupService,
+        TransactionSnapshotService transactionSnapshotService,
+        AccountBalanceService accountBalanceService
+    ) {
         this.transactionRepository = transactionRepository;
+        this.transactionTokenIndexService = transactionTokenIndexService;
+        this.transactionClassifierService = transactionClassifierService;
+        this.transactionRollupService = transactionRollupService;
+        this.transactionSnapshotService = transactionSnapshotService;
+        this.accountBalanceService = accountBalanceService;
     }
 
     @Override
     public Mono<Transaction> save(Transaction transaction) {
         log.debug("Request to save Transaction : {}", transaction);
-        return transactionRepository.save(transaction);
+        // the classifier forgets the former category and descriptions before learning the new ones, the rollup and the balances
+        // the former sums
+        return findPrevious(transaction.getId())
+            .flatMap(
+                previous ->
+                    transactionRepository
+                        .save(transaction)
+                        .flatMap(saved -> transactionRollupService.apply(previous.orElse(null), saved).thenReturn(saved))
+                        .doOnNext(
+                            saved -> {
+                                transactionTokenIndexService.index(saved);
+                                transactionClassifierService.learn(previous.orElse(null), saved);
+                                transactionSnapshotService.put(saved);
+                                accountBalanceService.change(previous.orElse(null), saved);
+                            }
+                        )
+            );
+    }
+
+    @Override
+    public Mono<Integer> insertNew(List<Transaction> transactions) {
+        log.debug("Request to insert {} new Transactions", transactions.size());
+        // the rows repeated inside the batch are dropped here, the ones imported before, or concurrently, by the insert
+        Set<String> fingerprints = new HashSet<>();
+        List<Transaction> unique = transactions
+            .stream()
+            .filter(transaction -> transaction.getFingerprint() == null || fingerprints.add(transaction.getFingerprint()))
+            .collect(Collectors.toList());
+        List<Transaction> unfingerprinted = unique
+            .stream()
+            .filter(transaction -> transaction.getFingerprint() == null)
+            .collect(Collectors.toList());
+        Mono<Integer> insert = transactionRepository.insertAllNew(unique);
+        // the rollup gets the rows actually inserted: the sums of the fingerprints before the insert are subtracted
+        Mono<Integer> inserted = fingerprints.isEmpty()
+            ? insert
+            : transactionRollupService.apply(
+                "fingerprint IN (:fingerprints)",
+                Collections.singletonMap("fingerprints", fingerprints),
+                insert
+            );
+        return inserted.flatMap(count -> transactionRollupService.addAll(unfingerprinted).thenReturn(count));
+    }
+
+    @Override
+    public Flux<Long> createAll(Flux<Transaction> transactions, int batchSize) {
+        log.debug("Request to create Transactions in batches of {}", batchSize);
+        return transactions
+            .buffer(batchSize)
+            .concatMap(
+                batch ->
+                    transactionRepository
+                        .insertAllReturningIds(batch)
+                        .collectList()
+                        .flatMapMany(ids -> transactionRollupService.addAll(batch).thenMany(Flux.fromIterable(ids)))
+            );
     }
 
     @Override
     public Mono<Transaction> partialUpdate(Transaction transaction) {
         log.debug("Request to partially update Transaction : {}", transaction);
 
+        AtomicReference<Transaction> previous = new AtomicReference<>();
         return transactionRepository
             .findById(transaction.getId())
+            .doOnNext(existingTransaction -> previous.set(copyOf(existingTransaction)))
             .map(
                 existingTransaction -> {
                     if (transaction.getAccountType() != null) {
@@ -68,7 +174,109 @@ public class TransactionServiceImpl implements TransactionService {
                     return existingTransaction;
                 }
             )
-            .flatMap(transactionRepository::save);
+            .flatMap(transactionRepository::save)
+            .flatMap(saved -> transactionRollupService.apply(previous.get(), saved).thenReturn(saved))
+            .doOnNext(
+                saved -> {
+                    transactionTokenIndexService.index(saved);
+                    transactionClassifierService.learn(previous.get(), saved);
+                    transactionSnapshotService.put(saved);
+                    accountBalanceService.change(previous.get(), saved);
+                }
+            );
+    }
+
+    private Mono<Optional<Transaction>> findPrevious(Long id) {
+        if (id == null) {
+            return Mono.just(Optional.empty());
+        }
+        return transactionRepository.findById(id).map(Optional::of).defaultIfEmpty(Optional.empty());
+    }
+
+    /**
+     * @return the fields of a transaction the classifier learns, the rollup and the balances sum, before they are changed.
+     */
+    private static Transaction copyOf(Transaction transaction) {
+        Transaction copy = new Transaction()
+            .id(transaction.getId())
+            .accountType(transaction.getAccountType())
+            .transactionDate(transaction.getTransactionDate())
+            .description1(transaction.getDescription1())
+            .description2(transaction.getDescription2())
+            .amountCAD(transaction.getAmountCAD())
+            .amountUSD(transaction.getAmountUSD());
+        copy.setExpenseId(transaction.getExpenseId());
+        copy.setIncomeId(transaction.getIncomeId());
+        return copy;
+    }
+
+    @Override
+    public Mono<Integer> updateAll(TransactionBulkUpdateDTO bulkUpdate) {
+        log.debug("Request to update Transactions : {}", bulkUpdate);
+        Criteria criteria = Criteria.empty();
+        // the same selection in SQL, for the delta of the rollup
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> parameters = new HashMap<>();
+        if (bulkUpdate.getIds() != null) {
+            if (bulkUpdate.getIds().isEmpty()) {
+                return Mono.just(0);
+            }
+            criteria = criteria.and("id").in(bulkUpdate.getIds());
+            conditions.add("id IN (:ids)");
+            parameters.put("ids", bulkUpdate.getIds());
+        }
+        if (bulkUpdate.getAccountType() != null) {
+            criteria = criteria.and("accountType").is(bulkUpdate.getAccountType());
+            conditions.add("account_type = :accountType");
+            parameters.put("accountType", bulkUpdate.getAccountType());
+        }
+        if (bulkUpdate.getFromDate() != null) {
+            criteria = criteria.and("transactionDate").greaterThanOrEquals(bulkUpdate.getFromDate());
+            conditions.add("transaction_date >= :fromDate");
+            parameters.put("fromDate", toDatabase(bulkUpdate.getFromDate()));
+        }
+        if (bulkUpdate.getToDate() != null) {
+            criteria = criteria.and("transactionDate").lessThan(bulkUpdate.getToDate());
+            conditions.add("transaction_date < :toDate");
+            parameters.put("toDate", toDatabase(bulkUpdate.getToDate()));
+        }
+        if (criteria.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("The transactions to update must be selected by ids or criteria"));
+        }
+
+        boolean clearCategory = Boolean.TRUE.equals(bulkUpdate.getClearCategory());
+        int categories = (bulkUpdate.getExpenseId() != null ? 1 : 0) + (bulkUpdate.getIncomeId() != null ? 1 : 0) + (clearCategory ? 1 : 0);
+        if (categories > 1) {
+            return Mono.error(new IllegalArgumentException("Only one of an expense, an income or no category can be set"));
+        }
+        Update update = set(null, "isTracked", bulkUpdate.getIsTracked());
+        if (categories == 1) {
+            // a transaction has a single category, the other side is unset
+            Long expenseId = bulkUpdate.getExpenseId();
+            update = update == null ? Update.update("expenseId", expenseId) : update.set("expenseId", expenseId);
+            update = update.set("incomeId", bulkUpdate.getIncomeId());
+        }
+        if (update == null) {
+            return Mono.error(new IllegalArgumentException("No change to apply to the transactions"));
+        }
+        Mono<Integer> updated = transactionRepository.updateAll(criteria, update);
+        if (categories == 1) {
+            // the selection does not depend on the categories, it matches the same rows before and after the update
+            updated = transactionRollupService.apply(String.join(" AND ", conditions), parameters, updated);
+        }
+        // the columnar copy is rebuilt once the update is committed
+        return transactionSnapshotService.invalidate().then(updated);
+    }
+
+    private static LocalDateTime toDatabase(Instant date) {
+        return LocalDateTime.ofInstant(date, ZoneOffset.UTC);
+    }
+
+    private static Update set(Update update, String column, Object value) {
+        if (value == null) {
+            return update;
+        }
+        return update == null ? Update.update(column, value) : update.set(column, value);
     }
 
     @Override
@@ -82,6 +290,62 @@ public class TransactionServiceImpl implements TransactionService {
         return transactionRepository.count();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Mono<Page<Transaction>> search(String query, Pageable pageable) {
+        log.debug("Request to search Transactions : {}", query);
+        int first = (int) pageable.getOffset();
+        return transactionTokenIndexService
+            .search(query, first + pageable.getPageSize())
+            .flatMap(
+                hits -> {
+                    List<Long> ids = Arrays.stream(hits.getIds()).skip(first).boxed().collect(Collectors.toList());
+                    if (ids.isEmpty()) {
+                        return Mono.just(new PageImpl<>(Collections.emptyList(), pageable, hits.getTotal()));
+                    }
+                    return transactionRepository
+                        .findAllBy(null, Criteria.where("id").in(ids))
+                        .collectMap(Transaction::getId)
+                        .map(
+                            byId -> {
+                                // in the order of the ranking; rows deleted behind the back of the index are dropped from it
+                                ids.stream().filter(id -> !byId.containsKey(id)).forEach(transactionTokenIndexService::remove);
+                                List<Transaction> page = ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+                                return new PageImpl<>(page, pageable, hits.getTotal());
+                            }
+                        );
+                }
+            );
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Mono<List<Transaction>> findSimilar(Long id, int maxEdits, int limit) {
+        log.debug("Request to get the Transactions similar to : {}", id);
+        return transactionRepository
+            .findById(id)
+            .flatMap(transaction -> transactionTokenIndexService.similar(transaction, maxEdits, limit))
+            .flatMap(
+                matches -> {
+                    List<Long> ids = matches.stream().map(TrigramIndex.Match::getId).collect(Collectors.toList());
+                    if (ids.isEmpty()) {
+                        return Mono.just(Collections.<Transaction>emptyList());
+                    }
+                    return transactionRepository
+                        .findAllBy(null, Criteria.where("id").in(ids))
+                        .collectMap(Transaction::getId)
+                        .map(byId -> ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList()));
+                }
+            );
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Mono<CategorySuggestionDTO> findSuggestion(Long id) {
+        log.debug("Request to get the category suggested for Transaction : {}", id);
+        return transactionRepository.findById(id).flatMap(transactionClassifierService::suggest);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Mono<Transaction> findOne(Long id) {
@@ -92,6 +356,22 @@ public class TransactionServiceImpl implements TransactionService {
     @Override
     public Mono<Void> delete(Long id) {
         log.debug("Request to delete Transaction : {}", id);
-        return transactionRepository.deleteById(id);
+        return findPrevious(id)
+            .flatMap(
+                previous ->
+                    transactionRepository
+                        .deleteById(id)
+                        .then(previous.map(deleted -> transactionRollupService.apply(deleted, null)).orElse(Mono.empty()))
+                        .then(
+                            Mono.fromRunnable(
+                                () -> {
+                                    transactionTokenIndexService.remove(id);
+                                    transactionClassifierService.learn(previous.orElse(null), null);
+                                    transactionSnapshotService.remove(id);
+                                    accountBalanceService.change(previous.orElse(null), null);
+                                }
+                            )
+                        )
+            );
     }
 }
@@ -0,0 +1,228 @@
+package org.diytechprojects.financialanalyst.service.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reader of multi-gigabyte CSV archives, like years of bank statement exports concatenated into a single file.
+ * <p>
+ * The file is memory-mapped with {@link FileChannel#map} one chunk at a time and split on record boundaries:
+ * a chunk ends at the first line break following its nominal size which is not inside a quoted value.
+ * Chunks are independent of each other, so they can be parsed in parallel with {@link #parse(CsvChunk)};
+ * records are read straight from the mapped bytes, only the text values end up as Strings.
+ * <p>
+ * The first line of the file is the header, with the same column names as the {@link TransactionCsvParser}.
+ * Repetitions of that header inside the file, left by the concatenation, are skipped.
+ * {@link #nextChunk()} must be called from a single thread, {@link #parse(CsvChunk)} from any thread.
+ */
+public class CsvArchiveReader implements Closeable {
+
+    private final Logger log = LoggerFactory.getLogger(CsvArchiveReader.class);
+
+    private static final int MAX_HEADER_LENGTH = 64 * 1024;
+
+    private static final int BOUNDARY_SLACK = 64 * 1024;
+
+    private static final byte[] BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+    private final FileChannel channel;
+
+    private final long size;
+
+    private final long endOffset;
+
+    private final int chunkSize;
+
+    private final byte[] header;
+
+    private final int[] columnIndexes;
+
+    private final LongAdder rejectedRows = new LongAdder();
+
+    private long position;
+
+    private long chunkIndex;
+
+    /**
+     * Open an archive.
+     *
+     * @param file the CSV file.
+     * @param startOffset the offset to start reading from, 0 or the end of a chunk read earlier.
+     * @param chunkSize the nominal size of a chunk in bytes.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the file has no valid header line.
+     */
+    public CsvArchiveReader(Path file, long startOffset, int chunkSize) throws IOException {
+        this(file, startOffset, Long.MAX_VALUE, chunkSize);
+    }
+
+    /**
+     * Open a part of an archive.
+     *
+     * @param file the CSV file.
+     * @param startOffset the offset to start reading from, 0 or the end of a chunk read earlier.
+     * @param endOffset the offset to stop reading at, the end of a chunk read earlier, or beyond the end of the file.
+     * @param chunkSize the nominal size of a chunk in bytes.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the file has no valid header line.
+     */
+    public CsvArchiveReader(Path file, long startOffset, long endOffset, int chunkSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            this.endOffset = Math.min(size, endOffset);
+            this.chunkSize = chunkSize;
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAX_HEADER_LENGTH));
+            int headerStart = 0;
+            int headerEnd = lineEnd(head, headerStart);
+            while (headerEnd < head.limit() && isBlank(head, headerStart, headerEnd)) {
+                headerStart = headerEnd + 1;
+                headerEnd = lineEnd(head, headerStart);
+            }
+            if (headerEnd == head.limit() && size > MAX_HEADER_LENGTH) {
+                throw new IllegalArgumentException("The CSV header line is longer than " + MAX_HEADER_LENGTH + " bytes");
+            }
+            this.header = headerBytes(head, headerStart, headerEnd);
+            List<String> headerValues = TransactionCsvParser.split(new String(header, StandardCharsets.UTF_8));
+            this.columnIndexes = TransactionCsvParser.columnIndexes(headerValues);
+            this.position = Math.max(startOffset, Math.min(size, headerEnd + 1L));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Map the next chunk of the file.
+     *
+     * @return the chunk, or null at the end of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public CsvChunk nextChunk() throws IOException {
+        if (position >= endOffset) {
+            return null;
+        }
+        long start = position;
+        long window = (long) chunkSize + BOUNDARY_SLACK;
+        while (true) {
+            int length = (int) Math.min(endOffset - start, Math.min(window, Integer.MAX_VALUE));
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            int end = boundary(data, chunkSize);
+            if (end < 0 && start + length < endOffset) {
+                if (length == Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("No record boundary found after offset " + start);
+                }
+                // a record larger than the slack, or a quote which is never closed
+                window *= 2;
+                continue;
+            }
+            if (end < 0) {
+                end = length;
+            }
+            data.limit(end);
+            position = start + end;
+            return new CsvChunk(chunkIndex++, start, position, data.slice());
+        }
+    }
+
+    /**
+     * Parse the records of a chunk into transactions, the records which cannot be converted are counted as rejected.
+     *
+     * @param chunk a chunk returned by {@link #nextChunk()}.
+     * @return the transactions, in the order of the file.
+     */
+    public List<Transaction> parse(CsvChunk chunk) {
+        List<Transaction> transactions = new CsvRecordParser(chunk.getData(), columnIndexes, header).parse(rejectedRows);
+        log.debug("Parsed {} transactions from {}", transactions.size(), chunk);
+        return transactions;
+    }
+
+    /**
+     * @return the number of records which could not be converted into a transaction so far.
+     */
+    public long getRejectedRows() {
+        return rejectedRows.sum();
+    }
+
+    /**
+     * @return the size of the file in bytes.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * The index following the first line break, outside of a quoted value, found at or after {@code minimum}.
+     */
+    private static int boundary(ByteBuffer data, int minimum) {
+        boolean quoted = false;
+        int limit = data.limit();
+        for (int i = 0; i < limit; i++) {
+            byte b = data.get(i);
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted && i + 1 >= minimum) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int lineEnd(ByteBuffer data, int from) {
+        int i = from;
+        while (i < data.limit() && data.get(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isBlank(ByteBuffer data, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if ((data.get(i) & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] headerBytes(ByteBuffer data, int start, int end) {
+        if (end - start >= BOM.length && data.get(start) == BOM[0] && data.get(start + 1) == BOM[1] && data.get(start + 2) == BOM[2]) {
+            start += BOM.length;
+        }
+        if (end > start && data.get(end - 1) == '\r') {
+            end--;
+        }
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(start + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Close the file, logging instead of throwing on failure.
+     */
+    public void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            log.debug("Failed to close the CSV archive: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,59 @@
+package org.diytechprojects.financialanalyst.service.importer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A range of whole records of a memory-mapped CSV archive, see {@link CsvArchiveReader}.
+ */
+public final class CsvChunk {
+
+    private final long index;
+
+    private final long start;
+
+    private final long end;
+
+    private final ByteBuffer data;
+
+    CsvChunk(long index, long start, long end, ByteBuffer data) {
+        this.index = index;
+        this.start = start;
+        this.end = end;
+        this.data = data;
+    }
+
+    /**
+     * @return the position of the chunk in the file, starting at 0 for the first chunk read.
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the offset of the first byte of the chunk in the file.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return the offset following the last byte of the chunk, where the next chunk starts.
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    ByteBuffer getData() {
+        return data;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "CsvChunk{" +
+            "index=" + index +
+            ", start=" + start +
+            ", end=" + end +
+            "}";
+    }
+}
@@ -0,0 +1,260 @@
+package org.diytechprojects.financialanalyst.service.importer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.service.importer.TransactionCsvParser.Field;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parser of the CSV records of a chunk, working on the bytes in place.
+ * <p>
+ * Each record is scanned once to locate its values, numbers and dates are converted straight from the bytes and
+ * only the text values are decoded into Strings. An instance parses a single chunk, on a single thread.
+ */
+class CsvRecordParser {
+
+    private final Logger log = LoggerFactory.getLogger(CsvRecordParser.class);
+
+    private static final byte SEPARATOR = ',';
+    private static final byte QUOTE = '"';
+
+    private final ByteBuffer data;
+
+    private final int[] columnIndexes;
+
+    private final byte[] header;
+
+    // start, end and "contains escaped quotes" of the values of the current record, only for the mapped columns
+    private final int[] starts;
+    private final int[] ends;
+    private final boolean[] escaped;
+
+    private int valueCount;
+
+    private byte[] scratch = new byte[256];
+
+    // account types repeat on every line, the last one is reused instead of decoded again
+    private byte[] lastAccountTypeBytes = new byte[0];
+    private String lastAccountType;
+
+    CsvRecordParser(ByteBuffer data, int[] columnIndexes, byte[] header) {
+        this.data = data;
+        this.columnIndexes = columnIndexes;
+        this.header = header;
+        int columns = 0;
+        for (int index : columnIndexes) {
+            columns = Math.max(columns, index + 1);
+        }
+        this.starts = new int[columns];
+        this.ends = new int[columns];
+        this.escaped = new boolean[columns];
+    }
+
+    List<Transaction> parse(LongAdder rejectedRows) {
+        List<Transaction> transactions = new ArrayList<>();
+        int limit = data.limit();
+        int position = 0;
+        while (position < limit) {
+            int recordStart = position;
+            position = readRecord(position, limit);
+            if (isBlank() || isHeader(recordStart, position)) {
+                continue;
+            }
+            try {
+                transactions.add(toTransaction());
+            } catch (DateTimeException | ArithmeticException | IllegalArgumentException e) {
+                log.debug("Rejected the record at byte {} of the chunk: {}", recordStart, e.getMessage());
+                rejectedRows.increment();
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * Locate the values of the record starting at {@code position}.
+     *
+     * @return the index following the record and its line break.
+     */
+    private int readRecord(int position, int limit) {
+        int column = 0;
+        int i = position;
+        while (true) {
+            int start = i;
+            int end;
+            boolean hasEscapedQuote = false;
+            if (i < limit && data.get(i) == QUOTE) {
+                start = ++i;
+                while (i < limit) {
+                    if (data.get(i) == QUOTE) {
+                        if (i + 1 < limit && data.get(i + 1) == QUOTE) {
+                            hasEscapedQuote = true;
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    i++;
+                }
+                end = i;
+                while (i < limit && data.get(i) != SEPARATOR && data.get(i) != '\n') {
+                    i++;
+                }
+            } else {
+                while (i < limit && data.get(i) != SEPARATOR && data.get(i) != '\n') {
+                    i++;
+                }
+                end = i;
+            }
+            if (column < starts.length) {
+                starts[column] = start;
+                ends[column] = end;
+                escaped[column] = hasEscapedQuote;
+            }
+            column++;
+            if (i >= limit || data.get(i) == '\n') {
+                valueCount = column;
+                return Math.min(i + 1, limit);
+            }
+            i++;
+        }
+    }
+
+    private boolean isBlank() {
+        if (valueCount > 1) {
+            return false;
+        }
+        return starts.length == 0 || trimmedStart(0) == trimmedEnd(0);
+    }
+
+    private boolean isHeader(int recordStart, int recordEnd) {
+        int end = recordEnd;
+        if (end > recordStart && data.get(end - 1) == '\n') {
+            end--;
+        }
+        if (end > recordStart && data.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end - recordStart != header.length) {
+            return false;
+        }
+        for (int i = 0; i < header.length; i++) {
+            if (data.get(recordStart + i) != header[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Transaction toTransaction() {
+        int dateColumn = columnIndexes[Field.TRANSACTION_DATE.ordinal()];
+        if (dateColumn >= valueCount || trimmedStart(dateColumn) == trimmedEnd(dateColumn)) {
+            throw new IllegalArgumentException("missing transaction date");
+        }
+        Transaction transaction = new Transaction()
+            .accountType(accountType())
+            .chequeNumber(text(Field.CHEQUE_NUMBER))
+            .description1(text(Field.DESCRIPTION_1))
+            .description2(text(Field.DESCRIPTION_2))
+            .amountCAD(amount(Field.AMOUNT_CAD))
+            .amountUSD(amount(Field.AMOUNT_USD));
+        transaction.setTransactionDate(StatementValues.parseDate(data, trimmedStart(dateColumn), trimmedEnd(dateColumn)));
+        return transaction;
+    }
+
+    private Long amount(Field field) {
+        int column = columnIndexes[field.ordinal()];
+        if (column < 0 || column >= valueCount) {
+            return null;
+        }
+        return StatementValues.parseAmount(data, trimmedStart(column), trimmedEnd(column));
+    }
+
+    private String accountType() {
+        int column = columnIndexes[Field.ACCOUNT_TYPE.ordinal()];
+        if (column < 0 || column >= valueCount || escaped[column]) {
+            return text(Field.ACCOUNT_TYPE);
+        }
+        int start = trimmedStart(column);
+        int length = trimmedEnd(column) - start;
+        if (length == 0) {
+            return null;
+        }
+        if (length == lastAccountTypeBytes.length && lastAccountType != null && sameBytes(start, lastAccountTypeBytes)) {
+            return lastAccountType;
+        }
+        lastAccountTypeBytes = new byte[length];
+        copy(start, lastAccountTypeBytes, length);
+        lastAccountType = new String(lastAccountTypeBytes, StandardCharsets.UTF_8);
+        return lastAccountType;
+    }
+
+    private String text(Field field) {
+        int column = columnIndexes[field.ordinal()];
+        if (column < 0 || column >= valueCount) {
+            return null;
+        }
+        int start = trimmedStart(column);
+        int length = trimmedEnd(column) - start;
+        if (length == 0) {
+            return null;
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        copy(start, scratch, length);
+        if (escaped[column]) {
+            length = unescapeQuotes(scratch, length);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static int unescapeQuotes(byte[] bytes, int length) {
+        int write = 0;
+        for (int read = 0; read < length; read++) {
+            bytes[write++] = bytes[read];
+            if (bytes[read] == QUOTE && read + 1 < length && bytes[read + 1] == QUOTE) {
+                read++;
+            }
+        }
+        return write;
+    }
+
+    private boolean sameBytes(int start, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (data.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void copy(int start, byte[] target, int length) {
+        for (int i = 0; i < length; i++) {
+            target[i] = data.get(start + i);
+        }
+    }
+
+    private int trimmedStart(int column) {
+        int start = starts[column];
+        int end = ends[column];
+        while (start < end && (data.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimmedEnd(int column) {
+        int start = starts[column];
+        int end = ends[column];
+        while (end > start && (data.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,141 @@
+package org.diytechprojects.financialanalyst.service.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+/**
+ * Blocking {@link InputStream} over a {@link Flux} of {@link DataBuffer}s, for the parsers built on blocking APIs like StAX.
+ * <p>
+ * Only a few buffers are requested ahead, the next one being requested when a buffer has been fully read,
+ * so the memory used does not depend on the size of the content. The content is subscribed to on the first read,
+ * reads block and must not happen on a non-blocking thread.
+ */
+public class DataBufferInputStream extends InputStream implements Subscriber<DataBuffer> {
+
+    private static final int PREFETCH = 4;
+
+    private static final Object COMPLETE = new Object();
+
+    private final Flux<DataBuffer> content;
+
+    // room for every requested buffer plus the terminal signal, so offer() never fails
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(PREFETCH + 1);
+
+    private volatile Subscription subscription;
+
+    private DataBuffer current;
+
+    private boolean subscribed;
+
+    private boolean done;
+
+    public DataBufferInputStream(Flux<DataBuffer> content) {
+        this.content = content;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(PREFETCH);
+    }
+
+    @Override
+    public void onNext(DataBuffer buffer) {
+        queue.offer(buffer);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        queue.offer(error);
+    }
+
+    @Override
+    public void onComplete() {
+        queue.offer(COMPLETE);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextBuffer()) {
+            return -1;
+        }
+        return current.read() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!nextBuffer()) {
+            return -1;
+        }
+        int count = Math.min(length, current.readableByteCount());
+        current.read(bytes, offset, count);
+        return count;
+    }
+
+    /**
+     * Make sure {@code current} has readable bytes, waiting for the next buffer if needed.
+     *
+     * @return false at the end of the content.
+     */
+    private boolean nextBuffer() throws IOException {
+        while (current == null || current.readableByteCount() == 0) {
+            if (done) {
+                return false;
+            }
+            if (!subscribed) {
+                subscribed = true;
+                content.subscribe(this);
+            }
+            if (current != null) {
+                DataBufferUtils.release(current);
+                current = null;
+                subscription.request(1);
+            }
+            Object next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the content");
+            }
+            if (next == COMPLETE) {
+                done = true;
+            } else if (next instanceof Throwable) {
+                done = true;
+                throw new IOException("Failed to read the content", (Throwable) next);
+            } else {
+                current = (DataBuffer) next;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        done = true;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        if (current != null) {
+            DataBufferUtils.release(current);
+            current = null;
+        }
+        Object next;
+        while ((next = queue.poll()) != null) {
+            if (next instanceof DataBuffer) {
+                DataBufferUtils.release((DataBuffer) next);
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package org.diytechprojects.financialanalyst.service.importer;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Streaming conversion of an OFX 1.x (SGML) document into well-formed XML, so it can be read with StAX.
+ * <p>
+ * SGML OFX leaves the closing tag of the leaf elements out: {@code <TRNAMT>-12.34} is followed directly by the next tag.
+ * A start tag followed by text is a leaf, its closing tag is added before the next tag unless that tag closes it.
+ * A start tag followed by blanks only is either an aggregate or an empty leaf like {@code <MEMO>}, the two can only be
+ * told apart by name: the aggregates of the statements are kept open, any other element is closed as an empty leaf. The
+ * closing tag of an element closed that way is dropped, so an aggregate missing from the list only loses its children.
+ * The header lines preceding the {@code <OFX>} element are skipped and stray {@code &} are escaped.
+ * Only the current tag and the names of the open aggregates are held in memory.
+ */
+class OfxSgmlReader extends Reader {
+
+    private static final int MAX_ENTITY_LENGTH = 8;
+
+    private static final Set<String> AGGREGATES = new HashSet<>(
+        Arrays.asList(
+            "OFX",
+            "SIGNONMSGSRSV1",
+            "SONRS",
+            "STATUS",
+            "FI",
+            "SIGNUPMSGSRSV1",
+            "ACCTINFOTRNRS",
+            "ACCTINFORS",
+            "ACCTINFO",
+            "BANKACCTINFO",
+            "CCACCTINFO",
+            "INVACCTINFO",
+            "BANKMSGSRSV1",
+            "STMTTRNRS",
+            "STMTRS",
+            "BANKACCTFROM",
+            "BANKACCTTO",
+            "BANKTRANLIST",
+            "STMTTRN",
+            "PAYEE",
+            "CURRENCY",
+            "ORIGCURRENCY",
+            "LEDGERBAL",
+            "AVAILBAL",
+            "BALLIST",
+            "BAL",
+            "CREDITCARDMSGSRSV1",
+            "CCSTMTTRNRS",
+            "CCSTMTRS",
+            "CCACCTFROM",
+            "CCACCTTO",
+            "INVSTMTMSGSRSV1",
+            "INVSTMTTRNRS",
+            "INVSTMTRS",
+            "INVACCTFROM",
+            "INVTRANLIST",
+            "INVBANKTRAN",
+            "INVPOSLIST",
+            "INVBAL",
+            "INVOOLIST",
+            "SECLISTMSGSRSV1",
+            "SECLIST"
+        )
+    );
+
+    private final PushbackReader in;
+
+    private final StringBuilder out = new StringBuilder();
+
+    private int outPosition;
+
+    private String lastStartTag;
+
+    private String openLeaf;
+
+    private final Deque<String> openAggregates = new ArrayDeque<>();
+
+    private boolean headerSkipped;
+
+    private boolean eof;
+
+    OfxSgmlReader(Reader in) {
+        this.in = new PushbackReader(in, MAX_ENTITY_LENGTH + 1);
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (outPosition >= out.length()) {
+            if (eof) {
+                return -1;
+            }
+            out.setLength(0);
+            outPosition = 0;
+            nextToken();
+        }
+        int count = Math.min(length, out.length() - outPosition);
+        out.getChars(outPosition, outPosition + count, chars, offset);
+        outPosition += count;
+        return count;
+    }
+
+    private void nextToken() throws IOException {
+        if (!headerSkipped) {
+            skipHeader();
+        }
+        int c = in.read();
+        if (c == -1) {
+            closeLeaf();
+            closeEmptyLeaf();
+            eof = true;
+        } else if (c == '<') {
+            tag();
+        } else {
+            in.unread(c);
+            text();
+        }
+    }
+
+    private void skipHeader() throws IOException {
+        headerSkipped = true;
+        int c;
+        while ((c = in.read()) != -1 && c != '<') {
+            // OFXHEADER:100, DATA:OFXSGML, ... up to the root element
+        }
+        if (c == '<') {
+            in.unread(c);
+        }
+    }
+
+    private void tag() throws IOException {
+        StringBuilder tag = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '>') {
+            tag.append((char) c);
+        }
+        String content = tag.toString().trim();
+        if (content.startsWith("/")) {
+            String name = content.substring(1).trim();
+            if (openLeaf != null && !openLeaf.equals(name)) {
+                closeLeaf();
+            }
+            if (openLeaf == null && lastStartTag != null && !lastStartTag.equals(name)) {
+                closeEmptyLeaf();
+            }
+            if (openLeaf != null || name.equals(lastStartTag)) {
+                out.append("</").append(name).append('>');
+            } else if (openAggregates.contains(name)) {
+                String aggregate;
+                do {
+                    aggregate = openAggregates.pop();
+                    out.append("</").append(aggregate).append('>');
+                } while (!aggregate.equals(name));
+            }
+            openLeaf = null;
+            lastStartTag = null;
+        } else if (content.startsWith("?") || content.startsWith("!")) {
+            out.append('<').append(content).append('>');
+        } else {
+            closeLeaf();
+            closeEmptyLeaf();
+            out.append('<').append(content).append('>');
+            lastStartTag = content.endsWith("/") ? null : content;
+        }
+    }
+
+    private void text() throws IOException {
+        int c;
+        while ((c = in.read()) != -1 && c != '<') {
+            if (!Character.isWhitespace(c) && openLeaf == null && lastStartTag != null) {
+                openLeaf = lastStartTag;
+            }
+            if (c == '&') {
+                entity();
+            } else if (c == '>') {
+                out.append("&gt;");
+            } else {
+                out.append((char) c);
+            }
+        }
+        if (c == '<') {
+            in.unread(c);
+        }
+    }
+
+    /**
+     * Copy a well-formed entity reference, or escape the ampersand of a raw {@code &} like in {@code A&W}.
+     */
+    private void entity() throws IOException {
+        char[] name = new char[MAX_ENTITY_LENGTH];
+        int length = 0;
+        int c = in.read();
+        while (c != -1 && length < MAX_ENTITY_LENGTH && (Character.isLetterOrDigit(c) || c == '#')) {
+            name[length++] = (char) c;
+            c = in.read();
+        }
+        if (c == ';' && length > 0) {
+            out.append('&').append(name, 0, length).append(';');
+            return;
+        }
+        if (c != -1) {
+            in.unread(c);
+        }
+        in.unread(name, 0, length);
+        out.append("&amp;");
+    }
+
+    private void closeLeaf() {
+        if (openLeaf != null) {
+            out.append("</").append(openLeaf).append('>');
+            openLeaf = null;
+            lastStartTag = null;
+        }
+    }
+
+    /**
+     * Close the last start tag if only blanks followed it, unless it is an aggregate which is then kept open.
+     */
+    private void closeEmptyLeaf() {
+        if (lastStartTag != null) {
+            if (AGGREGATES.contains(lastStartTag)) {
+                openAggregates.push(lastStartTag);
+            } else {
+                out.append("</").append(lastStartTag).append('>');
+            }
+            lastStartTag = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
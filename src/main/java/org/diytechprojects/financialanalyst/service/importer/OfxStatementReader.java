@@ -0,0 +1,219 @@
+package org.diytechprojects.financialanalyst.service.importer;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streaming reader of the transactions of an OFX or QFX bank statement.
+ * <p>
+ * Both OFX 2.x (XML) and OFX 1.x (SGML, the format of most QFX downloads) are supported, the variant is detected
+ * from the header. The document is pulled with StAX one event at a time, SGML being converted on the fly by an
+ * {@link OfxSgmlReader}, so the memory used does not depend on the size of the file.
+ * <p>
+ * Each {@code <STMTTRN>} becomes a {@link Transaction}: {@code NAME} and {@code MEMO} are the descriptions,
+ * {@code TRNAMT} goes to the CAD or USD amount depending on the currency of the statement and {@code ACCTTYPE}
+ * is the account type. Reads block, an instance must be used for a single file only.
+ */
+public class OfxStatementReader implements Closeable {
+
+    private final Logger log = LoggerFactory.getLogger(OfxStatementReader.class);
+
+    private static final int HEADER_LENGTH = 1024;
+
+    private static final Pattern SGML_CHARSET = Pattern.compile("CHARSET:\\s*(\\S+)");
+
+    private static final Pattern SGML_ENCODING = Pattern.compile("ENCODING:\\s*(\\S+)");
+
+    private static final String STMTTRN = "STMTTRN";
+
+    private static final Set<String> TRANSACTION_FIELDS = new HashSet<>(
+        Arrays.asList("DTPOSTED", "TRNAMT", "NAME", "MEMO", "CHECKNUM", "CURSYM")
+    );
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private final InputStream input;
+
+    private final XMLStreamReader reader;
+
+    private final Map<String, String> fields = new HashMap<>();
+
+    private String accountType;
+
+    private String currency;
+
+    private boolean inTransaction;
+
+    private long rejectedRows;
+
+    public OfxStatementReader(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input);
+        this.input = buffered;
+        buffered.mark(HEADER_LENGTH);
+        byte[] header = buffered.readNBytes(HEADER_LENGTH);
+        buffered.reset();
+        String headerText = new String(header, StandardCharsets.ISO_8859_1);
+        try {
+            if (headerText.contains("<?xml")) {
+                this.reader = XML_INPUT_FACTORY.createXMLStreamReader(buffered);
+            } else {
+                this.reader =
+                    XML_INPUT_FACTORY.createXMLStreamReader(new OfxSgmlReader(new InputStreamReader(buffered, sgmlCharset(headerText))));
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Invalid OFX file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read the next transaction of the statement.
+     *
+     * @return the transaction, or null at the end of the file.
+     * @throws IllegalArgumentException if the file is not a valid OFX document.
+     */
+    public Transaction next() {
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    startElement(reader.getLocalName());
+                } else if (event == XMLStreamConstants.END_ELEMENT && STMTTRN.equals(reader.getLocalName())) {
+                    inTransaction = false;
+                    Transaction transaction = toTransaction();
+                    if (transaction != null) {
+                        return transaction;
+                    }
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Invalid OFX file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the number of transactions which could not be converted so far.
+     */
+    public long getRejectedRows() {
+        return rejectedRows;
+    }
+
+    private void startElement(String name) throws XMLStreamException {
+        if (STMTTRN.equals(name)) {
+            inTransaction = true;
+            fields.clear();
+        } else if (inTransaction) {
+            if (TRANSACTION_FIELDS.contains(name)) {
+                fields.put(name, reader.getElementText().trim());
+            }
+        } else if ("CURDEF".equals(name)) {
+            currency = reader.getElementText().trim();
+        } else if ("ACCTTYPE".equals(name)) {
+            accountType = reader.getElementText().trim();
+        } else if ("CCACCTFROM".equals(name)) {
+            accountType = "CREDITCARD";
+        } else if ("INVACCTFROM".equals(name)) {
+            accountType = "INVESTMENT";
+        }
+    }
+
+    private Transaction toTransaction() {
+        try {
+            String date = fields.get("DTPOSTED");
+            String amount = fields.get("TRNAMT");
+            if (date == null || date.length() < 8 || amount == null) {
+                throw new IllegalArgumentException("missing date or amount");
+            }
+            // DTPOSTED is YYYYMMDDHHMMSS.XXX[gmt offset:tz name], only the day is kept
+            Transaction transaction = new Transaction()
+                .accountType(accountType)
+                .transactionDate(StatementValues.parseDate(date.substring(0, 8)))
+                .chequeNumber(emptyToNull(fields.get("CHECKNUM")))
+                .description1(emptyToNull(fields.get("NAME")))
+                .description2(emptyToNull(fields.get("MEMO")));
+            // OFX allows a comma as the decimal separator
+            Long cents = StatementValues.parseAmount(amount.indexOf('.') < 0 ? amount.replace(',', '.') : amount);
+            String transactionCurrency = fields.getOrDefault("CURSYM", currency);
+            if ("USD".equalsIgnoreCase(transactionCurrency)) {
+                transaction.setAmountUSD(cents);
+            } else {
+                transaction.setAmountCAD(cents);
+            }
+            return transaction;
+        } catch (DateTimeParseException | ArithmeticException | IllegalArgumentException e) {
+            log.debug("Rejected transaction {} of the OFX import: {}", fields, e.getMessage());
+            rejectedRows++;
+            return null;
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * The charset of an SGML file, from the {@code ENCODING} and {@code CHARSET} header lines.
+     */
+    static Charset sgmlCharset(String header) {
+        Matcher encoding = SGML_ENCODING.matcher(header);
+        if (encoding.find() && encoding.group(1).toUpperCase(Locale.ROOT).replace("-", "").equals("UTF8")) {
+            return StandardCharsets.UTF_8;
+        }
+        Matcher charset = SGML_CHARSET.matcher(header);
+        if (charset.find() && charset.group(1).toUpperCase(Locale.ROOT).contains("8859")) {
+            return StandardCharsets.ISO_8859_1;
+        }
+        return Charset.forName("windows-1252");
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Close the reader, logging instead of throwing on failure.
+     */
+    public void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            log.debug("Failed to close the OFX file: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            log.debug("Failed to close the OFX reader: {}", e.getMessage());
+        } finally {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.diytechprojects.financialanalyst.service.importer;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Conversions of the values found in bank statements, shared by the statement parsers.
+ */
+final class StatementValues {
+
+    private static final List<DateTimeFormatter> DATE_FORMATS = Arrays.asList(
+        DateTimeFormatter.ofPattern("M/d/yyyy", Locale.ROOT),
+        DateTimeFormatter.ISO_LOCAL_DATE,
+        DateTimeFormatter.BASIC_ISO_DATE
+    );
+
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private StatementValues() {}
+
+    /**
+     * Parse a date in one of the formats used by bank exports, the transaction is stored at the start of the day in UTC.
+     *
+     * @param value the date, like {@code 4/7/2021}, {@code 2021-04-07} or {@code 20210407}.
+     * @return the transaction date.
+     */
+    static Instant parseDate(String value) {
+        DateTimeParseException failure = null;
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, format).atStartOfDay(ZoneOffset.UTC).toInstant();
+            } catch (DateTimeParseException e) {
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Parse an amount in dollars into cents.
+     *
+     * @param value the amount, like {@code -1,234.50}, {@code $12} or {@code (2.00)} for a negative amount.
+     * @return the amount in cents, or null if there is no value.
+     */
+    static Long parseAmount(String value) {
+        if (value == null) {
+            return null;
+        }
+        String number = value.replace("$", "").replace(",", "");
+        if (number.startsWith("(") && number.endsWith(")")) {
+            number = "-" + number.substring(1, number.length() - 1);
+        }
+        return new BigDecimal(number).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Parse a date straight from the bytes of a file, in the same formats as {@link #parseDate(String)}.
+     *
+     * @param data the content of the file.
+     * @param start the index of the first byte of the value.
+     * @param end the index following the last byte of the value.
+     * @return the transaction date.
+     */
+    static Instant parseDate(ByteBuffer data, int start, int end) {
+        int[] groups = new int[3];
+        int[] lengths = new int[3];
+        int group = 0;
+        byte separator = 0;
+        for (int i = start; i < end; i++) {
+            byte b = data.get(i);
+            if (b >= '0' && b <= '9') {
+                if (lengths[group] == 8) {
+                    throw new IllegalArgumentException("invalid date");
+                }
+                groups[group] = groups[group] * 10 + (b - '0');
+                lengths[group]++;
+            } else if ((b == '/' || b == '-') && (separator == 0 || separator == b) && group < 2 && lengths[group] > 0) {
+                separator = b;
+                group++;
+            } else {
+                throw new IllegalArgumentException("invalid date");
+            }
+        }
+        LocalDate date;
+        if (group == 0 && lengths[0] == 8) {
+            date = LocalDate.of(groups[0] / 10_000, groups[0] / 100 % 100, groups[0] % 100);
+        } else if (group == 2 && separator == '/' && lengths[2] == 4) {
+            date = LocalDate.of(groups[2], groups[0], groups[1]);
+        } else if (group == 2 && separator == '-' && lengths[0] == 4) {
+            date = LocalDate.of(groups[0], groups[1], groups[2]);
+        } else {
+            throw new IllegalArgumentException("invalid date");
+        }
+        return Instant.ofEpochSecond(date.toEpochDay() * SECONDS_PER_DAY);
+    }
+
+    /**
+     * Parse an amount in dollars into cents straight from the bytes of a file, like {@link #parseAmount(String)}.
+     *
+     * @param data the content of the file.
+     * @param start the index of the first byte of the value.
+     * @param end the index following the last byte of the value.
+     * @return the amount in cents, or null if there is no value.
+     */
+    static Long parseAmount(ByteBuffer data, int start, int end) {
+        if (start >= end) {
+            return null;
+        }
+        boolean negative = false;
+        boolean parenthesis = false;
+        boolean closed = false;
+        boolean digits = false;
+        boolean roundUp = false;
+        int decimals = -1;
+        long cents = 0;
+        for (int i = start; i < end; i++) {
+            byte b = data.get(i);
+            if (closed) {
+                throw new IllegalArgumentException("invalid amount");
+            } else if (b >= '0' && b <= '9') {
+                digits = true;
+                if (decimals < 2) {
+                    cents = Math.addExact(Math.multiplyExact(cents, 10), b - '0');
+                    decimals = decimals < 0 ? decimals : decimals + 1;
+                } else if (decimals++ == 2) {
+                    // only the first dropped digit matters for half up rounding
+                    roundUp = b >= '5';
+                }
+            } else if (b == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (b == '$' || b == ',') {
+                continue;
+            } else if (b == '-' && !digits && !negative) {
+                negative = true;
+            } else if (b == '(' && !digits && !negative) {
+                negative = true;
+                parenthesis = true;
+            } else if (b == ')' && parenthesis && digits) {
+                closed = true;
+            } else {
+                throw new IllegalArgumentException("invalid amount");
+            }
+        }
+        if (!digits || parenthesis != closed) {
+            throw new IllegalArgumentException("invalid amount");
+        }
+        if (decimals <= 0) {
+            cents = Math.multiplyExact(cents, 100);
+        } else if (decimals == 1) {
+            cents = Math.multiplyExact(cents, 10);
+        }
+        if (roundUp) {
+            cents = Math.addExact(cents, 1);
+        }
+        return negative ? -cents : cents;
+    }
+}
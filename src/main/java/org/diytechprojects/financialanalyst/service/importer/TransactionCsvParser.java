@@ -0,0 +1,186 @@
+package org.diytechprojects.financialanalyst.service.importer;
+
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Incremental parser turning the lines of a bank statement CSV export into {@link Transaction}s.
+ * <p>
+ * The first non blank line is the header, columns are matched by name so both the bank export layout
+ * ({@code "Account Type","Transaction Date",...,"CAD$","USD$"}) and the database column names are accepted.
+ * Amounts are converted to cents, dates are stored at the start of the day in UTC.
+ * <p>
+ * An instance keeps state between lines (header, quoted values spanning several lines), so it must be used for a single file only.
+ */
+public class TransactionCsvParser {
+
+    private final Logger log = LoggerFactory.getLogger(TransactionCsvParser.class);
+
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+
+    enum Field {
+        ACCOUNT_TYPE("account type"),
+        TRANSACTION_DATE("transaction date", "date"),
+        CHEQUE_NUMBER("cheque number"),
+        DESCRIPTION_1("description 1"),
+        DESCRIPTION_2("description 2"),
+        AMOUNT_CAD("cad$", "amount cad"),
+        AMOUNT_USD("usd$", "amount usd");
+
+        private final List<String> names;
+
+        Field(String... names) {
+            this.names = Arrays.asList(names);
+        }
+    }
+
+    private int[] columnIndexes;
+
+    private StringBuilder pendingLine;
+
+    private long lineNumber;
+
+    private long rejectedRows;
+
+    /**
+     * Parse the next line of the file.
+     *
+     * @param line a line without its line terminator.
+     * @return the parsed transaction, or empty for the header, blank, incomplete or rejected lines.
+     */
+    public Optional<Transaction> parseLine(String line) {
+        lineNumber++;
+        if (pendingLine != null) {
+            line = pendingLine.append('\n').append(line).toString();
+            pendingLine = null;
+        }
+        if (hasOpenQuote(line)) {
+            // a quoted value contains a line break, wait for the rest of the record
+            pendingLine = new StringBuilder(line);
+            return Optional.empty();
+        }
+        if (line.trim().isEmpty()) {
+            return Optional.empty();
+        }
+        List<String> values = split(line);
+        if (columnIndexes == null) {
+            readHeader(values);
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(toTransaction(values));
+        } catch (DateTimeParseException | ArithmeticException | IllegalArgumentException e) {
+            log.debug("Rejected line {} of the CSV import: {}", lineNumber, e.getMessage());
+            rejectedRows++;
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the number of data lines which could not be converted into a transaction so far.
+     */
+    public long getRejectedRows() {
+        return rejectedRows;
+    }
+
+    private void readHeader(List<String> header) {
+        columnIndexes = columnIndexes(header);
+    }
+
+    /**
+     * Match the columns of a header line to the transaction fields.
+     *
+     * @param header the values of the header line.
+     * @return the index of the column of each {@link Field}, by ordinal, -1 for the missing ones.
+     * @throws IllegalArgumentException if there is no transaction date column.
+     */
+    static int[] columnIndexes(List<String> header) {
+        int[] indexes = new int[Field.values().length];
+        Arrays.fill(indexes, -1);
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).replace("\uFEFF", "").replace('_', ' ').trim().toLowerCase(Locale.ROOT);
+            for (Field field : Field.values()) {
+                if (field.names.contains(name)) {
+                    indexes[field.ordinal()] = i;
+                }
+            }
+        }
+        if (indexes[Field.TRANSACTION_DATE.ordinal()] < 0) {
+            throw new IllegalArgumentException("The CSV header has no transaction date column: " + header);
+        }
+        return indexes;
+    }
+
+    private Transaction toTransaction(List<String> values) {
+        Transaction transaction = new Transaction()
+            .accountType(value(values, Field.ACCOUNT_TYPE))
+            .chequeNumber(value(values, Field.CHEQUE_NUMBER))
+            .description1(value(values, Field.DESCRIPTION_1))
+            .description2(value(values, Field.DESCRIPTION_2))
+            .amountCAD(StatementValues.parseAmount(value(values, Field.AMOUNT_CAD)))
+            .amountUSD(StatementValues.parseAmount(value(values, Field.AMOUNT_USD)));
+        String date = value(values, Field.TRANSACTION_DATE);
+        if (date == null) {
+            throw new IllegalArgumentException("missing transaction date");
+        }
+        transaction.setTransactionDate(StatementValues.parseDate(date));
+        return transaction;
+    }
+
+    private String value(List<String> values, Field field) {
+        int index = columnIndexes[field.ordinal()];
+        if (index < 0 || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static boolean hasOpenQuote(String line) {
+        boolean open = false;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == QUOTE) {
+                open = !open;
+            }
+        }
+        return open;
+    }
+
+    static List<String> split(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == QUOTE) {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == QUOTE) {
+                        current.append(QUOTE);
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == QUOTE) {
+                quoted = true;
+            } else if (c == SEPARATOR) {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+}
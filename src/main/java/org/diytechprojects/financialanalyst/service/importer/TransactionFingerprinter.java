@@ -0,0 +1,98 @@
+package org.diytechprojects.financialanalyst.service.importer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.service.categorization.LongIntMap;
+import org.diytechprojects.financialanalyst.service.categorization.TransactionNormalizer;
+
+/**
+ * Computes the deterministic fingerprint identifying an imported statement row.
+ * <p>
+ * The fingerprint is the SHA-256 of the account type, transaction date, amounts, descriptions and cheque number.
+ * The text values are hashed as {@link TransactionNormalizer} cleans them up, so a row gets the same fingerprint
+ * whether it is fingerprinted as parsed or once normalized, whatever the way it is imported.
+ * Statements legitimately contain identical rows (two coffees on the same day), so the occurrence of the row within
+ * the file is part of the hash: the second identical row of a file gets a different fingerprint than the first one,
+ * and the same fingerprint again when an overlapping file is imported later.
+ * <p>
+ * Occurrences are counted per file, whatever the order of its dates, so that no genuine row ever gets the fingerprint
+ * of another one. They are kept in a {@link LongIntMap} keyed by the first 64 bits of the digest of the row content:
+ * about 24 bytes per distinct row. Two distinct rows sharing these bits would only number each other's occurrences,
+ * which still gives distinct and repeatable fingerprints. An instance must be used for a single file only.
+ */
+public class TransactionFingerprinter {
+
+    private static final char SEPARATOR = '\u001F';
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final MessageDigest digest;
+
+    private final LongIntMap occurrences = new LongIntMap();
+
+    public TransactionFingerprinter() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Compute the fingerprint of the next row of the file and set it on the transaction, counting the occurrence of
+     * its content among the rows of the file fingerprinted so far.
+     *
+     * @param transaction the parsed transaction.
+     * @return the same transaction.
+     */
+    public Transaction apply(Transaction transaction) {
+        String content = content(transaction);
+        byte[] contentDigest = digest.digest(content.getBytes(StandardCharsets.UTF_8));
+        long key = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            key = (key << 8) | (contentDigest[i] & 0xFF);
+        }
+        int occurrence = Math.max(occurrences.get(key), 0) + 1;
+        occurrences.put(key, occurrence);
+        transaction.setFingerprint(hash(content + SEPARATOR + occurrence));
+        return transaction;
+    }
+
+    private static String content(Transaction transaction) {
+        return new StringBuilder()
+            .append(normalized(transaction.getAccountType()))
+            .append(SEPARATOR)
+            .append(valueOf(transaction.getTransactionDate()))
+            .append(SEPARATOR)
+            .append(valueOf(transaction.getAmountCAD()))
+            .append(SEPARATOR)
+            .append(valueOf(transaction.getAmountUSD()))
+            .append(SEPARATOR)
+            .append(normalized(transaction.getDescription1()))
+            .append(SEPARATOR)
+            .append(normalized(transaction.getDescription2()))
+            .append(SEPARATOR)
+            .append(normalized(transaction.getChequeNumber()))
+            .toString();
+    }
+
+    private static String normalized(String value) {
+        return valueOf(TransactionNormalizer.normalize(value));
+    }
+
+    private static String valueOf(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    private String hash(String value) {
+        byte[] bytes = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
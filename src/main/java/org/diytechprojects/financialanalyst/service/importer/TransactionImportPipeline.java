@@ -0,0 +1,224 @@
+package org.diytechprojects.financialanalyst.service.importer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.service.DescriptionCacheService;
+import org.diytechprojects.financialanalyst.service.TransactionCategorizationService;
+import org.diytechprojects.financialanalyst.service.TransactionClassifierService;
+import org.diytechprojects.financialanalyst.service.TransactionService;
+import org.diytechprojects.financialanalyst.service.categorization.TransactionClassifier;
+import org.diytechprojects.financialanalyst.service.categorization.TransactionNormalizer;
+import org.diytechprojects.financialanalyst.service.dto.ImportProgressDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+/**
+ * Backpressured import pipeline: parse, normalize, categorize and persist.
+ * <p>
+ * Parsing is done by the caller, sequentially, as it depends on the previous lines of the file. The parsed
+ * transactions are grouped into batches which then go through the other stages. Each stage reads from a bounded
+ * queue, so a slow stage (usually the database) holds back the parser instead of letting batches pile up in memory.
+ * The normalize and categorize stages run on the parallel scheduler with one batch per core by default, the persist
+ * stage is capped to the size of the connection pool. Batches leave the pipeline in the order of the file.
+ * <p>
+ * The normalized descriptions are replaced by their shared instances, see {@link DescriptionCacheService}, so the
+ * batches in the queues keep one copy of each merchant. The transactions no rule matches can be given the category
+ * the {@link TransactionClassifier} suggests, when it is confident enough, see
+ * {@code application.bulk-import.classifier-min-confidence}.
+ * <p>
+ * The number of batches queued or in progress in each stage is published as the
+ * {@code import.pipeline.queue.depth} gauge, summed over the running imports.
+ */
+@Service
+public class TransactionImportPipeline {
+
+    private final Logger log = LoggerFactory.getLogger(TransactionImportPipeline.class);
+
+    enum Stage {
+        NORMALIZE,
+        CATEGORIZE,
+        PERSIST,
+    }
+
+    private final TransactionService transactionService;
+
+    private final TransactionCategorizationService transactionCategorizationService;
+
+    private final TransactionClassifierService transactionClassifierService;
+
+    private final DescriptionCacheService descriptionCacheService;
+
+    private final ApplicationProperties.BulkImport properties;
+
+    private final int persistConcurrency;
+
+    private final Set<PipelineRun> activeRuns = ConcurrentHashMap.newKeySet();
+
+    public TransactionImportPipeline(
+        TransactionService transactionService,
+        TransactionCategorizationService transactionCategorizationService,
+        TransactionClassifierService transactionClassifierService,
+        DescriptionCacheService descriptionCacheService,
+        ApplicationProperties applicationProperties,
+        R2dbcProperties r2dbcProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.transactionService = transactionService;
+        this.transactionCategorizationService = transactionCategorizationService;
+        this.transactionClassifierService = transactionClassifierService;
+        this.descriptionCacheService = descriptionCacheService;
+        this.properties = applicationProperties.getBulkImport();
+        this.persistConcurrency =
+            properties.getPersistConcurrency() > 0 ? properties.getPersistConcurrency() : r2dbcProperties.getPool().getMaxSize();
+        for (Stage stage : Stage.values()) {
+            Gauge
+                .builder("import.pipeline.queue.depth", activeRuns, runs -> runs.stream().mapToInt(run -> run.depth(stage)).sum())
+                .description("Number of batches queued or in progress in a stage of the import pipeline")
+                .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Run the parsed transactions through the pipeline.
+     *
+     * @param transactions the parsed transactions, in the order of the file.
+     * @param batchSize the number of transactions per batch.
+     * @param rejectedRows the number of rows the parser rejected so far.
+     * @return the progress of the import, one element per persisted batch.
+     */
+    public Flux<ImportProgressDTO> run(Flux<Transaction> transactions, int batchSize, LongSupplier rejectedRows) {
+        return transactionCategorizationService
+            .loadCategorizer()
+            .flatMapMany(
+                categorizer -> {
+                    Function<Transaction, Transaction> categorize = categorizer::categorize;
+                    double minConfidence = properties.getClassifierMinConfidence();
+                    if (minConfidence > 0) {
+                        TransactionClassifier classifier = transactionClassifierService.getClassifier();
+                        categorize = categorize.andThen(transaction -> classifier.categorize(transaction, minConfidence));
+                    }
+                    Function<Transaction, Transaction> step = categorize;
+                    PipelineRun run = new PipelineRun();
+                    activeRuns.add(run);
+                    Flux<List<Transaction>> normalized = stage(
+                        run,
+                        Stage.NORMALIZE,
+                        transactions.buffer(batchSize),
+                        properties.getNormalizeConcurrency(),
+                        batch -> onCpu(batch, this::normalize)
+                    );
+                    Flux<List<Transaction>> categorized = stage(
+                        run,
+                        Stage.CATEGORIZE,
+                        normalized,
+                        properties.getCategorizeConcurrency(),
+                        batch -> onCpu(batch, step)
+                    );
+                    Flux<Tuple2<Integer, Integer>> persisted = stage(
+                        run,
+                        Stage.PERSIST,
+                        categorized,
+                        persistConcurrency,
+                        batch -> transactionService.insertNew(batch).map(inserted -> Tuples.of(batch.size(), inserted))
+                    );
+                    return progress(persisted, rejectedRows).doFinally(signal -> activeRuns.remove(run));
+                }
+            );
+    }
+
+    private <R> Flux<R> stage(
+        PipelineRun run,
+        Stage stage,
+        Flux<List<Transaction>> batches,
+        int concurrency,
+        Function<List<Transaction>, Mono<R>> work
+    ) {
+        return batches
+            .doOnNext(batch -> run.enqueued(stage))
+            .publishOn(Schedulers.parallel(), properties.getStageQueueSize())
+            .flatMapSequential(batch -> work.apply(batch).doFinally(signal -> run.dequeued(stage)), concurrency);
+    }
+
+    private Transaction normalize(Transaction transaction) {
+        return descriptionCacheService.internDescriptions(TransactionNormalizer.normalize(transaction));
+    }
+
+    private static Mono<List<Transaction>> onCpu(List<Transaction> batch, Function<Transaction, Transaction> step) {
+        return Mono
+            .fromCallable(
+                () -> {
+                    batch.forEach(step::apply);
+                    return batch;
+                }
+            )
+            .subscribeOn(Schedulers.parallel());
+    }
+
+    private Flux<ImportProgressDTO> progress(Flux<Tuple2<Integer, Integer>> persisted, LongSupplier rejectedRows) {
+        long start = System.currentTimeMillis();
+        AtomicLong batches = new AtomicLong();
+        AtomicLong totalRows = new AtomicLong();
+        AtomicLong insertedRows = new AtomicLong();
+        AtomicLong skippedRows = new AtomicLong();
+        return persisted
+            .map(
+                batch ->
+                    new ImportProgressDTO(
+                        batches.incrementAndGet(),
+                        batch.getT1(),
+                        totalRows.addAndGet(batch.getT1()),
+                        insertedRows.addAndGet(batch.getT2()),
+                        skippedRows.addAndGet(batch.getT1() - batch.getT2()),
+                        rejectedRows.getAsLong(),
+                        System.currentTimeMillis() - start
+                    )
+            )
+            .doOnComplete(
+                () -> log.debug("Imported {} transactions in {} batches, {} already existed", insertedRows, batches, skippedRows)
+            );
+    }
+
+    /**
+     * Queue depths of a single import.
+     */
+    private static final class PipelineRun {
+
+        private final AtomicInteger[] depths = new AtomicInteger[Stage.values().length];
+
+        private PipelineRun() {
+            for (int i = 0; i < depths.length; i++) {
+                depths[i] = new AtomicInteger();
+            }
+        }
+
+        private void enqueued(Stage stage) {
+            depths[stage.ordinal()].incrementAndGet();
+        }
+
+        private void dequeued(Stage stage) {
+            depths[stage.ordinal()].decrementAndGet();
+        }
+
+        private int depth(Stage stage) {
+            return depths[stage.ordinal()].get();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.diytechprojects.financialanalyst.service.importer;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.repository.TransactionStagingRepository;
+import org.diytechprojects.financialanalyst.service.TransactionRollupService;
+import org.diytechprojects.financialanalyst.service.categorization.TransactionNormalizer;
+import org.diytechprojects.financialanalyst.service.dto.ImportProgressDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
+
+/**
+ * Staged import: the parsed transactions are bulk-loaded into the staging table as they are, then validated,
+ * deduplicated, categorized and merged into {@code transaction} by a handful of set-based statements.
+ * <p>
+ * Unlike the {@link TransactionImportPipeline}, the database does the work of the import: the number of statements
+ * does not grow with the file past the load, and the merge is a single {@code INSERT ... SELECT} committed with the
+ * other steps, so the file is imported as a whole or not at all. The staging rows of the import are deleted once it is
+ * finished, failed or cancelled.
+ */
+@Service
+public class TransactionStagingImport {
+
+    private final Logger log = LoggerFactory.getLogger(TransactionStagingImport.class);
+
+    private final TransactionStagingRepository transactionStagingRepository;
+
+    private final TransactionRollupService transactionRollupService;
+
+    private final TransactionalOperator transactionalOperator;
+
+    public TransactionStagingImport(
+        TransactionStagingRepository transactionStagingRepository,
+        TransactionRollupService transactionRollupService,
+        TransactionalOperator transactionalOperator
+    ) {
+        this.transactionStagingRepository = transactionStagingRepository;
+        this.transactionRollupService = transactionRollupService;
+        this.transactionalOperator = transactionalOperator;
+    }
+
+    /**
+     * Stage the parsed transactions, then merge them.
+     *
+     * @param transactions the parsed transactions, in the order of the file.
+     * @param batchSize the number of rows per load statement.
+     * @param rejectedRows the number of rows the parser rejected so far.
+     * @return the progress of the import: one element per loaded batch, with no inserted rows yet,
+     * then a last element with the outcome of the merge.
+     */
+    public Flux<ImportProgressDTO> run(Flux<Transaction> transactions, int batchSize, LongSupplier rejectedRows) {
+        return Flux.usingWhen(
+            Mono.fromSupplier(() -> UUID.randomUUID().toString()),
+            importId -> stage(importId, transactions, batchSize, rejectedRows),
+            transactionStagingRepository::delete,
+            (importId, e) -> transactionStagingRepository.delete(importId),
+            transactionStagingRepository::delete
+        );
+    }
+
+    private Flux<ImportProgressDTO> stage(String importId, Flux<Transaction> transactions, int batchSize, LongSupplier rejectedRows) {
+        long start = System.currentTimeMillis();
+        AtomicLong batches = new AtomicLong();
+        AtomicLong loadedRows = new AtomicLong();
+        Flux<ImportProgressDTO> loaded = transactions
+            .map(TransactionNormalizer::normalize)
+            .buffer(batchSize)
+            .concatMap(
+                batch ->
+                    transactionStagingRepository
+                        .load(importId, loadedRows.getAndAdd(batch.size()), batch)
+                        .map(
+                            rows ->
+                                new ImportProgressDTO(
+                                    batches.incrementAndGet(),
+                                    rows,
+                                    loadedRows.get(),
+                                    0,
+                                    0,
+                                    rejectedRows.getAsLong(),
+                                    System.currentTimeMillis() - start
+                                )
+                        )
+            );
+        return loaded.concatWith(Mono.defer(() -> merge(importId, batches.get(), start, rejectedRows)));
+    }
+
+    private Mono<ImportProgressDTO> merge(String importId, long batches, long start, LongSupplier rejectedRows) {
+        return transactionStagingRepository
+            .reject(importId)
+            .then(transactionStagingRepository.markDuplicates(importId))
+            .then(transactionStagingRepository.categorize(importId))
+            .then(
+                transactionRollupService.apply(
+                    TransactionStagingRepository.MERGED_ROWS,
+                    Collections.singletonMap("importId", importId),
+                    transactionStagingRepository.merge(importId)
+                )
+            )
+            .flatMap(inserted -> transactionStagingRepository.countByStatus(importId).map(counts -> Tuples.of(inserted, counts)))
+            .as(transactionalOperator::transactional)
+            .map(
+                outcome -> {
+                    long totalRows = outcome.getT2().values().stream().mapToLong(Long::longValue).sum();
+                    long rejected = outcome.getT2().getOrDefault(TransactionStagingRepository.STATUS_REJECTED, 0L);
+                    log.debug(
+                        "Merged {} staged transactions of import {}, {} rejected, {} already existed",
+                        outcome.getT1(),
+                        importId,
+                        rejected,
+                        totalRows - rejected - outcome.getT1()
+                    );
+                    return new ImportProgressDTO(
+                        batches + 1,
+                        (int) totalRows,
+                        totalRows,
+                        outcome.getT1(),
+                        totalRows - rejected - outcome.getT1(),
+                        rejectedRows.getAsLong() + rejected,
+                        System.currentTimeMillis() - start
+                    );
+                }
+            );
+    }
+}
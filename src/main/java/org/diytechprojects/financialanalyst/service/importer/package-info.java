@@ -0,0 +1,4 @@
+/**
+ * Parsers reading bank statement exports into transactions.
+ */
+package org.diytechprojects.financialanalyst.service.importer;
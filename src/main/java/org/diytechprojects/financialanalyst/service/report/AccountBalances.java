@@ -0,0 +1,153 @@
+package org.diytechprojects.financialanalyst.service.report;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+
+/**
+ * The running balances of the account types: the amounts of their transactions summed per day, in
+ * {@link DailyPrefixSums}, one per account type and currency, so that the balance at a date and the sum of a range of
+ * dates take {@code O(log n)}.
+ * <p>
+ * The transactions are read in chunks ordered by id, up to the {@link #getLastReadId() last id read}, and changed one
+ * at a time as they are saved and deleted, in any order: the transactions changed before they are read are remembered
+ * to be skipped when read, their changes being added already. The transactions without account type or date are not
+ * summed.
+ */
+public final class AccountBalances {
+
+    private final Map<String, DailyPrefixSums[]> balances = new HashMap<>();
+
+    /**
+     * The ids above the last one read of the transactions changed, not to be read again.
+     */
+    private final Set<Long> changedAhead = new HashSet<>();
+
+    private long lastReadId;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param transaction a transaction read, in the order of the ids; skipped if it is read or changed already.
+     */
+    public void read(Transaction transaction) {
+        lock.writeLock().lock();
+        try {
+            // read again by a refresh running along, or changed already
+            if (transaction.getId() > lastReadId && !changedAhead.remove(transaction.getId())) {
+                add(transaction, 1);
+            }
+            lastReadId = Math.max(lastReadId, transaction.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param lastId the last id of a chunk read, every transaction up to it being read; the ids of the transactions
+     * changed up to it are forgotten, as they will not be read.
+     */
+    public void readUpTo(long lastId) {
+        lock.writeLock().lock();
+        try {
+            lastReadId = Math.max(lastReadId, lastId);
+            changedAhead.removeIf(id -> id <= lastReadId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param previous the transaction before it was changed, null if it is new.
+     * @param saved the transaction once changed, null if it is deleted.
+     */
+    public void change(Transaction previous, Transaction saved) {
+        Long id = saved != null ? saved.getId() : previous != null ? previous.getId() : null;
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            // the previous amounts are summed once the transaction is read, or changed before
+            if (id <= lastReadId || !changedAhead.add(id)) {
+                add(previous, -1);
+            }
+            add(saved, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the highest id read, every transaction up to it being summed.
+     */
+    public long getLastReadId() {
+        lock.readLock().lock();
+        try {
+            return lastReadId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param accountType the account type.
+     * @param from the first epoch day, inclusive, {@link Integer#MIN_VALUE} for no limit.
+     * @param to the last epoch day, inclusive, {@link Integer#MAX_VALUE} for no limit.
+     * @param usd whether the amounts in USD are summed instead of the amounts in CAD.
+     * @return the sum of the amounts of the account type from the first to the last day, null if the account type has
+     * no transaction.
+     */
+    public Long sum(String accountType, int from, int to, boolean usd) {
+        lock.readLock().lock();
+        try {
+            DailyPrefixSums[] sums = balances.get(accountType);
+            if (sums == null) {
+                return null;
+            }
+            return sums[usd ? 1 : 0].sum(from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the estimated heap used by the balances.
+     */
+    public long bytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 64L + 8L * changedAhead.size();
+            for (DailyPrefixSums[] sums : balances.values()) {
+                bytes += sums[0].bytes() + sums[1].bytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Transaction transaction, int sign) {
+        if (transaction == null || transaction.getAccountType() == null) {
+            return;
+        }
+        int day = TransactionSnapshot.epochDay(transaction.getTransactionDate());
+        if (day == TransactionSnapshot.NO_DATE) {
+            return;
+        }
+        DailyPrefixSums[] sums = balances.computeIfAbsent(
+            transaction.getAccountType(),
+            accountType -> new DailyPrefixSums[] { new DailyPrefixSums(), new DailyPrefixSums() }
+        );
+        if (transaction.getAmountCAD() != null) {
+            sums[0].add(day, sign * transaction.getAmountCAD());
+        }
+        if (transaction.getAmountUSD() != null) {
+            sums[1].add(day, sign * transaction.getAmountUSD());
+        }
+    }
+}
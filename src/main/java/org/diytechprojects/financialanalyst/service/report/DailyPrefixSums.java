@@ -0,0 +1,127 @@
+package org.diytechprojects.financialanalyst.service.report;
+
+/**
+ * A Fenwick tree of amounts per day: adding to a day, and the sum of the amounts up to a day, take {@code O(log n)}
+ * for {@code n} days between the first and the last day added to.
+ * <p>
+ * The days are epoch days; the range of days covered grows as needed, doubling, so that adding to a day before or
+ * after it costs {@code O(n log n)} once in a while. Not thread-safe.
+ */
+public final class DailyPrefixSums {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The day of the first node.
+     */
+    private int firstDay;
+
+    /**
+     * The Fenwick tree, indexed from 1, the node {@code i} summing the days {@code firstDay + i - (i & -i)} to
+     * {@code firstDay + i - 1}; empty until a day is added to.
+     */
+    private long[] tree = new long[0];
+
+    /**
+     * @param day the epoch day.
+     * @param amount the amount added to the day, negative to subtract it.
+     */
+    public void add(int day, long amount) {
+        if (amount == 0) {
+            return;
+        }
+        if (tree.length == 0) {
+            // the most room is left to the days to come
+            firstDay = day - INITIAL_CAPACITY / 4;
+            tree = new long[INITIAL_CAPACITY + 1];
+        } else if (day < firstDay || (long) day - firstDay >= capacity()) {
+            grow(day);
+        }
+        for (int i = day - firstDay + 1; i < tree.length; i += i & -i) {
+            tree[i] += amount;
+        }
+    }
+
+    /**
+     * @param day the epoch day.
+     * @return the sum of the amounts of the days up to this one, inclusive.
+     */
+    public long sumTo(int day) {
+        if (tree.length == 0 || day < firstDay) {
+            return 0;
+        }
+        return prefix((int) Math.min((long) day - firstDay + 1, capacity()));
+    }
+
+    /**
+     * @param from the first epoch day, inclusive.
+     * @param to the last epoch day, inclusive.
+     * @return the sum of the amounts of the days from the first to the last one, 0 if the first is after the last.
+     */
+    public long sum(int from, int to) {
+        if (from > to) {
+            return 0;
+        }
+        return from == Integer.MIN_VALUE ? sumTo(to) : sumTo(to) - sumTo(from - 1);
+    }
+
+    /**
+     * @return the sum of the amounts of every day.
+     */
+    public long total() {
+        return prefix(capacity());
+    }
+
+    /**
+     * @return the estimated heap used by the tree.
+     */
+    public long bytes() {
+        return 16L + 8L * tree.length;
+    }
+
+    private int capacity() {
+        return tree.length == 0 ? 0 : tree.length - 1;
+    }
+
+    private long prefix(int nodes) {
+        long sum = 0;
+        for (int i = nodes; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Double the range of days until it covers a day, then build the tree again from the amounts of its days.
+     */
+    private void grow(int day) {
+        long first = Math.min(firstDay, day);
+        long last = Math.max((long) firstDay + capacity() - 1, day);
+        long capacity = capacity();
+        while (capacity < last - first + 1) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE - 1) {
+            throw new IllegalArgumentException("Day " + day + " is too far from day " + firstDay);
+        }
+        // the room added goes to the side of the new day
+        int newFirstDay = (int) (day < firstDay ? last - capacity + 1 : first);
+        long[] newTree = new long[(int) capacity + 1];
+        int offset = firstDay - newFirstDay;
+        long previous = 0;
+        for (int i = 1; i < tree.length; i++) {
+            long prefix = prefix(i);
+            newTree[offset + i] = prefix - previous;
+            previous = prefix;
+        }
+        // from the amounts of the days to the tree in O(n)
+        for (int i = 1; i < newTree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < newTree.length) {
+                newTree[parent] += newTree[i];
+            }
+        }
+        firstDay = newFirstDay;
+        tree = newTree;
+    }
+}
@@ -0,0 +1,63 @@
+package org.diytechprojects.financialanalyst.service.report;
+
+/**
+ * Downsampling of time series to a number of points, keeping their visual shape.
+ */
+public final class Downsampling {
+
+    private Downsampling() {}
+
+    /**
+     * Select the points of a series with the Largest-Triangle-Three-Buckets algorithm: the first and the last points
+     * are kept, the points between them are split into buckets of equal size, and each bucket keeps the point forming
+     * the largest triangle with the point kept in the previous bucket and the average of the next bucket.
+     *
+     * @param x the abscissas of the points, in ascending order.
+     * @param y the ordinates of the points.
+     * @param threshold the number of points to keep, at least 3.
+     * @return the indexes of the points kept, in ascending order; every index if the series has no more points than
+     * the threshold.
+     */
+    public static int[] largestTriangleThreeBuckets(long[] x, long[] y, int threshold) {
+        int length = x.length;
+        if (threshold >= length || threshold < 3) {
+            int[] all = new int[length];
+            for (int i = 0; i < length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        int[] kept = new int[threshold];
+        double bucketSize = (double) (length - 2) / (threshold - 2);
+        int previous = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // the average of the next bucket, the last point for the last bucket
+            int nextFrom = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextTo = Math.min((int) ((bucket + 2) * bucketSize) + 1, length);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextFrom; i < nextTo; i++) {
+                averageX += x[i];
+                averageY += y[i];
+            }
+            averageX /= nextTo - nextFrom;
+            averageY /= nextTo - nextFrom;
+
+            int from = (int) (bucket * bucketSize) + 1;
+            int to = (int) ((bucket + 1) * bucketSize) + 1;
+            double largestArea = -1;
+            int largest = from;
+            for (int i = from; i < to; i++) {
+                double area = Math.abs((x[previous] - averageX) * (y[i] - y[previous]) - (x[previous] - x[i]) * (averageY - y[previous]));
+                if (area > largestArea) {
+                    largestArea = area;
+                    largest = i;
+                }
+            }
+            kept[bucket + 1] = largest;
+            previous = largest;
+        }
+        kept[threshold - 1] = length - 1;
+        return kept;
+    }
+}
@@ -0,0 +1,501 @@
+package org.diytechprojects.financialanalyst.service.report;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.service.categorization.LongIntMap;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO.Grouping;
+
+/**
+ * Columnar copy of the transactions, summed per group by loops over primitive arrays.
+ * <p>
+ * Each transaction has a slot, found from its id in a {@link LongIntMap}, and one entry per column: its amounts in
+ * {@code long[]}, its day in UTC as an epoch day in an {@code int[]}, its account type and its category as dictionary
+ * ids in {@code int[]}, and one bit per slot in the {@link BitSet}s telling whether it is live, has an amount in each
+ * currency and is tracked or not. The category of a transaction is the id of its expense, or the negated id of its
+ * income. A deleted transaction keeps its slot, dead, so that a copy being built skips the older row read afterwards;
+ * the slots are reclaimed by building a new copy.
+ * <p>
+ * Thread safe: the writes hold a write lock, the sums a read lock, during which the slots are split into ranges
+ * summed in parallel, each into its own array of totals. No object is allocated per row.
+ */
+public final class TransactionSnapshot {
+
+    /**
+     * The epoch day of the transactions without date.
+     */
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    /**
+     * The most groups a sum may have, a range of days wider than that is left to the database.
+     */
+    static final int MAX_GROUPS = 1 << 20;
+
+    /**
+     * The epoch day of a Monday, the weeks are numbered from it.
+     */
+    private static final int MONDAY = 4;
+
+    /**
+     * The fewest slots summed by one worker.
+     */
+    private static final int MIN_SLOTS_PER_WORKER = 1 << 16;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final LongIntMap slots = new LongIntMap();
+
+    private int size;
+
+    private long[] amountsCad = new long[1024];
+
+    private long[] amountsUsd = new long[1024];
+
+    private int[] days = new int[1024];
+
+    private int[] accountTypes = new int[1024];
+
+    private int[] categories = new int[1024];
+
+    private final BitSet live = new BitSet();
+
+    private final BitSet hasCad = new BitSet();
+
+    private final BitSet hasUsd = new BitSet();
+
+    private final BitSet tracked = new BitSet();
+
+    private final BitSet untracked = new BitSet();
+
+    /**
+     * The account types by dictionary id, 0 for none.
+     */
+    private final List<String> accountTypeNames = new ArrayList<>();
+
+    private final Map<String, Integer> accountTypeIds = new HashMap<>();
+
+    /**
+     * The categories by dictionary id, 0 for none.
+     */
+    private long[] categoryKeys = new long[16];
+
+    private final LongIntMap categoryIds = new LongIntMap();
+
+    private int categoryCount = 1;
+
+    private int liveRows;
+
+    private int minDay = Integer.MAX_VALUE;
+
+    private int maxDay = Integer.MIN_VALUE;
+
+    public TransactionSnapshot() {
+        accountTypeNames.add(null);
+    }
+
+    /**
+     * Copy a transaction just saved, new or updated.
+     */
+    public void put(Transaction transaction) {
+        lock.writeLock().lock();
+        try {
+            write(slotOf(transaction.getId()), transaction);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copy a transaction read from the database, unless a newer copy of it or its deletion was written since.
+     *
+     * @return true if the transaction was copied.
+     */
+    public boolean putIfAbsent(Transaction transaction) {
+        lock.writeLock().lock();
+        try {
+            if (slots.get(transaction.getId()) != LongIntMap.MISSING) {
+                return false;
+            }
+            write(slotOf(transaction.getId()), transaction);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param id the id of a transaction just deleted.
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int slot = slotOf(id);
+            if (live.get(slot)) {
+                live.clear(slot);
+                liveRows--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of live transactions.
+     */
+    public int rows() {
+        lock.readLock().lock();
+        try {
+            return liveRows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the estimated heap used by the columns, the bit sets, the map of the slots and the dictionaries.
+     */
+    public long bytes() {
+        lock.readLock().lock();
+        try {
+            long columns = (long) amountsCad.length * Long.BYTES * 2 + (long) days.length * Integer.BYTES * 3;
+            long bits = (live.size() + hasCad.size() + hasUsd.size() + tracked.size() + untracked.size()) / Byte.SIZE;
+            long dictionaries = categoryKeys.length * Long.BYTES + categoryIds.bytes() + accountTypeNames.size() * 64L;
+            return columns + bits + slots.bytes() + dictionaries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sum the amounts of the transactions of a range of days per group.
+     *
+     * @param fromDay the first epoch day, inclusive, {@link Integer#MIN_VALUE} for no limit.
+     * @param toDay the last epoch day, inclusive, {@link Integer#MAX_VALUE} for no limit. The transactions without date
+     * are summed only without limit on either side.
+     * @param grouping what the transactions are grouped by.
+     * @param usd true to sum the amounts in USD, false for the amounts in CAD; the transactions without amount in the
+     * currency are left out.
+     * @param parallelism the most workers summing the slots.
+     * @return the totals of the groups, null if the range of days has more than {@link #MAX_GROUPS} days.
+     */
+    public Totals sum(int fromDay, int toDay, Grouping grouping, boolean usd, int parallelism) {
+        lock.readLock().lock();
+        try {
+            boolean undated = fromDay == Integer.MIN_VALUE && toDay == Integer.MAX_VALUE;
+            int firstDay = Math.max(fromDay, minDay);
+            int lastDay = Math.min(toDay, maxDay);
+            long span = Math.max(0, (long) lastDay - firstDay + 1);
+            if (span > MAX_GROUPS) {
+                return null;
+            }
+            Totals totals = new Totals(grouping, firstDay);
+            int[] months = null;
+            int groups;
+            switch (grouping) {
+                case DAY:
+                    groups = (int) span + 1;
+                    break;
+                case WEEK:
+                    groups = span == 0 ? 1 : week(lastDay) - week(firstDay) + 2;
+                    break;
+                case MONTH:
+                    // the month of each day of the range, computed once per day rather than once per row
+                    months = new int[(int) span];
+                    for (int day = 0; day < span; day++) {
+                        YearMonth month = YearMonth.from(LocalDate.ofEpochDay(firstDay + day));
+                        months[day] = month.getYear() * 12 + month.getMonthValue() - 1;
+                    }
+                    totals.firstMonth = span == 0 ? 0 : months[0];
+                    groups = span == 0 ? 1 : months[(int) span - 1] - months[0] + 2;
+                    break;
+                case CATEGORY:
+                    groups = categoryCount;
+                    totals.categoryKeys = Arrays.copyOf(categoryKeys, categoryCount);
+                    break;
+                case ACCOUNT_TYPE:
+                    groups = accountTypeNames.size();
+                    totals.accountTypeNames = accountTypeNames.toArray(new String[0]);
+                    break;
+                case TRACKED:
+                    groups = 3;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown grouping " + grouping);
+            }
+
+            long[] amounts = usd ? amountsUsd : amountsCad;
+            BitSet present = usd ? hasUsd : hasCad;
+            int[] dayMonths = months;
+            int workers = Math.max(1, Math.min(parallelism, size / MIN_SLOTS_PER_WORKER));
+            int slotCount = size;
+            totals.values =
+                IntStream
+                    .range(0, workers)
+                    .parallel()
+                    .mapToObj(
+                        worker ->
+                            sum(
+                                (int) ((long) slotCount * worker / workers),
+                                (int) ((long) slotCount * (worker + 1) / workers),
+                                fromDay,
+                                toDay,
+                                undated,
+                                grouping,
+                                firstDay,
+                                dayMonths,
+                                amounts,
+                                present,
+                                groups
+                            )
+                    )
+                    .reduce(TransactionSnapshot::merge)
+                    .orElseGet(() -> new long[groups * Totals.FIELDS]);
+            return totals;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] sum(
+        int fromSlot,
+        int toSlot,
+        int fromDay,
+        int toDay,
+        boolean undated,
+        Grouping grouping,
+        int firstDay,
+        int[] months,
+        long[] amounts,
+        BitSet present,
+        int groups
+    ) {
+        long[] values = new long[groups * Totals.FIELDS];
+        int firstWeek = week(firstDay);
+        for (int slot = live.nextSetBit(fromSlot); slot >= 0 && slot < toSlot; slot = live.nextSetBit(slot + 1)) {
+            int day = days[slot];
+            if (day == NO_DATE ? !undated : day < fromDay || day > toDay) {
+                continue;
+            }
+            if (!present.get(slot)) {
+                continue;
+            }
+            int group;
+            switch (grouping) {
+                case DAY:
+                    group = day == NO_DATE ? 0 : day - firstDay + 1;
+                    break;
+                case WEEK:
+                    group = day == NO_DATE ? 0 : week(day) - firstWeek + 1;
+                    break;
+                case MONTH:
+                    group = day == NO_DATE ? 0 : months[day - firstDay] - months[0] + 1;
+                    break;
+                case CATEGORY:
+                    group = categories[slot];
+                    break;
+                case ACCOUNT_TYPE:
+                    group = accountTypes[slot];
+                    break;
+                default:
+                    group = tracked.get(slot) ? 2 : untracked.get(slot) ? 1 : 0;
+                    break;
+            }
+            long amount = amounts[slot];
+            int index = group * Totals.FIELDS;
+            values[index] += amount;
+            if (amount > 0) {
+                values[index + 1] += amount;
+            } else {
+                values[index + 2] += amount;
+            }
+            values[index + 3]++;
+        }
+        return values;
+    }
+
+    private static long[] merge(long[] values, long[] other) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] += other[i];
+        }
+        return values;
+    }
+
+    /**
+     * @return the slot of an id, a new one if it has none.
+     */
+    private int slotOf(long id) {
+        int slot = slots.get(id);
+        if (slot != LongIntMap.MISSING) {
+            return slot;
+        }
+        slot = size++;
+        if (slot == days.length) {
+            int capacity = days.length * 2;
+            amountsCad = Arrays.copyOf(amountsCad, capacity);
+            amountsUsd = Arrays.copyOf(amountsUsd, capacity);
+            days = Arrays.copyOf(days, capacity);
+            accountTypes = Arrays.copyOf(accountTypes, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+        }
+        slots.put(id, slot);
+        return slot;
+    }
+
+    private void write(int slot, Transaction transaction) {
+        if (!live.get(slot)) {
+            live.set(slot);
+            liveRows++;
+        }
+        amountsCad[slot] = transaction.getAmountCAD() == null ? 0 : transaction.getAmountCAD();
+        hasCad.set(slot, transaction.getAmountCAD() != null);
+        amountsUsd[slot] = transaction.getAmountUSD() == null ? 0 : transaction.getAmountUSD();
+        hasUsd.set(slot, transaction.getAmountUSD() != null);
+        int day = epochDay(transaction.getTransactionDate());
+        days[slot] = day;
+        if (day != NO_DATE) {
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+        }
+        accountTypes[slot] = accountTypeId(transaction.getAccountType());
+        categories[slot] = categoryId(categoryKey(transaction.getExpenseId(), transaction.getIncomeId()));
+        tracked.set(slot, Boolean.TRUE.equals(transaction.getIsTracked()));
+        untracked.set(slot, Boolean.FALSE.equals(transaction.getIsTracked()));
+    }
+
+    private int accountTypeId(String accountType) {
+        if (accountType == null) {
+            return 0;
+        }
+        return accountTypeIds.computeIfAbsent(
+            accountType,
+            name -> {
+                accountTypeNames.add(name);
+                return accountTypeNames.size() - 1;
+            }
+        );
+    }
+
+    private int categoryId(long key) {
+        if (key == 0) {
+            return 0;
+        }
+        int id = categoryIds.get(key);
+        if (id == LongIntMap.MISSING) {
+            id = categoryCount++;
+            if (id == categoryKeys.length) {
+                categoryKeys = Arrays.copyOf(categoryKeys, id * 2);
+            }
+            categoryKeys[id] = key;
+            categoryIds.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * @return the id of the expense, the negated id of the income, 0 for none.
+     */
+    public static long categoryKey(Long expenseId, Long incomeId) {
+        if (expenseId != null) {
+            return expenseId;
+        }
+        return incomeId != null ? -incomeId : 0;
+    }
+
+    /**
+     * @return the epoch day of an instant in UTC, {@link #NO_DATE} for none.
+     */
+    public static int epochDay(Instant date) {
+        return date == null ? NO_DATE : (int) Math.floorDiv(date.getEpochSecond(), 86400L);
+    }
+
+    private static int week(int day) {
+        return Math.floorDiv(day - MONDAY, 7);
+    }
+
+    /**
+     * The sums, credits, debits and counts of the groups of a {@link #sum}, group 0 being the transactions without
+     * date, category, account type or tracking.
+     */
+    public static final class Totals {
+
+        private static final int FIELDS = 4;
+
+        private final Grouping grouping;
+
+        private final int firstDay;
+
+        private int firstMonth;
+
+        private long[] categoryKeys;
+
+        private String[] accountTypeNames;
+
+        private long[] values;
+
+        private Totals(Grouping grouping, int firstDay) {
+            this.grouping = grouping;
+            this.firstDay = firstDay;
+        }
+
+        public int groups() {
+            return values.length / FIELDS;
+        }
+
+        public long amount(int group) {
+            return values[group * FIELDS];
+        }
+
+        public long credits(int group) {
+            return values[group * FIELDS + 1];
+        }
+
+        public long debits(int group) {
+            return values[group * FIELDS + 2];
+        }
+
+        public long count(int group) {
+            return values[group * FIELDS + 3];
+        }
+
+        /**
+         * @return the category of a group of a sum by category, see {@link TransactionSnapshot#categoryKey}.
+         */
+        public long categoryKey(int group) {
+            return categoryKeys[group];
+        }
+
+        /**
+         * @return the group as in {@link org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO#getGroup()},
+         * except for the categories, null for group 0.
+         */
+        public String label(int group) {
+            if (group == 0) {
+                return null;
+            }
+            switch (grouping) {
+                case DAY:
+                    return LocalDate.ofEpochDay((long) firstDay + group - 1).toString();
+                case WEEK:
+                    return LocalDate.ofEpochDay(((long) week(firstDay) + group - 1) * 7 + MONDAY).toString();
+                case MONTH:
+                    int month = firstMonth + group - 1;
+                    return YearMonth.of(month / 12, month % 12 + 1).toString();
+                case ACCOUNT_TYPE:
+                    return accountTypeNames[group];
+                case TRACKED:
+                    return group == 2 ? "true" : "false";
+                default:
+                    throw new IllegalStateException("The categories are labelled by their expense or income");
+            }
+        }
+    }
+}
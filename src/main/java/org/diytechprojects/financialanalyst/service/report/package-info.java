@@ -0,0 +1,5 @@
+/**
+ * In-memory copies of the transactions answering the reports without reading the transaction table.
+ * Downsampling of the series charted by the reports.
+ */
+package org.diytechprojects.financialanalyst.service.report;
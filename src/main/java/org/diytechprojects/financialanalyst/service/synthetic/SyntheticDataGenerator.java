@@ -0,0 +1,475 @@
+package org.diytechprojects.financialanalyst.service.synthetic;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.Expense;
+import org.diytechprojects.financialanalyst.domain.Income;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+
+/**
+ * Generates a realistic and repeatable dataset: expense and income rules, and transactions matching them.
+ * <p>
+ * The purchases are spread over a catalogue of merchants following a Zipf distribution, so a few merchants take
+ * most of the volume like in real statements. Rent, bills, subscriptions and payroll recur on their own schedule.
+ * The daily volume is higher on weekends and in December. All the transactions of a day are generated together,
+ * in date order, over the configured number of years.
+ * <p>
+ * Everything derives from the seed: the rules do not depend on the number of transactions, and the transactions
+ * only depend on the rules through their position in {@link #getExpenses()} and {@link #getIncomes()}.
+ */
+public class SyntheticDataGenerator {
+
+    private static final String CHEQUING = "Chequing";
+    private static final String SAVINGS = "Savings";
+    private static final String VISA = "Visa";
+
+    private static final String CONSONANTS = "BDFGKLMNPRSTVZ";
+
+    private static final String VOWELS = "AEIOU";
+
+    private static final String[] CITIES = {
+        "TORONTO",
+        "MONTREAL",
+        "VANCOUVER",
+        "CALGARY",
+        "OTTAWA",
+        "EDMONTON",
+        "WINNIPEG",
+        "QUEBEC",
+        "HAMILTON",
+        "KITCHENER",
+        "LONDON",
+        "VICTORIA",
+        "HALIFAX",
+        "OSHAWA",
+        "WINDSOR",
+        "SASKATOON",
+        "REGINA",
+        "BURLINGTON",
+        "MISSISSAUGA",
+        "MARKHAM",
+    };
+
+    private static final String[] FIRST_NAMES = { "ALEX", "SAM", "JORDAN", "TAYLOR", "MORGAN", "CASEY", "JAMIE", "ROBIN", "DREW", "KAI" };
+
+    private static final Category[] CATEGORIES = {
+        new Category("Groceries", 30, 2_000, 18_000, 0.01, "MARKET", "GROCERS", "FOODS", "FRESH"),
+        new Category("Restaurants", 25, 800, 9_000, 0.02, "CAFE", "GRILL", "BISTRO", "PIZZA", "KITCHEN"),
+        new Category("Gas", 10, 3_000, 9_500, 0.01, "FUEL", "PETRO", "GAS BAR"),
+        new Category("Shopping", 20, 1_500, 30_000, 0.05, "STORE", "OUTLET", "BOUTIQUE", "SUPPLY"),
+        new Category("Pharmacy", 8, 500, 6_000, 0.01, "PHARMACY", "DRUGS"),
+        new Category("Entertainment", 5, 1_200, 15_000, 0.1, "CINEMA", "TICKETS", "GAMES"),
+        new Category("Travel", 2, 10_000, 120_000, 0.3, "AIR", "HOTELS", "TRAVEL"),
+    };
+
+    /**
+     * Share of the non recurring transactions which are incomes: e-transfers and refunds.
+     */
+    private static final double INCOME_SHARE = 0.03;
+
+    private static final double TRACKED_SHARE = 0.85;
+
+    private final ApplicationProperties.SyntheticData properties;
+
+    private final List<Expense> expenses = new ArrayList<>();
+
+    private final List<Income> incomes = new ArrayList<>();
+
+    private final List<Merchant> merchants = new ArrayList<>();
+
+    /**
+     * The cumulative Zipf distribution of the purchases over {@link #merchants}.
+     */
+    private final double[] merchantDistribution;
+
+    private final List<Recurring> recurrings = new ArrayList<>();
+
+    private final int transferRule;
+
+    private final int refundRule;
+
+    public SyntheticDataGenerator(ApplicationProperties.SyntheticData properties) {
+        this.properties = properties;
+        SplittableRandom random = new SplittableRandom(properties.getSeed());
+
+        int payroll = addIncome("Salary", "PAYROLL DEPOSIT");
+        int interest = addIncome("Interest", "INTEREST CREDIT");
+        transferRule = addIncome("E-transfers", "E-TRANSFER DEPOSIT");
+        refundRule = addIncome("Refunds", "REFUND");
+
+        int rent = addExpense("Housing", "Rent", "PROPERTY MGMT");
+        int hydro = addExpense("Utilities", "Hydro", "HYDRO BILL PAYMENT");
+        int phone = addExpense("Utilities", "Phone", "MOBILITY WIRELESS");
+        int internet = addExpense("Utilities", "Internet", "FIBRE NET");
+        int streaming = addExpense("Subscriptions", "Streaming", "STREAMFLIX");
+        int gym = addExpense("Subscriptions", "Gym", "FITNESS CLUB DUES");
+        recurrings.add(Recurring.monthly(1, "PROPERTY MGMT RENT", CHEQUING, rent, false, -185_000, 0, false));
+        recurrings.add(Recurring.monthly(15, "HYDRO BILL PAYMENT", CHEQUING, hydro, false, -9_500, 0.35, false));
+        recurrings.add(Recurring.monthly(20, "MOBILITY WIRELESS", VISA, phone, false, -6_500, 0, false));
+        recurrings.add(Recurring.monthly(22, "FIBRE NET INTERNET", VISA, internet, false, -7_999, 0, false));
+        recurrings.add(Recurring.monthly(5, "STREAMFLIX SUBSCRIPTION", VISA, streaming, false, -1_599, 0, true));
+        recurrings.add(Recurring.monthly(3, "FITNESS CLUB DUES", CHEQUING, gym, false, -4_500, 0, false));
+        recurrings.add(Recurring.monthly(31, "INTEREST CREDIT", SAVINGS, interest, true, 1_200, 0.5, false));
+        Recurring salary = new Recurring("PAYROLL DEPOSIT ACME CORP", CHEQUING, payroll, true, 275_000, 0.02, false);
+        // every second Friday
+        salary.biweeklyFrom = firstDate().with(TemporalAdjusters.nextOrSame(DayOfWeek.FRIDAY));
+        recurrings.add(salary);
+
+        double categoryTotal = Arrays.stream(CATEGORIES).mapToDouble(category -> category.weight).sum();
+        Set<String> names = new HashSet<>();
+        merchantDistribution = new double[properties.getMerchants()];
+        double cumulative = 0;
+        for (int rank = 0; rank < properties.getMerchants(); rank++) {
+            Category category = pickCategory(random, categoryTotal);
+            String name;
+            do {
+                name = word(random) + " " + category.suffixes[random.nextInt(category.suffixes.length)];
+            } while (!names.add(name));
+            // log-uniform, most purchases are small
+            double range = Math.log(category.maxAmount / category.minAmount);
+            long amount = Math.round(category.minAmount * Math.exp(random.nextDouble() * range));
+            Integer rule = null;
+            if (random.nextDouble() < properties.getRuleCoverage()) {
+                rule = addExpense(category.name, title(name), name);
+            }
+            merchants.add(new Merchant(name, category, amount, rule, 1 + random.nextInt(999), CITIES[random.nextInt(CITIES.length)]));
+            cumulative += 1 / Math.pow(rank + 1, properties.getMerchantSkew());
+            merchantDistribution[rank] = cumulative;
+        }
+        for (int rank = 0; rank < merchantDistribution.length; rank++) {
+            merchantDistribution[rank] /= cumulative;
+        }
+    }
+
+    /**
+     * @return the expense rules, to be saved before generating the transactions.
+     */
+    public List<Expense> getExpenses() {
+        return Collections.unmodifiableList(expenses);
+    }
+
+    /**
+     * @return the income rules, to be saved before generating the transactions.
+     */
+    public List<Income> getIncomes() {
+        return Collections.unmodifiableList(incomes);
+    }
+
+    public LocalDate firstDate() {
+        return LocalDate.of(properties.getLastYear() - properties.getYears() + 1, Month.JANUARY, 1);
+    }
+
+    public LocalDate lastDate() {
+        return LocalDate.of(properties.getLastYear(), Month.DECEMBER, 31);
+    }
+
+    /**
+     * Generate the transactions, lazily and in date order.
+     *
+     * @param count the number of transactions.
+     * @param savedExpenses the saved {@link #getExpenses()}, in the same order.
+     * @param savedIncomes the saved {@link #getIncomes()}, in the same order.
+     * @return the transactions, without id.
+     */
+    public Iterator<Transaction> transactions(long count, List<Expense> savedExpenses, List<Income> savedIncomes) {
+        if (savedExpenses.size() != expenses.size() || savedIncomes.size() != incomes.size()) {
+            throw new IllegalArgumentException("The saved rules do not match the generated ones");
+        }
+        return new TransactionIterator(count, savedExpenses, savedIncomes);
+    }
+
+    private int addExpense(String category, String name, String searchString) {
+        expenses.add(new Expense().category(category).name(name).searchString1(searchString));
+        return expenses.size() - 1;
+    }
+
+    private int addIncome(String name, String searchString) {
+        incomes.add(new Income().name(name).searchString1(searchString));
+        return incomes.size() - 1;
+    }
+
+    private static Category pickCategory(SplittableRandom random, double total) {
+        double value = random.nextDouble() * total;
+        for (Category category : CATEGORIES) {
+            value -= category.weight;
+            if (value < 0) {
+                return category;
+            }
+        }
+        return CATEGORIES[CATEGORIES.length - 1];
+    }
+
+    /**
+     * Made of three syllables, so a merchant name is never contained in another one.
+     */
+    private static String word(SplittableRandom random) {
+        StringBuilder word = new StringBuilder(6);
+        for (int i = 0; i < 3; i++) {
+            word.append(CONSONANTS.charAt(random.nextInt(CONSONANTS.length()))).append(VOWELS.charAt(random.nextInt(VOWELS.length())));
+        }
+        return word.toString();
+    }
+
+    private static String title(String name) {
+        StringBuilder title = new StringBuilder(name.length());
+        for (String part : name.split(" ")) {
+            if (title.length() > 0) {
+                title.append(' ');
+            }
+            title.append(part.charAt(0)).append(part.substring(1).toLowerCase(Locale.ROOT));
+        }
+        return title.toString();
+    }
+
+    private static double dayWeight(LocalDate date) {
+        double weight = date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY ? 1.4 : 1;
+        return date.getMonth() == Month.DECEMBER ? weight * 1.3 : weight;
+    }
+
+    private class TransactionIterator implements Iterator<Transaction> {
+
+        private final long count;
+
+        private final List<Expense> savedExpenses;
+
+        private final List<Income> savedIncomes;
+
+        private final SplittableRandom random;
+
+        /**
+         * The cumulative share of the transactions generated up to each day.
+         */
+        private final double[] dayDistribution;
+
+        private final ArrayDeque<Transaction> day = new ArrayDeque<>();
+
+        private int dayIndex = -1;
+
+        private long generated;
+
+        private long returned;
+
+        TransactionIterator(long count, List<Expense> savedExpenses, List<Income> savedIncomes) {
+            this.count = count;
+            this.savedExpenses = savedExpenses;
+            this.savedIncomes = savedIncomes;
+            // independent from the stream which built the rules
+            this.random = new SplittableRandom(properties.getSeed()).split();
+            int days = (int) ChronoUnit.DAYS.between(firstDate(), lastDate()) + 1;
+            dayDistribution = new double[days];
+            double cumulative = 0;
+            for (int i = 0; i < days; i++) {
+                cumulative += dayWeight(firstDate().plusDays(i));
+                dayDistribution[i] = cumulative;
+            }
+            for (int i = 0; i < days; i++) {
+                dayDistribution[i] /= cumulative;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (day.isEmpty() && returned < count && dayIndex < dayDistribution.length - 1) {
+                fillDay(++dayIndex);
+            }
+            return !day.isEmpty() && returned < count;
+        }
+
+        @Override
+        public Transaction next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            returned++;
+            return day.poll();
+        }
+
+        private void fillDay(int index) {
+            LocalDate date = firstDate().plusDays(index);
+            for (Recurring recurring : recurrings) {
+                if (recurring.occursOn(date)) {
+                    add(recurring.create(date, random, firstDate()), recurring.rule, recurring.income);
+                }
+            }
+            long target = index == dayDistribution.length - 1 ? count : Math.round(count * dayDistribution[index]);
+            while (generated < target) {
+                if (random.nextDouble() < INCOME_SHARE) {
+                    addIncome(date);
+                } else {
+                    addPurchase(date);
+                }
+            }
+        }
+
+        private void addPurchase(LocalDate date) {
+            int rank = Arrays.binarySearch(merchantDistribution, random.nextDouble());
+            Merchant merchant = merchants.get(rank < 0 ? Math.min(-rank - 1, merchants.size() - 1) : rank);
+            long amount = -Math.max(1, Math.round(merchant.amount * (0.5 + random.nextDouble())));
+            Transaction transaction = newTransaction(date, random.nextDouble() < 0.7 ? VISA : CHEQUING, merchant.description(random))
+                .description2(random.nextDouble() < 0.2 ? "POS PURCHASE" : null);
+            setAmount(transaction, amount, random.nextDouble() < merchant.category.foreignShare);
+            add(transaction, merchant.rule, false);
+        }
+
+        private void addIncome(LocalDate date) {
+            if (random.nextBoolean()) {
+                String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+                Transaction transaction = newTransaction(date, CHEQUING, "E-TRANSFER DEPOSIT " + name);
+                setAmount(transaction, 1_000 + random.nextInt(50_000), false);
+                add(transaction, transferRule, true);
+            } else {
+                Merchant merchant = merchants.get(random.nextInt(merchants.size()));
+                Transaction transaction = newTransaction(date, VISA, merchant.description(random)).description2("REFUND");
+                setAmount(transaction, Math.max(1, Math.round(merchant.amount * random.nextDouble())), false);
+                add(transaction, refundRule, true);
+            }
+        }
+
+        private void add(Transaction transaction, Integer rule, boolean income) {
+            if (rule != null && random.nextDouble() >= properties.getUncategorizedRatio()) {
+                if (income) {
+                    transaction.setIncomeId(savedIncomes.get(rule).getId());
+                } else {
+                    transaction.setExpenseId(savedExpenses.get(rule).getId());
+                }
+            }
+            transaction.setIsTracked(random.nextDouble() < TRACKED_SHARE);
+            day.add(transaction);
+            generated++;
+        }
+    }
+
+    private static Transaction newTransaction(LocalDate date, String accountType, String description) {
+        return new Transaction()
+            .accountType(accountType)
+            .transactionDate(date.atStartOfDay(ZoneOffset.UTC).toInstant())
+            .description1(description);
+    }
+
+    private static void setAmount(Transaction transaction, long amount, boolean foreign) {
+        if (foreign) {
+            transaction.setAmountUSD(amount);
+        } else {
+            transaction.setAmountCAD(amount);
+        }
+    }
+
+    private static final class Category {
+
+        private final String name;
+        private final double weight;
+        private final double minAmount;
+        private final double maxAmount;
+        private final double foreignShare;
+        private final String[] suffixes;
+
+        private Category(String name, double weight, long minAmount, long maxAmount, double foreignShare, String... suffixes) {
+            this.name = name;
+            this.weight = weight;
+            this.minAmount = minAmount;
+            this.maxAmount = maxAmount;
+            this.foreignShare = foreignShare;
+            this.suffixes = suffixes;
+        }
+    }
+
+    private static final class Merchant {
+
+        private final String name;
+        private final Category category;
+        private final long amount;
+        private final Integer rule;
+        private final int store;
+        private final String city;
+
+        private Merchant(String name, Category category, long amount, Integer rule, int store, String city) {
+            this.name = name;
+            this.category = category;
+            this.amount = amount;
+            this.rule = rule;
+            this.store = store;
+            this.city = city;
+        }
+
+        /**
+         * Mostly the home store of the merchant, sometimes another one, the way card statements print it.
+         */
+        private String description(SplittableRandom random) {
+            if (random.nextDouble() < 0.8) {
+                return name + " #" + store + " " + city;
+            }
+            return name + " #" + (1 + random.nextInt(999)) + " " + CITIES[random.nextInt(CITIES.length)];
+        }
+    }
+
+    private static final class Recurring {
+
+        private final String description;
+        private final String accountType;
+        private final int rule;
+        private final boolean income;
+        private final long amount;
+        private final double jitter;
+        private final boolean foreign;
+        private int dayOfMonth;
+        private LocalDate biweeklyFrom;
+
+        private Recurring(String description, String accountType, int rule, boolean income, long amount, double jitter, boolean foreign) {
+            this.description = description;
+            this.accountType = accountType;
+            this.rule = rule;
+            this.income = income;
+            this.amount = amount;
+            this.jitter = jitter;
+            this.foreign = foreign;
+        }
+
+        private static Recurring monthly(
+            int dayOfMonth,
+            String description,
+            String accountType,
+            int rule,
+            boolean income,
+            long amount,
+            double jitter,
+            boolean foreign
+        ) {
+            Recurring recurring = new Recurring(description, accountType, rule, income, amount, jitter, foreign);
+            recurring.dayOfMonth = dayOfMonth;
+            return recurring;
+        }
+
+        private boolean occursOn(LocalDate date) {
+            if (biweeklyFrom != null) {
+                return !date.isBefore(biweeklyFrom) && ChronoUnit.DAYS.between(biweeklyFrom, date) % 14 == 0;
+            }
+            // the 31st falls on the last day of shorter months
+            return date.getDayOfMonth() == Math.min(dayOfMonth, date.lengthOfMonth());
+        }
+
+        private Transaction create(LocalDate date, SplittableRandom random, LocalDate firstDate) {
+            // amounts go up 3% a year
+            double raise = Math.pow(1.03, date.getYear() - firstDate.getYear());
+            double variation = jitter == 0 ? 1 : 1 - jitter + 2 * jitter * random.nextDouble();
+            Transaction transaction = newTransaction(date, accountType, description);
+            setAmount(transaction, Math.round(amount * raise * variation), foreign);
+            return transaction;
+        }
+    }
+}
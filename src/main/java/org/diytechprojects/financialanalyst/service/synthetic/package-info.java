@@ -0,0 +1,4 @@
+/**
+ * Generation of large synthetic datasets, for load and scaling tests.
+ */
+package org.diytechprojects.financialanalyst.service.synthetic;
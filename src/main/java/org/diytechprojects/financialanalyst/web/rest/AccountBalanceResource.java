@@ -0,0 +1,63 @@
+package org.diytechprojects.financialanalyst.web.rest;
+
+import java.time.LocalDate;
+import org.diytechprojects.financialanalyst.service.AccountBalanceService;
+import org.diytechprojects.financialanalyst.service.dto.AccountBalanceDTO;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO.Currency;
+import org.diytechprojects.financialanalyst.web.rest.errors.BadRequestAlertException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import tech.jhipster.web.util.reactive.ResponseUtil;
+
+/**
+ * REST controller for the running balances of the account types of the
+ * {@link org.diytechprojects.financialanalyst.domain.Transaction}s.
+ */
+@RestController
+@RequestMapping("/api")
+public class AccountBalanceResource {
+
+    private final Logger log = LoggerFactory.getLogger(AccountBalanceResource.class);
+
+    private static final String ENTITY_NAME = "accountBalance";
+
+    private final AccountBalanceService accountBalanceService;
+
+    public AccountBalanceResource(AccountBalanceService accountBalanceService) {
+        this.accountBalanceService = accountBalanceService;
+    }
+
+    /**
+     * {@code GET  /accounts/:type/balance} : get the balance of an account type at a date, or the sum of its
+     * transactions over a range of dates.
+     *
+     * @param type the account type.
+     * @param at the last day, inclusive, {@code yyyy-MM-dd}; every transaction is summed when omitted.
+     * @param from the first day, inclusive, {@code yyyy-MM-dd}; the balance since the first transaction when omitted.
+     * @param currency the currency of the amounts summed, {@code CAD} or {@code USD}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the balance in body,
+     * or with status {@code 400 (Bad Request)} if the dates are not in order or the currency is unknown,
+     * or with status {@code 404 (Not Found)} if the account type has no transaction.
+     */
+    @GetMapping("/accounts/{type}/balance")
+    public Mono<ResponseEntity<AccountBalanceDTO>> getAccountBalance(
+        @PathVariable String type,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate at,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(defaultValue = "CAD") String currency
+    ) {
+        log.debug("REST request to get the balance of {} from {} at {}", type, from, at);
+        if (from != null && at != null && from.isAfter(at)) {
+            throw new BadRequestAlertException("The first day must not be after the last one", ENTITY_NAME, "datesinvalid");
+        }
+        Currency parsed = Currency.fromParameter(currency);
+        if (parsed == null) {
+            throw new BadRequestAlertException("Unknown currency " + currency, ENTITY_NAME, "currencyinvalid");
+        }
+        return ResponseUtil.wrapOrNotFound(accountBalanceService.balance(type, from, at, parsed));
+    }
+}
@@ -10,7 +10,11 @@ import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import org.diytechprojects.financialanalyst.domain.Expense;
 import org.diytechprojects.financialanalyst.repository.ExpenseRepository;
+import org.diytechprojects.financialanalyst.service.ExpensePreviewService;
 import org.diytechprojects.financialanalyst.service.ExpenseService;
+import org.diytechprojects.financialanalyst.service.dto.ExpensePreviewDTO;
+import org.diytechprojects.financialanalyst.service.dto.ExpensePreviewResultDTO;
+import org.diytechprojects.financialanalyst.service.dto.RuleStatisticsDTO;
 import org.diytechprojects.financialanalyst.web.rest.errors.BadRequestAlertException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +47,11 @@ public class ExpenseResource {
 
     private static final String ENTITY_NAME = "expense";
 
+    /**
+     * Upper bound of the number of changed transactions a preview lists.
+     */
+    static final int MAX_PREVIEW_SIZE = 1000;
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -50,9 +59,16 @@ public class ExpenseResource {
 
     private final ExpenseRepository expenseRepository;
 
-    public ExpenseResource(ExpenseService expenseService, ExpenseRepository expenseRepository) {
+    private final ExpensePreviewService expensePreviewService;
+
+    public ExpenseResource(
+        ExpenseService expenseService,
+        ExpenseRepository expenseRepository,
+        ExpensePreviewService expensePreviewService
+    ) {
         this.expenseService = expenseService;
         this.expenseRepository = expenseRepository;
+        this.expensePreviewService = expensePreviewService;
     }
 
     /**
@@ -84,6 +100,32 @@ public class ExpenseResource {
             );
     }
 
+    /**
+     * {@code POST  /expenses/preview} : Preview what a candidate set of expenses would change, without saving it.
+     *
+     * @param preview the new, edited and deleted expenses.
+     * @param sample the percentage of the transactions evaluated, 100 for all of them.
+     * @param size the number of changed transactions to list.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the number of debits the candidate expenses match
+     * differently than the current ones and the first of them,
+     * or with status {@code 400 (Bad Request)} if the sample or the size is not valid.
+     */
+    @PostMapping("/expenses/preview")
+    public Mono<ResponseEntity<ExpensePreviewResultDTO>> previewExpenses(
+        @RequestBody ExpensePreviewDTO preview,
+        @RequestParam(defaultValue = "100") int sample,
+        @RequestParam(defaultValue = "20") int size
+    ) {
+        log.debug("REST request to preview Expenses : {}, sample {}%, size {}", preview, sample, size);
+        if (sample < 1 || sample > 100) {
+            throw new BadRequestAlertException("The sample must be between 1 and 100 percent", ENTITY_NAME, "sampleinvalid");
+        }
+        if (size < 0 || size > MAX_PREVIEW_SIZE) {
+            throw new BadRequestAlertException("The size must be between 0 and " + MAX_PREVIEW_SIZE, ENTITY_NAME, "sizeinvalid");
+        }
+        return expensePreviewService.preview(preview, sample, size).map(ResponseEntity::ok);
+    }
+
     /**
      * {@code PUT  /expenses/:id} : Updates an existing expense.
      *
@@ -221,6 +263,18 @@ public class ExpenseResource {
         return ResponseUtil.wrapOrNotFound(expense);
     }
 
+    /**
+     * {@code GET  /expenses/:id/stats} : get the hits of the search strings of the "id" expense.
+     *
+     * @param id the id of the expense.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the statistics, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/expenses/{id}/stats")
+    public Mono<ResponseEntity<RuleStatisticsDTO>> getExpenseStatistics(@PathVariable Long id) {
+        log.debug("REST request to get the statistics of Expense : {}", id);
+        return ResponseUtil.wrapOrNotFound(expenseService.findStatistics(id));
+    }
+
     /**
      * {@code DELETE  /expenses/:id} : delete the "id" expense.
      *
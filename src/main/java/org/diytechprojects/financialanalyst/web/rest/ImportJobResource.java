@@ -0,0 +1,116 @@
+package org.diytechprojects.financialanalyst.web.rest;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import org.diytechprojects.financialanalyst.domain.ImportJob;
+import org.diytechprojects.financialanalyst.security.AuthoritiesConstants;
+import org.diytechprojects.financialanalyst.service.ImportJobService;
+import org.diytechprojects.financialanalyst.web.rest.errors.BadRequestAlertException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import tech.jhipster.web.util.HeaderUtil;
+import tech.jhipster.web.util.PaginationUtil;
+import tech.jhipster.web.util.reactive.ResponseUtil;
+
+/**
+ * REST controller for managing {@link org.diytechprojects.financialanalyst.domain.ImportJob}.
+ */
+@RestController
+@RequestMapping("/api")
+public class ImportJobResource {
+
+    private final Logger log = LoggerFactory.getLogger(ImportJobResource.class);
+
+    private static final String ENTITY_NAME = "importJob";
+
+    @Value("${jhipster.clientApp.name}")
+    private String applicationName;
+
+    private final ImportJobService importJobService;
+
+    public ImportJobResource(ImportJobService importJobService) {
+        this.importJobService = importJobService;
+    }
+
+    /**
+     * {@code POST  /import-jobs} : Create and start a new importJob, reading a CSV archive stored on the server.
+     *
+     * @param importJob the importJob to create, only its file and batch size are used.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new importJob,
+     * or with status {@code 400 (Bad Request)} if the importJob has already an ID or its file cannot be read.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping("/import-jobs")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public Mono<ResponseEntity<ImportJob>> createImportJob(@RequestBody ImportJob importJob) throws URISyntaxException {
+        log.debug("REST request to save ImportJob : {}", importJob);
+        if (importJob.getId() != null) {
+            throw new BadRequestAlertException("A new importJob cannot already have an ID", ENTITY_NAME, "idexists");
+        }
+        return importJobService
+            .create(importJob.getFile(), importJob.getBatchSize())
+            .onErrorMap(IllegalArgumentException.class, e -> new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "fileinvalid"))
+            .map(
+                result -> {
+                    try {
+                        return ResponseEntity
+                            .created(new URI("/api/import-jobs/" + result.getId()))
+                            .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
+                            .body(result);
+                    } catch (URISyntaxException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            );
+    }
+
+    /**
+     * {@code GET  /import-jobs} : get all the importJobs.
+     *
+     * @param pageable the pagination information.
+     * @param request a {@link ServerHttpRequest} request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of importJobs in body.
+     */
+    @GetMapping("/import-jobs")
+    public Mono<ResponseEntity<List<ImportJob>>> getAllImportJobs(Pageable pageable, ServerHttpRequest request) {
+        log.debug("REST request to get a page of ImportJobs");
+        return importJobService
+            .countAll()
+            .zipWith(importJobService.findAll(pageable).collectList())
+            .map(
+                countWithEntities ->
+                    ResponseEntity
+                        .ok()
+                        .headers(
+                            PaginationUtil.generatePaginationHttpHeaders(
+                                UriComponentsBuilder.fromHttpRequest(request),
+                                new PageImpl<>(countWithEntities.getT2(), pageable, countWithEntities.getT1())
+                            )
+                        )
+                        .body(countWithEntities.getT2())
+            );
+    }
+
+    /**
+     * {@code GET  /import-jobs/:id} : get the "id" importJob, to poll its progress.
+     *
+     * @param id the id of the importJob to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the importJob, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/import-jobs/{id}")
+    public Mono<ResponseEntity<ImportJob>> getImportJob(@PathVariable Long id) {
+        log.debug("REST request to get ImportJob : {}", id);
+        Mono<ImportJob> importJob = importJobService.findOne(id);
+        return ResponseUtil.wrapOrNotFound(importJob);
+    }
+}
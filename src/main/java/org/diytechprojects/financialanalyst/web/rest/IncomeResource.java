@@ -11,6 +11,7 @@ import javax.validation.constraints.NotNull;
 import org.diytechprojects.financialanalyst.domain.Income;
 import org.diytechprojects.financialanalyst.repository.IncomeRepository;
 import org.diytechprojects.financialanalyst.service.IncomeService;
+import org.diytechprojects.financialanalyst.service.dto.RuleStatisticsDTO;
 import org.diytechprojects.financialanalyst.web.rest.errors.BadRequestAlertException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -221,6 +222,18 @@ public class IncomeResource {
         return ResponseUtil.wrapOrNotFound(income);
     }
 
+    /**
+     * {@code GET  /incomes/:id/stats} : get the hits of the search strings of the "id" income.
+     *
+     * @param id the id of the income.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the statistics, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/incomes/{id}/stats")
+    public Mono<ResponseEntity<RuleStatisticsDTO>> getIncomeStatistics(@PathVariable Long id) {
+        log.debug("REST request to get the statistics of Income : {}", id);
+        return ResponseUtil.wrapOrNotFound(incomeService.findStatistics(id));
+    }
+
     /**
      * {@code DELETE  /incomes/:id} : delete the "id" income.
      *
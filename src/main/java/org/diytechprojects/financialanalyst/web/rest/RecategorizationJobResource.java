@@ -0,0 +1,113 @@
+package org.diytechprojects.financialanalyst.web.rest;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import org.diytechprojects.financialanalyst.domain.RecategorizationJob;
+import org.diytechprojects.financialanalyst.security.AuthoritiesConstants;
+import org.diytechprojects.financialanalyst.service.RecategorizationJobService;
+import org.diytechprojects.financialanalyst.web.rest.errors.BadRequestAlertException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import tech.jhipster.web.util.HeaderUtil;
+import tech.jhipster.web.util.PaginationUtil;
+import tech.jhipster.web.util.reactive.ResponseUtil;
+
+/**
+ * REST controller for managing {@link org.diytechprojects.financialanalyst.domain.RecategorizationJob}.
+ */
+@RestController
+@RequestMapping("/api")
+public class RecategorizationJobResource {
+
+    private final Logger log = LoggerFactory.getLogger(RecategorizationJobResource.class);
+
+    private static final String ENTITY_NAME = "recategorizationJob";
+
+    @Value("${jhipster.clientApp.name}")
+    private String applicationName;
+
+    private final RecategorizationJobService recategorizationJobService;
+
+    public RecategorizationJobResource(RecategorizationJobService recategorizationJobService) {
+        this.recategorizationJobService = recategorizationJobService;
+    }
+
+    /**
+     * {@code POST  /recategorization-jobs} : Start a recategorizationJob, resuming the interrupted one if any.
+     *
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the started recategorizationJob,
+     * or with status {@code 400 (Bad Request)} if a recategorizationJob is already running.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping("/recategorization-jobs")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public Mono<ResponseEntity<RecategorizationJob>> startRecategorizationJob() throws URISyntaxException {
+        log.debug("REST request to start a RecategorizationJob");
+        return recategorizationJobService
+            .start()
+            .onErrorMap(IllegalStateException.class, e -> new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "jobrunning"))
+            .map(
+                result -> {
+                    try {
+                        return ResponseEntity
+                            .created(new URI("/api/recategorization-jobs/" + result.getId()))
+                            .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
+                            .body(result);
+                    } catch (URISyntaxException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            );
+    }
+
+    /**
+     * {@code GET  /recategorization-jobs} : get all the recategorizationJobs.
+     *
+     * @param pageable the pagination information.
+     * @param request a {@link ServerHttpRequest} request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of recategorizationJobs in body.
+     */
+    @GetMapping("/recategorization-jobs")
+    public Mono<ResponseEntity<List<RecategorizationJob>>> getAllRecategorizationJobs(Pageable pageable, ServerHttpRequest request) {
+        log.debug("REST request to get a page of RecategorizationJobs");
+        return recategorizationJobService
+            .countAll()
+            .zipWith(recategorizationJobService.findAll(pageable).collectList())
+            .map(
+                countWithEntities ->
+                    ResponseEntity
+                        .ok()
+                        .headers(
+                            PaginationUtil.generatePaginationHttpHeaders(
+                                UriComponentsBuilder.fromHttpRequest(request),
+                                new PageImpl<>(countWithEntities.getT2(), pageable, countWithEntities.getT1())
+                            )
+                        )
+                        .body(countWithEntities.getT2())
+            );
+    }
+
+    /**
+     * {@code GET  /recategorization-jobs/:id} : get the "id" recategorizationJob, to poll its progress.
+     *
+     * @param id the id of the recategorizationJob to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the recategorizationJob,
+     * or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/recategorization-jobs/{id}")
+    public Mono<ResponseEntity<RecategorizationJob>> getRecategorizationJob(@PathVariable Long id) {
+        log.debug("REST request to get RecategorizationJob : {}", id);
+        Mono<RecategorizationJob> recategorizationJob = recategorizationJobService.findOne(id);
+        return ResponseUtil.wrapOrNotFound(recategorizationJob);
+    }
+}
@@ -0,0 +1,150 @@
+package org.diytechprojects.financialanalyst.web.rest;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import org.diytechprojects.financialanalyst.security.AuthoritiesConstants;
+import org.diytechprojects.financialanalyst.service.TransactionRollupService;
+import org.diytechprojects.financialanalyst.service.TransactionSummaryService;
+import org.diytechprojects.financialanalyst.service.dto.CashflowDTO;
+import org.diytechprojects.financialanalyst.service.dto.MonthlyRollupDTO;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO.Currency;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO.Grouping;
+import org.diytechprojects.financialanalyst.web.rest.errors.BadRequestAlertException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * REST controller for the reports summing the {@link org.diytechprojects.financialanalyst.domain.Transaction}s.
+ */
+@RestController
+@RequestMapping("/api")
+public class ReportResource {
+
+    private final Logger log = LoggerFactory.getLogger(ReportResource.class);
+
+    private static final String ENTITY_NAME = "report";
+
+    private static final int MAX_CASHFLOW_POINTS = 10000;
+
+    private final TransactionRollupService transactionRollupService;
+
+    private final TransactionSummaryService transactionSummaryService;
+
+    public ReportResource(TransactionRollupService transactionRollupService, TransactionSummaryService transactionSummaryService) {
+        this.transactionRollupService = transactionRollupService;
+        this.transactionSummaryService = transactionSummaryService;
+    }
+
+    /**
+     * {@code GET  /reports/summary} : get the sums and counts of the transactions of a range of dates per group.
+     *
+     * @param from the first day, inclusive, {@code yyyy-MM-dd}; the transactions without date are included when omitted.
+     * @param to the last day, inclusive, {@code yyyy-MM-dd}.
+     * @param groupBy what the transactions are grouped by: {@code day}, {@code week}, {@code month}, {@code category},
+     * {@code accountType} or {@code tracked}.
+     * @param currency the currency of the amounts summed, {@code CAD} or {@code USD}.
+     * @return the sums of the groups, in the order of the groups, as a JSON array or as newline delimited JSON,
+     * or with status {@code 400 (Bad Request)} if the dates are not in order, or the grouping or the currency is unknown.
+     */
+    @GetMapping(value = "/reports/summary", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public Flux<TransactionSummaryDTO> getSummaryReport(
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @RequestParam(defaultValue = "month") String groupBy,
+        @RequestParam(defaultValue = "CAD") String currency
+    ) {
+        log.debug("REST request to get the summary report from {} to {} by {} in {}", from, to, groupBy, currency);
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BadRequestAlertException("The first day must not be after the last one", ENTITY_NAME, "datesinvalid");
+        }
+        Grouping grouping = Grouping.fromParameter(groupBy);
+        if (grouping == null) {
+            throw new BadRequestAlertException("Unknown grouping " + groupBy, ENTITY_NAME, "groupinginvalid");
+        }
+        return transactionSummaryService.summarize(from, to, grouping, currency(currency));
+    }
+
+    /**
+     * {@code GET  /reports/cashflow} : get the incomes and the expenses of a range of dates per day, week or month,
+     * downsampled to a number of points.
+     *
+     * @param from the first day, inclusive, {@code yyyy-MM-dd}.
+     * @param to the last day, inclusive, {@code yyyy-MM-dd}.
+     * @param resolution {@code day}, {@code week} or {@code month}.
+     * @param points the number of points of each series, from 3 to {@value #MAX_CASHFLOW_POINTS}.
+     * @param currency the currency of the amounts summed, {@code CAD} or {@code USD}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the two series in body,
+     * or with status {@code 400 (Bad Request)} if the dates are not in order, or the resolution, the points or the
+     * currency are not valid.
+     */
+    @GetMapping("/reports/cashflow")
+    public Mono<ResponseEntity<CashflowDTO>> getCashflowReport(
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @RequestParam(defaultValue = "day") String resolution,
+        @RequestParam(defaultValue = "1000") int points,
+        @RequestParam(defaultValue = "CAD") String currency
+    ) {
+        log.debug("REST request to get the cash flow from {} to {} by {}, {} points", from, to, resolution, points);
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BadRequestAlertException("The first day must not be after the last one", ENTITY_NAME, "datesinvalid");
+        }
+        Grouping grouping = Grouping.fromParameter(resolution);
+        if (grouping != Grouping.DAY && grouping != Grouping.WEEK && grouping != Grouping.MONTH) {
+            throw new BadRequestAlertException("Unknown resolution " + resolution, ENTITY_NAME, "resolutioninvalid");
+        }
+        if (points < 3 || points > MAX_CASHFLOW_POINTS) {
+            throw new BadRequestAlertException("The points must be between 3 and " + MAX_CASHFLOW_POINTS, ENTITY_NAME, "pointsinvalid");
+        }
+        return transactionSummaryService.cashflow(from, to, grouping, currency(currency), points).map(ResponseEntity::ok);
+    }
+
+    /**
+     * {@code GET  /reports/monthly} : get the sums and counts of the transactions per month, account type and category.
+     *
+     * @param from the first month, inclusive, {@code yyyy-MM}; the transactions without date are included when omitted.
+     * @param to the last month, inclusive, {@code yyyy-MM}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the rows of the monthly rollup in body, by month,
+     * or with status {@code 400 (Bad Request)} if the months are not in order.
+     */
+    @GetMapping("/reports/monthly")
+    public Mono<ResponseEntity<List<MonthlyRollupDTO>>> getMonthlyReport(
+        @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+        @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to
+    ) {
+        log.debug("REST request to get the monthly report from {} to {}", from, to);
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BadRequestAlertException("The first month must not be after the last one", ENTITY_NAME, "monthsinvalid");
+        }
+        return transactionRollupService.findMonthly(from, to).collectList().map(ResponseEntity::ok);
+    }
+
+    /**
+     * {@code POST  /reports/monthly/rebuild} : recompute the monthly rollup from the transactions.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the number of rows of the rollup in body.
+     */
+    @PostMapping("/reports/monthly/rebuild")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public Mono<ResponseEntity<Integer>> rebuildMonthlyReport() {
+        log.debug("REST request to rebuild the monthly report");
+        return transactionRollupService.rebuild().map(ResponseEntity::ok);
+    }
+
+    private static Currency currency(String currency) {
+        Currency parsed = Currency.fromParameter(currency);
+        if (parsed == null) {
+            throw new BadRequestAlertException("Unknown currency " + currency, ENTITY_NAME, "currencyinvalid");
+        }
+        return parsed;
+    }
+}
@@ -4,15 +4,23 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
 import org.diytechprojects.financialanalyst.domain.Transaction;
 import org.diytechprojects.financialanalyst.repository.TransactionRepository;
+import org.diytechprojects.financialanalyst.service.TransactionCategorizationService;
+import org.diytechprojects.financialanalyst.service.TransactionImportService;
 import org.diytechprojects.financialanalyst.service.TransactionService;
+import org.diytechprojects.financialanalyst.service.dto.CategorySuggestionDTO;
+import org.diytechprojects.financialanalyst.service.dto.ImportProgressDTO;
+import org.diytechprojects.financialanalyst.service.dto.RuleConflictDTO;
+import org.diytechprojects.financialanalyst.service.dto.TransactionBulkUpdateDTO;
 import org.diytechprojects.financialanalyst.web.rest.errors.BadRequestAlertException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -20,6 +28,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
@@ -41,6 +50,12 @@ public class TransactionResource {
 
     private static final String ENTITY_NAME = "transaction";
 
+    private static final int MAX_CONFLICTS_PAGE_SIZE = 1000;
+
+    private static final int MAX_SIMILAR_SIZE = 1000;
+
+    private static final int MAX_EDITS = 5;
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -48,9 +63,20 @@ public class TransactionResource {
 
     private final TransactionRepository transactionRepository;
 
-    public TransactionResource(TransactionService transactionService, TransactionRepository transactionRepository) {
+    private final TransactionImportService transactionImportService;
+
+    private final TransactionCategorizationService transactionCategorizationService;
+
+    public TransactionResource(
+        TransactionService transactionService,
+        TransactionRepository transactionRepository,
+        TransactionImportService transactionImportService,
+        TransactionCategorizationService transactionCategorizationService
+    ) {
         this.transactionService = transactionService;
         this.transactionRepository = transactionRepository;
+        this.transactionImportService = transactionImportService;
+        this.transactionCategorizationService = transactionCategorizationService;
     }
 
     /**
@@ -82,6 +108,79 @@ public class TransactionResource {
             );
     }
 
+    /**
+     * {@code POST  /transactions/import} : Import the transactions of a CSV, OFX or QFX bank statement.
+     *
+     * @param file the multipart file, read as OFX when its name ends with {@code .ofx} or {@code .qfx},
+     * as CSV with a header line naming the columns otherwise.
+     * @param batchSize the number of rows written per insert statement, optional.
+     * @param staged true to load the file into the staging table first, then merge it with set-based statements
+     * in a single transaction, optional.
+     * @return the progress of the import as a stream of JSON documents, one per committed batch,
+     * or with status {@code 400 (Bad Request)} if the file or the batch size is not valid.
+     */
+    @PostMapping(
+        value = "/transactions/import",
+        consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+        produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE }
+    )
+    public Flux<ImportProgressDTO> importTransactions(
+        @RequestPart("file") Mono<FilePart> file,
+        @RequestParam(value = "batchSize", required = false) Integer batchSize,
+        @RequestParam(value = "staged", defaultValue = "false") boolean staged
+    ) {
+        log.debug("REST request to import Transactions");
+        return file
+            .flatMapMany(
+                part ->
+                    isOfx(part.filename())
+                        ? transactionImportService.importOfx(part.content(), batchSize, staged)
+                        : transactionImportService.importCsv(part.content(), batchSize, staged)
+            )
+            .onErrorMap(IllegalArgumentException.class, e -> new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "importinvalid"));
+    }
+
+    /**
+     * {@code POST  /transactions/bulk} : Create many transactions in a single database transaction.
+     *
+     * @param transactions the transactions to create, as a JSON array or as newline delimited JSON.
+     * @param batchSize the number of rows written per insert statement, optional.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the generated ids in the order of the transactions,
+     * or with status {@code 400 (Bad Request)} if a transaction has already an ID or the batch size is not valid.
+     */
+    @PostMapping(value = "/transactions/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public Mono<ResponseEntity<List<Long>>> createTransactions(
+        @RequestBody Flux<Transaction> transactions,
+        @RequestParam(value = "batchSize", required = false) Integer batchSize
+    ) {
+        log.debug("REST request to save Transactions in bulk");
+        return Mono
+            .defer(
+                () -> transactionImportService.importBulk(transactions.doOnNext(TransactionResource::checkNew), batchSize).collectList()
+            )
+            .onErrorMap(IllegalArgumentException.class, e -> new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "batchsizeinvalid"))
+            .map(
+                ids ->
+                    ResponseEntity
+                        .status(HttpStatus.CREATED)
+                        .headers(
+                            HeaderUtil.createAlert(applicationName, ids.size() + " transactions are created", String.valueOf(ids.size()))
+                        )
+                        .body(ids)
+            );
+    }
+
+    private static void checkNew(Transaction transaction) {
+        if (transaction.getId() != null) {
+            throw new BadRequestAlertException("A new transaction cannot already have an ID", ENTITY_NAME, "idexists");
+        }
+    }
+
+    private static boolean isOfx(String filename) {
+        String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+        return name.endsWith(".ofx") || name.endsWith(".qfx");
+    }
+
     /**
      * {@code PUT  /transactions/:id} : Updates an existing transaction.
      *
@@ -178,6 +277,32 @@ public class TransactionResource {
             );
     }
 
+    /**
+     * {@code PATCH  /transactions} : Updates the tracking and the category of many transactions with a single statement.
+     *
+     * @param bulkUpdate the ids and/or criteria selecting the transactions, and the changes to apply.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the number of updated transactions,
+     * or with status {@code 400 (Bad Request)} if nothing is selected, nothing is changed or the expense or income does not exist.
+     */
+    @PatchMapping(value = "/transactions", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Integer>> updateTransactions(@RequestBody TransactionBulkUpdateDTO bulkUpdate) {
+        log.debug("REST request to update Transactions : {}", bulkUpdate);
+        return transactionService
+            .updateAll(bulkUpdate)
+            .onErrorMap(IllegalArgumentException.class, e -> new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "bulkupdateinvalid"))
+            .onErrorMap(
+                DataIntegrityViolationException.class,
+                e -> new BadRequestAlertException("Expense or income not found", ENTITY_NAME, "idnotfound")
+            )
+            .map(
+                updated ->
+                    ResponseEntity
+                        .ok()
+                        .headers(HeaderUtil.createAlert(applicationName, updated + " transactions are updated", String.valueOf(updated)))
+                        .body(updated)
+            );
+    }
+
     /**
      * {@code GET  /transactions} : get all the transactions.
      *
@@ -206,6 +331,96 @@ public class TransactionResource {
             );
     }
 
+    /**
+     * {@code GET  /transactions/search?q=} : search the transactions by the words of their descriptions.
+     *
+     * @param q the words to search, all of them must be found, in any case.
+     * @param pageable the pagination information, the transactions are sorted by relevance.
+     * @param request a {@link ServerHttpRequest} request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of matching transactions in body, best match first.
+     */
+    @GetMapping("/transactions/search")
+    public Mono<ResponseEntity<List<Transaction>>> searchTransactions(
+        @RequestParam("q") String q,
+        Pageable pageable,
+        ServerHttpRequest request
+    ) {
+        log.debug("REST request to search Transactions : {}", q);
+        return transactionService
+            .search(q, pageable)
+            .map(
+                page ->
+                    ResponseEntity
+                        .ok()
+                        .headers(PaginationUtil.generatePaginationHttpHeaders(UriComponentsBuilder.fromHttpRequest(request), page))
+                        .body(page.getContent())
+            );
+    }
+
+    /**
+     * {@code GET  /transactions/rule-conflicts} : get the transactions matched by several expenses, or several incomes.
+     *
+     * @param afterId the id of the last transaction of the previous page, none for the first page.
+     * @param size the number of conflicts per page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of conflicts in body, in the order of the
+     * transactions; the page is the last one when it holds less than {@code size} conflicts.
+     */
+    @GetMapping("/transactions/rule-conflicts")
+    public Mono<ResponseEntity<List<RuleConflictDTO>>> getRuleConflicts(
+        @RequestParam(value = "afterId", required = false) Long afterId,
+        @RequestParam(value = "size", defaultValue = "20") int size
+    ) {
+        log.debug("REST request to get the rule conflicts after Transaction : {}", afterId);
+        if (size < 1 || size > MAX_CONFLICTS_PAGE_SIZE) {
+            throw new BadRequestAlertException("The size must be between 1 and " + MAX_CONFLICTS_PAGE_SIZE, ENTITY_NAME, "sizeinvalid");
+        }
+        return transactionCategorizationService.findConflicts(afterId, size).collectList().map(ResponseEntity::ok);
+    }
+
+    /**
+     * {@code GET  /transactions/:id/similar} : get the transactions of the same merchant as the "id" transaction,
+     * whatever the way the bank spelled it.
+     *
+     * @param id the id of the transaction.
+     * @param maxEdits the number of edits allowed between the merchants, lowered for short merchants.
+     * @param size the number of transactions to return.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of transactions in body, closest first, or with
+     * status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/transactions/{id}/similar")
+    public Mono<ResponseEntity<List<Transaction>>> getSimilarTransactions(
+        @PathVariable Long id,
+        @RequestParam(value = "maxEdits", defaultValue = "2") int maxEdits,
+        @RequestParam(value = "size", defaultValue = "20") int size
+    ) {
+        log.debug("REST request to get the Transactions similar to : {}", id);
+        if (maxEdits < 0 || maxEdits > MAX_EDITS) {
+            throw new BadRequestAlertException(
+                "The maximum number of edits must be between 0 and " + MAX_EDITS,
+                ENTITY_NAME,
+                "maxeditsinvalid"
+            );
+        }
+        if (size < 1 || size > MAX_SIMILAR_SIZE) {
+            throw new BadRequestAlertException("The size must be between 1 and " + MAX_SIMILAR_SIZE, ENTITY_NAME, "sizeinvalid");
+        }
+        return ResponseUtil.wrapOrNotFound(transactionService.findSimilar(id, maxEdits, size));
+    }
+
+    /**
+     * {@code GET  /transactions/:id/suggestion} : get the expense or the income suggested for the "id" transaction,
+     * learned from the categorized transactions.
+     *
+     * @param id the id of the transaction.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the suggestion with its confidence in body, or with
+     * status {@code 404 (Not Found)} if the transaction does not exist or no transaction of its kind is categorized.
+     */
+    @GetMapping("/transactions/{id}/suggestion")
+    public Mono<ResponseEntity<CategorySuggestionDTO>> getTransactionSuggestion(@PathVariable Long id) {
+        log.debug("REST request to get the category suggested for Transaction : {}", id);
+        return ResponseUtil.wrapOrNotFound(transactionService.findSuggestion(id));
+    }
+
     /**
      * {@code GET  /transactions/:id} : get the "id" transaction.
      *
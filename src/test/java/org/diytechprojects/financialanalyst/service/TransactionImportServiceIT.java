@@ -0,0 +1,124 @@
+package org.diytechprojects.financialanalyst.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
+import org.diytechprojects.financialanalyst.IntegrationTest;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.repository.TransactionRepository;
+import org.diytechprojects.financialanalyst.service.dto.ImportProgressDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+/**
+ * Integration tests for {@link TransactionImportService}.
+ */
+@IntegrationTest
+class TransactionImportServiceIT {
+
+    private static final String HEADER = "\"Account Type\",\"Transaction Date\",\"Description 1\",\"CAD$\"\n";
+
+    private static final Function<ImportProgressDTO, Mono<Void>> NO_CHECKPOINT = progress -> Mono.empty();
+
+    @Autowired
+    private TransactionImportService transactionImportService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @TempDir
+    Path directory;
+
+    private DataSize chunkSize;
+
+    @BeforeEach
+    public void init() {
+        transactionRepository.deleteAll().block();
+        chunkSize = applicationProperties.getArchiveImport().getChunkSize();
+        applicationProperties.getArchiveImport().setChunkSize(DataSize.ofBytes(256));
+    }
+
+    @AfterEach
+    public void restore() {
+        applicationProperties.getArchiveImport().setChunkSize(chunkSize);
+        transactionRepository.deleteAll().block();
+    }
+
+    @Test
+    void importArchiveCommitsChunksInOrder() throws IOException {
+        Path file = archive(100);
+
+        List<ImportProgressDTO> progress = transactionImportService.importArchive(file, 0, 7, NO_CHECKPOINT).collectList().block();
+
+        assertThat(progress.size()).isGreaterThan(1);
+        for (int i = 0; i < progress.size(); i++) {
+            assertThat(progress.get(i).getBatch()).isEqualTo(i + 1);
+        }
+        ImportProgressDTO last = progress.get(progress.size() - 1);
+        assertThat(last.getOffset()).isEqualTo(Files.size(file));
+        assertThat(last.getTotalRows()).isEqualTo(100);
+        assertThat(last.getInsertedRows()).isEqualTo(100);
+        List<Transaction> transactions = transactionRepository.findAll().collectList().block();
+        assertThat(transactions).hasSize(100);
+        assertThat(transactions).extracting(Transaction::getFingerprint).doesNotContainNull().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void resumeFromCommittedOffset() throws IOException {
+        Path file = archive(100);
+        ImportProgressDTO first = transactionImportService.importArchive(file, 0, null, NO_CHECKPOINT).blockFirst();
+        long committed = transactionRepository.count().block();
+        assertThat(committed).isEqualTo(first.getTotalRows());
+
+        ImportProgressDTO last = transactionImportService.importArchive(file, first.getOffset(), null, NO_CHECKPOINT).blockLast();
+
+        assertThat(last.getTotalRows()).isEqualTo(100 - committed);
+        assertThat(last.getSkippedRows()).isZero();
+        assertThat(transactionRepository.count().block()).isEqualTo(100);
+    }
+
+    @Test
+    void resumeInTheMiddleOfADayKeepsItsRepeatedRows() throws IOException {
+        // the same purchase forty times on the same day, over several chunks
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 40; i++) {
+            csv.append("Chequing,4/7/2021,COFFEE SHOP,-4.50\n");
+        }
+        Path file = Files.write(directory.resolve("repeated.csv"), csv.toString().getBytes(StandardCharsets.UTF_8));
+        ImportProgressDTO first = transactionImportService.importArchive(file, 0, null, NO_CHECKPOINT).blockFirst();
+        assertThat(first.getTotalRows()).isBetween(1L, 39L);
+
+        ImportProgressDTO last = transactionImportService.importArchive(file, first.getOffset(), null, NO_CHECKPOINT).blockLast();
+
+        assertThat(last.getTotalRows()).isEqualTo(40 - first.getTotalRows());
+        assertThat(last.getSkippedRows()).isZero();
+        assertThat(transactionRepository.count().block()).isEqualTo(40);
+
+        // importing the whole file again adds nothing
+        ImportProgressDTO again = transactionImportService.importArchive(file, 0, null, NO_CHECKPOINT).blockLast();
+        assertThat(again.getSkippedRows()).isEqualTo(40);
+        assertThat(transactionRepository.count().block()).isEqualTo(40);
+    }
+
+    private Path archive(int rows) throws IOException {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < rows; i++) {
+            csv.append("Chequing,4/").append(i % 28 + 1).append("/2021,STORE ").append(i).append(",-").append(i).append(".25\n");
+        }
+        return Files.write(directory.resolve("archive.csv"), csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,58 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link DescriptionCache} and {@link DescriptionCanonicalizer}.
+ */
+class DescriptionCacheTest {
+
+    @Test
+    void canonicalFormsDropStoreNumbersAndDates() {
+        assertThat(DescriptionCanonicalizer.canonicalize("Tim Hortons #4432 04/07")).isEqualTo("TIM HORTONS");
+        assertThat(DescriptionCanonicalizer.canonicalize("TIM HORTONS   #118")).isEqualTo("TIM HORTONS");
+        assertThat(DescriptionCanonicalizer.canonicalize("AMZN Mktp CA*2K3")).isEqualTo("AMZN MKTP CA 2K3");
+        assertThat(DescriptionCanonicalizer.canonicalize("PAYPAL 2021-04-07 12.50 REF 1234567")).isEqualTo("PAYPAL REF");
+        assertThat(DescriptionCanonicalizer.canonicalize("ESSO 07APR APR07 07APR2021")).isEqualTo("ESSO");
+        // words that only look like numbers or dates are kept
+        assertThat(DescriptionCanonicalizer.canonicalize("7-Eleven 44 Decathlon May")).isEqualTo("7-ELEVEN 44 DECATHLON MAY");
+        assertThat(DescriptionCanonicalizer.canonicalize("123456")).isEqualTo("123456");
+        assertThat(DescriptionCanonicalizer.canonicalize(" * ")).isNull();
+        assertThat(DescriptionCanonicalizer.canonicalize(null)).isNull();
+    }
+
+    @Test
+    void repeatedDescriptionsShareOneInstance() {
+        DescriptionCache cache = new DescriptionCache(1000);
+        String first = new String("Tim Hortons #4432");
+        String second = new String("Tim Hortons #4432");
+
+        assertThat(cache.intern(first)).isSameAs(first);
+        assertThat(cache.intern(second)).isSameAs(first);
+        assertThat(cache.canonical(second)).isEqualTo("TIM HORTONS");
+        assertThat(cache.canonical("TIM HORTONS #118")).isSameAs(cache.canonical(first));
+        assertThat(cache.canonical("TIM HORTONS")).isSameAs(cache.canonical(first));
+        assertThat(cache.intern(null)).isNull();
+        assertThat(cache.capacity()).isEqualTo(1024);
+        assertThat(cache.hits()).isPositive();
+        assertThat(cache.misses()).isPositive();
+
+        Transaction transaction = cache.internDescriptions(new Transaction().description1(new String("Tim Hortons #4432")));
+        assertThat(transaction.getDescription1()).isSameAs(first);
+        assertThat(transaction.getDescription2()).isNull();
+    }
+
+    @Test
+    void theCacheIsBounded() {
+        DescriptionCache cache = new DescriptionCache(16);
+        for (int i = 0; i < 10000; i++) {
+            String description = "MERCHANT " + (char) ('A' + i % 26) + i;
+            assertThat(cache.intern(description)).isEqualTo(description);
+            assertThat(cache.canonical(description)).isEqualTo(description);
+        }
+        assertThat(cache.capacity()).isEqualTo(16);
+    }
+}
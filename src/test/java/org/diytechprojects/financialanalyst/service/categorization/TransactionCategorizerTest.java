@@ -0,0 +1,232 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.diytechprojects.financialanalyst.domain.Expense;
+import org.diytechprojects.financialanalyst.domain.Income;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TransactionCategorizer}.
+ */
+class TransactionCategorizerTest {
+
+    private TransactionCategorizer categorizer;
+
+    @BeforeEach
+    public void init() {
+        categorizer =
+            new TransactionCategorizer(
+                Arrays.asList(
+                    new Expense().id(1L).searchString1("amazon"),
+                    new Expense().id(2L).searchString1("AMAZON PRIME").searchString2("PRIME VIDEO"),
+                    new Expense().id(3L).searchString1("  ")
+                ),
+                Collections.singletonList(new Income().id(10L).searchString1("PAYROLL"))
+            );
+    }
+
+    @Test
+    void debitsMatchExpenses() {
+        assertThat(categorizer.categorize(debit("Amazon.ca", null)).getExpenseId()).isEqualTo(1L);
+        assertThat(categorizer.categorize(debit("POS", "Amazon Prime membership")).getExpenseId()).isEqualTo(2L);
+        assertThat(categorizer.categorize(debit("PRIME VIDEO", null)).getExpenseId()).isEqualTo(2L);
+        assertThat(categorizer.categorize(debit("COFFEE", null)).getExpenseId()).isNull();
+    }
+
+    @Test
+    void creditsMatchIncomes() {
+        Transaction transaction = categorizer.categorize(new Transaction().description1("ACME PAYROLL").amountCAD(100000L));
+
+        assertThat(transaction.getIncomeId()).isEqualTo(10L);
+        assertThat(transaction.getExpenseId()).isNull();
+    }
+
+    @Test
+    void overlappingSearchStringsAreAllFound() {
+        TransactionCategorizer overlapping = new TransactionCategorizer(
+            Arrays.asList(
+                new Expense().id(5L).searchString1("SHELL"),
+                new Expense().id(4L).searchString1("HELLO WORLD"),
+                new Expense().id(3L).searchString1("ELL"),
+                new Expense().id(2L).searchString1("Café"),
+                new Expense().id(1L).searchString1("shell")
+            ),
+            Collections.emptyList()
+        );
+
+        // the longest candidate fails at the last character, the shorter ones are reached through its suffixes
+        assertThat(overlapping.categorize(debit("SHELL HELLO WORLX", null)).getExpenseId()).isEqualTo(1L);
+        assertThat(overlapping.categorize(debit("HELLO WORLX", null)).getExpenseId()).isEqualTo(3L);
+        assertThat(overlapping.categorize(debit("BIG HELLO WORLD", "SHELL")).getExpenseId()).isEqualTo(4L);
+        assertThat(overlapping.categorize(debit("CAFÉ DU COIN", null)).getExpenseId()).isEqualTo(2L);
+        assertThat(overlapping.categorize(debit("CAFE DU COIN", null)).getExpenseId()).isNull();
+    }
+
+    @Test
+    void sameMatchesAsSearchingEveryRule() {
+        Random random = new Random(42);
+        List<Expense> expenses = new ArrayList<>();
+        for (long id = 1; id <= 300; id++) {
+            String searchString1 = randomText(random, 1 + random.nextInt(4));
+            expenses.add(new Expense().id(id).searchString1(searchString1).searchString2(randomText(random, 3)));
+        }
+        TransactionCategorizer automaton = new TransactionCategorizer(expenses, Collections.emptyList());
+        TransactionCategorizer counting = new TransactionCategorizer(expenses, Collections.emptyList(), new RuleHitStatistics());
+
+        for (int i = 0; i < 2000; i++) {
+            Transaction transaction = debit(randomText(random, 20), random.nextBoolean() ? null : randomText(random, 8));
+            Long expected = null;
+            int expectedLength = 0;
+            List<Long> matching = new ArrayList<>();
+            for (Expense expense : expenses) {
+                for (String searchString : Arrays.asList(expense.getSearchString1(), expense.getSearchString2())) {
+                    boolean found =
+                        transaction.getDescription1().contains(searchString) ||
+                        (transaction.getDescription2() != null && transaction.getDescription2().contains(searchString));
+                    if (found && !matching.contains(expense.getId())) {
+                        matching.add(expense.getId());
+                    }
+                    if (found && searchString.length() > expectedLength) {
+                        expected = expense.getId();
+                        expectedLength = searchString.length();
+                    }
+                }
+            }
+            long[] matchingRules = automaton.matchingRules(transaction);
+            assertThat(matchingRules).as(transaction.getDescription1()).containsExactlyInAnyOrder(toArray(matching));
+            if (expected != null) {
+                assertThat(matchingRules[0]).isEqualTo(expected);
+            }
+            assertThat(counting.categorize(debit(transaction.getDescription1(), transaction.getDescription2())).getExpenseId())
+                .isEqualTo(expected);
+            assertThat(automaton.categorize(transaction).getExpenseId()).as(transaction.getDescription1()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void statisticsCountMatchesWinsAndConflicts() {
+        RuleHitStatistics statistics = new RuleHitStatistics();
+        TransactionCategorizer counting = new TransactionCategorizer(
+            Arrays.asList(
+                new Expense().id(1L).searchString1("amazon"),
+                new Expense().id(2L).searchString1("AMAZON PRIME").searchString2("PRIME VIDEO"),
+                new Expense().id(3L).searchString1("NEVER")
+            ),
+            Collections.singletonList(new Income().id(1L).searchString1("AMAZON")),
+            statistics
+        );
+
+        counting.categorize(debit("AMAZON PRIME VIDEO", null));
+        counting.categorize(debit("AMAZON.CA", null));
+        counting.categorize(new Transaction().description1("AMAZON REFUND").amountCAD(500L));
+
+        assertThat(statistics.expense(1L)).extracting("matches", "wins", "conflicts").containsExactly(2L, 1L, 1L);
+        assertThat(statistics.expense(2L)).extracting("matches", "wins", "conflicts").containsExactly(1L, 1L, 1L);
+        assertThat(statistics.expense(3L)).extracting("matches", "wins", "conflicts", "lastMatchDate").containsExactly(0L, 0L, 0L, null);
+        assertThat(statistics.income(1L)).extracting("matches", "wins", "conflicts").containsExactly(1L, 1L, 0L);
+        assertThat(statistics.expense(1L).getLastMatchDate()).isNotNull();
+    }
+
+    @Test
+    void approximateMatchesWhenNoSearchStringMatchesExactly() {
+        TransactionCategorizer approximate = new TransactionCategorizer(
+            Arrays.asList(
+                new Expense().id(1L).searchString1("AMAZON.CA"),
+                new Expense().id(2L).searchString1("netflix"),
+                new Expense().id(3L).searchString1("AMAZON"),
+                new Expense().id(4L).searchString1("BP")
+            ),
+            Collections.singletonList(new Income().id(10L).searchString1("PAYROLL")),
+            null,
+            2
+        );
+
+        // both runs are one edit away, the longest search string wins
+        assertThat(approximate.categorize(debit("AMZN MKTP AMAZN.CA", null)).getExpenseId()).isEqualTo(1L);
+        assertThat(approximate.categorize(debit("POS", "Netflx.com")).getExpenseId()).isEqualTo(2L);
+        assertThat(approximate.categorize(debit("AMAZON MKTP", "NETFLX")).getExpenseId()).isEqualTo(3L);
+        assertThat(approximate.categorize(debit("BQ 1234", null)).getExpenseId()).isNull();
+        assertThat(approximate.categorize(debit("AMZN", null)).getExpenseId()).isNull();
+        assertThat(approximate.categorize(new Transaction().description1("ACME PAYRLL").amountCAD(1000L)).getIncomeId()).isEqualTo(10L);
+        assertThat(categorizer.categorize(debit("AMAZN", null)).getExpenseId()).isNull();
+    }
+
+    @Test
+    void cachedMatchesAreReusedForTheSameVersionOfTheRules() {
+        CategorizationCache cache = new CategorizationCache(16);
+        List<Expense> expenses = Arrays.asList(new Expense().id(1L).searchString1("AMAZON"), new Expense().id(2L).searchString1("PRIME"));
+        RuleHitStatistics statistics = new RuleHitStatistics();
+        TransactionCategorizer counting = new TransactionCategorizer(expenses, Collections.emptyList(), statistics, 0, cache, 1);
+
+        assertThat(counting.categorize(debit("AMAZON PRIME", null)).getExpenseId()).isEqualTo(1L);
+        assertThat(counting.categorize(debit("AMAZON PRIME", null)).getExpenseId()).isEqualTo(1L);
+        assertThat(counting.categorize(debit("COFFEE", null)).getExpenseId()).isNull();
+        assertThat(counting.categorize(debit("COFFEE", null)).getExpenseId()).isNull();
+        assertThat(cache.hits()).isEqualTo(2);
+        assertThat(cache.misses()).isEqualTo(2);
+        // the hits of the rules are counted whether their matches are cached or not
+        assertThat(statistics.expense(1L)).extracting("matches", "wins", "conflicts").containsExactly(2L, 2L, 2L);
+        assertThat(statistics.expense(2L)).extracting("matches", "wins", "conflicts").containsExactly(2L, 0L, 2L);
+
+        // the same rules of another version miss the cache, and so do other rules of the same version
+        TransactionCategorizer next = new TransactionCategorizer(expenses, Collections.emptyList(), null, 0, cache, 2);
+        assertThat(next.categorize(debit("AMAZON PRIME", null)).getExpenseId()).isEqualTo(1L);
+        List<Expense> changed = Collections.singletonList(new Expense().id(3L).searchString1("AMAZON"));
+        TransactionCategorizer current = new TransactionCategorizer(changed, Collections.emptyList(), null, 0, cache, 2);
+        assertThat(current.categorize(debit("AMAZON PRIME", null)).getExpenseId()).isEqualTo(3L);
+        assertThat(current.categorize(debit("AMAZON PRIME", null)).getExpenseId()).isEqualTo(3L);
+        assertThat(cache.hits()).isEqualTo(3);
+        assertThat(cache.misses()).isEqualTo(4);
+
+        // only the best rule is cached without statistics, a counting categorizer needs them all
+        TransactionCategorizer recounting = new TransactionCategorizer(changed, Collections.emptyList(), statistics, 0, cache, 2);
+        assertThat(recounting.categorize(debit("AMAZON PRIME", null)).getExpenseId()).isEqualTo(3L);
+        assertThat(cache.misses()).isEqualTo(5);
+        assertThat(statistics.expense(3L)).extracting("matches", "wins").containsExactly(1L, 1L);
+    }
+
+    @Test
+    void categorizedTransactionsAreKept() {
+        Transaction categorized = debit("AMAZON", null);
+        categorized.setExpenseId(42L);
+
+        Transaction transaction = categorizer.categorize(categorized);
+
+        assertThat(transaction.getExpenseId()).isEqualTo(42L);
+    }
+
+    @Test
+    void normalizeWhitespace() {
+        Transaction transaction = TransactionNormalizer.normalize(
+            new Transaction().description1("  AMAZON    MKTP\tCA ").description2("   ").accountType("Visa")
+        );
+
+        assertThat(transaction.getDescription1()).isEqualTo("AMAZON MKTP CA");
+        assertThat(transaction.getDescription2()).isNull();
+        assertThat(transaction.getAccountType()).isEqualTo("Visa");
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append("ABC D".charAt(random.nextInt(5)));
+        }
+        return text.toString().trim().isEmpty() ? "A" : text.toString().trim();
+    }
+
+    private static long[] toArray(List<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static Transaction debit(String description1, String description2) {
+        return new Transaction().description1(description1).description2(description2).amountCAD(-1000L);
+    }
+}
@@ -0,0 +1,111 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.service.dto.CategorySuggestionDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TransactionClassifier}.
+ */
+class TransactionClassifierTest {
+
+    private TransactionClassifier classifier;
+
+    @BeforeEach
+    public void init() {
+        classifier = new TransactionClassifier();
+        classifier.learnAll(
+            Arrays.asList(
+                expense(1L, "AMAZON MKTP CA", -2599L),
+                expense(1L, "AMZN Mktp CA*2K3", -1250L),
+                expense(2L, "NETFLIX.COM", -1699L),
+                expense(2L, "Netflix.com 866-579-7172", -1699L),
+                income(10L, "ACME PAYROLL", 250000L),
+                new Transaction().description1("UNCATEGORIZED").amountCAD(-100L)
+            )
+        );
+    }
+
+    @Test
+    void suggestsTheMostLikelyCategoryOfTheKindOfTheAmount() {
+        CategorySuggestionDTO amazon = classifier.suggest(new Transaction().description1("amzn mktp ca*9Z1").amountCAD(-3000L));
+        assertThat(amazon.getExpenseId()).isEqualTo(1L);
+        assertThat(amazon.getIncomeId()).isNull();
+        assertThat(amazon.getConfidence()).isGreaterThan(0.9).isLessThan(1.0);
+
+        assertThat(classifier.suggest(new Transaction().description1("NETFLIX").amountUSD(-1299L)).getExpenseId()).isEqualTo(2L);
+
+        // the only income is certain, whatever the descriptions
+        CategorySuggestionDTO payroll = classifier.suggest(new Transaction().description1("NETFLIX").amountCAD(100L));
+        assertThat(payroll.getIncomeId()).isEqualTo(10L);
+        assertThat(payroll.getConfidence()).isEqualTo(1.0);
+
+        assertThat(classifier.suggest(new Transaction().description1("NETFLIX"))).isNull();
+        assertThat(classifier.classes()).isEqualTo(3);
+    }
+
+    @Test
+    void amountsTellApartTheSameMerchant() {
+        classifier.learnAll(
+            Arrays.asList(
+                expense(3L, "COSTCO GAS", -6000L),
+                expense(3L, "COSTCO WHOLESALE", -5500L),
+                expense(4L, "COSTCO WHOLESALE", -25000L),
+                expense(4L, "COSTCO WHOLESALE", -31000L)
+            )
+        );
+
+        assertThat(classifier.suggest(new Transaction().description1("COSTCO WHOLESALE").amountCAD(-6100L)).getExpenseId()).isEqualTo(3L);
+        assertThat(classifier.suggest(new Transaction().description1("COSTCO WHOLESALE").amountCAD(-28000L)).getExpenseId()).isEqualTo(4L);
+    }
+
+    @Test
+    void learnsTheChangesOfTheTransactions() {
+        Transaction previous = expense(2L, "STREAMING SERVICE", -999L);
+        classifier.learn(null, previous);
+        assertThat(classifier.suggest(new Transaction().description1("STREAMING SERVICE").amountCAD(-999L)).getExpenseId()).isEqualTo(2L);
+
+        Transaction recategorized = expense(1L, "STREAMING SERVICE", -999L);
+        classifier.learn(previous, recategorized);
+        classifier.learn(null, expense(1L, "STREAMING SERVICE", -999L));
+        assertThat(classifier.suggest(new Transaction().description1("STREAMING SERVICE").amountCAD(-999L)).getExpenseId()).isEqualTo(1L);
+
+        // forgetting the incomes leaves none to suggest for a credit
+        classifier.learn(income(10L, "ACME PAYROLL", 250000L), null);
+        assertThat(classifier.suggest(new Transaction().description1("ACME PAYROLL").amountCAD(250000L))).isNull();
+        // forgetting what was never learned changes nothing
+        classifier.learn(income(11L, "ACME BONUS", 1000L), null);
+        classifier.learn(income(10L, "ACME PAYROLL", 250000L), null);
+        classifier.learn(null, income(10L, "ACME PAYROLL", 250000L));
+        assertThat(classifier.suggest(new Transaction().description1("BONUS").amountCAD(1L)).getConfidence()).isEqualTo(1.0);
+    }
+
+    @Test
+    void categorizesTheUncategorizedTransactionsWhenConfident() {
+        Transaction amazon = classifier.categorize(new Transaction().description1("AMAZON MKTP CA").amountCAD(-2000L), 0.9);
+        assertThat(amazon.getExpenseId()).isEqualTo(1L);
+
+        Transaction unknown = classifier.categorize(new Transaction().description1("CORNER STORE").amountCAD(-2000L), 0.9);
+        assertThat(unknown.getExpenseId()).isNull();
+
+        Transaction categorized = new Transaction().description1("AMAZON MKTP CA").amountCAD(-2000L);
+        categorized.setExpenseId(42L);
+        assertThat(classifier.categorize(categorized, 0.9).getExpenseId()).isEqualTo(42L);
+    }
+
+    private static Transaction expense(Long expenseId, String description1, long amount) {
+        Transaction transaction = new Transaction().description1(description1).amountCAD(amount);
+        transaction.setExpenseId(expenseId);
+        return transaction;
+    }
+
+    private static Transaction income(Long incomeId, String description1, long amount) {
+        Transaction transaction = new Transaction().description1(description1).amountCAD(amount);
+        transaction.setIncomeId(incomeId);
+        return transaction;
+    }
+}
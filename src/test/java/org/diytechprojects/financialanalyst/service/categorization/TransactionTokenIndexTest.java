@@ -0,0 +1,176 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TransactionTokenIndex}.
+ */
+class TransactionTokenIndexTest {
+
+    @Test
+    void tokensAreRunsOfLettersAndDigits() {
+        assertThat(TransactionTokenIndex.tokenize("Tim Hortons #44", "tim-hortons")).containsExactly("TIM", "HORTONS", "44");
+        assertThat(TransactionTokenIndex.tokenize(null, "  ")).isEmpty();
+    }
+
+    @Test
+    void searchStringWithinTokensMatchesByDictionaryScan() {
+        TransactionTokenIndex index = new TransactionTokenIndex();
+        index.put(1, "AMAZON.CA", null);
+        index.put(2, "AMAZONPRIME", "MEMBERSHIP");
+        index.put(3, "PRIME AMAZON", null);
+        index.put(4, "AMA ZON", null);
+
+        assertThat(index.candidates("AMAZON")).containsExactly(1, 2, 3);
+        assertThat(index.candidates("ZONP")).containsExactly(2);
+        // a run before a separator must end a token, a run after one must start a token
+        assertThat(index.candidates("AMAZON.")).containsExactly(1, 3);
+        assertThat(index.candidates("ZON.C")).containsExactly(1, 3, 4);
+        assertThat(index.candidates(".CA")).containsExactly(1);
+        assertThat(index.candidates("A ZON")).containsExactly(4);
+        assertThat(index.candidates("X AMAZON Y")).containsExactly(1, 3);
+        assertThat(index.candidates("#")).containsExactly(1, 2, 3, 4);
+    }
+
+    @Test
+    void updatesAndRemovalsReplaceTheTokens() {
+        TransactionTokenIndex index = new TransactionTokenIndex();
+        index.put(2, "STARBUCKS", null);
+        index.put(1, "STARBUCKS", null);
+        index.put(1, "TIM HORTONS", null);
+        assertThat(index.putIfAbsent(2, "METRO", null)).isFalse();
+
+        assertThat(index.candidates("STARBUCKS")).containsExactly(2);
+        assertThat(index.candidates("HORTONS")).containsExactly(1);
+
+        index.remove(1);
+        index.remove(3);
+        assertThat(index.candidates("HORTONS")).isEmpty();
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.tokens()).isEqualTo(1);
+    }
+
+    @Test
+    void candidatesContainEveryMatch() {
+        Random random = new Random(42);
+        String alphabet = "AB1 -";
+        TransactionTokenIndex index = new TransactionTokenIndex();
+        List<String> descriptions = new ArrayList<>();
+        for (int id = 0; id < 2000; id++) {
+            String description = randomString(random, alphabet, 12);
+            descriptions.add(description);
+            index.put(id, description, null);
+        }
+        for (int i = 0; i < 200; i++) {
+            String searchString = randomString(random, alphabet, 1 + random.nextInt(5)).trim();
+            if (searchString.isEmpty()) {
+                continue;
+            }
+            long[] candidates = index.candidates(searchString);
+            long[] matches = LongStream.range(0, descriptions.size()).filter(id -> descriptions.get((int) id).contains(searchString)).toArray();
+            assertThat(candidates).as(searchString).contains(matches);
+        }
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return value.toString();
+    }
+
+    @Test
+    void searchFindsEveryWordRankedByRarityAndLength() {
+        TransactionTokenIndex index = new TransactionTokenIndex();
+        index.put(1, "AMAZON MKTPLACE PMTS", "WWW.AMAZON.CA");
+        index.put(2, "Amazon", null);
+        index.put(3, "AMAZON PRIME", null);
+        index.put(4, "NETFLIX", null);
+        index.put(5, "AMAZON PRIME VIDEO", null);
+
+        TransactionTokenIndex.Hits hits = index.search("amazon", 10);
+        assertThat(hits.getTotal()).isEqualTo(4);
+        // the shortest description first, then the most recent of equally long ones
+        assertThat(hits.getIds()).containsExactly(2, 3, 5, 1);
+
+        assertThat(index.search("prime amazon", 10).getIds()).containsExactly(3, 5);
+        assertThat(index.search("AMAZON", 2).getIds()).containsExactly(2, 3);
+        assertThat(index.search("AMAZON", 2).getTotal()).isEqualTo(4);
+        assertThat(index.search("amazon unknown", 10).getTotal()).isZero();
+        assertThat(index.search(" - ", 10).getTotal()).isZero();
+    }
+
+    @Test
+    void postingsSurviveOutOfOrderChanges() {
+        Random random = new Random(7);
+        TransactionTokenIndex index = new TransactionTokenIndex();
+        TreeSet<Long> common = new TreeSet<>();
+        TreeSet<Long> rare = new TreeSet<>();
+        for (int i = 0; i < 20000; i++) {
+            long id = random.nextInt(1_000_000);
+            boolean isRare = random.nextInt(50) == 0;
+            index.put(id, isRare ? "COMMON RARE" : "COMMON", null);
+            common.add(id);
+            if (isRare) {
+                rare.add(id);
+            } else {
+                rare.remove(id);
+            }
+            if (random.nextInt(10) == 0) {
+                long removed = common.first() + random.nextInt(1000);
+                index.remove(removed);
+                common.remove(removed);
+                rare.remove(removed);
+            }
+        }
+
+        assertThat(index.candidates("X COMMON Y")).containsExactly(common.stream().mapToLong(Long::longValue).toArray());
+        TransactionTokenIndex.Hits hits = index.search("rare common", Integer.MAX_VALUE);
+        assertThat(hits.getTotal()).isEqualTo(rare.size());
+        assertThat(hits.getIds()).containsExactlyInAnyOrder(rare.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    @Test
+    void postingsMergeTheChangesKeptAsideUntilTheyAreEncoded() {
+        Random random = new Random(11);
+        TransactionTokenIndex.Postings postings = new TransactionTokenIndex.Postings();
+        TreeSet<Long> expected = new TreeSet<>();
+        for (long id = 0; id < 100_000; id += 1 + random.nextInt(4)) {
+            postings.add(id);
+            expected.add(id);
+        }
+        for (int i = 0; i < 5000; i++) {
+            long id = random.nextInt(110_000);
+            // removed, added again after being removed, or added below the last id
+            if (expected.contains(id)) {
+                postings.remove(id);
+                expected.remove(id);
+            } else {
+                postings.add(id);
+                expected.add(id);
+            }
+            if (i % 500 == 0) {
+                assertThat(postings.toArray()).isEqualTo(expected.stream().mapToLong(Long::longValue).toArray());
+                TransactionTokenIndex.Postings.Cursor cursor = postings.cursor();
+                for (long target = random.nextInt(1000); target < 110_000; target += random.nextInt(3000)) {
+                    Long ceiling = expected.ceiling(target);
+                    assertThat(cursor.advance(target)).isEqualTo(ceiling != null);
+                    if (ceiling == null) {
+                        break;
+                    }
+                    assertThat(cursor.id()).isEqualTo(ceiling);
+                }
+            }
+        }
+        assertThat(postings.size()).isEqualTo(expected.size());
+        assertThat(postings.toArray()).isEqualTo(expected.stream().mapToLong(Long::longValue).toArray());
+    }
+}
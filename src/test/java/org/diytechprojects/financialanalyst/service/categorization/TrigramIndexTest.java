@@ -0,0 +1,105 @@
+package org.diytechprojects.financialanalyst.service.categorization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TrigramIndex}.
+ */
+class TrigramIndexTest {
+
+    @Test
+    void textsAreNormalized() {
+        assertThat(TrigramIndex.normalize("  Amzn Mktp CA*2K3 ")).isEqualTo("AMZN MKTP CA 2K3");
+        assertThat(TrigramIndex.normalize("--")).isEmpty();
+        assertThat(TrigramIndex.normalize(null)).isEmpty();
+    }
+
+    @Test
+    void boundedEditDistance() {
+        assertThat(EditDistance.bounded("AMAZON CA", "AMAZN CA", 2)).isEqualTo(1);
+        assertThat(EditDistance.bounded("KITTEN", "SITTING", 3)).isEqualTo(3);
+        assertThat(EditDistance.bounded("KITTEN", "SITTING", 2)).isEqualTo(3);
+        assertThat(EditDistance.bounded("A", "ABCD", 1)).isEqualTo(2);
+        assertThat(EditDistance.bounded("", "", 0)).isZero();
+    }
+
+    @Test
+    void findsTheSpellingsOfAMerchant() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "AMAZON.CA");
+        index.put(2, "amazon ca");
+        index.put(3, "AMAZN.CA");
+        index.put(4, "AMZN MKTP CA*2K3");
+        index.put(5, "NETFLIX.COM");
+        index.put(6, "--");
+
+        assertThat(index.search("Amazon.ca", 2, 10)).extracting(TrigramIndex.Match::getId).containsExactly(2L, 1L, 3L);
+        assertThat(index.search("Amazon.ca", 2, 10)).extracting(TrigramIndex.Match::getDistance).containsExactly(0, 0, 1);
+        assertThat(index.search("AMAZON CA", 0, 10)).extracting(TrigramIndex.Match::getId).containsExactly(2L, 1L);
+        assertThat(index.search("AMAZON CA", 2, 1)).extracting(TrigramIndex.Match::getId).containsExactly(2L);
+        assertThat(index.size()).isEqualTo(5);
+
+        index.put(2, "NETFLIX");
+        index.remove(1);
+        assertThat(index.search("AMAZON CA", 2, 10)).extracting(TrigramIndex.Match::getId).containsExactly(3L);
+        assertThat(index.search("NETFLIX", 1, 10)).extracting(TrigramIndex.Match::getId).containsExactly(2L);
+        assertThat(index.text(2)).isEqualTo("NETFLIX");
+    }
+
+    @Test
+    void shortQueriesAllowFewerEdits() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "BP");
+        index.put(2, "XY");
+
+        // two edits would turn any text of two characters into any other
+        assertThat(index.search("BQ", 2, 10)).extracting(TrigramIndex.Match::getId).containsExactly(1L);
+        assertThat(index.search("Q", 5, 10)).isEmpty();
+    }
+
+    @Test
+    void sameMatchesAsComparingEveryText() {
+        Random random = new Random(42);
+        TrigramIndex index = new TrigramIndex();
+        List<String> texts = new ArrayList<>();
+        for (int id = 0; id < 3000; id++) {
+            String text = randomText(random, 4 + random.nextInt(8));
+            texts.add(text);
+            index.put(id, text);
+        }
+        for (int i = 0; i < 300; i++) {
+            String query = random.nextBoolean() ? texts.get(random.nextInt(texts.size())) : randomText(random, 4 + random.nextInt(8));
+            String normalized = TrigramIndex.normalize(query);
+            int maxEdits = random.nextInt(4);
+            int edits = Math.min(maxEdits, (TrigramIndex.trigrams(normalized).length - 1) / 3);
+            List<Long> expected = new ArrayList<>();
+            for (int id = 0; id < texts.size(); id++) {
+                String text = TrigramIndex.normalize(texts.get(id));
+                if (!text.isEmpty() && EditDistance.bounded(normalized, text, Integer.MAX_VALUE - 1) <= edits) {
+                    expected.add((long) id);
+                }
+            }
+
+            List<TrigramIndex.Match> matches = index.search(query, maxEdits, Integer.MAX_VALUE);
+
+            assertThat(matches.stream().map(TrigramIndex.Match::getId).collect(Collectors.toList()))
+                .as(query)
+                .containsExactlyInAnyOrderElementsOf(expected);
+        }
+        assertThat(index.bytes()).isPositive();
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append("ABCD .".charAt(random.nextInt(6)));
+        }
+        return text.toString();
+    }
+}
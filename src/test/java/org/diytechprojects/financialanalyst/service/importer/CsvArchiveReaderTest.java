@@ -0,0 +1,155 @@
+package org.diytechprojects.financialanalyst.service.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for {@link CsvArchiveReader}.
+ */
+class CsvArchiveReaderTest {
+
+    private static final String HEADER = "\"Account Type\",\"Transaction Date\",\"Description 1\",\"Description 2\",\"CAD$\",\"USD$\"";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void splitOnRecordBoundaries() throws IOException {
+        StringBuilder csv = new StringBuilder(HEADER).append("\r\n");
+        for (int i = 1; i <= 50; i++) {
+            csv.append("Chequing,4/").append(i % 28 + 1).append("/2021,\"SHOP ").append(i).append("\",,-").append(i).append(".5,\r\n");
+        }
+        Path file = write(csv.toString());
+
+        List<CsvChunk> chunks = new ArrayList<>();
+        List<Transaction> transactions = new ArrayList<>();
+        try (CsvArchiveReader reader = new CsvArchiveReader(file, 0, 100)) {
+            CsvChunk chunk;
+            while ((chunk = reader.nextChunk()) != null) {
+                chunks.add(chunk);
+                transactions.addAll(reader.parse(chunk));
+            }
+            assertThat(reader.getRejectedRows()).isZero();
+        }
+
+        assertThat(chunks.size()).isGreaterThan(10);
+        for (int i = 1; i < chunks.size(); i++) {
+            assertThat(chunks.get(i).getStart()).isEqualTo(chunks.get(i - 1).getEnd());
+        }
+        assertThat(chunks.get(chunks.size() - 1).getEnd()).isEqualTo(Files.size(file));
+        assertThat(transactions).hasSize(50);
+        for (int i = 0; i < 50; i++) {
+            assertThat(transactions.get(i).getDescription1()).isEqualTo("SHOP " + (i + 1));
+            assertThat(transactions.get(i).getAmountCAD()).isEqualTo(-((i + 1) * 100L + 50));
+        }
+        assertThat(transactions.get(0).getAccountType()).isEqualTo("Chequing");
+        assertThat(transactions.get(0).getTransactionDate()).isEqualTo(Instant.parse("2021-04-02T00:00:00Z"));
+        assertThat(transactions.get(0).getDescription2()).isNull();
+        assertThat(transactions.get(0).getAmountUSD()).isNull();
+    }
+
+    @Test
+    void readUpToTheEndOfAChunkReadEarlier() throws IOException {
+        StringBuilder csv = new StringBuilder(HEADER).append("\n");
+        for (int i = 1; i <= 50; i++) {
+            csv.append("Chequing,4/").append(i % 28 + 1).append("/2021,\"SHOP ").append(i).append("\",,-").append(i).append(".5,\n");
+        }
+        Path file = write(csv.toString());
+        long endOffset;
+        int rowsBefore = 0;
+        try (CsvArchiveReader reader = new CsvArchiveReader(file, 0, 100)) {
+            rowsBefore += reader.parse(reader.nextChunk()).size();
+            CsvChunk second = reader.nextChunk();
+            rowsBefore += reader.parse(second).size();
+            endOffset = second.getEnd();
+        }
+
+        List<Transaction> transactions = new ArrayList<>();
+        try (CsvArchiveReader reader = new CsvArchiveReader(file, 0, endOffset, 30)) {
+            CsvChunk chunk;
+            while ((chunk = reader.nextChunk()) != null) {
+                assertThat(chunk.getEnd()).isLessThanOrEqualTo(endOffset);
+                transactions.addAll(reader.parse(chunk));
+            }
+        }
+
+        assertThat(transactions).hasSize(rowsBefore);
+        assertThat(transactions.get(rowsBefore - 1).getDescription1()).isEqualTo("SHOP " + rowsBefore);
+    }
+
+    @Test
+    void quotedLineBreakIsNotABoundary() throws IOException {
+        String csv =
+            HEADER +
+            "\n" +
+            "Visa,2021-04-07,\"FIRST\nSECOND LINE OF A LONG \"\"QUOTED\"\" VALUE\",MEMO,,(12.345)\n" +
+            "Visa,20210408,NEXT,,1,\n";
+        Path file = write(csv);
+
+        List<Transaction> transactions = new ArrayList<>();
+        try (CsvArchiveReader reader = new CsvArchiveReader(file, 0, 1)) {
+            CsvChunk chunk;
+            while ((chunk = reader.nextChunk()) != null) {
+                transactions.addAll(reader.parse(chunk));
+            }
+        }
+
+        assertThat(transactions).hasSize(2);
+        assertThat(transactions.get(0).getDescription1()).isEqualTo("FIRST\nSECOND LINE OF A LONG \"QUOTED\" VALUE");
+        assertThat(transactions.get(0).getDescription2()).isEqualTo("MEMO");
+        assertThat(transactions.get(0).getAmountUSD()).isEqualTo(-1235L);
+        assertThat(transactions.get(1).getTransactionDate()).isEqualTo(Instant.parse("2021-04-08T00:00:00Z"));
+        assertThat(transactions.get(1).getAmountCAD()).isEqualTo(100L);
+    }
+
+    @Test
+    void repeatedHeaderIsSkippedAndInvalidRecordsRejected() throws IOException {
+        String csv =
+            "\uFEFF" +
+            HEADER +
+            "\n" +
+            "Visa,4/7/2021,COFFEE,,\"$1,234.50\",\n" +
+            HEADER +
+            "\n" +
+            "Visa,13/45/2021,BAD DATE,,1,\n" +
+            "Visa,4/8/2021,BAD AMOUNT,,1.2.3,\n";
+        Path file = write(csv);
+
+        try (CsvArchiveReader reader = new CsvArchiveReader(file, 0, 1024)) {
+            List<Transaction> transactions = reader.parse(reader.nextChunk());
+
+            assertThat(transactions).hasSize(1);
+            assertThat(transactions.get(0).getAmountCAD()).isEqualTo(123450L);
+            assertThat(reader.getRejectedRows()).isEqualTo(2);
+            assertThat(reader.nextChunk()).isNull();
+        }
+    }
+
+    @Test
+    void resumeFromOffset() throws IOException {
+        String first = "Visa,4/7/2021,FIRST,,1,\n";
+        Path file = write(HEADER + "\n" + first + "Visa,4/8/2021,SECOND,,2,\n");
+        long offset = HEADER.length() + 1 + first.length();
+
+        try (CsvArchiveReader reader = new CsvArchiveReader(file, offset, 1024)) {
+            CsvChunk chunk = reader.nextChunk();
+            assertThat(chunk.getStart()).isEqualTo(offset);
+            List<Transaction> transactions = reader.parse(chunk);
+            assertThat(transactions).extracting(Transaction::getDescription1).containsExactly("SECOND");
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.write(directory.resolve("archive.csv"), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,140 @@
+package org.diytechprojects.financialanalyst.service.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link OfxStatementReader}.
+ */
+class OfxStatementReaderTest {
+
+    private static final String SGML_HEADER = "OFXHEADER:100\r\nDATA:OFXSGML\r\nVERSION:102\r\nENCODING:USASCII\r\nCHARSET:1252\r\n\r\n";
+
+    @Test
+    void readSgmlStatement() throws IOException {
+        String ofx =
+            SGML_HEADER +
+            "<OFX>\r\n<SIGNONMSGSRSV1><SONRS><STATUS><CODE>0<SEVERITY>INFO</STATUS><DTSERVER>20210410</SONRS></SIGNONMSGSRSV1>\r\n" +
+            "<BANKMSGSRSV1><STMTTRNRS><STMTRS><CURDEF>CAD\r\n" +
+            "<BANKACCTFROM><BANKID>123<ACCTID>456<ACCTTYPE>SAVINGS</BANKACCTFROM>\r\n" +
+            "<BANKTRANLIST>\r\n" +
+            "<STMTTRN>\r\n<TRNTYPE>CHECK\r\n<DTPOSTED>20210407120000.000[-5:EST]\r\n<TRNAMT>-1,234.50\r\n<FITID>1\r\n" +
+            "<CHECKNUM>101\r\n<NAME>A&W &amp; CO\r\n<MEMO>CHEQUE 101\r\n</STMTTRN>\r\n" +
+            "<STMTTRN><TRNTYPE>CREDIT<DTPOSTED>20210408<TRNAMT>25<FITID>2<NAME>REFUND</STMTTRN>\r\n" +
+            "</BANKTRANLIST><LEDGERBAL><BALAMT>100<DTASOF>20210410</LEDGERBAL></STMTRS></STMTTRNRS></BANKMSGSRSV1>\r\n" +
+            "</OFX>\r\n";
+
+        try (OfxStatementReader reader = reader(ofx)) {
+            Transaction cheque = reader.next();
+            assertThat(cheque.getAccountType()).isEqualTo("SAVINGS");
+            assertThat(cheque.getTransactionDate()).isEqualTo(Instant.parse("2021-04-07T00:00:00Z"));
+            assertThat(cheque.getChequeNumber()).isEqualTo("101");
+            assertThat(cheque.getDescription1()).isEqualTo("A&W & CO");
+            assertThat(cheque.getDescription2()).isEqualTo("CHEQUE 101");
+            assertThat(cheque.getAmountCAD()).isEqualTo(-123450L);
+            assertThat(cheque.getAmountUSD()).isNull();
+
+            Transaction refund = reader.next();
+            assertThat(refund.getDescription1()).isEqualTo("REFUND");
+            assertThat(refund.getDescription2()).isNull();
+            assertThat(refund.getAmountCAD()).isEqualTo(2500L);
+
+            assertThat(reader.next()).isNull();
+            assertThat(reader.getRejectedRows()).isZero();
+        }
+    }
+
+    @Test
+    void readXmlCreditCardStatement() throws IOException {
+        String ofx =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<?OFX OFXHEADER=\"200\" VERSION=\"211\"?>\n" +
+            "<OFX><CREDITCARDMSGSRSV1><CCSTMTTRNRS><CCSTMTRS><CURDEF>USD</CURDEF>" +
+            "<CCACCTFROM><ACCTID>4111</ACCTID></CCACCTFROM><BANKTRANLIST>" +
+            "<STMTTRN><TRNTYPE>DEBIT</TRNTYPE><DTPOSTED>20210407</DTPOSTED><TRNAMT>-9.99</TRNAMT><FITID>1</FITID>" +
+            "<NAME>STREAMING SERVICE</NAME></STMTTRN>" +
+            "<STMTTRN><TRNTYPE>DEBIT</TRNTYPE><DTPOSTED>20210408</DTPOSTED><TRNAMT>-5</TRNAMT><FITID>2</FITID>" +
+            "<NAME>CAFE</NAME><CURRENCY><CURRATE>1.25</CURRATE><CURSYM>CAD</CURSYM></CURRENCY></STMTTRN>" +
+            "</BANKTRANLIST></CCSTMTRS></CCSTMTTRNRS></CREDITCARDMSGSRSV1></OFX>";
+
+        try (OfxStatementReader reader = reader(ofx)) {
+            Transaction subscription = reader.next();
+            assertThat(subscription.getAccountType()).isEqualTo("CREDITCARD");
+            assertThat(subscription.getAmountUSD()).isEqualTo(-999L);
+            assertThat(subscription.getAmountCAD()).isNull();
+
+            Transaction cafe = reader.next();
+            assertThat(cafe.getAmountCAD()).isEqualTo(-500L);
+            assertThat(cafe.getAmountUSD()).isNull();
+
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void readSgmlStatementWithEmptyLeaves() throws IOException {
+        String ofx =
+            SGML_HEADER +
+            "<OFX>\r\n<BANKMSGSRSV1><STMTTRNRS><STMTRS><CURDEF>CAD\r\n" +
+            "<BANKACCTFROM><BANKID>123<ACCTID>456<ACCTTYPE>CHECKING</BANKACCTFROM>\r\n" +
+            "<BANKTRANLIST>\r\n" +
+            "<STMTTRN>\r\n<TRNTYPE>DEBIT\r\n<DTPOSTED>20210407\r\n<NAME>GROCERY\r\n<MEMO>\r\n<TRNAMT>-12.34\r\n<FITID>1\r\n" +
+            "</STMTTRN>\r\n" +
+            "<STMTTRN>\r\n<TRNTYPE>CREDIT\r\n<DTPOSTED>20210408\r\n<TRNAMT>50\r\n<NAME>DEPOSIT\r\n<MEMO>\r\n</STMTTRN>\r\n" +
+            "<STMTTRN><EXTDINFO>\r\n<DTPOSTED>20210409<TRNAMT>1</EXTDINFO><NAME>INTEREST</STMTTRN>\r\n" +
+            "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1>\r\n" +
+            "</OFX>\r\n";
+
+        try (OfxStatementReader reader = reader(ofx)) {
+            Transaction grocery = reader.next();
+            assertThat(grocery.getDescription1()).isEqualTo("GROCERY");
+            assertThat(grocery.getDescription2()).isNull();
+            assertThat(grocery.getAmountCAD()).isEqualTo(-1234L);
+
+            Transaction deposit = reader.next();
+            assertThat(deposit.getDescription1()).isEqualTo("DEPOSIT");
+            assertThat(deposit.getDescription2()).isNull();
+            assertThat(deposit.getAmountCAD()).isEqualTo(5000L);
+
+            Transaction interest = reader.next();
+            assertThat(interest.getDescription1()).isEqualTo("INTEREST");
+            assertThat(interest.getAmountCAD()).isEqualTo(100L);
+
+            assertThat(reader.next()).isNull();
+            assertThat(reader.getRejectedRows()).isZero();
+        }
+    }
+
+    @Test
+    void invalidTransactionIsRejected() throws IOException {
+        String ofx =
+            SGML_HEADER +
+            "<OFX><BANKTRANLIST>" +
+            "<STMTTRN><DTPOSTED>yesterday<TRNAMT>1.00</STMTTRN>" +
+            "<STMTTRN><DTPOSTED>20210408<TRNAMT>2.00</STMTTRN>" +
+            "</BANKTRANLIST></OFX>";
+
+        try (OfxStatementReader reader = reader(ofx)) {
+            assertThat(reader.next().getAmountCAD()).isEqualTo(200L);
+            assertThat(reader.next()).isNull();
+            assertThat(reader.getRejectedRows()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void malformedDocument() throws IOException {
+        try (OfxStatementReader reader = reader("<?xml version=\"1.0\"?><OFX><STMTTRN></OFX>")) {
+            assertThatThrownBy(reader::next).isInstanceOf(IllegalArgumentException.class).hasMessageStartingWith("Invalid OFX file");
+        }
+    }
+
+    private static OfxStatementReader reader(String ofx) throws IOException {
+        return new OfxStatementReader(new ByteArrayInputStream(ofx.getBytes(StandardCharsets.UTF_8)));
+    }
+}
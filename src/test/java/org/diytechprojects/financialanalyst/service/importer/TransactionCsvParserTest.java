@@ -0,0 +1,75 @@
+package org.diytechprojects.financialanalyst.service.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.Optional;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TransactionCsvParser}.
+ */
+class TransactionCsvParserTest {
+
+    private static final String BANK_HEADER =
+        "\"Account Type\",\"Account Number\",\"Transaction Date\",\"Cheque Number\",\"Description 1\",\"Description 2\",\"CAD$\",\"USD$\"";
+
+    private TransactionCsvParser parser;
+
+    @BeforeEach
+    public void init() {
+        parser = new TransactionCsvParser();
+    }
+
+    @Test
+    void parseBankExportLine() {
+        assertThat(parser.parseLine(BANK_HEADER)).isEmpty();
+
+        Optional<Transaction> result = parser.parseLine("Chequing,01234-5678901,4/7/2021,,\"AMAZON.CA, ORDER\",MISC,-12.34,");
+
+        assertThat(result).isPresent();
+        Transaction transaction = result.get();
+        assertThat(transaction.getAccountType()).isEqualTo("Chequing");
+        assertThat(transaction.getTransactionDate()).isEqualTo(Instant.parse("2021-04-07T00:00:00Z"));
+        assertThat(transaction.getChequeNumber()).isNull();
+        assertThat(transaction.getDescription1()).isEqualTo("AMAZON.CA, ORDER");
+        assertThat(transaction.getDescription2()).isEqualTo("MISC");
+        assertThat(transaction.getAmountCAD()).isEqualTo(-1234L);
+        assertThat(transaction.getAmountUSD()).isNull();
+    }
+
+    @Test
+    void parseDatabaseColumnNames() {
+        parser.parseLine("account_type,transaction_date,description_1,amount_cad,amount_usd");
+
+        Transaction transaction = parser.parseLine("Visa,2021-04-07,COFFEE,\"1,234.5\",(2.00)").orElseThrow();
+
+        assertThat(transaction.getAccountType()).isEqualTo("Visa");
+        assertThat(transaction.getAmountCAD()).isEqualTo(123450L);
+        assertThat(transaction.getAmountUSD()).isEqualTo(-200L);
+    }
+
+    @Test
+    void quotedValueSpanningLines() {
+        parser.parseLine(BANK_HEADER);
+
+        assertThat(parser.parseLine("Chequing,1,4/7/2021,,\"FIRST")).isEmpty();
+        Transaction transaction = parser.parseLine("SECOND\",,1.00,").orElseThrow();
+
+        assertThat(transaction.getDescription1()).isEqualTo("FIRST\nSECOND");
+        assertThat(transaction.getAmountCAD()).isEqualTo(100L);
+    }
+
+    @Test
+    void rejectInvalidLines() {
+        parser.parseLine(BANK_HEADER);
+
+        assertThat(parser.parseLine("Chequing,1,not a date,,X,,1.00,")).isEmpty();
+        assertThat(parser.parseLine("Chequing,1,4/7/2021,,X,,abc,")).isEmpty();
+        assertThat(parser.parseLine("")).isEmpty();
+
+        assertThat(parser.getRejectedRows()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,76 @@
+package org.diytechprojects.financialanalyst.service.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.service.categorization.TransactionNormalizer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TransactionFingerprinter}.
+ */
+class TransactionFingerprinterTest {
+
+    private static final Instant DAY_1 = Instant.parse("2021-04-07T00:00:00Z");
+    private static final Instant DAY_2 = Instant.parse("2021-04-08T00:00:00Z");
+
+    @Test
+    void sameRowsGetSameFingerprintAcrossFiles() {
+        String first = new TransactionFingerprinter().apply(coffee(DAY_1)).getFingerprint();
+        String second = new TransactionFingerprinter().apply(coffee(DAY_1)).getFingerprint();
+
+        assertThat(first).hasSize(64).isEqualTo(second);
+    }
+
+    @Test
+    void identicalRowsOfTheSameDayAreKept() {
+        TransactionFingerprinter fingerprinter = new TransactionFingerprinter();
+
+        String first = fingerprinter.apply(coffee(DAY_1)).getFingerprint();
+        String second = fingerprinter.apply(coffee(DAY_1)).getFingerprint();
+        String nextDay = fingerprinter.apply(coffee(DAY_2)).getFingerprint();
+
+        assertThat(first).isNotEqualTo(second);
+        assertThat(nextDay).isNotEqualTo(first).isNotEqualTo(second);
+    }
+
+    @Test
+    void occurrencesAreCountedWhateverTheOrderOfTheDates() {
+        TransactionFingerprinter fingerprinter = new TransactionFingerprinter();
+        Set<String> fingerprints = new HashSet<>();
+        // the same purchase twice a day on 500 days, the days interleaved
+        for (int round = 0; round < 2; round++) {
+            for (int day = 0; day < 500; day++) {
+                fingerprints.add(fingerprinter.apply(coffee(DAY_1.plus(day, ChronoUnit.DAYS))).getFingerprint());
+            }
+        }
+
+        assertThat(fingerprints).hasSize(1000);
+    }
+
+    @Test
+    void rowsGetTheSameFingerprintBeforeAndAfterNormalization() {
+        Transaction parsed = coffee(DAY_1).accountType(" Visa ").description1("COFFEE \t SHOP ").description2("  ");
+        String normalized = new TransactionFingerprinter().apply(coffee(DAY_1)).getFingerprint();
+
+        assertThat(new TransactionFingerprinter().apply(parsed).getFingerprint()).isEqualTo(normalized);
+        assertThat(new TransactionFingerprinter().apply(TransactionNormalizer.normalize(parsed)).getFingerprint()).isEqualTo(normalized);
+    }
+
+    @Test
+    void everyFieldIsPartOfTheFingerprint() {
+        String reference = new TransactionFingerprinter().apply(coffee(DAY_1)).getFingerprint();
+
+        assertThat(new TransactionFingerprinter().apply(coffee(DAY_1).amountUSD(1L)).getFingerprint()).isNotEqualTo(reference);
+        assertThat(new TransactionFingerprinter().apply(coffee(DAY_1).chequeNumber("12")).getFingerprint()).isNotEqualTo(reference);
+        assertThat(new TransactionFingerprinter().apply(coffee(DAY_1).description2("TIP")).getFingerprint()).isNotEqualTo(reference);
+    }
+
+    private static Transaction coffee(Instant date) {
+        return new Transaction().accountType("Visa").transactionDate(date).description1("COFFEE SHOP").amountCAD(-450L);
+    }
+}
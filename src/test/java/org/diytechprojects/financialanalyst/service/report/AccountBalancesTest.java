@@ -0,0 +1,110 @@
+package org.diytechprojects.financialanalyst.service.report;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Random;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link AccountBalances} and {@link DailyPrefixSums}.
+ */
+class AccountBalancesTest {
+
+    private static final int ALL = Integer.MIN_VALUE;
+
+    @Test
+    void prefixSumsMatchASequentialSumAsTheDaysGrow() {
+        Random random = new Random(42);
+        DailyPrefixSums sums = new DailyPrefixSums();
+        long[] amounts = new long[20_000];
+        int firstDay = day("2000-01-01");
+        // from the middle, growing to both sides
+        for (int i = 0; i < 50_000; i++) {
+            int offset = i < 1000 ? 10_000 + random.nextInt(500) : random.nextInt(amounts.length);
+            long amount = random.nextInt(20_000) - 10_000;
+            sums.add(firstDay + offset, amount);
+            amounts[offset] += amount;
+        }
+
+        long expected = 0;
+        for (int offset = 0; offset < amounts.length; offset++) {
+            expected += amounts[offset];
+            if (offset % 97 == 0) {
+                assertThat(sums.sumTo(firstDay + offset)).isEqualTo(expected);
+            }
+        }
+        assertThat(sums.total()).isEqualTo(expected);
+        assertThat(sums.sumTo(firstDay - 1)).isZero();
+        assertThat(sums.sumTo(Integer.MAX_VALUE)).isEqualTo(expected);
+        assertThat(sums.sum(firstDay + 10, firstDay + 12)).isEqualTo(amounts[10] + amounts[11] + amounts[12]);
+        assertThat(sums.sum(firstDay + 12, firstDay + 10)).isZero();
+        assertThat(new DailyPrefixSums().sum(ALL, Integer.MAX_VALUE)).isZero();
+    }
+
+    @Test
+    void balancesSumTheAmountsUpToADay() {
+        AccountBalances balances = new AccountBalances();
+        balances.read(transaction(1, "2021-03-01T10:00:00Z", "Visa", -1000L, 5L));
+        balances.read(transaction(2, "2021-03-07T23:00:00Z", "Visa", 3000L, null));
+        balances.read(transaction(3, "2021-03-08T01:00:00Z", "Chequing", -200L, null));
+        balances.read(transaction(4, null, "Visa", -5L, null));
+        balances.read(transaction(5, "2021-03-09T01:00:00Z", null, -7L, null));
+
+        assertThat(balances.sum("Visa", ALL, day("2021-03-06"), false)).isEqualTo(-1000L);
+        assertThat(balances.sum("Visa", ALL, day("2021-03-07"), false)).isEqualTo(2000L);
+        assertThat(balances.sum("Visa", day("2021-03-02"), Integer.MAX_VALUE, false)).isEqualTo(3000L);
+        assertThat(balances.sum("Visa", ALL, Integer.MAX_VALUE, true)).isEqualTo(5L);
+        assertThat(balances.sum("Chequing", ALL, day("2021-03-07"), false)).isZero();
+        assertThat(balances.sum("Savings", ALL, Integer.MAX_VALUE, false)).isNull();
+        assertThat(balances.getLastReadId()).isEqualTo(5L);
+    }
+
+    @Test
+    void changesBeforeAndAfterTheReadsAreSummedOnce() {
+        AccountBalances balances = new AccountBalances();
+        Transaction first = transaction(1, "2021-03-01T10:00:00Z", "Visa", -1000L, null);
+        Transaction second = transaction(2, "2021-03-02T10:00:00Z", "Visa", -500L, null);
+        Transaction third = transaction(3, "2021-03-03T10:00:00Z", "Visa", -200L, null);
+        Transaction moved = transaction(2, "2021-03-02T10:00:00Z", "Chequing", -500L, null);
+        Transaction raised = transaction(3, "2021-03-03T10:00:00Z", "Visa", -300L, null);
+
+        // changed before being read, by the service, while the chunk was read with the former values
+        balances.change(second, moved);
+        balances.change(null, third);
+        balances.change(third, raised);
+        balances.read(first);
+        balances.read(second);
+        balances.read(third);
+        // read again by a refresh running along
+        balances.read(first);
+        // changed once read
+        balances.change(first, null);
+
+        assertThat(balances.sum("Visa", ALL, Integer.MAX_VALUE, false)).isEqualTo(-300L);
+        assertThat(balances.sum("Chequing", ALL, Integer.MAX_VALUE, false)).isEqualTo(-500L);
+
+        // deleted before being read, then never read
+        balances.change(null, transaction(4, "2021-03-04T10:00:00Z", "Visa", -1L, null));
+        balances.change(transaction(4, "2021-03-04T10:00:00Z", "Visa", -1L, null), null);
+        balances.readUpTo(4);
+        balances.change(null, transaction(5, "2021-03-05T10:00:00Z", "Visa", -2L, null));
+        balances.read(transaction(5, "2021-03-05T10:00:00Z", "Visa", -2L, null));
+        assertThat(balances.sum("Visa", ALL, Integer.MAX_VALUE, false)).isEqualTo(-302L);
+    }
+
+    private static int day(String date) {
+        return (int) LocalDate.parse(date).toEpochDay();
+    }
+
+    private static Transaction transaction(long id, String date, String accountType, Long amountCad, Long amountUsd) {
+        return new Transaction()
+            .id(id)
+            .transactionDate(date == null ? null : Instant.parse(date))
+            .accountType(accountType)
+            .amountCAD(amountCad)
+            .amountUSD(amountUsd);
+    }
+}
@@ -0,0 +1,39 @@
+package org.diytechprojects.financialanalyst.service.report;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link Downsampling}.
+ */
+class DownsamplingTest {
+
+    @Test
+    void keepsEveryPointUnderTheThreshold() {
+        long[] x = { 1, 2, 3 };
+        long[] y = { 5, -5, 5 };
+        assertThat(Downsampling.largestTriangleThreeBuckets(x, y, 3)).containsExactly(0, 1, 2);
+        assertThat(Downsampling.largestTriangleThreeBuckets(x, y, 1000)).containsExactly(0, 1, 2);
+        assertThat(Downsampling.largestTriangleThreeBuckets(new long[0], new long[0], 1000)).isEmpty();
+    }
+
+    @Test
+    void keepsTheEndsAndThePeaksOfEachBucket() {
+        long[] x = new long[10_000];
+        long[] y = new long[10_000];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = i;
+            y[i] = i % 100;
+        }
+        y[4_321] = 1_000_000;
+        y[8_765] = -1_000_000;
+
+        int[] kept = Downsampling.largestTriangleThreeBuckets(x, y, 1000);
+
+        assertThat(kept).hasSize(1000).startsWith(0).endsWith(9_999).contains(4_321, 8_765);
+        for (int i = 1; i < kept.length; i++) {
+            assertThat(kept[i]).isGreaterThan(kept[i - 1]);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.diytechprojects.financialanalyst.service.report;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.assertj.core.groups.Tuple;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO.Grouping;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TransactionSnapshot}.
+ */
+class TransactionSnapshotTest {
+
+    private static final int ALL = Integer.MIN_VALUE;
+
+    @Test
+    void sumsTheTransactionsPerGroup() {
+        TransactionSnapshot snapshot = new TransactionSnapshot();
+        snapshot.put(transaction(1, "2021-03-01T10:00:00Z", "Visa", -1000L, 7L, null, true));
+        snapshot.put(transaction(2, "2021-03-07T23:00:00Z", "Visa", 3000L, null, 3L, false));
+        snapshot.put(transaction(3, "2021-03-08T01:00:00Z", "Chequing", -200L, 7L, null, null));
+        snapshot.put(transaction(4, null, null, -5L, null, null, false));
+        snapshot.put(transaction(5, "2021-04-02T12:00:00Z", "Visa", null, 7L, null, false));
+
+        assertThat(totals(snapshot.sum(ALL, Integer.MAX_VALUE, Grouping.WEEK, false, 1)))
+            .containsExactly(
+                tuple(null, -5L, 0L, -5L, 1L),
+                tuple("2021-03-01", 2000L, 3000L, -1000L, 2L),
+                tuple("2021-03-08", -200L, 0L, -200L, 1L)
+            );
+        int march = day("2021-03-01");
+        assertThat(totals(snapshot.sum(march + 1, march + 7, Grouping.DAY, false, 1)))
+            .containsExactly(tuple("2021-03-07", 3000L, 3000L, 0L, 1L), tuple("2021-03-08", -200L, 0L, -200L, 1L));
+        assertThat(totals(snapshot.sum(march, Integer.MAX_VALUE, Grouping.MONTH, false, 1)))
+            .containsExactly(tuple("2021-03", 1800L, 3000L, -1200L, 3L));
+        assertThat(totals(snapshot.sum(ALL, Integer.MAX_VALUE, Grouping.ACCOUNT_TYPE, false, 1)))
+            .containsExactly(
+                tuple(null, -5L, 0L, -5L, 1L),
+                tuple("Visa", 2000L, 3000L, -1000L, 2L),
+                tuple("Chequing", -200L, 0L, -200L, 1L)
+            );
+        assertThat(totals(snapshot.sum(ALL, Integer.MAX_VALUE, Grouping.TRACKED, false, 1)))
+            .containsExactly(
+                tuple(null, -200L, 0L, -200L, 1L),
+                tuple("false", 2995L, 3000L, -5L, 2L),
+                tuple("true", -1000L, 0L, -1000L, 1L)
+            );
+
+        TransactionSnapshot.Totals categories = snapshot.sum(ALL, Integer.MAX_VALUE, Grouping.CATEGORY, false, 1);
+        assertThat(categories.groups()).isEqualTo(3);
+        assertThat(categories.categoryKey(1)).isEqualTo(7L);
+        assertThat(categories.amount(1)).isEqualTo(-1200L);
+        assertThat(categories.categoryKey(2)).isEqualTo(-3L);
+        assertThat(categories.amount(2)).isEqualTo(3000L);
+        assertThat(categories.amount(0)).isEqualTo(-5L);
+
+        assertThat(snapshot.rows()).isEqualTo(5);
+        assertThat(snapshot.bytes()).isPositive();
+    }
+
+    @Test
+    void deletedTransactionsAreNotCopiedBackFromAnOlderRead() {
+        TransactionSnapshot snapshot = new TransactionSnapshot();
+        Transaction read = transaction(1, "2021-03-01T10:00:00Z", "Visa", -1000L, null, null, true);
+        snapshot.remove(1);
+        assertThat(snapshot.putIfAbsent(read)).isFalse();
+
+        snapshot.put(transaction(2, "2021-03-01T10:00:00Z", "Visa", -500L, null, null, true));
+        assertThat(snapshot.putIfAbsent(transaction(2, "2021-03-01T10:00:00Z", "Visa", -1L, null, null, true))).isFalse();
+        assertThat(snapshot.putIfAbsent(transaction(3, "2021-03-02T10:00:00Z", "Visa", -2L, null, null, true))).isTrue();
+
+        assertThat(totals(snapshot.sum(ALL, Integer.MAX_VALUE, Grouping.MONTH, false, 1)))
+            .containsExactly(tuple("2021-03", -502L, 0L, -502L, 2L));
+        assertThat(snapshot.rows()).isEqualTo(2);
+    }
+
+    @Test
+    void parallelSumsMatchASequentialScan() {
+        Random random = new Random(42);
+        TransactionSnapshot snapshot = new TransactionSnapshot();
+        Map<String, long[]> expected = new HashMap<>();
+        int firstDay = day("2015-01-01");
+        for (long id = 1; id <= 300_000; id++) {
+            LocalDate date = LocalDate.ofEpochDay(firstDay + random.nextInt(3650));
+            long amount = random.nextInt(20_000) - 10_000;
+            Transaction transaction = transaction(id, date + "T12:00:00Z", "Visa", null, null, null, null).amountUSD(amount);
+            snapshot.put(transaction);
+            if (random.nextInt(10) == 0) {
+                snapshot.remove(id);
+            } else {
+                long[] month = expected.computeIfAbsent(date.toString().substring(0, 7), key -> new long[2]);
+                month[0] += amount;
+                month[1]++;
+            }
+        }
+
+        TransactionSnapshot.Totals parallel = snapshot.sum(ALL, Integer.MAX_VALUE, Grouping.MONTH, true, 4);
+        TransactionSnapshot.Totals sequential = snapshot.sum(ALL, Integer.MAX_VALUE, Grouping.MONTH, true, 1);
+        assertThat(totals(parallel)).isEqualTo(totals(sequential)).hasSize(120);
+        for (int group = 1; group < parallel.groups(); group++) {
+            long[] month = expected.get(parallel.label(group));
+            assertThat(new long[] { parallel.amount(group), parallel.count(group) }).containsExactly(month);
+        }
+        assertThat(snapshot.sum(ALL, Integer.MAX_VALUE, Grouping.MONTH, false, 4).count(0)).isZero();
+    }
+
+    private static List<Tuple> totals(TransactionSnapshot.Totals totals) {
+        List<Tuple> groups = new ArrayList<>();
+        for (int group = 0; group < totals.groups(); group++) {
+            if (totals.count(group) > 0) {
+                groups.add(
+                    tuple(totals.label(group), totals.amount(group), totals.credits(group), totals.debits(group), totals.count(group))
+                );
+            }
+        }
+        return groups;
+    }
+
+    private static int day(String date) {
+        return (int) LocalDate.parse(date).toEpochDay();
+    }
+
+    private static Transaction transaction(
+        long id,
+        String date,
+        String accountType,
+        Long amountCad,
+        Long expenseId,
+        Long incomeId,
+        Boolean tracked
+    ) {
+        Transaction transaction = new Transaction()
+            .id(id)
+            .transactionDate(date == null ? null : Instant.parse(date))
+            .accountType(accountType)
+            .amountCAD(amountCad)
+            .isTracked(tracked);
+        transaction.setExpenseId(expenseId);
+        transaction.setIncomeId(incomeId);
+        return transaction;
+    }
+}
@@ -0,0 +1,130 @@
+package org.diytechprojects.financialanalyst.service.synthetic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.Expense;
+import org.diytechprojects.financialanalyst.domain.Income;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.service.categorization.TransactionCategorizer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link SyntheticDataGenerator}.
+ */
+class SyntheticDataGeneratorTest {
+
+    @Test
+    void sameSeedGeneratesSameDataset() {
+        List<Transaction> first = generate(properties(7), 3000);
+        List<Transaction> second = generate(properties(7), 3000);
+        List<Transaction> other = generate(properties(8), 3000);
+
+        assertThat(first).extracting(Transaction::toString).isEqualTo(strings(second));
+        assertThat(strings(first)).isNotEqualTo(strings(other));
+    }
+
+    @Test
+    void exactCountInDateOrder() {
+        ApplicationProperties.SyntheticData properties = properties(1);
+        List<Transaction> transactions = generate(properties, 5000);
+
+        assertThat(transactions).hasSize(5000);
+        assertThat(transactions).extracting(Transaction::getTransactionDate).isSortedAccordingTo(Comparator.naturalOrder());
+        assertThat(transactions.get(0).getTransactionDate()).isEqualTo(Instant.parse("2024-01-01T00:00:00Z"));
+        assertThat(transactions.get(4999).getTransactionDate()).isEqualTo(Instant.parse("2025-12-31T00:00:00Z"));
+    }
+
+    @Test
+    void purchasesAreSkewedTowardsFewMerchants() {
+        List<Transaction> transactions = generate(properties(1), 20000);
+
+        Map<String, Long> perMerchant = transactions
+            .stream()
+            .filter(transaction -> transaction.getDescription1().contains(" #"))
+            .collect(Collectors.groupingBy(transaction -> transaction.getDescription1().split(" #")[0], Collectors.counting()));
+        List<Long> counts = perMerchant.values().stream().sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        long top10 = counts.stream().limit(10).mapToLong(Long::longValue).sum();
+        long all = counts.stream().mapToLong(Long::longValue).sum();
+        assertThat(top10).isGreaterThan(all / 4);
+        assertThat(counts.size()).isGreaterThan(100);
+    }
+
+    @Test
+    void recurringPaymentsFollowTheirSchedule() {
+        List<Transaction> transactions = generate(properties(1), 20000);
+
+        List<Transaction> rent = transactions
+            .stream()
+            .filter(transaction -> "PROPERTY MGMT RENT".equals(transaction.getDescription1()))
+            .collect(Collectors.toList());
+        assertThat(rent).hasSize(24);
+        assertThat(rent.get(0).getTransactionDate()).isEqualTo(Instant.parse("2024-01-01T00:00:00Z"));
+        assertThat(rent.get(12).getAmountCAD()).isLessThan(rent.get(0).getAmountCAD());
+        long payroll = transactions.stream().filter(transaction -> transaction.getDescription1().startsWith("PAYROLL")).count();
+        assertThat(payroll).isBetween(52L, 53L);
+    }
+
+    @Test
+    void categoriesAgreeWithTheRules() {
+        ApplicationProperties.SyntheticData properties = properties(3);
+        properties.setUncategorizedRatio(0);
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(properties);
+        List<Expense> expenses = generator.getExpenses();
+        List<Income> incomes = generator.getIncomes();
+        for (int i = 0; i < expenses.size(); i++) {
+            expenses.get(i).setId(i + 1L);
+        }
+        for (int i = 0; i < incomes.size(); i++) {
+            incomes.get(i).setId(i + 1L);
+        }
+        TransactionCategorizer categorizer = new TransactionCategorizer(expenses, incomes);
+
+        List<Transaction> transactions = new ArrayList<>();
+        generator.transactions(5000, expenses, incomes).forEachRemaining(transactions::add);
+
+        long categorized = 0;
+        for (Transaction transaction : transactions) {
+            Transaction expected = categorizer.categorize(copy(transaction));
+            assertThat(transaction.getExpenseId()).as(transaction.getDescription1()).isEqualTo(expected.getExpenseId());
+            assertThat(transaction.getIncomeId()).as(transaction.getDescription1()).isEqualTo(expected.getIncomeId());
+            if (transaction.getExpenseId() != null || transaction.getIncomeId() != null) {
+                categorized++;
+            }
+        }
+        assertThat(categorized).isGreaterThan(transactions.size() / 2);
+    }
+
+    private static ApplicationProperties.SyntheticData properties(long seed) {
+        ApplicationProperties.SyntheticData properties = new ApplicationProperties.SyntheticData();
+        properties.setSeed(seed);
+        properties.setMerchants(500);
+        properties.setYears(2);
+        return properties;
+    }
+
+    private static List<Transaction> generate(ApplicationProperties.SyntheticData properties, long count) {
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(properties);
+        List<Transaction> transactions = new ArrayList<>();
+        generator.transactions(count, generator.getExpenses(), generator.getIncomes()).forEachRemaining(transactions::add);
+        return transactions;
+    }
+
+    private static List<String> strings(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::toString).collect(Collectors.toList());
+    }
+
+    private static Transaction copy(Transaction transaction) {
+        return new Transaction()
+            .description1(transaction.getDescription1())
+            .description2(transaction.getDescription2())
+            .amountCAD(transaction.getAmountCAD())
+            .amountUSD(transaction.getAmountUSD());
+    }
+}
@@ -0,0 +1,124 @@
+package org.diytechprojects.financialanalyst.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import org.diytechprojects.financialanalyst.IntegrationTest;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.repository.TransactionRepository;
+import org.diytechprojects.financialanalyst.service.AccountBalanceService;
+import org.diytechprojects.financialanalyst.service.EntityManager;
+import org.diytechprojects.financialanalyst.service.TransactionService;
+import org.diytechprojects.financialanalyst.service.dto.AccountBalanceDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * Integration tests for the {@link AccountBalanceResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureWebTestClient
+@WithMockUser
+class AccountBalanceResourceIT {
+
+    private static final String ENTITY_API_URL = "/api/accounts/{type}/balance";
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountBalanceService accountBalanceService;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    public void initTest() {
+        transactionRepository.deleteAll().block();
+        accountBalanceService.rebuild().block();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        transactionRepository.deleteAll().block();
+        accountBalanceService.rebuild().block();
+    }
+
+    @Test
+    void balanceFollowsTheChangesOfTheTransactions() {
+        Transaction groceries = transactionService.save(transaction("2021-03-01T10:00:00Z", "Visa", -1000L)).block();
+        Transaction refund = transactionService.save(transaction("2021-03-07T23:00:00Z", "Visa", 3000L)).block();
+        transactionService.save(transaction("2021-03-08T01:00:00Z", "Chequing", -200L)).block();
+
+        assertThat(getBalance("Visa", "?at=2021-03-06").getBalance()).isEqualTo(-1000L);
+        assertThat(getBalance("Visa", "?at=2021-03-07").getBalance()).isEqualTo(2000L);
+        assertThat(getBalance("Chequing", "?at=2021-03-07").getBalance()).isZero();
+
+        transactionService.partialUpdate(new Transaction().id(refund.getId()).amountCAD(2500L)).block();
+        transactionService.delete(groceries.getId()).block();
+
+        AccountBalanceDTO balance = getBalance("Visa", "?at=2021-03-31");
+        assertThat(balance.getAccountType()).isEqualTo("Visa");
+        assertThat(balance.getCurrency()).isEqualTo("CAD");
+        assertThat(balance.getBalance()).isEqualTo(2500L);
+        assertThat(getBalance("Visa", "?from=2021-03-08&at=2021-03-31").getBalance()).isZero();
+
+        // the balances changed one transaction at a time agree with the ones read from the whole table
+        accountBalanceService.rebuild().block();
+        assertThat(getBalance("Visa", "?at=2021-03-31").getBalance()).isEqualTo(2500L);
+    }
+
+    @Test
+    void balanceCatchesUpWithTheTransactionsInsertedBehindTheService() {
+        transactionService.save(transaction("2021-06-01T12:00:00Z", "Visa", -700L)).block();
+        assertThat(getBalance("Visa", "").getBalance()).isEqualTo(-700L);
+
+        transactionRepository.save(transaction("2021-06-15T12:00:00Z", "Visa", -300L).amountUSD(-250L)).block();
+
+        assertThat(getBalance("Visa", "").getBalance()).isEqualTo(-1000L);
+        assertThat(getBalance("Visa", "?from=2021-06-02&currency=usd").getBalance()).isEqualTo(-250L);
+    }
+
+    @Test
+    void unknownAccountTypeIsNotFound() {
+        webTestClient.get().uri(ENTITY_API_URL, "Savings").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void balanceRejectsUnorderedDatesOrAnUnknownCurrency() {
+        webTestClient.get().uri(ENTITY_API_URL + "?from=2021-05-02&at=2021-05-01", "Visa").exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri(ENTITY_API_URL + "?currency=EUR", "Visa").exchange().expectStatus().isBadRequest();
+    }
+
+    private AccountBalanceDTO getBalance(String accountType, String query) {
+        return webTestClient
+            .get()
+            .uri(ENTITY_API_URL + query, accountType)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody(AccountBalanceDTO.class)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    private Transaction transaction(String date, String accountType, Long amount) {
+        return TransactionResourceIT
+            .createEntity(em)
+            .transactionDate(Instant.parse(date))
+            .accountType(accountType)
+            .amountCAD(amount)
+            .amountUSD(null);
+    }
+}
@@ -5,13 +5,18 @@ import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
 import org.diytechprojects.financialanalyst.IntegrationTest;
 import org.diytechprojects.financialanalyst.domain.Expense;
+import org.diytechprojects.financialanalyst.domain.Transaction;
 import org.diytechprojects.financialanalyst.repository.ExpenseRepository;
+import org.diytechprojects.financialanalyst.repository.TransactionRepository;
 import org.diytechprojects.financialanalyst.service.EntityManager;
+import org.diytechprojects.financialanalyst.service.dto.ExpensePreviewDTO;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -53,6 +58,9 @@ class ExpenseResourceIT {
     @Autowired
     private ExpenseRepository expenseRepository;
 
+    @Autowired
+    private TransactionRepository transactionRepository;
+
     @Autowired
     private EntityManager em;
 
@@ -505,4 +513,172 @@ class ExpenseResourceIT {
         List<Expense> expenseList = expenseRepository.findAll().collectList().block();
         assertThat(expenseList).hasSize(databaseSizeBeforeDelete - 1);
     }
+
+    @Test
+    void editingSearchStringRecategorizesAffectedTransactions() throws Exception {
+        // Initialize the database, the transactions are written behind the back of the index
+        em.deleteAll(Transaction.class).block();
+        Expense coffee = expenseRepository.save(createEntity(em).searchString1("Starbucks").searchString2(null)).block();
+        Expense groceries = expenseRepository.save(createEntity(em).searchString1("METRO").searchString2(null)).block();
+        Transaction starbucks = saveTransaction("STARBUCKS #123", -500L, coffee);
+        Transaction starbucksMetro = saveTransaction("STARBUCKS METRO", -200L, coffee);
+        Transaction timHortons = saveTransaction("TIM HORTONS #44", -300L, null);
+        Transaction timHortonsRefund = saveTransaction("TIM HORTONS #44", 300L, null);
+        Transaction metro = saveTransaction("METRO STORE", -1000L, groceries);
+        Transaction byHand = saveTransaction("GIFT CARD", -700L, coffee);
+
+        Expense partialUpdatedExpense = new Expense();
+        partialUpdatedExpense.setId(coffee.getId());
+        partialUpdatedExpense.setSearchString1("tim hortons");
+
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL_ID, coffee.getId())
+            .contentType(MediaType.valueOf("application/merge-patch+json"))
+            .bodyValue(TestUtil.convertObjectToJsonBytes(partialUpdatedExpense))
+            .exchange()
+            .expectStatus()
+            .isOk();
+
+        assertThat(expenseIdOf(starbucks)).isNull();
+        assertThat(expenseIdOf(starbucksMetro)).isEqualTo(groceries.getId());
+        assertThat(expenseIdOf(timHortons)).isEqualTo(coffee.getId());
+        assertThat(expenseIdOf(timHortonsRefund)).isNull();
+        assertThat(expenseIdOf(metro)).isEqualTo(groceries.getId());
+        assertThat(expenseIdOf(byHand)).isEqualTo(coffee.getId());
+
+        em.deleteAll(Transaction.class).block();
+    }
+
+    @Test
+    void getExpenseStatistics() throws Exception {
+        // Initialize the database
+        em.deleteAll(Transaction.class).block();
+        Expense hooli = expenseRepository.save(createEntity(em).searchString1("HOOLI PHONE").searchString2(null)).block();
+        saveTransaction("HOOLI XYZ #1", -100L, null);
+
+        Expense partialUpdatedExpense = new Expense();
+        partialUpdatedExpense.setId(hooli.getId());
+        partialUpdatedExpense.setSearchString1("Hooli XYZ");
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL_ID, hooli.getId())
+            .contentType(MediaType.valueOf("application/merge-patch+json"))
+            .bodyValue(TestUtil.convertObjectToJsonBytes(partialUpdatedExpense))
+            .exchange()
+            .expectStatus()
+            .isOk();
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID + "/stats", hooli.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.ruleId")
+            .isEqualTo(hooli.getId().intValue())
+            .jsonPath("$.matches")
+            .isEqualTo(1)
+            .jsonPath("$.wins")
+            .isEqualTo(1)
+            .jsonPath("$.conflicts")
+            .isEqualTo(0)
+            .jsonPath("$.lastMatchDate")
+            .isNotEmpty();
+        webTestClient.get().uri(ENTITY_API_URL_ID + "/stats", Long.MAX_VALUE).exchange().expectStatus().isNotFound();
+
+        em.deleteAll(Transaction.class).block();
+    }
+
+    @Test
+    void previewExpenses() throws Exception {
+        // Initialize the database
+        em.deleteAll(Transaction.class).block();
+        Expense coffee = expenseRepository.save(createEntity(em).searchString1("Starbucks").searchString2(null)).block();
+        Expense groceries = expenseRepository.save(createEntity(em).searchString1("METRO").searchString2(null)).block();
+        Transaction starbucks = saveTransaction("STARBUCKS #123", -500L, coffee);
+        Transaction starbucksMetro = saveTransaction("STARBUCKS METRO", -200L, null);
+        Transaction timHortons = saveTransaction("TIM HORTONS #44", -300L, null);
+        saveTransaction("TIM HORTONS #44", 300L, null);
+        saveTransaction("METRO STORE", -1000L, groceries);
+        saveTransaction("GIFT CARD", -700L, null);
+
+        // the coffee edited, a new expense and the groceries deleted
+        ExpensePreviewDTO preview = new ExpensePreviewDTO();
+        preview.setExpenses(
+            Arrays.asList(new Expense().id(coffee.getId()).searchString1("tim hortons"), new Expense().searchString1("GIFT"))
+        );
+        preview.setDeletedIds(Collections.singleton(groceries.getId()));
+
+        webTestClient
+            .post()
+            .uri(ENTITY_API_URL + "/preview?size=2")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(preview))
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.scannedRows")
+            .isEqualTo(5)
+            .jsonPath("$.assignedRows")
+            .isEqualTo(2)
+            .jsonPath("$.unassignedRows")
+            .isEqualTo(3)
+            .jsonPath("$.reassignedRows")
+            .isEqualTo(0)
+            .jsonPath("$.changes.length()")
+            .isEqualTo(2)
+            .jsonPath("$.changes[0].transactionId")
+            .isEqualTo(starbucks.getId().intValue())
+            .jsonPath("$.changes[0].expenseId")
+            .isEqualTo(coffee.getId().intValue())
+            .jsonPath("$.changes[0].currentRuleId")
+            .isEqualTo(coffee.getId().intValue())
+            .jsonPath("$.changes[0].candidateRuleId")
+            .doesNotExist()
+            .jsonPath("$.changes[1].transactionId")
+            .isEqualTo(starbucksMetro.getId().intValue());
+
+        // nothing is written
+        assertThat(expenseIdOf(timHortons)).isNull();
+        assertThat(expenseRepository.findById(coffee.getId()).block().getSearchString1()).isEqualTo("Starbucks");
+        assertThat(expenseRepository.findById(groceries.getId()).block()).isNotNull();
+
+        webTestClient
+            .post()
+            .uri(ENTITY_API_URL + "/preview?sample=0")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(preview))
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+
+        em.deleteAll(Transaction.class).block();
+        webTestClient
+            .post()
+            .uri(ENTITY_API_URL + "/preview")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(preview))
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.scannedRows")
+            .isEqualTo(0)
+            .jsonPath("$.changes")
+            .isEmpty();
+    }
+
+    private Transaction saveTransaction(String description, Long amount, Expense expense) {
+        Transaction transaction = TransactionResourceIT.createEntity(em).description1(description).description2(null).amountCAD(amount);
+        transaction.setExpenseId(expense == null ? null : expense.getId());
+        return transactionRepository.save(transaction).block();
+    }
+
+    private Long expenseIdOf(Transaction transaction) {
+        return transactionRepository.findById(transaction.getId()).block().getExpenseId();
+    }
 }
@@ -0,0 +1,363 @@
+package org.diytechprojects.financialanalyst.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import org.diytechprojects.financialanalyst.IntegrationTest;
+import org.diytechprojects.financialanalyst.config.ApplicationProperties;
+import org.diytechprojects.financialanalyst.domain.ImportJob;
+import org.diytechprojects.financialanalyst.domain.enumeration.ImportJobStatus;
+import org.diytechprojects.financialanalyst.repository.ImportJobRepository;
+import org.diytechprojects.financialanalyst.repository.TransactionRepository;
+import org.diytechprojects.financialanalyst.security.AuthoritiesConstants;
+import org.diytechprojects.financialanalyst.service.ImportJobService;
+import org.diytechprojects.financialanalyst.service.TransactionImportService;
+import org.diytechprojects.financialanalyst.service.dto.ImportProgressDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Integration tests for the {@link ImportJobResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureWebTestClient
+@WithMockUser
+class ImportJobResourceIT {
+
+    private static final String ENTITY_API_URL = "/api/import-jobs";
+    private static final String ENTITY_API_URL_ID = ENTITY_API_URL + "/{id}";
+
+    private static final String HEADER = "\"Account Type\",\"Transaction Date\",\"Description 1\",\"CAD$\"\n";
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private TransactionImportService transactionImportService;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    public void initTest() {
+        importJobRepository.deleteAll().block();
+        transactionRepository.deleteAll().block();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        transactionRepository.deleteAll().block();
+    }
+
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    void createImportJob() throws Exception {
+        Path file = archive(30);
+
+        ImportJob created = webTestClient
+            .post()
+            .uri(ENTITY_API_URL)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new ImportJob().file(file.toString()))
+            .exchange()
+            .expectStatus()
+            .isCreated()
+            .expectBody(ImportJob.class)
+            .returnResult()
+            .getResponseBody();
+
+        ImportJob job = awaitFinished(created.getId());
+        assertThat(job.getStatus()).isEqualTo(ImportJobStatus.COMPLETED);
+        assertThat(job.getCommittedOffset()).isEqualTo(Files.size(file));
+        assertThat(job.getFileSize()).isEqualTo(Files.size(file));
+        assertThat(job.getTotalRows()).isEqualTo(30);
+        assertThat(job.getInsertedRows()).isEqualTo(30);
+        assertThat(job.getAttempts()).isEqualTo(1);
+        assertThat(job.getFinishedDate()).isNotNull();
+        assertThat(transactionRepository.count().block()).isEqualTo(30);
+    }
+
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    void createImportJobWithUnreadableFile() throws Exception {
+        webTestClient
+            .post()
+            .uri(ENTITY_API_URL)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new ImportJob().file(directory.resolve("missing.csv").toString()))
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+
+        assertThat(importJobRepository.count().block()).isZero();
+    }
+
+    @Test
+    void createImportJobRequiresAdmin() throws Exception {
+        webTestClient
+            .post()
+            .uri(ENTITY_API_URL)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new ImportJob().file(archive(1).toString()))
+            .exchange()
+            .expectStatus()
+            .isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void resumeInterruptedImportJob() throws Exception {
+        Path file = archive(100);
+        long offset = HEADER.length();
+        for (int i = 0; i < 40; i++) {
+            offset += row(i).length();
+        }
+        // an instance died after committing the first 40 rows
+        ImportJob interrupted = importJobRepository
+            .save(
+                new ImportJob()
+                    .file(file.toString())
+                    .status(ImportJobStatus.RUNNING)
+                    .fileSize(Files.size(file))
+                    .committedOffset(offset)
+                    .totalRows(40L)
+                    .insertedRows(40L)
+                    .skippedRows(0L)
+                    .rejectedRows(0L)
+                    .attempts(1)
+                    .createdDate(Instant.now().minus(1, ChronoUnit.HOURS))
+                    .heartbeatDate(Instant.now().minus(1, ChronoUnit.HOURS))
+            )
+            .block();
+
+        importJobService.pollJobsReactively().blockLast();
+
+        ImportJob job = awaitFinished(interrupted.getId());
+        assertThat(job.getStatus()).isEqualTo(ImportJobStatus.COMPLETED);
+        assertThat(job.getAttempts()).isEqualTo(2);
+        assertThat(job.getTotalRows()).isEqualTo(100);
+        assertThat(job.getInsertedRows()).isEqualTo(100);
+        // the rows before the checkpoint were not read again
+        assertThat(transactionRepository.count().block()).isEqualTo(60);
+    }
+
+    @Test
+    void resumeImportJobBetweenRepeatedRows() throws Exception {
+        // the same purchase thirty times on the same day, the checkpoint falling among them
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 30; i++) {
+            csv.append("Chequing,4/7/2021,COFFEE SHOP,-4.50\n");
+        }
+        Path file = Files.write(directory.resolve("repeated.csv"), csv.toString().getBytes(StandardCharsets.UTF_8));
+        DataSize chunkSize = applicationProperties.getArchiveImport().getChunkSize();
+        applicationProperties.getArchiveImport().setChunkSize(DataSize.ofBytes(256));
+        try {
+            ImportProgressDTO committed = transactionImportService.importArchive(file, 0, null, progress -> Mono.empty()).blockFirst();
+            assertThat(committed.getTotalRows()).isBetween(1L, 29L);
+            ImportJob interrupted = importJobRepository
+                .save(
+                    new ImportJob()
+                        .file(file.toString())
+                        .status(ImportJobStatus.RUNNING)
+                        .fileSize(Files.size(file))
+                        .committedOffset(committed.getOffset())
+                        .totalRows(committed.getTotalRows())
+                        .insertedRows(committed.getInsertedRows())
+                        .skippedRows(0L)
+                        .rejectedRows(0L)
+                        .attempts(1)
+                        .createdDate(Instant.now().minus(1, ChronoUnit.HOURS))
+                        .heartbeatDate(Instant.now().minus(1, ChronoUnit.HOURS))
+                )
+                .block();
+
+            importJobService.pollJobsReactively().blockLast();
+
+            ImportJob job = awaitFinished(interrupted.getId());
+            assertThat(job.getStatus()).isEqualTo(ImportJobStatus.COMPLETED);
+            assertThat(job.getTotalRows()).isEqualTo(30);
+            assertThat(job.getInsertedRows()).isEqualTo(30);
+            assertThat(job.getSkippedRows()).isZero();
+            assertThat(transactionRepository.count().block()).isEqualTo(30);
+        } finally {
+            applicationProperties.getArchiveImport().setChunkSize(chunkSize);
+        }
+    }
+
+    @Test
+    void importJobClaimedByAnotherInstanceStopsWithoutOverwritingIt() throws Exception {
+        Path file = archive(2000);
+        DataSize chunkSize = applicationProperties.getArchiveImport().getChunkSize();
+        applicationProperties.getArchiveImport().setChunkSize(DataSize.ofBytes(256));
+        ImportJob pending = importJobRepository
+            .save(
+                new ImportJob()
+                    .file(file.toString())
+                    .status(ImportJobStatus.PENDING)
+                    .fileSize(Files.size(file))
+                    .committedOffset(0L)
+                    .totalRows(0L)
+                    .insertedRows(0L)
+                    .skippedRows(0L)
+                    .rejectedRows(0L)
+                    .attempts(0)
+                    .createdDate(Instant.now())
+            )
+            .block();
+        try {
+            // the job may run on the thread polling it, the claim must not wait for it to finish
+            importJobService.pollJobsReactively().subscribeOn(Schedulers.boundedElastic()).subscribe();
+            Mono.delay(Duration.ofMillis(500)).block();
+
+            // the instance running the job paused past the heartbeat timeout, another one claimed it
+            assertThat(importJobRepository.claim(Instant.now(), pending.getId(), Instant.now().plus(1, ChronoUnit.HOURS)).block())
+                .isEqualTo(1);
+            ImportJob claimed = importJobRepository.findById(pending.getId()).block();
+            Mono.delay(Duration.ofSeconds(1)).block();
+
+            // the first attempt stopped at its next checkpoint, rolling back the chunk it was committing
+            ImportJob job = importJobRepository.findById(pending.getId()).block();
+            assertThat(job.getStatus()).isEqualTo(ImportJobStatus.RUNNING);
+            assertThat(job.getAttempts()).isEqualTo(2);
+            assertThat(job.getCommittedOffset()).isEqualTo(claimed.getCommittedOffset()).isLessThan(Files.size(file));
+            assertThat(job.getInsertedRows()).isEqualTo(claimed.getInsertedRows());
+            assertThat(transactionRepository.count().block()).isEqualTo(claimed.getInsertedRows());
+        } finally {
+            applicationProperties.getArchiveImport().setChunkSize(chunkSize);
+            importJobRepository.deleteById(pending.getId()).block();
+        }
+    }
+
+    @Test
+    void runningImportJobIsNotResumed() {
+        ImportJob running = importJobRepository
+            .save(
+                new ImportJob()
+                    .file("/archive.csv")
+                    .status(ImportJobStatus.RUNNING)
+                    .committedOffset(0L)
+                    .totalRows(0L)
+                    .insertedRows(0L)
+                    .skippedRows(0L)
+                    .rejectedRows(0L)
+                    .attempts(1)
+                    .heartbeatDate(Instant.now())
+            )
+            .block();
+
+        assertThat(importJobService.pollJobsReactively().collectList().block()).isEmpty();
+        assertThat(importJobRepository.findById(running.getId()).block().getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void getAllImportJobs() {
+        ImportJob job = importJobRepository.save(finishedJob()).block();
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?sort=id,desc")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentType(MediaType.APPLICATION_JSON)
+            .expectBody()
+            .jsonPath("$.[*].id")
+            .value(hasItem(job.getId().intValue()))
+            .jsonPath("$.[*].status")
+            .value(hasItem(ImportJobStatus.COMPLETED.name()));
+    }
+
+    @Test
+    void getImportJob() {
+        ImportJob job = importJobRepository.save(finishedJob()).block();
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID, job.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.id")
+            .isEqualTo(job.getId().intValue())
+            .jsonPath("$.committedOffset")
+            .isEqualTo(1234)
+            .jsonPath("$.totalRows")
+            .isEqualTo(10);
+    }
+
+    @Test
+    void getNonExistingImportJob() {
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID, Long.MAX_VALUE)
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isNotFound();
+    }
+
+    private ImportJob finishedJob() {
+        return new ImportJob()
+            .file("/archive.csv")
+            .status(ImportJobStatus.COMPLETED)
+            .committedOffset(1234L)
+            .totalRows(10L)
+            .insertedRows(10L)
+            .skippedRows(0L)
+            .rejectedRows(0L)
+            .attempts(1);
+    }
+
+    private ImportJob awaitFinished(Long id) {
+        return Mono
+            .defer(() -> importJobRepository.findById(id))
+            .filter(job -> job.getStatus() == ImportJobStatus.COMPLETED || job.getStatus() == ImportJobStatus.FAILED)
+            .repeatWhenEmpty(100, attempts -> attempts.delayElements(Duration.ofMillis(100)))
+            .block(Duration.ofSeconds(30));
+    }
+
+    private Path archive(int rows) throws IOException {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < rows; i++) {
+            csv.append(row(i));
+        }
+        return Files.write(directory.resolve("archive.csv"), csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String row(int i) {
+        return "Chequing,4/" + (i % 28 + 1) + "/2021,STORE " + i + ",-" + i + ".25\n";
+    }
+}
@@ -0,0 +1,250 @@
+package org.diytechprojects.financialanalyst.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import org.diytechprojects.financialanalyst.IntegrationTest;
+import org.diytechprojects.financialanalyst.domain.Expense;
+import org.diytechprojects.financialanalyst.domain.Income;
+import org.diytechprojects.financialanalyst.domain.RecategorizationJob;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.domain.enumeration.RecategorizationJobStatus;
+import org.diytechprojects.financialanalyst.repository.ExpenseRepository;
+import org.diytechprojects.financialanalyst.repository.IncomeRepository;
+import org.diytechprojects.financialanalyst.repository.RecategorizationJobRepository;
+import org.diytechprojects.financialanalyst.repository.TransactionRepository;
+import org.diytechprojects.financialanalyst.security.AuthoritiesConstants;
+import org.diytechprojects.financialanalyst.service.EntityManager;
+import org.diytechprojects.financialanalyst.service.RecategorizationJobService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Integration tests for the {@link RecategorizationJobResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureWebTestClient
+@WithMockUser
+class RecategorizationJobResourceIT {
+
+    private static final String ENTITY_API_URL = "/api/recategorization-jobs";
+    private static final String ENTITY_API_URL_ID = ENTITY_API_URL + "/{id}";
+
+    @Autowired
+    private RecategorizationJobRepository recategorizationJobRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private IncomeRepository incomeRepository;
+
+    @Autowired
+    private RecategorizationJobService recategorizationJobService;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    private Expense coffee;
+
+    private Income payroll;
+
+    @BeforeEach
+    public void initTest() {
+        recategorizationJobRepository.deleteAll().block();
+        transactionRepository.deleteAll().block();
+        coffee = expenseRepository.save(ExpenseResourceIT.createEntity(em).searchString1("coffee").searchString2(null)).block();
+        payroll = incomeRepository.save(IncomeResourceIT.createEntity(em).searchString1("PAYROLL").searchString2(null)).block();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        transactionRepository.deleteAll().block();
+        expenseRepository.delete(coffee).block();
+        incomeRepository.delete(payroll).block();
+    }
+
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    void startRecategorizationJob() throws Exception {
+        List<Transaction> coffees = save(7, "COFFEE SHOP", -450L);
+        List<Transaction> salaries = save(3, "PAYROLL ACME", 250000L);
+        List<Transaction> others = save(2, "HARDWARE STORE", -1999L);
+        // categorized by hand, against the rules
+        Transaction categorized = transactionRepository.save(transaction("COFFEE BEANS", -2000L).income(payroll)).block();
+        // a pending job with small chunks, the API starts it instead of creating a new one
+        RecategorizationJob pending = recategorizationJobRepository.save(newJob(RecategorizationJobStatus.PENDING, 0L, 4)).block();
+
+        RecategorizationJob created = webTestClient
+            .post()
+            .uri(ENTITY_API_URL)
+            .exchange()
+            .expectStatus()
+            .isCreated()
+            .expectBody(RecategorizationJob.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertThat(created.getId()).isEqualTo(pending.getId());
+        RecategorizationJob job = awaitFinished(created.getId());
+        assertThat(job.getStatus()).isEqualTo(RecategorizationJobStatus.COMPLETED);
+        assertThat(job.getAttempts()).isEqualTo(1);
+        assertThat(job.getTotalRows()).isEqualTo(12);
+        assertThat(job.getScannedRows()).isEqualTo(12);
+        assertThat(job.getCategorizedRows()).isEqualTo(10);
+        assertThat(job.getLastTransactionId()).isEqualTo(others.get(1).getId());
+        assertThat(job.getFinishedDate()).isNotNull();
+        assertThat(transactionRepository.findByExpense(coffee.getId()).count().block()).isEqualTo(coffees.size());
+        assertThat(transactionRepository.findByIncome(payroll.getId()).count().block()).isEqualTo(salaries.size() + 1);
+        assertThat(transactionRepository.findById(others.get(0).getId()).block().getExpenseId()).isNull();
+        assertThat(transactionRepository.findById(categorized.getId()).block().getExpenseId()).isNull();
+    }
+
+    @Test
+    void startRecategorizationJobRequiresAdmin() {
+        webTestClient.post().uri(ENTITY_API_URL).exchange().expectStatus().isEqualTo(HttpStatus.FORBIDDEN);
+
+        assertThat(recategorizationJobRepository.count().block()).isZero();
+    }
+
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    void runningRecategorizationJobIsNotStartedTwice() {
+        RecategorizationJob running = recategorizationJobRepository
+            .save(newJob(RecategorizationJobStatus.RUNNING, 0L, 10).heartbeatDate(Instant.now()))
+            .block();
+
+        webTestClient.post().uri(ENTITY_API_URL).exchange().expectStatus().isBadRequest();
+
+        assertThat(recategorizationJobRepository.count().block()).isEqualTo(1);
+        assertThat(recategorizationJobRepository.findById(running.getId()).block().getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void resumeInterruptedRecategorizationJob() {
+        List<Transaction> coffees = save(10, "COFFEE SHOP", -450L);
+        // an instance died after committing the chunks up to the fourth transaction
+        RecategorizationJob interrupted = recategorizationJobRepository
+            .save(
+                newJob(RecategorizationJobStatus.RUNNING, coffees.get(3).getId(), 3)
+                    .scannedRows(4L)
+                    .categorizedRows(4L)
+                    .heartbeatDate(Instant.now().minus(1, ChronoUnit.HOURS))
+            )
+            .block();
+
+        recategorizationJobService.resumeInterrupted();
+
+        RecategorizationJob job = awaitFinished(interrupted.getId());
+        assertThat(job.getStatus()).isEqualTo(RecategorizationJobStatus.COMPLETED);
+        assertThat(job.getAttempts()).isEqualTo(2);
+        assertThat(job.getTotalRows()).isEqualTo(10);
+        assertThat(job.getScannedRows()).isEqualTo(10);
+        assertThat(job.getCategorizedRows()).isEqualTo(10);
+        // the transactions before the checkpoint were not read again
+        assertThat(transactionRepository.findByExpense(coffee.getId()).collectList().block())
+            .extracting(Transaction::getId)
+            .containsExactlyInAnyOrderElementsOf(() -> coffees.stream().skip(4).map(Transaction::getId).iterator());
+    }
+
+    @Test
+    void getAllRecategorizationJobs() {
+        RecategorizationJob job = recategorizationJobRepository.save(newJob(RecategorizationJobStatus.COMPLETED, 42L, 10)).block();
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?sort=id,desc")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentType(MediaType.APPLICATION_JSON)
+            .expectBody()
+            .jsonPath("$.[*].id")
+            .value(hasItem(job.getId().intValue()))
+            .jsonPath("$.[*].status")
+            .value(hasItem(RecategorizationJobStatus.COMPLETED.name()));
+    }
+
+    @Test
+    void getRecategorizationJob() {
+        RecategorizationJob job = recategorizationJobRepository.save(newJob(RecategorizationJobStatus.COMPLETED, 42L, 10)).block();
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID, job.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.id")
+            .isEqualTo(job.getId().intValue())
+            .jsonPath("$.lastTransactionId")
+            .isEqualTo(42)
+            .jsonPath("$.chunkSize")
+            .isEqualTo(10);
+    }
+
+    @Test
+    void getNonExistingRecategorizationJob() {
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID, Long.MAX_VALUE)
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isNotFound();
+    }
+
+    private List<Transaction> save(int count, String description, long amount) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            transactions.add(transactionRepository.save(transaction(description + " " + i, amount)).block());
+        }
+        return transactions;
+    }
+
+    private static Transaction transaction(String description, long amount) {
+        return new Transaction().accountType("Chequing").transactionDate(Instant.now()).description1(description).amountCAD(amount);
+    }
+
+    private static RecategorizationJob newJob(RecategorizationJobStatus status, long lastTransactionId, int chunkSize) {
+        return new RecategorizationJob()
+            .status(status)
+            .chunkSize(chunkSize)
+            .lastTransactionId(lastTransactionId)
+            .totalRows(0L)
+            .scannedRows(0L)
+            .categorizedRows(0L)
+            .attempts(status == RecategorizationJobStatus.PENDING ? 0 : 1);
+    }
+
+    private RecategorizationJob awaitFinished(Long id) {
+        return Mono
+            .defer(() -> recategorizationJobRepository.findById(id))
+            .filter(job -> job.getStatus() == RecategorizationJobStatus.COMPLETED || job.getStatus() == RecategorizationJobStatus.FAILED)
+            .repeatWhenEmpty(100, attempts -> attempts.delayElements(Duration.ofMillis(100)))
+            .block(Duration.ofSeconds(30));
+    }
+}
@@ -0,0 +1,366 @@
+package org.diytechprojects.financialanalyst.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import org.diytechprojects.financialanalyst.IntegrationTest;
+import org.diytechprojects.financialanalyst.domain.Expense;
+import org.diytechprojects.financialanalyst.domain.Income;
+import org.diytechprojects.financialanalyst.domain.RecategorizationJob;
+import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.domain.enumeration.RecategorizationJobStatus;
+import org.diytechprojects.financialanalyst.repository.ExpenseRepository;
+import org.diytechprojects.financialanalyst.repository.IncomeRepository;
+import org.diytechprojects.financialanalyst.repository.RecategorizationJobRepository;
+import org.diytechprojects.financialanalyst.repository.TransactionRepository;
+import org.diytechprojects.financialanalyst.security.AuthoritiesConstants;
+import org.diytechprojects.financialanalyst.service.EntityManager;
+import org.diytechprojects.financialanalyst.service.ExpenseService;
+import org.diytechprojects.financialanalyst.service.RecategorizationJobService;
+import org.diytechprojects.financialanalyst.service.TransactionImportService;
+import org.diytechprojects.financialanalyst.service.TransactionRollupService;
+import org.diytechprojects.financialanalyst.service.TransactionService;
+import org.diytechprojects.financialanalyst.service.dto.CashflowDTO;
+import org.diytechprojects.financialanalyst.service.dto.MonthlyRollupDTO;
+import org.diytechprojects.financialanalyst.service.dto.TransactionBulkUpdateDTO;
+import org.diytechprojects.financialanalyst.service.dto.TransactionSummaryDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Integration tests for the {@link ReportResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureWebTestClient
+@WithMockUser
+class ReportResourceIT {
+
+    private static final String MONTHLY_API_URL = "/api/reports/monthly";
+
+    private static final String SUMMARY_API_URL = "/api/reports/summary";
+
+    private static final String CASHFLOW_API_URL = "/api/reports/cashflow";
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private IncomeRepository incomeRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRollupService transactionRollupService;
+
+    @Autowired
+    private TransactionImportService transactionImportService;
+
+    @Autowired
+    private RecategorizationJobService recategorizationJobService;
+
+    @Autowired
+    private RecategorizationJobRepository recategorizationJobRepository;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    private Expense groceries;
+
+    private Income salary;
+
+    @BeforeEach
+    public void initTest() {
+        transactionRepository.deleteAll().block();
+        groceries = expenseRepository.save(ExpenseResourceIT.createEntity(em).category("Groceries")).block();
+        salary = incomeRepository.save(IncomeResourceIT.createEntity(em).name("Salary")).block();
+        transactionRollupService.rebuild().block();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        transactionRepository.deleteAll().block();
+        expenseRepository.delete(groceries).block();
+        incomeRepository.delete(salary).block();
+        transactionRollupService.rebuild().block();
+    }
+
+    @Test
+    void monthlyReportFollowsTheChangesOfTheTransactions() {
+        Transaction weekly = transactionService.save(transaction("2021-03-05T10:00:00Z", "Visa", -1000L, groceries)).block();
+        Transaction late = transactionService.save(transaction("2021-03-31T23:30:00Z", "Visa", -500L, groceries)).block();
+        Transaction refund = transactionService.save(transaction("2021-04-01T00:30:00Z", "Visa", 2000L, null)).block();
+        transactionService.save(transaction("2021-05-01T00:00:00Z", "Visa", -1L, null)).block();
+
+        weekly.setAmountCAD(-1500L);
+        transactionService.save(weekly).block();
+        Transaction moved = new Transaction().id(late.getId()).accountType("Chequing");
+        transactionService.partialUpdate(moved).block();
+        transactionService.delete(refund.getId()).block();
+
+        List<MonthlyRollupDTO> maintained = getMonthly("?from=2021-03&to=2021-04");
+        assertThat(maintained)
+            .extracting("month.monthValue", "accountType", "expenseId", "incomeId", "category", "amountCAD", "count")
+            .containsExactly(
+                tuple(3, "Chequing", groceries.getId(), null, "Groceries", -500L, 1L),
+                tuple(3, "Visa", groceries.getId(), null, "Groceries", -1500L, 1L)
+            );
+
+        // the deltas agree with the sums of the whole table
+        transactionRollupService.rebuild().block();
+        assertThat(getMonthly("?from=2021-03&to=2021-04")).usingRecursiveFieldByFieldElementComparator().isEqualTo(maintained);
+        assertThat(getMonthly("?from=2021-05")).extracting("amountCAD").containsExactly(-1L);
+    }
+
+    @Test
+    void monthlyReportFollowsTheBulkWritesOfTheTransactions() {
+        salary = incomeRepository.save(salary.searchString1("PAYROLL").searchString2(null)).block();
+        Transaction payroll = transaction("2021-03-15T12:00:00Z", "Chequing", 250000L, null).description1("PAYROLL ACME");
+        payroll.setFingerprint("payroll");
+        Transaction bakery = transaction("2021-03-20T12:00:00Z", "Visa", -800L, null).description1("BAKERY");
+        bakery.setFingerprint("bakery");
+        transactionService.insertNew(Arrays.asList(payroll, bakery)).block();
+        assertMaintainedAsRebuilt();
+
+        transactionService
+            .createAll(Flux.just(transaction("2021-03-21T12:00:00Z", "Visa", -300L, null).description1("BAKERY")), 1)
+            .blockLast();
+        assertMaintainedAsRebuilt();
+
+        byte[] csv = "Account Type,Transaction Date,Description 1,CAD$\nVisa,4/2/2021,BAKERY,-4.50\nVisa,4/3/2021,BAKERY,-4.50\n".getBytes(
+                StandardCharsets.UTF_8
+            );
+        transactionImportService.importCsv(Flux.just(new DefaultDataBufferFactory().wrap(csv)), null, true).blockLast();
+        assertMaintainedAsRebuilt();
+
+        // the payroll rule applied by a recategorization job, the bakery rule by the edit of the groceries
+        RecategorizationJob job = recategorizationJobService.start().block();
+        Mono
+            .defer(() -> recategorizationJobRepository.findById(job.getId()))
+            .filter(finished -> finished.getStatus() == RecategorizationJobStatus.COMPLETED)
+            .repeatWhenEmpty(100, attempts -> attempts.delayElements(Duration.ofMillis(100)))
+            .block(Duration.ofSeconds(30));
+        assertMaintainedAsRebuilt();
+        groceries = expenseService.save(groceries.searchString1("BAKERY").searchString2(null)).block();
+        assertMaintainedAsRebuilt();
+
+        TransactionBulkUpdateDTO bulkUpdate = new TransactionBulkUpdateDTO();
+        bulkUpdate.setAccountType("Visa");
+        bulkUpdate.setFromDate(Instant.parse("2021-04-01T00:00:00Z"));
+        bulkUpdate.setClearCategory(true);
+        assertThat(transactionService.updateAll(bulkUpdate).block()).isEqualTo(2);
+        List<MonthlyRollupDTO> maintained = assertMaintainedAsRebuilt();
+        assertThat(maintained)
+            .extracting("month.monthValue", "accountType", "category", "amountCAD", "count")
+            .containsExactly(
+                tuple(3, "Chequing", "Salary", 250000L, 1L),
+                tuple(3, "Visa", "Groceries", -1100L, 2L),
+                tuple(4, "Visa", null, -900L, 2L)
+            );
+        recategorizationJobRepository.deleteAll().block();
+    }
+
+    @Test
+    void insertSkipsTheTransactionsImportedAlready() {
+        Transaction imported = transaction("2021-05-10T12:00:00Z", "Visa", -400L, null).description1("BAKERY");
+        imported.setFingerprint("imported");
+        assertThat(transactionService.insertNew(Arrays.asList(imported)).block()).isEqualTo(1);
+
+        // the same row imported again, by an overlapping statement, along with a new one
+        Transaction again = transaction("2021-05-10T12:00:00Z", "Visa", -400L, null).description1("BAKERY");
+        again.setFingerprint("imported");
+        Transaction coffee = transaction("2021-05-11T12:00:00Z", "Visa", -300L, null).description1("COFFEE");
+        coffee.setFingerprint("coffee");
+        assertThat(transactionService.insertNew(Arrays.asList(again, coffee, again)).block()).isEqualTo(1);
+
+        assertThat(transactionRepository.count().block()).isEqualTo(2L);
+        assertThat(assertMaintainedAsRebuilt()).extracting("amountCAD", "count").containsExactly(tuple(-700L, 2L));
+    }
+
+    /**
+     * @return the monthly rollup, once checked against the rollup rebuilt from the whole table.
+     */
+    private List<MonthlyRollupDTO> assertMaintainedAsRebuilt() {
+        List<MonthlyRollupDTO> maintained = getMonthly("");
+        transactionRollupService.rebuild().block();
+        assertThat(getMonthly("")).usingRecursiveFieldByFieldElementComparator().isEqualTo(maintained);
+        return maintained;
+    }
+
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    void rebuildCatchesUpWithTransactionsWrittenBehindTheService() {
+        transactionRepository.save(transaction("2021-06-15T12:00:00Z", "Visa", -700L, groceries)).block();
+        assertThat(getMonthly("?from=2021-06&to=2021-06")).isEmpty();
+
+        webTestClient.post().uri(MONTHLY_API_URL + "/rebuild").exchange().expectStatus().isOk();
+
+        assertThat(getMonthly("?from=2021-06&to=2021-06")).extracting("amountCAD", "count").containsExactly(tuple(-700L, 1L));
+    }
+
+    @Test
+    void rebuildRequiresAdmin() {
+        webTestClient.post().uri(MONTHLY_API_URL + "/rebuild").exchange().expectStatus().isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void monthsMustBeInOrder() {
+        webTestClient.get().uri(MONTHLY_API_URL + "?from=2021-05&to=2021-04").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    void summaryGroupsTheTransactionsOfTheDatesInOneQuery() {
+        transactionRepository.save(transaction("2021-03-01T10:00:00Z", "Visa", -1000L, groceries).isTracked(true)).block();
+        transactionRepository.save(transaction("2021-03-07T23:00:00Z", "Visa", 3000L, null).isTracked(false)).block();
+        transactionRepository.save(transaction("2021-03-08T01:00:00Z", "Chequing", -200L, groceries).isTracked(false)).block();
+        transactionRepository.save(transaction("2021-04-02T12:00:00Z", "Visa", null, groceries).amountUSD(-40L).isTracked(false)).block();
+        transactionRepository.save(transaction("2021-05-01T00:00:00Z", "Visa", -1L, groceries).isTracked(false)).block();
+        String dates = "?from=2021-03-01&to=2021-04-30";
+
+        assertThat(getSummary(dates + "&groupBy=week"))
+            .extracting("group", "amount", "credits", "debits", "count")
+            .containsExactly(tuple("2021-03-01", 2000L, 3000L, -1000L, 2L), tuple("2021-03-08", -200L, 0L, -200L, 1L));
+        assertThat(getSummary(dates + "&groupBy=day")).extracting("group").containsExactly("2021-03-01", "2021-03-07", "2021-03-08");
+        assertThat(getSummary(dates + "&groupBy=month"))
+            .extracting("group", "amount", "count")
+            .containsExactly(tuple("2021-03", 1800L, 3L));
+        assertThat(getSummary(dates + "&groupBy=month&currency=usd"))
+            .extracting("group", "amount", "count")
+            .containsExactly(tuple("2021-04", -40L, 1L));
+        assertThat(getSummary(dates + "&groupBy=category"))
+            .extracting("group", "amount", "count")
+            .containsExactly(tuple(null, 3000L, 1L), tuple("Groceries", -1200L, 2L));
+        assertThat(getSummary(dates + "&groupBy=accountType"))
+            .extracting("group", "amount")
+            .containsExactly(tuple("Chequing", -200L), tuple("Visa", 2000L));
+        assertThat(getSummary(dates + "&groupBy=tracked"))
+            .extracting("group", "amount", "count")
+            .containsExactly(tuple("false", 2800L, 2L), tuple("true", -1000L, 1L));
+        assertThat(getSummary("?groupBy=month")).extracting("group").containsExactly("2021-03", "2021-05");
+    }
+
+    @Test
+    void summaryRejectsAnUnknownGroupingOrCurrency() {
+        webTestClient.get().uri(SUMMARY_API_URL + "?groupBy=year").exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri(SUMMARY_API_URL + "?currency=EUR").exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri(SUMMARY_API_URL + "?from=2021-05-02&to=2021-05-01").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    void cashflowSumsTheIncomesAndTheExpensesPerBucket() {
+        Transaction pay = transaction("2021-03-01T10:00:00Z", "Chequing", 5000L, null);
+        pay.setIncomeId(salary.getId());
+        transactionRepository.save(pay).block();
+        transactionRepository.save(transaction("2021-03-02T10:00:00Z", "Visa", -1000L, groceries)).block();
+        transactionRepository.save(transaction("2021-03-09T10:00:00Z", "Visa", -200L, groceries)).block();
+        transactionRepository.save(transaction("2021-03-10T10:00:00Z", "Visa", 7L, null)).block();
+
+        CashflowDTO weekly = getCashflow("?from=2021-03-01&to=2021-03-31&resolution=week");
+        assertThat(weekly.getResolution()).isEqualTo("week");
+        assertThat(weekly.getBuckets()).isEqualTo(2L);
+        assertThat(weekly.getIncome())
+            .extracting("date", "amount")
+            .containsExactly(tuple(LocalDate.parse("2021-03-01"), 5000L), tuple(LocalDate.parse("2021-03-08"), 0L));
+        assertThat(weekly.getExpenses())
+            .extracting("date", "amount")
+            .containsExactly(tuple(LocalDate.parse("2021-03-01"), -1000L), tuple(LocalDate.parse("2021-03-08"), -200L));
+        assertThat(getCashflow("?resolution=month").getExpenses())
+            .extracting("date", "amount")
+            .containsExactly(tuple(LocalDate.parse("2021-03-01"), -1200L));
+    }
+
+    @Test
+    void cashflowIsDownsampledToThePoints() {
+        for (int day = 1; day <= 20; day++) {
+            String date = String.format("2021-04-%02dT12:00:00Z", day);
+            transactionRepository.save(transaction(date, "Visa", day % 4 == 0 ? -900L : -10L * day, groceries)).block();
+        }
+
+        CashflowDTO daily = getCashflow("?from=2021-04-01&to=2021-04-30&points=5");
+        assertThat(daily.getBuckets()).isEqualTo(20L);
+        assertThat(daily.getExpenses()).hasSize(5);
+        assertThat(daily.getExpenses().get(0).getDate()).isEqualTo(LocalDate.parse("2021-04-01"));
+        assertThat(daily.getExpenses().get(4).getDate()).isEqualTo(LocalDate.parse("2021-04-20"));
+        assertThat(daily.getExpenses()).extracting("amount").contains(-900L);
+        assertThat(getCashflow("?from=2021-04-01&to=2021-04-30").getExpenses()).hasSize(20);
+    }
+
+    @Test
+    void cashflowRejectsAnUnknownResolutionOrPoints() {
+        webTestClient.get().uri(CASHFLOW_API_URL + "?resolution=category").exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri(CASHFLOW_API_URL + "?points=2").exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri(CASHFLOW_API_URL + "?points=10001").exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri(CASHFLOW_API_URL + "?from=2021-05-02&to=2021-05-01").exchange().expectStatus().isBadRequest();
+    }
+
+    private CashflowDTO getCashflow(String query) {
+        return webTestClient
+            .get()
+            .uri(CASHFLOW_API_URL + query)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody(CashflowDTO.class)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    private List<TransactionSummaryDTO> getSummary(String query) {
+        return webTestClient
+            .get()
+            .uri(SUMMARY_API_URL + query)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBodyList(TransactionSummaryDTO.class)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    private List<MonthlyRollupDTO> getMonthly(String query) {
+        return webTestClient
+            .get()
+            .uri(MONTHLY_API_URL + query)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBodyList(MonthlyRollupDTO.class)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    private Transaction transaction(String date, String accountType, Long amount, Expense expense) {
+        Transaction transaction = TransactionResourceIT
+            .createEntity(em)
+            .transactionDate(Instant.parse(date))
+            .accountType(accountType)
+            .amountCAD(amount)
+            .amountUSD(null);
+        transaction.setExpenseId(expense == null ? null : expense.getId());
+        return transaction;
+    }
+}
@@ -1,19 +1,34 @@
 package org.diytechprojects.financialanalyst.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import org.diytechprojects.financialanalyst.IntegrationTest;
+import org.diytechprojects.financialanalyst.domain.Expense;
+import org.diytechprojects.financialanalyst.domain.Income;
 import org.diytechprojects.financialanalyst.domain.Transaction;
+import org.diytechprojects.financialanalyst.repository.ExpenseRepository;
+import org.diytechprojects.financialanalyst.repository.IncomeRepository;
 import org.diytechprojects.financialanalyst.repository.TransactionRepository;
 import org.diytechprojects.financialanalyst.service.EntityManager;
+import org.diytechprojects.financialanalyst.service.TransactionClassifierService;
+import org.diytechprojects.financialanalyst.service.dto.TransactionBulkUpdateDTO;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,9 +37,13 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
 
 /**
  * Integration tests for the {@link TransactionResource} REST controller.
@@ -67,9 +86,21 @@ class TransactionResourceIT {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private IncomeRepository incomeRepository;
+
+    @Autowired
+    private TransactionClassifierService transactionClassifierService;
+
     @Autowired
     private EntityManager em;
 
+    @Autowired
+    private DatabaseClient databaseClient;
+
     @Autowired
     private WebTestClient webTestClient;
 
@@ -181,6 +212,252 @@ class TransactionResourceIT {
         assertThat(transactionList).hasSize(databaseSizeBeforeCreate);
     }
 
+    @Test
+    void importTransactions() throws Exception {
+        int databaseSizeBeforeImport = transactionRepository.findAll().collectList().block().size();
+        String csv =
+            "\"Account Type\",\"Transaction Date\",\"Cheque Number\",\"Description 1\",\"Description 2\",\"CAD$\",\"USD$\"\n" +
+            "Chequing,4/7/2021,,GROCERY,,-10.50,\n" +
+            "Chequing,4/8/2021,,SALARY,,1500.00,\n" +
+            "Chequing,not a date,,BROKEN,,1.00,\n" +
+            "Visa,4/9/2021,,HOTEL,,,-99.99\n";
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("file", new ByteArrayResource(csv.getBytes(StandardCharsets.UTF_8))).filename("statement.csv");
+
+        webTestClient
+            .post()
+            .uri(ENTITY_API_URL + "/import?batchSize=2")
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+            .accept(MediaType.APPLICATION_JSON)
+            .body(BodyInserters.fromMultipartData(body.build()))
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.length()")
+            .isEqualTo(2)
+            .jsonPath("$[1].totalRows")
+            .isEqualTo(3)
+            .jsonPath("$[1].rejectedRows")
+            .isEqualTo(1);
+
+        List<Transaction> transactionList = transactionRepository.findAll().collectList().block();
+        assertThat(transactionList).hasSize(databaseSizeBeforeImport + 3);
+        assertThat(transactionList).extracting(Transaction::getAmountCAD).contains(-1050L, 150000L);
+        assertThat(transactionList).extracting(Transaction::getAmountUSD).contains(-9999L);
+    }
+
+    @Test
+    void reimportSkipsExistingTransactions() throws Exception {
+        String header = "\"Account Type\",\"Transaction Date\",\"Description 1\",\"CAD$\"\n";
+        String march = "Chequing,3/30/2021,COFFEE,-4.50\nChequing,3/30/2021,COFFEE,-4.50\nChequing,3/31/2021,RENT,-900.00\n";
+        String april = "Chequing,4/1/2021,GROCERY,-50.00\n";
+        importCsv(header + march).jsonPath("$[0].insertedRows").isEqualTo(3);
+        int databaseSizeBeforeImport = transactionRepository.findAll().collectList().block().size();
+
+        // updates coming from the API do not know the fingerprint, it must survive them
+        Transaction rent = transactionRepository
+            .findAll()
+            .filter(transaction -> "RENT".equals(transaction.getDescription1()))
+            .blockFirst();
+        transactionRepository.save(rent.fingerprint(null).isTracked(true)).block();
+
+        // the overlapping file only adds the new row, both identical coffees were already imported
+        importCsv(header + march + april).jsonPath("$[0].insertedRows").isEqualTo(1).jsonPath("$[0].skippedRows").isEqualTo(3);
+
+        List<Transaction> transactionList = transactionRepository.findAll().collectList().block();
+        assertThat(transactionList).hasSize(databaseSizeBeforeImport + 1);
+    }
+
+    @Test
+    void importCategorizesTransactions() throws Exception {
+        Expense groceries = expenseRepository.save(ExpenseResourceIT.createEntity(em).searchString1("grocery")).block();
+
+        importCsv("\"Transaction Date\",\"Description 1\",\"CAD$\"\n4/7/2021,  BIG   GROCERY  STORE ,-10.50\n4/8/2021,GROCERY REFUND,10.50\n");
+
+        List<Transaction> transactionList = transactionRepository.findByExpense(groceries.getId()).collectList().block();
+        assertThat(transactionList).hasSize(1);
+        assertThat(transactionList.get(0).getDescription1()).isEqualTo("BIG GROCERY STORE");
+        transactionRepository.deleteAll(transactionList).block();
+        expenseRepository.delete(groceries).block();
+    }
+
+    @Test
+    void importOfxTransactions() throws Exception {
+        int databaseSizeBeforeImport = transactionRepository.findAll().collectList().block().size();
+        String ofx =
+            "OFXHEADER:100\nDATA:OFXSGML\nVERSION:102\nENCODING:USASCII\nCHARSET:1252\n\n" +
+            "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><CURDEF>CAD\n" +
+            "<BANKACCTFROM><BANKID>123<ACCTID>456<ACCTTYPE>CHECKING</BANKACCTFROM>\n" +
+            "<BANKTRANLIST><DTSTART>20210401\n" +
+            "<STMTTRN><TRNTYPE>DEBIT<DTPOSTED>20210407120000[-5:EST]<TRNAMT>-12.34<FITID>1<NAME>A&W RESTAURANT<MEMO>LUNCH</STMTTRN>\n" +
+            "<STMTTRN><TRNTYPE>CREDIT<DTPOSTED>20210408<TRNAMT>100.00<FITID>2<NAME>PAYROLL</STMTTRN>\n" +
+            "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>\n";
+
+        importFile(ofx, "statement.qfx").jsonPath("$[0].insertedRows").isEqualTo(2).jsonPath("$[0].rejectedRows").isEqualTo(0);
+
+        List<Transaction> transactionList = transactionRepository.findAll().collectList().block();
+        assertThat(transactionList).hasSize(databaseSizeBeforeImport + 2);
+        Transaction lunch = transactionList.get(transactionList.size() - 2);
+        assertThat(lunch.getAccountType()).isEqualTo("CHECKING");
+        assertThat(lunch.getTransactionDate()).isEqualTo(Instant.parse("2021-04-07T00:00:00Z"));
+        assertThat(lunch.getDescription1()).isEqualTo("A&W RESTAURANT");
+        assertThat(lunch.getDescription2()).isEqualTo("LUNCH");
+        assertThat(lunch.getAmountCAD()).isEqualTo(-1234L);
+    }
+
+    @Test
+    void stagedImportValidatesDeduplicatesAndCategorizes() throws Exception {
+        Expense groceries = expenseRepository.save(ExpenseResourceIT.createEntity(em).searchString1("grocery")).block();
+        Expense bigGroceries = expenseRepository.save(ExpenseResourceIT.createEntity(em).searchString2(" Big Grocery ")).block();
+        Income refunds = incomeRepository.save(IncomeResourceIT.createEntity(em).searchString1("refund")).block();
+        int databaseSizeBeforeImport = transactionRepository.findAll().collectList().block().size();
+        String tooLong = String.join("", Collections.nCopies(300, "X"));
+        String csv =
+            "\"Account Type\",\"Transaction Date\",\"Description 1\",\"Description 2\",\"CAD$\"\n" +
+            "Chequing,4/7/2021,  BIG   GROCERY  STORE ,,-10.50\n" +
+            "Chequing,4/7/2021,CORNER GROCERY,,-3.00\n" +
+            "Chequing,4/8/2021,STORE,GROCERY REFUND,10.50\n" +
+            "Chequing,4/9/2021," +
+            tooLong +
+            ",,-1.00\n" +
+            "Chequing,4/10/2021,NO AMOUNT,,\n";
+        String uri = ENTITY_API_URL + "/import?staged=true&batchSize=2";
+
+        // three loaded batches, then the outcome of the merge
+        importFile(csv, "statement.csv", uri)
+            .jsonPath("$.length()")
+            .isEqualTo(4)
+            .jsonPath("$[3].totalRows")
+            .isEqualTo(5)
+            .jsonPath("$[3].insertedRows")
+            .isEqualTo(3)
+            .jsonPath("$[3].rejectedRows")
+            .isEqualTo(2);
+
+        List<Transaction> transactionList = transactionRepository.findAll().collectList().block();
+        assertThat(transactionList).hasSize(databaseSizeBeforeImport + 3);
+        assertThat(transactionList)
+            .filteredOn(transaction -> "BIG GROCERY STORE".equals(transaction.getDescription1()))
+            .extracting(Transaction::getExpenseId)
+            .containsExactly(bigGroceries.getId());
+        assertThat(transactionList)
+            .filteredOn(transaction -> "CORNER GROCERY".equals(transaction.getDescription1()))
+            .extracting(Transaction::getExpenseId)
+            .containsExactly(groceries.getId());
+        assertThat(transactionList)
+            .filteredOn(transaction -> "STORE".equals(transaction.getDescription1()))
+            .extracting(Transaction::getIncomeId, Transaction::getExpenseId)
+            .containsExactly(tuple(refunds.getId(), null));
+
+        // the overlapping file is merged again, all its valid rows already exist
+        importFile(csv, "statement.csv", uri).jsonPath("$[3].insertedRows").isEqualTo(0).jsonPath("$[3].skippedRows").isEqualTo(3);
+        assertThat(transactionRepository.findAll().collectList().block()).hasSize(databaseSizeBeforeImport + 3);
+        Long stagedRows = databaseClient.sql("SELECT COUNT(*) FROM transaction_staging").map(row -> row.get(0, Long.class)).one().block();
+        assertThat(stagedRows).isZero();
+
+        transactionRepository.deleteAll(transactionRepository.findAll().collectList().block()).block();
+        expenseRepository.deleteAll(Arrays.asList(groceries, bigGroceries)).block();
+        incomeRepository.delete(refunds).block();
+    }
+
+    @Test
+    void createTransactionsInBulk() throws Exception {
+        int databaseSizeBeforeCreate = transactionRepository.findAll().collectList().block().size();
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            transactions.add(createEntity(em).description1("BULK " + i).amountCAD((long) i).description2(i % 2 == 0 ? null : "MEMO"));
+        }
+
+        List<Long> ids = webTestClient
+            .post()
+            .uri(ENTITY_API_URL + "/bulk?batchSize=2")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(transactions))
+            .exchange()
+            .expectStatus()
+            .isCreated()
+            .expectBodyList(Long.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertThat(ids).hasSize(5).doesNotContainNull().isSorted();
+        for (int i = 0; i < 5; i++) {
+            Transaction created = transactionRepository.findById(ids.get(i)).block();
+            assertThat(created.getDescription1()).isEqualTo("BULK " + i);
+            assertThat(created.getDescription2()).isEqualTo(i % 2 == 0 ? null : "MEMO");
+            assertThat(created.getAmountCAD()).isEqualTo(i);
+        }
+        assertThat(transactionRepository.findAll().collectList().block()).hasSize(databaseSizeBeforeCreate + 5);
+    }
+
+    @Test
+    void createTransactionsInBulkFromNdjson() throws Exception {
+        String ndjson =
+            "{\"accountType\":\"Visa\",\"description1\":\"FIRST\",\"amountCAD\":-100}\n" +
+            "{\"accountType\":\"Visa\",\"description1\":\"SECOND\",\"amountCAD\":-200}\n";
+
+        List<Long> ids = webTestClient
+            .post()
+            .uri(ENTITY_API_URL + "/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .bodyValue(ndjson)
+            .exchange()
+            .expectStatus()
+            .isCreated()
+            .expectBodyList(Long.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertThat(ids).hasSize(2);
+        assertThat(transactionRepository.findById(ids.get(1)).block().getDescription1()).isEqualTo("SECOND");
+    }
+
+    @Test
+    void createTransactionsInBulkWithExistingIdIsRolledBack() throws Exception {
+        int databaseSizeBeforeCreate = transactionRepository.findAll().collectList().block().size();
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            transactions.add(createEntity(em));
+        }
+        transactions.get(2).setId(1L);
+
+        webTestClient
+            .post()
+            .uri(ENTITY_API_URL + "/bulk?batchSize=1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(transactions))
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+
+        // the batches inserted before the invalid transaction are rolled back
+        assertThat(transactionRepository.findAll().collectList().block()).hasSize(databaseSizeBeforeCreate);
+    }
+
+    private WebTestClient.BodyContentSpec importCsv(String csv) {
+        return importFile(csv, "statement.csv");
+    }
+
+    private WebTestClient.BodyContentSpec importFile(String content, String filename) {
+        return importFile(content, filename, ENTITY_API_URL + "/import");
+    }
+
+    private WebTestClient.BodyContentSpec importFile(String content, String filename, String uri) {
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("file", new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8))).filename(filename);
+        return webTestClient
+            .post()
+            .uri(uri)
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+            .accept(MediaType.APPLICATION_JSON)
+            .body(BodyInserters.fromMultipartData(body.build()))
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody();
+    }
+
     @Test
     void getAllTransactions() {
         // Initialize the database
@@ -500,13 +777,393 @@ class TransactionResourceIT {
             .bodyValue(TestUtil.convertObjectToJsonBytes(transaction))
             .exchange()
             .expectStatus()
-            .isEqualTo(405);
+            // the collection only accepts bulk updates, as plain JSON
+            .isEqualTo(415);
 
         // Validate the Transaction in the database
         List<Transaction> transactionList = transactionRepository.findAll().collectList().block();
         assertThat(transactionList).hasSize(databaseSizeBeforeUpdate);
     }
 
+    @Test
+    void bulkUpdateTransactionsById() throws Exception {
+        Expense groceries = expenseRepository.save(ExpenseResourceIT.createEntity(em)).block();
+        Transaction first = transactionRepository.save(createEntity(em)).block();
+        Transaction second = transactionRepository.save(createEntity(em)).block();
+        Transaction untouched = transactionRepository.save(createEntity(em)).block();
+        TransactionBulkUpdateDTO bulkUpdate = new TransactionBulkUpdateDTO();
+        bulkUpdate.setIds(new HashSet<>(Arrays.asList(first.getId(), second.getId())));
+        bulkUpdate.setIsTracked(true);
+        bulkUpdate.setExpenseId(groceries.getId());
+
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(bulkUpdate))
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody(Integer.class)
+            .isEqualTo(2);
+
+        for (Transaction updated : transactionRepository.findByExpense(groceries.getId()).collectList().block()) {
+            assertThat(updated.getId()).isIn(first.getId(), second.getId());
+            assertThat(updated.getIsTracked()).isTrue();
+            assertThat(updated.getDescription1()).isEqualTo(DEFAULT_DESCRIPTION_1);
+        }
+        Transaction testTransaction = transactionRepository.findById(untouched.getId()).block();
+        assertThat(testTransaction.getIsTracked()).isEqualTo(DEFAULT_IS_TRACKED);
+        assertThat(testTransaction.getExpenseId()).isNull();
+        transactionRepository.deleteAll().block();
+        expenseRepository.delete(groceries).block();
+    }
+
+    @Test
+    void bulkUpdateTransactionsByCriteria() throws Exception {
+        transactionRepository.save(createEntity(em).accountType("Visa").transactionDate(Instant.parse("2021-04-01T00:00:00Z"))).block();
+        transactionRepository.save(createEntity(em).accountType("Visa").transactionDate(Instant.parse("2021-04-30T00:00:00Z"))).block();
+        transactionRepository.save(createEntity(em).accountType("Visa").transactionDate(Instant.parse("2021-05-01T00:00:00Z"))).block();
+        transactionRepository.save(createEntity(em).accountType("Chequing").transactionDate(Instant.parse("2021-04-15T00:00:00Z"))).block();
+        TransactionBulkUpdateDTO bulkUpdate = new TransactionBulkUpdateDTO();
+        bulkUpdate.setAccountType("Visa");
+        bulkUpdate.setFromDate(Instant.parse("2021-04-01T00:00:00Z"));
+        bulkUpdate.setToDate(Instant.parse("2021-05-01T00:00:00Z"));
+        bulkUpdate.setIsTracked(true);
+
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(bulkUpdate))
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody(Integer.class)
+            .isEqualTo(2);
+
+        assertThat(transactionRepository.findAll().filter(Transaction::getIsTracked).count().block()).isEqualTo(2);
+    }
+
+    @Test
+    void bulkUpdateTransactionsWithoutSelection() throws Exception {
+        transactionRepository.save(transaction).block();
+        TransactionBulkUpdateDTO bulkUpdate = new TransactionBulkUpdateDTO();
+        bulkUpdate.setIsTracked(true);
+
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(bulkUpdate))
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+
+        assertThat(transactionRepository.findById(transaction.getId()).block().getIsTracked()).isEqualTo(DEFAULT_IS_TRACKED);
+    }
+
+    @Test
+    void bulkUpdateTransactionsCategory() throws Exception {
+        Expense groceries = expenseRepository.save(ExpenseResourceIT.createEntity(em)).block();
+        Income salary = incomeRepository.save(IncomeResourceIT.createEntity(em)).block();
+        Transaction categorized = transactionRepository.save(createEntity(em).income(salary)).block();
+        TransactionBulkUpdateDTO bulkUpdate = new TransactionBulkUpdateDTO();
+        bulkUpdate.setIds(Collections.singleton(categorized.getId()));
+        bulkUpdate.setExpenseId(groceries.getId());
+
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(bulkUpdate))
+            .exchange()
+            .expectStatus()
+            .isOk();
+
+        // setting the expense unsets the income
+        Transaction testTransaction = transactionRepository.findById(categorized.getId()).block();
+        assertThat(testTransaction.getExpenseId()).isEqualTo(groceries.getId());
+        assertThat(testTransaction.getIncomeId()).isNull();
+
+        bulkUpdate.setExpenseId(null);
+        bulkUpdate.setClearCategory(true);
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(bulkUpdate))
+            .exchange()
+            .expectStatus()
+            .isOk();
+
+        testTransaction = transactionRepository.findById(categorized.getId()).block();
+        assertThat(testTransaction.getExpenseId()).isNull();
+        assertThat(testTransaction.getIncomeId()).isNull();
+
+        // a single category at a time
+        bulkUpdate.setIncomeId(salary.getId());
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(bulkUpdate))
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+
+        transactionRepository.deleteAll().block();
+        expenseRepository.delete(groceries).block();
+        incomeRepository.delete(salary).block();
+    }
+
+    @Test
+    void bulkUpdateTransactionsWithUnknownExpense() throws Exception {
+        transactionRepository.save(transaction).block();
+        TransactionBulkUpdateDTO bulkUpdate = new TransactionBulkUpdateDTO();
+        bulkUpdate.setIds(Collections.singleton(transaction.getId()));
+        bulkUpdate.setExpenseId(Long.MAX_VALUE);
+
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(bulkUpdate))
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+    }
+
+    @Test
+    void getTransactionSuggestion() throws Exception {
+        Expense cloud = expenseRepository.save(ExpenseResourceIT.createEntity(em)).block();
+        for (String description : new String[] { "HOOLI CLOUD", "Hooli Cloud Storage", "HOOLI*CLOUD 2TB" }) {
+            Transaction categorized = createEntity(em).description1(description).description2(null).amountCAD(-999L).expense(cloud);
+            webTestClient
+                .post()
+                .uri(ENTITY_API_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(TestUtil.convertObjectToJsonBytes(categorized))
+                .exchange()
+                .expectStatus()
+                .isCreated();
+        }
+        Transaction uncategorized = transactionRepository
+            .save(createEntity(em).description1("HOOLI CLOUD 2TB").description2(null).amountCAD(-1099L))
+            .block();
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID + "/suggestion", uncategorized.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.expenseId")
+            .isEqualTo(cloud.getId().intValue())
+            .jsonPath("$.incomeId")
+            .doesNotExist()
+            .jsonPath("$.confidence")
+            .value(greaterThan(0.5));
+        webTestClient.get().uri(ENTITY_API_URL_ID + "/suggestion", Long.MAX_VALUE).exchange().expectStatus().isNotFound();
+
+        deleteEntities(em);
+        expenseRepository.delete(cloud).block();
+    }
+
+    @Test
+    void getTransactionSuggestionOnceRecategorizedInBulk() throws Exception {
+        Expense cloud = expenseRepository.save(ExpenseResourceIT.createEntity(em)).block();
+        Expense storage = expenseRepository.save(ExpenseResourceIT.createEntity(em)).block();
+        Set<Long> ids = new HashSet<>();
+        for (String description : new String[] { "INITECH BACKUP", "Initech Backup Plan", "INITECH*BACKUP 1TB" }) {
+            Transaction categorized = createEntity(em).description1(description).description2(null).amountCAD(-599L).expense(cloud);
+            Transaction created = webTestClient
+                .post()
+                .uri(ENTITY_API_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(TestUtil.convertObjectToJsonBytes(categorized))
+                .exchange()
+                .expectStatus()
+                .isCreated()
+                .expectBody(Transaction.class)
+                .returnResult()
+                .getResponseBody();
+            ids.add(created.getId());
+        }
+        Transaction uncategorized = transactionRepository
+            .save(createEntity(em).description1("INITECH BACKUP 2TB").description2(null).amountCAD(-699L))
+            .block();
+        // learned before being recategorized
+        transactionClassifierService.refresh().block();
+        TransactionBulkUpdateDTO bulkUpdate = new TransactionBulkUpdateDTO();
+        bulkUpdate.setIds(ids);
+        bulkUpdate.setExpenseId(storage.getId());
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(bulkUpdate))
+            .exchange()
+            .expectStatus()
+            .isOk();
+
+        // as by the nightly build
+        transactionClassifierService.rebuild().block();
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID + "/suggestion", uncategorized.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.expenseId")
+            .isEqualTo(storage.getId().intValue());
+
+        deleteEntities(em);
+        expenseRepository.delete(cloud).block();
+        expenseRepository.delete(storage).block();
+    }
+
+    @Test
+    void getSimilarTransactions() throws Exception {
+        // Initialize the database, behind the back of the index
+        Transaction amazon = transactionRepository.save(createEntity(em).description1("AMAZON.CA").description2(null)).block();
+        Transaction misspelled = transactionRepository.save(createEntity(em).description1("Amazn.ca").description2("Order")).block();
+        Transaction fromDescription2 = transactionRepository.save(createEntity(em).description1(" ").description2("AMAZON CA")).block();
+        transactionRepository.save(createEntity(em).description1("AMZN MKTP CA*2K3").description2(null)).block();
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID + "/similar?maxEdits=2", amazon.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.[*].id")
+            .value(contains(fromDescription2.getId().intValue(), misspelled.getId().intValue()));
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID + "/similar?maxEdits=0&size=5", amazon.getId())
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.[*].id")
+            .value(contains(fromDescription2.getId().intValue()));
+        webTestClient.get().uri(ENTITY_API_URL_ID + "/similar", Long.MAX_VALUE).exchange().expectStatus().isNotFound();
+        webTestClient.get().uri(ENTITY_API_URL_ID + "/similar?maxEdits=9", amazon.getId()).exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    void searchTransactions() throws Exception {
+        // Initialize the database, behind the back of the index
+        Transaction market = transactionRepository.save(createEntity(em).description1("Globex Market #12").description2(null)).block();
+        Transaction globex = transactionRepository.save(createEntity(em).description1("GLOBEX").description2(null)).block();
+        Transaction initech = transactionRepository.save(createEntity(em).description1("INITECH").description2(null)).block();
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "/search?q=globex&size=1")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "2")
+            .expectBody()
+            .jsonPath("$.[*].id")
+            .isEqualTo(globex.getId().intValue());
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "/search?q=MARKET globex")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.[*].id")
+            .isEqualTo(market.getId().intValue());
+
+        // Descriptions changed through the service are searchable at once
+        Transaction partialUpdatedTransaction = new Transaction();
+        partialUpdatedTransaction.setId(initech.getId());
+        partialUpdatedTransaction.setDescription1("Globex Initech");
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL_ID, initech.getId())
+            .contentType(MediaType.valueOf("application/merge-patch+json"))
+            .bodyValue(TestUtil.convertObjectToJsonBytes(partialUpdatedTransaction))
+            .exchange()
+            .expectStatus()
+            .isOk();
+        webTestClient.delete().uri(ENTITY_API_URL_ID, globex.getId()).exchange().expectStatus().isNoContent();
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "/search?q=globex")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "2")
+            .expectBody()
+            .jsonPath("$.[*].id")
+            .value(contains(initech.getId().intValue(), market.getId().intValue()));
+    }
+
+    @Test
+    void getRuleConflicts() {
+        // Initialize the database
+        Expense globex = expenseRepository.save(ExpenseResourceIT.createEntity(em).searchString1("GLOBEX").searchString2(null)).block();
+        Expense market = expenseRepository
+            .save(ExpenseResourceIT.createEntity(em).searchString1("Globex Market").searchString2(null))
+            .block();
+        Transaction first = transactionRepository
+            .save(createEntity(em).description1("GLOBEX MARKET #3").description2(null).amountCAD(-100L))
+            .block();
+        transactionRepository.save(createEntity(em).description1("GLOBEX").description2(null).amountCAD(-100L)).block();
+        Transaction second = transactionRepository
+            .save(createEntity(em).description1("Globex Market").description2(null).amountCAD(-50L).expense(globex))
+            .block();
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "/rule-conflicts?afterId={afterId}&size=1", first.getId() - 1)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.length()")
+            .isEqualTo(1)
+            .jsonPath("$.[0].transactionId")
+            .isEqualTo(first.getId().intValue())
+            .jsonPath("$.[0].ruleType")
+            .isEqualTo("EXPENSE")
+            .jsonPath("$.[0].matchingRuleIds")
+            .value(contains(market.getId().intValue(), globex.getId().intValue()))
+            .jsonPath("$.[0].assignedRuleId")
+            .doesNotExist();
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "/rule-conflicts?afterId={afterId}", first.getId())
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.[*].transactionId")
+            .isEqualTo(second.getId().intValue())
+            .jsonPath("$.[0].assignedRuleId")
+            .isEqualTo(globex.getId().intValue());
+        webTestClient.get().uri(ENTITY_API_URL + "/rule-conflicts?size=0").exchange().expectStatus().isBadRequest();
+
+        deleteEntities(em);
+        expenseRepository.deleteAll(Arrays.asList(globex, market)).block();
+    }
+
     @Test
     void deleteTransaction() {
         // Initialize the database